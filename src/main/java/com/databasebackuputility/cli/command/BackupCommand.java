@@ -4,14 +4,20 @@ import com.databasebackuputility.model.BackupResult;
 import com.databasebackuputility.model.BackupType;
 import com.databasebackuputility.model.DatabaseConfig;
 import com.databasebackuputility.model.DatabaseType;
+import com.databasebackuputility.model.FleetBackupReport;
 import com.databasebackuputility.service.BackupService;
 import com.databasebackuputility.service.CompressionService;
+import com.databasebackuputility.service.FleetBackupService;
 import com.databasebackuputility.service.StorageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -27,8 +33,9 @@ import java.util.concurrent.Callable;
 public class BackupCommand implements Callable<Integer> {
 
     private final BackupService backupService;
+    private final FleetBackupService fleetBackupService;
 
-    @Option(names = {"-t", "--type"}, required = true,
+    @Option(names = {"-t", "--type"},
             description = "Database type: mysql, postgresql, mongodb, sqlite")
     private String databaseType;
 
@@ -38,9 +45,13 @@ public class BackupCommand implements Callable<Integer> {
     @Option(names = {"-p", "--port"}, description = "Database port")
     private Integer port;
 
-    @Option(names = {"-d", "--database"}, required = true,
-            description = "Database name")
-    private String databaseName;
+    @Option(names = {"-d", "--database"}, split = ",",
+            description = "Database name; repeat or separate with commas to back up several")
+    private List<String> databaseNames;
+
+    @Option(names = {"--inventory"},
+            description = "CSV file with one database per line: type,host,port,database,username[,password]")
+    private File inventoryFile;
 
     @Option(names = {"-u", "--user"}, description = "Database username")
     private String username;
@@ -57,11 +68,11 @@ public class BackupCommand implements Callable<Integer> {
     private String backupTypeStr = "full";
 
     @Option(names = {"-c", "--compress"},
-            description = "Compression type: none, gzip, zip")
+            description = "Compression type: none, gzip, zip, zstd, lz4, xz, auto")
     private String compressionStr = "gzip";
 
     @Option(names = {"-s", "--storage"},
-            description = "Storage provider: local, s3, gcs, azure")
+            description = "Storage providers, comma-separated to store in several at once: local, s3, gcs, azure, dedup")
     private String storageStr = "local";
 
     @Option(names = {"--test-connection"},
@@ -76,30 +87,44 @@ public class BackupCommand implements Callable<Integer> {
             System.out.println("═══════════════════════════════════════════");
             System.out.println();
 
-            // Build database configuration
-            DatabaseConfig config = buildDatabaseConfig();
-            System.out.println(config.toString());
+            // Build database configurations
+            List<DatabaseConfig> configs = buildDatabaseConfigs();
+            if (configs.isEmpty()) {
+                System.err.println("❌ Error: specify --type and --database, or --inventory");
+                return 1;
+            }
+            if (configs.size() == 1) {
+                System.out.println(configs.get(0).toString());
+            }
 
             // Test connection if requested
             if (testConnection) {
-                System.out.println("Testing database connection...");
-                boolean connected = backupService.testConnection(config);
-
-                if (connected) {
-                    System.out.println("✅ Connection successful!");
-                    return 0;
-                } else {
-                    System.err.println("❌ Connection failed!");
-                    return 1;
+                boolean allConnected = true;
+                for (DatabaseConfig config : configs) {
+                    System.out.println("Testing database connection: " + config.getDatabaseName() + "...");
+                    boolean connected = backupService.testConnection(config);
+
+                    if (connected) {
+                        System.out.println("✅ Connection successful!");
+                    } else {
+                        System.err.println("❌ Connection failed!");
+                        allConnected = false;
+                    }
                 }
+                return allConnected ? 0 : 1;
             }
 
             // Get backup settings
             BackupType backupType = BackupType.valueOf(backupTypeStr.toUpperCase());
             CompressionService.CompressionType compressionType =
                     CompressionService.CompressionType.valueOf(compressionStr.toUpperCase());
-            StorageService.StorageProvider storageProvider =
-                    StorageService.StorageProvider.valueOf(storageStr.toUpperCase());
+            List<StorageService.StorageProvider> storageProviders = StorageService.parseProviders(storageStr);
+
+            if (configs.size() > 1) {
+                return runFleetBackup(configs, backupType, compressionType, storageProviders);
+            }
+
+            DatabaseConfig config = configs.get(0);
 
             // Display backup configuration
             System.out.println("Backup Configuration:");
@@ -108,13 +133,13 @@ public class BackupCommand implements Callable<Integer> {
             System.out.println("  Host: " + config.getHost());
             System.out.println("  Backup Type: " + backupType);
             System.out.println("  Compression: " + compressionType);
-            System.out.println("  Storage: " + storageProvider);
+            System.out.println("  Storage: " + storageProviders);
             System.out.println();
 
             // Execute backup
             System.out.println("Starting backup...");
             BackupResult result = backupService.backup(
-                    config, backupType, compressionType, storageProvider);
+                    config, backupType, compressionType, storageProviders);
 
             // Display results
             System.out.println();
@@ -125,6 +150,22 @@ public class BackupCommand implements Callable<Integer> {
                 System.out.println("  Backup ID: " + result.getBackupId());
                 System.out.println("  File Path: " + result.getFilePath());
                 System.out.println("  File Size: " + result.getFormattedFileSize());
+                System.out.println("  Compression: " + result.getCompressionDecision().getSummary());
+                if (result.getDumpProcess() != null) {
+                    System.out.println("  Dump Tool: " + result.getDumpProcess().getSummary());
+                }
+                if (result.getStageMetrics() != null && !result.getStageMetrics().isEmpty()) {
+                    System.out.println("  Stages:");
+                    result.getStageMetrics().forEach(stage -> System.out.println("    " + stage.getSummary()));
+                }
+                if (result.getStorageTargets() != null && result.getStorageTargets().size() > 1) {
+                    System.out.println("  Storage Targets:");
+                    result.getStorageTargets().forEach(target -> System.out.println("    " + target.getSummary()));
+                }
+                if (result.getBaseBackupPath() != null) {
+                    System.out.println("  Backup Type: " + result.getBackupType() + " (delta of "
+                            + result.getBaseBackupPath() + ")");
+                }
                 System.out.println("  Duration: " + result.getFormattedDuration());
                 System.out.println("  Start Time: " + result.getStartTime());
                 System.out.println("  End Time: " + result.getEndTime());
@@ -132,6 +173,9 @@ public class BackupCommand implements Callable<Integer> {
             } else {
                 System.err.println("❌ Backup failed!");
                 System.err.println("  Error: " + result.getErrorMessage());
+                if (result.getStorageTargets() != null) {
+                    result.getStorageTargets().forEach(target -> System.err.println("    " + target.getSummary()));
+                }
                 return 1;
             }
 
@@ -142,10 +186,79 @@ public class BackupCommand implements Callable<Integer> {
         }
     }
 
+    /**
+     * Back up several databases concurrently and print the aggregated report
+     */
+    private int runFleetBackup(List<DatabaseConfig> configs, BackupType backupType,
+                               CompressionService.CompressionType compressionType,
+                               List<StorageService.StorageProvider> storageProviders) throws InterruptedException {
+
+        System.out.println("Fleet Backup Configuration:");
+        System.out.println("  Databases: " + configs.size());
+        System.out.println("  Backup Type: " + backupType);
+        System.out.println("  Compression: " + compressionType);
+        System.out.println("  Storage: " + storageProviders);
+        System.out.println();
+
+        System.out.println("Starting backups...");
+        FleetBackupReport report = fleetBackupService.backupAll(
+                configs, backupType, compressionType, storageProviders);
+        BackupResult totals = report.getTotals();
+
+        System.out.println();
+        System.out.printf("%-30s %-12s %-15s %-12s%n", "Database", "Status", "Size", "Duration");
+        System.out.println("─".repeat(72));
+        for (BackupResult result : report.getResults()) {
+            System.out.printf("%-30s %-12s %-15s %-12s%n",
+                    result.getDatabaseName(),
+                    result.isSuccess() ? "OK" : "FAILED",
+                    result.isSuccess() ? result.getFormattedFileSize() : "-",
+                    result.getFormattedDuration());
+        }
+
+        System.out.println();
+        System.out.println("Fleet Summary:");
+        System.out.println("  Succeeded: " + report.getSuccessCount());
+        System.out.println("  Failed: " + report.getFailureCount());
+        System.out.println("  Total Size: " + totals.getFormattedFileSize());
+        System.out.println("  Wall Time: " + totals.getFormattedDuration());
+        System.out.println("  Serial Time: " + report.getSerialDurationMs() / 1000 + "s");
+
+        for (BackupResult result : report.getResults()) {
+            if (!result.isSuccess()) {
+                System.err.println("❌ " + result.getDatabaseName() + ": " + result.getErrorMessage());
+            }
+        }
+
+        return report.isSuccess() ? 0 : 1;
+    }
+
+    /**
+     * Build database configurations from the inventory file and/or CLI options
+     */
+    private List<DatabaseConfig> buildDatabaseConfigs() throws IOException {
+        List<DatabaseConfig> configs = new ArrayList<>();
+
+        if (inventoryFile != null) {
+            configs.addAll(fleetBackupService.loadInventory(inventoryFile.toPath(), password));
+        }
+
+        if (databaseNames != null) {
+            if (databaseType == null) {
+                throw new IllegalArgumentException("--type is required with --database");
+            }
+            for (String name : databaseNames) {
+                configs.add(buildDatabaseConfig(name.trim()));
+            }
+        }
+
+        return configs;
+    }
+
     /**
      * Build database configuration from CLI options
      */
-    private DatabaseConfig buildDatabaseConfig() {
+    private DatabaseConfig buildDatabaseConfig(String databaseName) {
         DatabaseType dbType = DatabaseType.fromString(databaseType);
 
         DatabaseConfig.DatabaseConfigBuilder builder = DatabaseConfig.builder()
@@ -1,14 +1,18 @@
 package com.databasebackuputility.cli.command;
 
-import com.databasebackuputility.service.StorageService;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.CatalogEntry;
+import com.databasebackuputility.model.CatalogQuery;
+import com.databasebackuputility.model.DatabaseType;
+import com.databasebackuputility.service.CatalogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -23,7 +27,40 @@ import java.util.concurrent.Callable;
 @RequiredArgsConstructor
 public class ListCommand implements Callable<Integer> {
 
-    private final StorageService storageService;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final CatalogService catalogService;
+
+    @Option(names = {"-d", "--database"}, description = "Only backups of this database")
+    private String databaseName;
+
+    @Option(names = {"-t", "--type"},
+            description = "Only this database type: mysql, postgresql, mongodb, sqlite")
+    private String databaseType;
+
+    @Option(names = {"--backup-type"},
+            description = "Only this backup type: full, incremental, differential")
+    private String backupType;
+
+    @Option(names = {"-s", "--storage"},
+            description = "Only this storage provider: local, s3, gcs, azure, dedup")
+    private String storage;
+
+    @Option(names = {"--since"}, description = "Only backups started on or after this date (yyyy-MM-dd)")
+    private LocalDate since;
+
+    @Option(names = {"--until"}, description = "Only backups started on or before this date (yyyy-MM-dd)")
+    private LocalDate until;
+
+    @Option(names = {"-n", "--limit"}, description = "Backups per page, 0 for all (default: 50)")
+    private int limit = 50;
+
+    @Option(names = {"--page"}, description = "Page to show, starting at 1")
+    private int page = 1;
+
+    @Option(names = {"--rebuild"},
+            description = "Rebuild the catalog from local and dedup storage before listing")
+    private boolean rebuild;
 
     @Override
     public Integer call() {
@@ -33,33 +70,52 @@ public class ListCommand implements Callable<Integer> {
             System.out.println("═══════════════════════════════════════════");
             System.out.println();
 
-            File[] backups = storageService.listBackups();
+            if (rebuild) {
+                int count = catalogService.rebuild();
+                System.out.println("Catalog rebuilt from storage: " + count + " backups");
+                System.out.println();
+            }
 
-            if (backups == null || backups.length == 0) {
-                System.out.println("No backups found.");
+            CatalogQuery query = CatalogQuery.builder()
+                    .databaseName(databaseName)
+                    .databaseType(databaseType != null ? DatabaseType.fromString(databaseType) : null)
+                    .backupType(backupType != null ? BackupType.valueOf(backupType.toUpperCase()) : null)
+                    .storageProvider(storage != null ? storage.toUpperCase() : null)
+                    .from(since != null ? since.atStartOfDay() : null)
+                    .to(until != null ? until.plusDays(1).atStartOfDay() : null)
+                    .limit(Math.max(limit, 0))
+                    .offset(limit > 0 ? (Math.max(page, 1) - 1) * limit : 0)
+                    .build();
+
+            long total = catalogService.count(query);
+            List<CatalogEntry> backups = catalogService.find(query);
+
+            if (backups.isEmpty()) {
+                System.out.println(total == 0 ? "No backups found." : "No backups on this page.");
                 return 0;
             }
 
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
-            System.out.printf("%-50s %-15s %-20s%n", "Backup File", "Size", "Created");
-            System.out.println("─".repeat(85));
-
-            for (File backup : backups) {
-                BasicFileAttributes attrs = Files.readAttributes(
-                        backup.toPath(), BasicFileAttributes.class);
-
-                String size = formatFileSize(backup.length());
-                String created = dateFormat.format(attrs.creationTime().toMillis());
-
-                System.out.printf("%-50s %-15s %-20s%n",
-                        truncate(backup.getName(), 50),
-                        size,
-                        created);
+            System.out.printf("%-20s %-20s %-13s %-6s %-12s %s%n",
+                    "Started", "Database", "Type", "Codec", "Size", "Location");
+            System.out.println("─".repeat(110));
+
+            for (CatalogEntry backup : backups) {
+                System.out.printf("%-20s %-20s %-13s %-6s %-12s %s%n",
+                        backup.getStartTime().format(DATE_FORMAT),
+                        truncate(backup.getDatabaseType().getName() + "/" + backup.getDatabaseName(), 20),
+                        backup.getBackupType().name().toLowerCase(),
+                        backup.getCompression() != null ? backup.getCompression().toLowerCase() : "-",
+                        formatFileSize(backup.getSizeBytes()),
+                        backup.getLocation());
             }
 
             System.out.println();
-            System.out.println("Total backups: " + backups.length);
+            if (backups.size() < total) {
+                System.out.printf("Showing %d-%d of %d backups%n",
+                        query.getOffset() + 1, query.getOffset() + backups.size(), total);
+            } else {
+                System.out.println("Total backups: " + total);
+            }
 
             return 0;
 
@@ -81,4 +137,4 @@ public class ListCommand implements Callable<Integer> {
         if (str.length() <= maxLength) return str;
         return str.substring(0, maxLength - 3) + "...";
     }
-}
\ No newline at end of file
+}
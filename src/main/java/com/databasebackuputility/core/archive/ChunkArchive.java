@@ -0,0 +1,78 @@
+package com.databasebackuputility.core.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Chunked dump archive written by the parallel dump engines. Format:
+ * <pre>
+ *   "DBCHUNK1" format:UTF
+ *   { 'C' kind:byte table:UTF length:int crc32:int data:length }*
+ *   'E' count:int { kind:byte table:UTF offset:long length:int }*count
+ * </pre>
+ * Every chunk is independently loadable, so restore can hand them to parallel workers
+ * as they are read. Writers emit all SCHEMA chunks before any DATA chunk and all DATA
+ * chunks before any POST chunk. The format names the payload encoding, e.g. {@code mysql-sql}.
+ * The trailing index lists every chunk with its offset, so a complete archive can be
+ * told from a truncated one and chunks can be read from a file by position.
+ */
+public final class ChunkArchive {
+
+    public static final byte[] MAGIC = "DBCHUNK1".getBytes(StandardCharsets.US_ASCII);
+
+    static final int CHUNK_MARKER = 'C';
+    static final int END_MARKER = 'E';
+
+    private ChunkArchive() {
+    }
+
+    /**
+     * When a chunk is loaded relative to the others
+     */
+    public enum Kind {
+        /** Table definitions, loaded one by one before any data */
+        SCHEMA('S'),
+        /** Rows, loaded in parallel in any order */
+        DATA('D'),
+        /** Indexes, constraints, views, triggers and routines, loaded one by one after the data */
+        POST('P');
+
+        private final byte code;
+
+        Kind(char code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static Kind fromCode(int code) {
+            for (Kind kind : values()) {
+                if (kind.code == code) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown chunk kind: " + code);
+        }
+    }
+
+    /**
+     * One loadable unit of an archive
+     */
+    public record Chunk(Kind kind, String table, byte[] data) {
+    }
+
+    /**
+     * Index entry: where a chunk's data starts in the archive and how long it is
+     */
+    public record IndexEntry(Kind kind, String table, long offset, int length) {
+    }
+
+    /**
+     * Whether the bytes start with the archive magic
+     */
+    public static boolean isArchive(byte[] head, int length) {
+        return length >= MAGIC.length && Arrays.equals(head, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+}
@@ -0,0 +1,94 @@
+package com.databasebackuputility.core.archive;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a {@link ChunkArchive} front to back, verifying each chunk's CRC
+ */
+public class ChunkArchiveReader implements ChunkSource {
+
+    private final DataInputStream in;
+    private final String format;
+    private List<ChunkArchive.IndexEntry> index;
+    private int chunkCount;
+
+    public ChunkArchiveReader(InputStream source) throws IOException {
+        this.in = new DataInputStream(source instanceof BufferedInputStream
+                ? source : new BufferedInputStream(source, 1 << 16));
+        byte[] magic = new byte[ChunkArchive.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ChunkArchive.MAGIC)) {
+            throw new IOException("Not a chunked dump archive");
+        }
+        this.format = in.readUTF();
+    }
+
+    /**
+     * Payload encoding the archive was written with
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Next chunk, or null once the index is reached
+     * @throws EOFException if the archive is truncated
+     */
+    @Override
+    public ChunkArchive.Chunk next() throws IOException {
+        if (index != null) {
+            return null;
+        }
+        int marker = in.readUnsignedByte();
+        if (marker == ChunkArchive.END_MARKER) {
+            readIndex();
+            return null;
+        }
+        if (marker != ChunkArchive.CHUNK_MARKER) {
+            throw new IOException("Corrupt archive: unexpected marker " + marker);
+        }
+
+        ChunkArchive.Kind kind = ChunkArchive.Kind.fromCode(in.readUnsignedByte());
+        String table = in.readUTF();
+        int length = in.readInt();
+        int expectedCrc = in.readInt();
+        byte[] data = new byte[length];
+        in.readFully(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupt archive: checksum mismatch in chunk of " + table);
+        }
+        chunkCount++;
+        return new ChunkArchive.Chunk(kind, table, data);
+    }
+
+    /**
+     * Index of all chunks, available once {@link #next()} returned null
+     */
+    public List<ChunkArchive.IndexEntry> getIndex() {
+        if (index == null) {
+            throw new IllegalStateException("Index is read after the last chunk");
+        }
+        return index;
+    }
+
+    private void readIndex() throws IOException {
+        int count = in.readInt();
+        if (count != chunkCount) {
+            throw new IOException("Corrupt archive: index lists " + count + " chunks, read " + chunkCount);
+        }
+        List<ChunkArchive.IndexEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChunkArchive.Kind kind = ChunkArchive.Kind.fromCode(in.readUnsignedByte());
+            entries.add(new ChunkArchive.IndexEntry(kind, in.readUTF(), in.readLong(), in.readInt()));
+        }
+        index = Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,81 @@
+package com.databasebackuputility.core.archive;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a {@link ChunkArchive}. Safe for concurrent use: dump workers build chunks
+ * in their own buffers and each chunk is written whole, so chunks never interleave.
+ */
+public class ChunkArchiveWriter {
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final List<ChunkArchive.IndexEntry> index = new ArrayList<>();
+    private ChunkArchive.Kind phase = ChunkArchive.Kind.SCHEMA;
+    private boolean finished;
+
+    /**
+     * @param format Payload encoding, checked by the restoring engine
+     */
+    public ChunkArchiveWriter(OutputStream target, String format) throws IOException {
+        this.counter = new CountingOutputStream(target);
+        this.out = new DataOutputStream(counter);
+        out.write(ChunkArchive.MAGIC);
+        out.writeUTF(format);
+    }
+
+    public void write(ChunkArchive.Kind kind, String table, byte[] data) throws IOException {
+        write(kind, table, data, 0, data.length);
+    }
+
+    public synchronized void write(ChunkArchive.Kind kind, String table, byte[] data, int off, int len)
+            throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Archive already finished");
+        }
+        if (kind.ordinal() < phase.ordinal()) {
+            throw new IllegalStateException(kind + " chunk for " + table + " after " + phase + " chunks");
+        }
+        phase = kind;
+
+        CRC32 crc = new CRC32();
+        crc.update(data, off, len);
+        out.writeByte(ChunkArchive.CHUNK_MARKER);
+        out.writeByte(kind.getCode());
+        out.writeUTF(table);
+        out.writeInt(len);
+        out.writeInt((int) crc.getValue());
+        index.add(new ChunkArchive.IndexEntry(kind, table, counter.getByteCount(), len));
+        out.write(data, off, len);
+    }
+
+    /**
+     * Write the index; the target stream is flushed but not closed
+     */
+    public synchronized void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        out.writeByte(ChunkArchive.END_MARKER);
+        out.writeInt(index.size());
+        for (ChunkArchive.IndexEntry entry : index) {
+            out.writeByte(entry.kind().getCode());
+            out.writeUTF(entry.table());
+            out.writeLong(entry.offset());
+            out.writeInt(entry.length());
+        }
+        out.flush();
+    }
+
+    public synchronized int getChunkCount() {
+        return index.size();
+    }
+}
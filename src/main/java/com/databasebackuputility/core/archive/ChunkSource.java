@@ -0,0 +1,15 @@
+package com.databasebackuputility.core.archive;
+
+import java.io.IOException;
+
+/**
+ * Produces the chunks {@link ParallelChunkLoader} loads, in SCHEMA, DATA, POST order
+ * per object: an archive, or a dump split into chunks while it is read
+ */
+public interface ChunkSource {
+
+    /**
+     * Next chunk, or null at the end
+     */
+    ChunkArchive.Chunk next() throws IOException;
+}
@@ -0,0 +1,191 @@
+package com.databasebackuputility.core.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Restores a {@link ChunkArchive}, or any other {@link ChunkSource}, over several
+ * sessions. SCHEMA chunks are loaded in order on one session as they are read, DATA
+ * chunks go to a pool of worker sessions through a bounded queue, and POST chunks are
+ * loaded once all data is in: those accepted by {@link #parallelPost} (e.g. index
+ * builds) on fresh worker sessions, the rest afterwards in source order. The queue bound keeps memory at a few chunks
+ * per worker however large the archive.
+ */
+@Slf4j
+public class ParallelChunkLoader {
+
+    /**
+     * A connection to the target database that loads chunks
+     */
+    public interface Session extends AutoCloseable {
+        void load(ChunkArchive.Chunk chunk) throws Exception;
+
+        @Override
+        void close() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface SessionFactory {
+        Session open() throws Exception;
+    }
+
+    /**
+     * Time and bytes spent on one chunk label, summed over all sessions
+     */
+    public record LabelStats(String label, long millis, long bytes, int chunks) {
+    }
+
+    private static final ChunkArchive.Chunk END = new ChunkArchive.Chunk(ChunkArchive.Kind.DATA, "", new byte[0]);
+
+    private final int workers;
+    private final Map<String, LabelStats> stats = new ConcurrentHashMap<>();
+    private Predicate<ChunkArchive.Chunk> parallelPost = chunk -> false;
+
+    public ParallelChunkLoader(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * POST chunks that do not depend on each other and may load concurrently,
+     * ahead of the remaining POST chunks
+     */
+    public ParallelChunkLoader parallelPost(Predicate<ChunkArchive.Chunk> predicate) {
+        this.parallelPost = predicate;
+        return this;
+    }
+
+    /**
+     * Load every chunk of the source
+     * @return Number of chunks loaded
+     */
+    public int load(ChunkSource source, SessionFactory factory) throws Exception {
+        BlockingQueue<ChunkArchive.Chunk> queue = new ArrayBlockingQueue<>(workers * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<ChunkArchive.Chunk> concurrentPost = new ArrayList<>();
+        List<ChunkArchive.Chunk> orderedPost = new ArrayList<>();
+        int count = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, threadFactory());
+        try (Session ordered = factory.open()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> work(factory, queue, failure)));
+            }
+
+            ChunkArchive.Chunk chunk;
+            while ((chunk = source.next()) != null) {
+                count++;
+                switch (chunk.kind()) {
+                    case SCHEMA -> timed(ordered, chunk);
+                    case DATA -> {
+                        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                            throwIfFailed(failure);
+                        }
+                    }
+                    case POST -> (parallelPost.test(chunk) ? concurrentPost : orderedPost).add(chunk);
+                }
+                throwIfFailed(failure);
+            }
+
+            for (int i = 0; i < workers; i++) {
+                while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    throwIfFailed(failure);
+                }
+            }
+            awaitAll(futures);
+            throwIfFailed(failure);
+
+            if (!concurrentPost.isEmpty()) {
+                log.info("Running {} post-data steps over {} sessions", concurrentPost.size(), workers);
+                Queue<ChunkArchive.Chunk> pending = new ConcurrentLinkedQueue<>(concurrentPost);
+                futures.clear();
+                for (int i = 0; i < Math.min(workers, concurrentPost.size()); i++) {
+                    futures.add(executor.submit(() -> drain(factory, pending, failure)));
+                }
+                awaitAll(futures);
+                throwIfFailed(failure);
+            }
+
+            for (ChunkArchive.Chunk postChunk : orderedPost) {
+                timed(ordered, postChunk);
+            }
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+            throw failure.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        return count;
+    }
+
+    /**
+     * Load statistics per chunk label, slowest first
+     */
+    public List<LabelStats> getStats() {
+        List<LabelStats> sorted = new ArrayList<>(stats.values());
+        sorted.sort((a, b) -> Long.compare(b.millis(), a.millis()));
+        return sorted;
+    }
+
+    private void work(SessionFactory factory, BlockingQueue<ChunkArchive.Chunk> queue,
+                      AtomicReference<Exception> failure) {
+        try (Session session = factory.open()) {
+            ChunkArchive.Chunk chunk;
+            while ((chunk = queue.take()) != END && failure.get() == null) {
+                timed(session, chunk);
+            }
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+            // Unblock the reader if it is waiting for queue space
+            queue.clear();
+        }
+    }
+
+    private void drain(SessionFactory factory, Queue<ChunkArchive.Chunk> pending, AtomicReference<Exception> failure) {
+        try (Session session = factory.open()) {
+            ChunkArchive.Chunk chunk;
+            while (failure.get() == null && (chunk = pending.poll()) != null) {
+                timed(session, chunk);
+            }
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void timed(Session session, ChunkArchive.Chunk chunk) throws Exception {
+        long start = System.nanoTime();
+        session.load(chunk);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        stats.merge(chunk.table(), new LabelStats(chunk.table(), millis, chunk.data().length, 1),
+                (a, b) -> new LabelStats(a.label(), a.millis() + b.millis(), a.bytes() + b.bytes(),
+                        a.chunks() + b.chunks()));
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void throwIfFailed(AtomicReference<Exception> failure) throws Exception {
+        Exception e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private static CustomizableThreadFactory threadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("restore-worker-");
+        factory.setDaemon(true);
+        return factory;
+    }
+}
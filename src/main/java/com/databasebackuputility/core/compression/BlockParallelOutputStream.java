@@ -0,0 +1,178 @@
+package com.databasebackuputility.core.compression;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Base for compressors that split their input into fixed-size blocks and
+ * compress the blocks independently on a worker pool.
+ * Compressed blocks are written in input order; at most {@code maxInFlight}
+ * blocks are buffered, which bounds memory and makes a slow target throttle the writer.
+ *
+ * @param <B> Compressed block produced by a worker
+ */
+public abstract class BlockParallelOutputStream<B> extends OutputStream {
+
+    protected final OutputStream out;
+    private final int blockSize;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+    private final Deque<Future<B>> inFlight = new ArrayDeque<>();
+
+    private byte[] block;
+    private int count;
+    private boolean anyBlock;
+    private boolean headerWritten;
+    private boolean closed;
+
+    /**
+     * @param out Target stream
+     * @param blockSize Uncompressed bytes per block
+     * @param executor Pool running the compression tasks
+     * @param maxInFlight Maximum number of blocks queued or being compressed
+     */
+    protected BlockParallelOutputStream(OutputStream out, int blockSize,
+                                        ExecutorService executor, int maxInFlight) {
+        this.out = out;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Compress one block; called on a worker thread
+     */
+    protected abstract B compressBlock(byte[] data, int length) throws IOException;
+
+    /**
+     * Write a compressed block to {@link #out}; called in input order on the writing thread
+     */
+    protected abstract void writeBlock(B compressed) throws IOException;
+
+    /**
+     * Write anything that precedes the first block
+     */
+    protected void writeStreamHeader() throws IOException {
+    }
+
+    /**
+     * Write anything that follows the last block
+     */
+    protected void writeStreamFooter() throws IOException {
+    }
+
+    /**
+     * Whether empty input must still produce one (empty) block
+     */
+    protected boolean requiresBlock() {
+        return false;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes out blocks that are already compressed; the partial block is kept
+     * so that flushing does not shrink blocks
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            drainOne();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (count > 0 || (!anyBlock && requiresBlock())) {
+                submitBlock();
+            }
+            while (!inFlight.isEmpty()) {
+                drainOne();
+            }
+            ensureHeader();
+            writeStreamFooter();
+            out.flush();
+        } finally {
+            closed = true;
+            inFlight.forEach(f -> f.cancel(true));
+            inFlight.clear();
+            block = null;
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (inFlight.size() >= maxInFlight) {
+            drainOne();
+        }
+        byte[] data = block;
+        int length = count;
+        inFlight.addLast(executor.submit(() -> compressBlock(data, length)));
+        anyBlock = true;
+        block = new byte[blockSize];
+        count = 0;
+    }
+
+    private void drainOne() throws IOException {
+        Future<B> next = inFlight.pollFirst();
+        B compressed;
+        try {
+            compressed = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for compressed block");
+        } catch (ExecutionException e) {
+            throw new IOException("Block compression failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        ensureHeader();
+        writeBlock(compressed);
+    }
+
+    private void ensureHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            writeStreamHeader();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
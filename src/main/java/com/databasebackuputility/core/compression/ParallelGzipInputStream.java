@@ -0,0 +1,263 @@
+package com.databasebackuputility.core.compression;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.databasebackuputility.core.compression.ParallelGzipOutputStream.*;
+
+/**
+ * GZIP reader that inflates members in parallel.
+ * Members written by {@link ParallelGzipOutputStream} carry their size in the header,
+ * so the reader can cut the compressed stream into members without inflating it and
+ * hand each one to the worker pool, while still returning data in order.
+ * A member without that index (e.g. a file from plain gzip or an older backup)
+ * switches the rest of the stream to a serial decoder.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    private final InputStream in;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    private byte[] current;
+    private int position;
+    private boolean sourceExhausted;
+    private boolean firstMember = true;
+    private InputStream serial;
+    private boolean closed;
+
+    /**
+     * @param in Compressed input
+     * @param executor Pool running the inflate tasks
+     * @param maxInFlight Maximum number of members read ahead
+     */
+    public ParallelGzipInputStream(InputStream in, ExecutorService executor, int maxInFlight) {
+        this.in = in;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * True when the stream is being decoded serially because it has no block index
+     */
+    public boolean isSerialFallback() {
+        return serial != null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || position == current.length) {
+            if (!nextBlock()) {
+                return serial != null ? serial.read(b, off, len) : -1;
+            }
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        inFlight.forEach(f -> f.cancel(true));
+        inFlight.clear();
+        current = null;
+        if (serial != null) {
+            serial.close();
+        }
+        in.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        while (inFlight.size() < maxInFlight && !sourceExhausted && serial == null) {
+            readMember();
+        }
+        Future<byte[]> next = inFlight.pollFirst();
+        if (next == null) {
+            current = null;
+            return false;
+        }
+        try {
+            current = next.get();
+            position = 0;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for inflated block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause
+                    : new IOException("Block decompression failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Read the next member and queue it for inflation, or switch to the serial decoder
+     */
+    private void readMember() throws IOException {
+        ByteArrayOutputStream consumed = new ByteArrayOutputStream(HEADER_LENGTH);
+
+        int first = in.read();
+        if (first == -1) {
+            if (firstMember) {
+                throw new EOFException("Empty GZIP stream");
+            }
+            sourceExhausted = true;
+            return;
+        }
+        consumed.write(first);
+        byte[] fixed = new byte[9];
+        readFully(fixed, consumed);
+
+        int magic = (first & 0xFF) | (fixed[0] & 0xFF) << 8;
+        if (magic != GZIP_MAGIC) {
+            if (firstMember) {
+                throw new IOException("Not in GZIP format");
+            }
+            // Trailing garbage after the last member is ignored, as gzip does
+            sourceExhausted = true;
+            return;
+        }
+
+        int flags = fixed[2] & 0xFF;
+        long memberSize = -1;
+        int uncompressedSize = -1;
+        if (flags == FLAG_EXTRA) {
+            byte[] xlen = new byte[2];
+            readFully(xlen, consumed);
+            byte[] extra = new byte[(xlen[0] & 0xFF) | (xlen[1] & 0xFF) << 8];
+            readFully(extra, consumed);
+            for (int i = 0; i + 4 <= extra.length; ) {
+                int subLength = (extra[i + 2] & 0xFF) | (extra[i + 3] & 0xFF) << 8;
+                if (extra[i] == INDEX_SUBFIELD_ID1 && extra[i + 1] == INDEX_SUBFIELD_ID2
+                        && subLength == INDEX_SUBFIELD_LENGTH && i + 4 + subLength <= extra.length) {
+                    memberSize = readIntLE(extra, i + 4) & 0xFFFFFFFFL;
+                    uncompressedSize = readIntLE(extra, i + 8);
+                    break;
+                }
+                i += 4 + subLength;
+            }
+        }
+
+        int headerLength = consumed.size();
+        if (memberSize == -1) {
+            switchToSerial(consumed.toByteArray());
+            return;
+        }
+        // The sizes come from the stream; a corrupt index must not decide how much we allocate
+        if (memberSize < headerLength + TRAILER_LENGTH || memberSize > MAX_MEMBER_SIZE
+                || uncompressedSize < 0 || uncompressedSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt GZIP index: member of " + memberSize + " bytes holding "
+                    + (uncompressedSize & 0xFFFFFFFFL) + " bytes");
+        }
+
+        byte[] member = new byte[(int) memberSize];
+        System.arraycopy(consumed.toByteArray(), 0, member, 0, headerLength);
+        readFully(member, headerLength, member.length - headerLength);
+        firstMember = false;
+
+        int expectedSize = uncompressedSize;
+        inFlight.addLast(executor.submit(() -> inflateMember(member, headerLength, expectedSize)));
+    }
+
+    private void switchToSerial(byte[] consumedHeader) throws IOException {
+        InputStream rest = new SequenceInputStream(new ByteArrayInputStream(consumedHeader), in);
+        serial = new GzipCompressorInputStream(rest, true);
+        firstMember = false;
+    }
+
+    private void readFully(byte[] buffer, ByteArrayOutputStream consumed) throws IOException {
+        readFully(buffer, 0, buffer.length);
+        consumed.write(buffer);
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, offset, length);
+            if (n == -1) {
+                throw new EOFException("Truncated GZIP member");
+            }
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Inflate one member and check its CRC32 and size trailer
+     */
+    static byte[] inflateMember(byte[] member, int dataOffset, int uncompressedSize) throws IOException {
+        int trailer = member.length - TRAILER_LENGTH;
+        byte[] data = new byte[uncompressedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, dataOffset, trailer - dataOffset);
+            int total = 0;
+            while (total < uncompressedSize) {
+                int n = inflater.inflate(data, total, uncompressedSize - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                total += n;
+            }
+            if (!inflater.finished() && inflater.inflate(new byte[1]) != 0) {
+                throw new IOException("GZIP member is larger than its index entry");
+            }
+            if (total != uncompressedSize || !inflater.finished()) {
+                throw new IOException("Corrupt GZIP member: expected " + uncompressedSize
+                        + " bytes, inflated " + total);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt GZIP member: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != readIntLE(member, trailer)
+                || uncompressedSize != readIntLE(member, trailer + 4)) {
+            throw new IOException("GZIP member failed CRC check");
+        }
+        return data;
+    }
+
+    private static int readIntLE(byte[] b, int offset) {
+        return (b[offset] & 0xFF)
+                | (b[offset + 1] & 0xFF) << 8
+                | (b[offset + 2] & 0xFF) << 16
+                | (b[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,134 @@
+package com.databasebackuputility.core.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * GZIP compressor that deflates fixed-size blocks on a worker pool.
+ * Every block becomes an independent gzip member, so the output is a standard
+ * multi-member gzip stream readable by {@code gzip -d}, pigz and {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * Each member header carries a BGZF-style extra subfield ("DB") holding the
+ * member's compressed and uncompressed size. Together these form a block index
+ * that {@link ParallelGzipInputStream} follows to inflate members in parallel;
+ * standard gzip readers ignore the field.
+ */
+public class ParallelGzipOutputStream extends BlockParallelOutputStream<byte[]> {
+
+    static final int GZIP_MAGIC = 0x8b1f;
+    static final int FLAG_EXTRA = 0x04;
+    static final int INDEX_SUBFIELD_ID1 = 'D';
+    static final int INDEX_SUBFIELD_ID2 = 'B';
+    static final int INDEX_SUBFIELD_LENGTH = 8;
+    static final int HEADER_LENGTH = 10 + 2 + 4 + INDEX_SUBFIELD_LENGTH;
+    static final int TRAILER_LENGTH = 8;
+    /**
+     * Largest block a member may hold, so readers can refuse an index entry that would
+     * make them allocate more
+     */
+    static final int MAX_BLOCK_SIZE = 128 << 20;
+    /**
+     * Largest member for a block of {@link #MAX_BLOCK_SIZE}, leaving room for
+     * deflate's overhead on incompressible data
+     */
+    static final long MAX_MEMBER_SIZE = MAX_BLOCK_SIZE + MAX_BLOCK_SIZE / 64 + HEADER_LENGTH + TRAILER_LENGTH;
+    private static final int OS_UNKNOWN = 255;
+
+    private final int level;
+
+    /**
+     * @param out Target stream
+     * @param level Deflate level 0-9
+     * @param blockSize Uncompressed bytes per gzip member
+     * @param executor Pool running the deflate tasks
+     * @param maxInFlight Maximum number of blocks queued or being compressed
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int blockSize,
+                                    ExecutorService executor, int maxInFlight) {
+        super(out, blockSize, executor, maxInFlight);
+        if (blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("GZIP block size must be at most " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + level);
+        }
+        this.level = level;
+    }
+
+    @Override
+    protected byte[] compressBlock(byte[] data, int length) throws IOException {
+        return compressMember(data, length, level);
+    }
+
+    @Override
+    protected void writeBlock(byte[] member) throws IOException {
+        out.write(member);
+    }
+
+    /**
+     * A gzip stream needs at least one member, even for empty input
+     */
+    @Override
+    protected boolean requiresBlock() {
+        return true;
+    }
+
+    /**
+     * Compress one block into a complete gzip member: header with the index
+     * subfield, raw deflate data, CRC32 and size trailer
+     */
+    static byte[] compressMember(byte[] data, int length, int level) throws IOException {
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(length / 2 + 64);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                deflated.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        int memberSize = HEADER_LENGTH + deflated.size() + TRAILER_LENGTH;
+        ByteArrayOutputStream member = new ByteArrayOutputStream(memberSize);
+        member.write(GZIP_MAGIC & 0xFF);
+        member.write(GZIP_MAGIC >> 8);
+        member.write(Deflater.DEFLATED);
+        member.write(FLAG_EXTRA);
+        writeIntLE(member, 0);          // mtime
+        member.write(level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0);
+        member.write(OS_UNKNOWN);
+        writeShortLE(member, 4 + INDEX_SUBFIELD_LENGTH);
+        member.write(INDEX_SUBFIELD_ID1);
+        member.write(INDEX_SUBFIELD_ID2);
+        writeShortLE(member, INDEX_SUBFIELD_LENGTH);
+        writeIntLE(member, memberSize);
+        writeIntLE(member, length);
+        deflated.writeTo(member);
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        writeIntLE(member, (int) crc.getValue());
+        writeIntLE(member, length);
+        return member.toByteArray();
+    }
+
+    private static void writeShortLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+}
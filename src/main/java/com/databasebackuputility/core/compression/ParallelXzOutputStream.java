@@ -0,0 +1,164 @@
+package com.databasebackuputility.core.compression;
+
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+/**
+ * XZ compressor that encodes fixed-size blocks on a worker pool.
+ * The output is a single standard .xz stream with one independently decodable
+ * block per input block, followed by an index of all blocks, the same layout
+ * {@code xz -T} produces. The index lets readers such as
+ * {@link org.tukaani.xz.SeekableXZInputStream} seek and decode blocks independently.
+ * <p>
+ * Each worker encodes its block as a complete single-block xz stream; the writer
+ * keeps only the block and merges the per-block index records into one stream index.
+ */
+public class ParallelXzOutputStream extends BlockParallelOutputStream<ParallelXzOutputStream.XzBlock> {
+
+    private static final int STREAM_HEADER_SIZE = 12;
+    private static final int STREAM_FOOTER_SIZE = 12;
+    private static final int CHECK_TYPE = XZ.CHECK_CRC64;
+
+    private final LZMA2Options options;
+    private final List<XzBlock> blocks = new ArrayList<>();
+
+    /**
+     * Encoded block as it appears inside the stream, plus its index record
+     */
+    record XzBlock(byte[] buffer, int offset, int length, long unpaddedSize, long uncompressedSize) {
+    }
+
+    /**
+     * @param out Target stream
+     * @param options LZMA2 settings used for every block
+     * @param blockSize Uncompressed bytes per xz block
+     * @param executor Pool running the encoder tasks
+     * @param maxInFlight Maximum number of blocks queued or being compressed
+     */
+    public ParallelXzOutputStream(OutputStream out, LZMA2Options options, int blockSize,
+                                  ExecutorService executor, int maxInFlight) {
+        super(out, blockSize, executor, maxInFlight);
+        this.options = options;
+    }
+
+    @Override
+    protected XzBlock compressBlock(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(length / 3 + 1024);
+        try (XZOutputStream xz = new XZOutputStream(encoded, options, CHECK_TYPE,
+                BasicArrayCache.getInstance())) {
+            xz.write(data, 0, length);
+        }
+        byte[] stream = encoded.toByteArray();
+
+        // Locate the index through the footer's backward size, then read its single record
+        long backwardSize = readIntLE(stream, stream.length - 8) & 0xFFFFFFFFL;
+        int indexStart = (int) (stream.length - STREAM_FOOTER_SIZE - (backwardSize + 1) * 4);
+        int[] position = {indexStart + 1};
+        if (stream[indexStart] != 0 || readVarint(stream, position) != 1) {
+            throw new IOException("Unexpected xz block layout");
+        }
+        long unpaddedSize = readVarint(stream, position);
+        long uncompressedSize = readVarint(stream, position);
+
+        return new XzBlock(stream, STREAM_HEADER_SIZE, indexStart - STREAM_HEADER_SIZE,
+                unpaddedSize, uncompressedSize);
+    }
+
+    @Override
+    protected void writeStreamHeader() throws IOException {
+        byte[] flags = {0, (byte) CHECK_TYPE};
+        out.write(XZ.HEADER_MAGIC);
+        out.write(flags);
+        writeIntLE(out, crc32(flags, flags.length));
+    }
+
+    @Override
+    protected void writeBlock(XzBlock block) throws IOException {
+        out.write(block.buffer(), block.offset(), block.length());
+        // Only the index record is needed from here on
+        blocks.add(new XzBlock(null, 0, 0, block.unpaddedSize(), block.uncompressedSize()));
+    }
+
+    /**
+     * Write the stream index (one record per block) and the stream footer
+     */
+    @Override
+    protected void writeStreamFooter() throws IOException {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        index.write(0);
+        writeVarint(index, blocks.size());
+        for (XzBlock block : blocks) {
+            writeVarint(index, block.unpaddedSize());
+            writeVarint(index, block.uncompressedSize());
+        }
+        while (index.size() % 4 != 0) {
+            index.write(0);
+        }
+        byte[] indexBytes = index.toByteArray();
+        out.write(indexBytes);
+        writeIntLE(out, crc32(indexBytes, indexBytes.length));
+
+        int indexSize = indexBytes.length + 4;
+        byte[] footer = new byte[6];
+        int backwardSize = indexSize / 4 - 1;
+        footer[0] = (byte) backwardSize;
+        footer[1] = (byte) (backwardSize >> 8);
+        footer[2] = (byte) (backwardSize >> 16);
+        footer[3] = (byte) (backwardSize >> 24);
+        footer[4] = 0;
+        footer[5] = (byte) CHECK_TYPE;
+        writeIntLE(out, crc32(footer, footer.length));
+        out.write(footer);
+        out.write(XZ.FOOTER_MAGIC);
+    }
+
+    private static int crc32(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    private static int readIntLE(byte[] b, int offset) {
+        return (b[offset] & 0xFF)
+                | (b[offset + 1] & 0xFF) << 8
+                | (b[offset + 2] & 0xFF) << 16
+                | (b[offset + 3] & 0xFF) << 24;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while (value >= 0x80) {
+            out.write((int) (value | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] b, int[] position) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            int next = b[position[0]++] & 0xFF;
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid xz variable-length integer");
+    }
+}
@@ -0,0 +1,94 @@
+package com.databasebackuputility.core.connector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+/**
+ * Feeds a restore stream to a database client's stdin.
+ * The client's output is drained on a separate thread so it can never fill
+ * its pipe and stall the client while we are still writing its input.
+ */
+@Slf4j
+final class ClientProcess {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ClientProcess() {
+    }
+
+    /**
+     * Start the client and stream {@code input} into it
+     * @return Exit code of the client
+     * @throws IOException if reading {@code input} fails; the client is killed and the
+     *                     restore fails partway, with whatever it already loaded left in place
+     */
+    static int run(ProcessBuilder pb, InputStream input) throws IOException, InterruptedException {
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        String client = pb.command().get(0);
+
+        Thread drain = new Thread(() -> logOutput(process), client + "-output");
+        drain.setDaemon(true);
+        drain.start();
+
+        try {
+            IOException writeFailure = feed(input, process.getOutputStream());
+            int exitCode = process.waitFor();
+            drain.join();
+            if (writeFailure != null && exitCode == 0) {
+                throw new IOException(client + " stopped reading its input", writeFailure);
+            }
+            return exitCode;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the input to the client's stdin, then close it
+     * @return The write failure if the client closed its stdin early, usually because it failed
+     */
+    private static IOException feed(InputStream input, OutputStream stdin) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            try {
+                stdin.write(buffer, 0, n);
+            } catch (IOException e) {
+                closeQuietly(stdin);
+                return e;
+            }
+        }
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            return e;
+        }
+        return null;
+    }
+
+    private static void logOutput(Process process) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug(line);
+            }
+        } catch (IOException e) {
+            log.debug("Stopped reading client output: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // The client is gone; its exit code reports the failure
+        }
+    }
+}
@@ -2,8 +2,14 @@ package com.databasebackuputility.core.connector;
 
 import com.databasebackuputility.model.BackupType;
 import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.ProcessStats;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Interface for database connectors
@@ -35,6 +41,50 @@ public interface DatabaseConnector {
      */
     void restore(DatabaseConfig config, String backupFilePath) throws Exception;
 
+    /**
+     * Execute restore operation from a stream, e.g. a backup decompressed on the fly.
+     * Connectors whose client reads stdin override this to load while the stream is
+     * still being produced; the default spools the stream to a temporary file first.
+     * @param config Database configuration
+     * @param inputStream Uncompressed backup data; not closed
+     * @throws Exception if restore fails
+     */
+    default void restore(DatabaseConfig config, InputStream inputStream) throws Exception {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        Files.createDirectories(tempDir.toPath());
+        File spool = File.createTempFile("restore-", ".dump", tempDir);
+        try {
+            Files.copy(inputStream, spool.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            restore(config, spool.getAbsolutePath());
+        } finally {
+            if (!spool.delete()) {
+                spool.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Called once a backup taken by {@link #backup} is safely in storage.
+     * Connectors with native incremental backups advance their change tracking
+     * here, so a backup that failed to store never becomes the base of the next one.
+     * @param config Database configuration
+     * @param backupType Type of the stored backup
+     * @param storagePath Where the backup was stored
+     * @throws IOException if the tracking state cannot be saved
+     */
+    default void backupStored(DatabaseConfig config, BackupType backupType, String storagePath) throws IOException {
+    }
+
+    /**
+     * Counters of the external dump tool that produced the last backup of this database.
+     * The counters are handed over once; later calls return null.
+     * @param config Database configuration the backup was taken with
+     * @return Counters, or null if no dump tool ran
+     */
+    default ProcessStats takeProcessStats(DatabaseConfig config) {
+        return null;
+    }
+
     /**
      * Get database size in bytes
      * @param config Database configuration
@@ -44,14 +94,16 @@ public interface DatabaseConnector {
     long getDatabaseSize(DatabaseConfig config) throws Exception;
 
     /**
-     * Check if incremental backup is supported
-     * @return true if supported
+     * Check if the connector produces incremental backups itself.
+     * Otherwise incremental backups are stored as binary deltas of a full dump.
+     * @return true if {@link #backup} honors {@code BackupType.INCREMENTAL}
      */
     boolean supportsIncrementalBackup();
 
     /**
-     * Check if differential backup is supported
-     * @return true if supported
+     * Check if the connector produces differential backups itself.
+     * Otherwise differential backups are stored as binary deltas of a full dump.
+     * @return true if {@link #backup} honors {@code BackupType.DIFFERENTIAL}
      */
     boolean supportsDifferentialBackup();
 }
\ No newline at end of file
@@ -1,24 +1,56 @@
 package com.databasebackuputility.core.connector;
 
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveReader;
+import com.databasebackuputility.core.archive.ParallelChunkLoader;
+import com.databasebackuputility.core.process.ProcessPump;
 import com.databasebackuputility.model.BackupType;
 import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.ProcessStats;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MongoDB database connector implementation
- * Uses mongodump for backup and mongorestore for restore
+ * Uses mongodump for backup and mongorestore for restore, or with the driver engine
+ * a parallel dump of raw BSON into a chunked archive that is restored in parallel as well
  */
 @Slf4j
 @Component("MONGODB")
+@RequiredArgsConstructor
 public class MongoDbConnector implements DatabaseConnector {
 
+    private final ProcessPump processPump;
+
+    private final Map<DatabaseConfig, ProcessStats> processStats = new ConcurrentHashMap<>();
+
+    @Value("${backup.mongodb.engine:mongodump}")
+    private String engine;
+
+    @Value("${backup.mongodb.threads:4}")
+    private int threads;
+
+    @Value("${backup.mongodb.chunk-documents:1000000}")
+    private long chunkDocuments;
+
+    @Value("${backup.mongodb.batch-size:10000}")
+    private int batchSize;
+
+    @Value("${backup.mongodb.frame-size:8388608}")
+    private int frameSize;
+
     @Override
     public boolean testConnection(DatabaseConfig config) {
         try (MongoClient client = MongoClients.create(config.getConnectionUrl())) {
@@ -36,6 +68,15 @@ public class MongoDbConnector implements DatabaseConnector {
     public void backup(DatabaseConfig config, BackupType backupType, OutputStream outputStream) throws Exception {
         log.info("Starting MongoDB backup for database: {}", config.getDatabaseName());
 
+        if ("driver".equalsIgnoreCase(engine)) {
+            try (MongoClient client = MongoClients.create(config.getConnectionUrl())) {
+                new MongoParallelDump(client.getDatabase(config.getDatabaseName()),
+                        threads, chunkDocuments, batchSize, frameSize).dump(outputStream);
+            }
+            log.info("MongoDB backup completed successfully");
+            return;
+        }
+
         // Build mongodump command
         ProcessBuilder pb = new ProcessBuilder();
 
@@ -63,29 +104,132 @@ public class MongoDbConnector implements DatabaseConnector {
             );
         }
 
+        // mongodump logs progress on stderr; the pump keeps it out of the archive
+        processStats.put(config, processPump.run(pb, outputStream));
+
+        log.info("MongoDB backup completed successfully");
+    }
+
+    @Override
+    public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
+        log.info("Starting MongoDB restore from: {}", backupFilePath);
+
+        byte[] head = new byte[ChunkArchive.MAGIC.length];
+        try (InputStream in = new FileInputStream(backupFilePath)) {
+            if (ChunkArchive.isArchive(head, in.readNBytes(head, 0, head.length))) {
+                try (InputStream archive = new BufferedInputStream(new FileInputStream(backupFilePath), 1 << 16)) {
+                    restoreArchive(config, archive);
+                }
+                return;
+            }
+        }
+
+        ProcessBuilder pb = mongorestore(config, "--archive=" + backupFilePath);
         pb.redirectErrorStream(true);
         Process process = pb.start();
 
-        try (InputStream is = process.getInputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug(line);
             }
         }
 
         int exitCode = process.waitFor();
         if (exitCode != 0) {
-            throw new IOException("mongodump failed with exit code: " + exitCode);
+            throw new IOException("mongorestore failed with exit code: " + exitCode);
         }
 
-        log.info("MongoDB backup completed successfully");
+        log.info("MongoDB restore completed successfully");
     }
 
+    /**
+     * Pipe the archive into mongorestore; {@code --archive} without a path reads stdin.
+     * Chunked archives of the driver engine are loaded through the driver.
+     */
     @Override
-    public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
-        log.info("Starting MongoDB restore from: {}", backupFilePath);
+    public void restore(DatabaseConfig config, InputStream inputStream) throws Exception {
+        InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream, 1 << 16);
+        byte[] head = new byte[ChunkArchive.MAGIC.length];
+        in.mark(head.length);
+        int n = in.readNBytes(head, 0, head.length);
+        in.reset();
+        if (ChunkArchive.isArchive(head, n)) {
+            restoreArchive(config, in);
+            return;
+        }
+
+        int exitCode = ClientProcess.run(mongorestore(config, "--archive"), in);
+        if (exitCode != 0) {
+            throw new IOException("mongorestore failed with exit code: " + exitCode);
+        }
+
+        log.info("MongoDB restore completed successfully");
+    }
 
+    /**
+     * Load a chunked archive: collections are dropped and recreated with their options,
+     * documents are inserted over parallel unordered bulk writes, then indexes are built
+     * concurrently and views created last
+     */
+    private void restoreArchive(DatabaseConfig config, InputStream in) throws Exception {
+        ChunkArchiveReader reader = new ChunkArchiveReader(in);
+        if (!MongoParallelDump.FORMAT.equals(reader.getFormat())) {
+            throw new IOException("Cannot restore a " + reader.getFormat() + " archive into MongoDB");
+        }
+        log.info("Loading chunked archive with {} sessions", threads);
+
+        try (MongoClient client = MongoClients.create(config.getConnectionUrl())) {
+            MongoDatabase database = client.getDatabase(config.getDatabaseName());
+            ParallelChunkLoader loader = new ParallelChunkLoader(threads)
+                    .parallelPost(chunk -> chunk.table().startsWith(MongoParallelDump.INDEXES));
+            long start = System.currentTimeMillis();
+            int chunks = loader.load(reader, () -> new DriverSession(database));
+            log.info("Loaded {} chunks in {} ms", chunks, System.currentTimeMillis() - start);
+            loader.getStats().forEach(stats -> log.debug("{}: {} ms", stats.label(), stats.millis()));
+        }
+        log.info("MongoDB restore completed successfully");
+    }
+
+    /**
+     * Loads chunks through a client shared by all sessions; the driver pools its connections
+     */
+    private static final class DriverSession implements ParallelChunkLoader.Session {
+
+        private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+        private final MongoDatabase database;
+
+        DriverSession(MongoDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public void load(ChunkArchive.Chunk chunk) throws Exception {
+            switch (chunk.kind()) {
+                case SCHEMA -> {
+                    database.getCollection(chunk.table()).drop();
+                    database.runCommand(new RawBsonDocument(chunk.data()));
+                }
+                case DATA -> database.getCollection(chunk.table(), RawBsonDocument.class)
+                        .insertMany(MongoParallelDump.documents(chunk.data()), UNORDERED);
+                case POST -> {
+                    if (chunk.table().startsWith(MongoParallelDump.VIEW)) {
+                        database.getCollection(chunk.table().substring(MongoParallelDump.VIEW.length())).drop();
+                    }
+                    database.runCommand(new RawBsonDocument(chunk.data()));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // The client outlives its sessions
+        }
+    }
+
+    private ProcessBuilder mongorestore(DatabaseConfig config, String archiveOption) {
         ProcessBuilder pb = new ProcessBuilder();
 
         if (config.getUsername() != null && config.getPassword() != null) {
@@ -98,7 +242,7 @@ public class MongoDbConnector implements DatabaseConnector {
                     "--authenticationDatabase=" + (config.getAuthDatabase() != null ?
                             config.getAuthDatabase() : "admin"),
                     "--db=" + config.getDatabaseName(),
-                    "--archive=" + backupFilePath,
+                    archiveOption,
                     "--gzip",
                     "--drop"
             );
@@ -108,29 +252,17 @@ public class MongoDbConnector implements DatabaseConnector {
                     "--host=" + config.getHost(),
                     "--port=" + config.getPort(),
                     "--db=" + config.getDatabaseName(),
-                    "--archive=" + backupFilePath,
+                    archiveOption,
                     "--gzip",
                     "--drop"
             );
         }
+        return pb;
+    }
 
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.debug(line);
-            }
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("mongorestore failed with exit code: " + exitCode);
-        }
-
-        log.info("MongoDB restore completed successfully");
+    @Override
+    public ProcessStats takeProcessStats(DatabaseConfig config) {
+        return processStats.remove(config);
     }
 
     @Override
@@ -0,0 +1,282 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveWriter;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Dumps a MongoDB database through the driver, several collections and several
+ * {@code _id} ranges of large collections at once. Documents are copied as the raw
+ * BSON the server sends, without decoding them, into DATA chunks of a {@link ChunkArchive}.
+ * Collection options are SCHEMA chunks; indexes and views are POST chunks, so restore
+ * builds indexes after the documents are in. Like mongodump without {@code --oplog},
+ * each range is read as it is when its cursor runs.
+ */
+@Slf4j
+class MongoParallelDump {
+
+    static final String FORMAT = "mongo-bson";
+
+    /**
+     * Label prefix of the POST chunks that build a collection's indexes
+     */
+    static final String INDEXES = "INDEXES ";
+
+    static final String VIEW = "VIEW ";
+
+    private static final Document ID_INDEX = new Document("_id", 1);
+
+    private final MongoDatabase database;
+    private final int threads;
+    private final long chunkDocuments;
+    private final int batchSize;
+    private final int frameSize;
+
+    private record Collection(String name, Document options, List<Document> indexes, long documents) {
+    }
+
+    /**
+     * Documents of a collection with {@code _id} in [from, to) in index order; a null bound is open
+     */
+    private record Unit(String collection, Object from, Object to, boolean ranged) {
+    }
+
+    MongoParallelDump(MongoDatabase database, int threads, long chunkDocuments, int batchSize, int frameSize) {
+        this.database = database;
+        this.threads = Math.max(1, threads);
+        this.chunkDocuments = Math.max(1, chunkDocuments);
+        this.batchSize = batchSize;
+        this.frameSize = frameSize;
+    }
+
+    void dump(OutputStream outputStream) throws Exception {
+        ChunkArchiveWriter writer = new ChunkArchiveWriter(outputStream, FORMAT);
+        List<Collection> collections = new ArrayList<>();
+        List<Document> views = new ArrayList<>();
+        for (Document info : database.listCollections()) {
+            String name = info.getString("name");
+            if (name.startsWith("system.")) {
+                continue;
+            }
+            Document options = info.get("options", new Document());
+            if ("view".equals(info.getString("type"))) {
+                views.add(new Document("create", name).append("viewOn", options.get("viewOn"))
+                        .append("pipeline", options.get("pipeline"))
+                        .append("collation", options.get("collation")));
+                continue;
+            }
+            List<Document> indexes = "collection".equals(info.getString("type"))
+                    ? database.getCollection(name).listIndexes().into(new ArrayList<>())
+                    : List.of();
+            long documents = database.getCollection(name).estimatedDocumentCount();
+            collections.add(new Collection(name, options, indexes, documents));
+        }
+        // Largest first so the long ones do not start last
+        collections.sort(Comparator.comparingLong(Collection::documents).reversed());
+
+        for (Collection collection : collections) {
+            Document create = new Document("create", collection.name());
+            create.putAll(collection.options());
+            writer.write(ChunkArchive.Kind.SCHEMA, collection.name(), bson(create));
+        }
+
+        Queue<Unit> units = new ConcurrentLinkedQueue<>();
+        for (Collection collection : collections) {
+            units.addAll(units(collection));
+        }
+        log.info("Dumping {} collections as {} units with {} workers", collections.size(), units.size(), threads);
+        dumpUnits(units, writer);
+
+        for (Collection collection : collections) {
+            List<Document> specs = new ArrayList<>();
+            for (Document index : collection.indexes()) {
+                if (!"_id_".equals(index.getString("name"))) {
+                    index.remove("ns");
+                    specs.add(index);
+                }
+            }
+            if (!specs.isEmpty()) {
+                writer.write(ChunkArchive.Kind.POST, INDEXES + collection.name(),
+                        bson(new Document("createIndexes", collection.name()).append("indexes", specs)));
+            }
+        }
+        for (Document view : dependencyOrder(views)) {
+            view.values().removeIf(Objects::isNull);
+            writer.write(ChunkArchive.Kind.POST, VIEW + view.getString("create"), bson(view));
+        }
+        writer.finish();
+        log.info("Wrote {} chunks", writer.getChunkCount());
+    }
+
+    /**
+     * Split a collection into {@code _id} ranges of about {@code chunkDocuments} documents.
+     * Bounds are a sorted random sample of the ids. Ranges are index bounds rather than
+     * query predicates, so ids of every BSON type fall into exactly one range.
+     */
+    private List<Unit> units(Collection collection) {
+        boolean hasIdIndex = collection.indexes().stream().anyMatch(index -> "_id_".equals(index.getString("name")));
+        long ranges = (collection.documents() + chunkDocuments - 1) / chunkDocuments;
+        if (!hasIdIndex || ranges <= 1) {
+            return List.of(new Unit(collection.name(), null, null, false));
+        }
+
+        int sampleSize = (int) Math.min(ranges * 10, 10_000);
+        List<Object> sample = new ArrayList<>();
+        database.getCollection(collection.name()).aggregate(List.of(
+                        new Document("$sample", new Document("size", sampleSize)),
+                        new Document("$project", new Document("_id", 1)),
+                        new Document("$sort", ID_INDEX)))
+                .allowDiskUse(true)
+                .forEach(doc -> sample.add(doc.get("_id")));
+
+        List<Object> bounds = new ArrayList<>();
+        double step = (double) sample.size() / ranges;
+        for (int i = 1; i < ranges; i++) {
+            Object bound = sample.get((int) (i * step));
+            if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(bound)) {
+                bounds.add(bound);
+            }
+        }
+        List<Unit> units = new ArrayList<>();
+        Object from = null;
+        for (Object bound : bounds) {
+            units.add(new Unit(collection.name(), from, bound, true));
+            from = bound;
+        }
+        units.add(new Unit(collection.name(), from, null, true));
+        return units;
+    }
+
+    private void dumpUnits(Queue<Unit> units, ChunkArchiveWriter writer) throws Exception {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mongo-dump-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    Unit unit;
+                    while ((unit = units.poll()) != null) {
+                        dumpUnit(unit, writer);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    units.clear();
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void dumpUnit(Unit unit, ChunkArchiveWriter writer) throws Exception {
+        MongoCollection<RawBsonDocument> collection = database.getCollection(unit.collection(), RawBsonDocument.class);
+        FindIterable<RawBsonDocument> find = collection.find().batchSize(batchSize);
+        if (unit.ranged()) {
+            find.hint(ID_INDEX);
+            if (unit.from() != null) {
+                find.min(new Document("_id", unit.from()));
+            }
+            if (unit.to() != null) {
+                find.max(new Document("_id", unit.to()));
+            }
+        }
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(frameSize + (1 << 16));
+        try (MongoCursor<RawBsonDocument> cursor = find.iterator()) {
+            while (cursor.hasNext()) {
+                write(frame, cursor.next());
+                if (frame.size() >= frameSize) {
+                    writer.write(ChunkArchive.Kind.DATA, unit.collection(), frame.toByteArray());
+                    frame.reset();
+                }
+            }
+        }
+        if (frame.size() > 0) {
+            writer.write(ChunkArchive.Kind.DATA, unit.collection(), frame.toByteArray());
+        }
+    }
+
+    /**
+     * Views on other views after the views they read from
+     */
+    private static List<Document> dependencyOrder(List<Document> views) {
+        Map<String, Document> pending = new LinkedHashMap<>();
+        views.forEach(view -> pending.put(view.getString("create"), view));
+        List<Document> ordered = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            int before = pending.size();
+            Iterator<Document> it = pending.values().iterator();
+            while (it.hasNext()) {
+                Document view = it.next();
+                if (!pending.containsKey(view.getString("viewOn"))) {
+                    ordered.add(view);
+                    it.remove();
+                }
+            }
+            if (pending.size() == before) {
+                // A cycle cannot exist on the server; keep the rest in listing order
+                ordered.addAll(pending.values());
+                break;
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Split a DATA chunk into its documents, without decoding them
+     */
+    static List<RawBsonDocument> documents(byte[] data) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        int offset = 0;
+        while (offset < data.length) {
+            int length = ByteBuffer.wrap(data, offset, 4).order(java.nio.ByteOrder.LITTLE_ENDIAN).getInt();
+            if (length < 5 || length > data.length - offset) {
+                throw new IllegalStateException("Corrupt BSON chunk at offset " + offset);
+            }
+            documents.add(new RawBsonDocument(data, offset, length));
+            offset += length;
+        }
+        return documents;
+    }
+
+    static byte[] bson(Document document) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, new RawBsonDocument(document, new DocumentCodec()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Append a document's bytes; the buffer behind a raw document can be larger than the document
+     */
+    private static void write(ByteArrayOutputStream out, RawBsonDocument document) {
+        ByteBuffer bson = document.getByteBuffer().asNIO();
+        if (bson.hasArray()) {
+            out.write(bson.array(), bson.arrayOffset() + bson.position(), bson.remaining());
+        } else {
+            byte[] bytes = new byte[bson.remaining()];
+            bson.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+}
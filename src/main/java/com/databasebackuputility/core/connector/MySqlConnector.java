@@ -1,25 +1,64 @@
 package com.databasebackuputility.core.connector;
 
-import com.databasebackuputility.core.connector.DatabaseConnector;
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveReader;
+import com.databasebackuputility.core.archive.ChunkSource;
+import com.databasebackuputility.core.archive.ParallelChunkLoader;
+import com.databasebackuputility.core.process.ProcessPump;
 import com.databasebackuputility.model.BackupType;
 import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.ProcessStats;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MySQL database connector implementation
- * Uses mysqldump for backup and mysql client for restore
+ * Uses mysqldump for backup and mysql client for restore, or with the jdbc engine
+ * a parallel dump over several connections into a chunked archive that is restored
+ * in parallel as well
  */
 @Slf4j
 @Component("MYSQL")
+@RequiredArgsConstructor
 public class MySqlConnector implements DatabaseConnector {
 
+    private final ProcessPump processPump;
+
+    private final Map<DatabaseConfig, ProcessStats> processStats = new ConcurrentHashMap<>();
+
+    @Value("${backup.mysql.engine:mysqldump}")
+    private String engine;
+
+    @Value("${backup.mysql.restore-engine:mysql}")
+    private String restoreEngine;
+
+    @Value("${backup.mysql.threads:4}")
+    private int threads;
+
+    @Value("${backup.mysql.chunk-rows:500000}")
+    private long chunkRows;
+
+    @Value("${backup.mysql.frame-size:4194304}")
+    private int frameSize;
+
+    @Value("${backup.mysql.statement-size:1048576}")
+    private int statementSize;
+
     @Override
     public boolean testConnection(DatabaseConfig config) {
         try (Connection conn = DriverManager.getConnection(
@@ -37,6 +76,12 @@ public class MySqlConnector implements DatabaseConnector {
     public void backup(DatabaseConfig config, BackupType backupType, OutputStream outputStream) throws Exception {
         log.info("Starting MySQL backup for database: {}", config.getDatabaseName());
 
+        if ("jdbc".equalsIgnoreCase(engine)) {
+            new MySqlParallelDump(config, threads, chunkRows, frameSize, statementSize).dump(outputStream);
+            log.info("MySQL backup completed successfully");
+            return;
+        }
+
         // Build mysqldump command
         ProcessBuilder pb = new ProcessBuilder();
         pb.command(
@@ -50,25 +95,11 @@ public class MySqlConnector implements DatabaseConnector {
                 "--lock-tables=false",
                 "--routines",
                 "--triggers",
+                "--verbose",
                 config.getDatabaseName()
         );
 
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        // Stream output to provided OutputStream
-        try (InputStream is = process.getInputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("mysqldump failed with exit code: " + exitCode);
-        }
+        processStats.put(config, processPump.run(pb, outputStream));
 
         log.info("MySQL backup completed successfully");
     }
@@ -77,6 +108,31 @@ public class MySqlConnector implements DatabaseConnector {
     public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
         log.info("Starting MySQL restore from: {}", backupFilePath);
 
+        try (InputStream in = new FileInputStream(backupFilePath)) {
+            restore(config, in);
+        }
+    }
+
+    /**
+     * Pipe the dump into the mysql client as it arrives, or load a chunked archive,
+     * or with the jdbc restore engine a mysqldump split into tables, over parallel connections
+     */
+    @Override
+    public void restore(DatabaseConfig config, InputStream inputStream) throws Exception {
+        InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream, 1 << 16);
+        byte[] head = new byte[ChunkArchive.MAGIC.length];
+        in.mark(head.length);
+        int n = in.readNBytes(head, 0, head.length);
+        in.reset();
+        if (ChunkArchive.isArchive(head, n)) {
+            restoreArchive(config, in);
+            return;
+        }
+        if ("jdbc".equalsIgnoreCase(restoreEngine)) {
+            restoreSplit(config, in);
+            return;
+        }
+
         ProcessBuilder pb = new ProcessBuilder();
         pb.command(
                 "mysql",
@@ -87,26 +143,114 @@ public class MySqlConnector implements DatabaseConnector {
                 config.getDatabaseName()
         );
 
-        pb.redirectInput(new File(backupFilePath));
-        pb.redirectErrorStream(true);
+        int exitCode = ClientProcess.run(pb, in);
+        if (exitCode != 0) {
+            throw new IOException("MySQL restore failed with exit code: " + exitCode);
+        }
+
+        log.info("MySQL restore completed successfully");
+    }
+
+    private void restoreArchive(DatabaseConfig config, InputStream in) throws Exception {
+        ChunkArchiveReader reader = new ChunkArchiveReader(in);
+        if (!MySqlParallelDump.FORMAT.equals(reader.getFormat())) {
+            throw new IOException("Cannot restore a " + reader.getFormat() + " archive into MySQL");
+        }
+        log.info("Loading chunked archive with {} connections", threads);
+
+        List<String> settings = List.of(
+                "SET SESSION sql_mode = 'NO_AUTO_VALUE_ON_ZERO'",
+                "SET SESSION time_zone = '+00:00'");
+        load(new ParallelChunkLoader(threads), reader,
+                () -> new JdbcSession(config, StandardCharsets.UTF_8, settings));
+    }
+
+    /**
+     * Replay a mysqldump file table by table. Definitions, triggers and routines keep
+     * their dump order on one connection; rows load over the others.
+     */
+    private void restoreSplit(DatabaseConfig config, InputStream in) throws Exception {
+        MySqlDumpSplitter splitter = new MySqlDumpSplitter(in, frameSize);
+        log.info("Replaying mysqldump output over {} connections", threads);
+
+        load(new ParallelChunkLoader(threads), splitter,
+                () -> new JdbcSession(config, StandardCharsets.ISO_8859_1, splitter.getSessionSettings()));
+    }
+
+    private void load(ParallelChunkLoader loader, ChunkSource source, ParallelChunkLoader.SessionFactory sessions)
+            throws Exception {
+        long start = System.currentTimeMillis();
+        int chunks = loader.load(source, sessions);
+        log.info("Loaded {} chunks in {} ms", chunks, System.currentTimeMillis() - start);
+        loader.getStats().forEach(stats -> log.debug("{}: {} ms", stats.label(), stats.millis()));
+        log.info("MySQL restore completed successfully");
+    }
+
+    /**
+     * Connection that loads chunks, one transaction per chunk, with the rows of a DATA
+     * chunk sent as one batch. Checks that only matter for rows the dump already
+     * validated are switched off.
+     */
+    private static final class JdbcSession implements ParallelChunkLoader.Session {
 
-        Process process = pb.start();
+        private final Connection conn;
+        private final Charset charset;
 
-        // Read output/errors
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.debug(line);
+        /**
+         * @param charset How chunk bytes decode to the statements sent; ISO-8859-1 passes
+         *                dump bytes through untouched to a session whose settings SET NAMES
+         * @param settings Statements run when the session opens
+         */
+        JdbcSession(DatabaseConfig config, Charset charset, List<String> settings) throws Exception {
+            Properties properties = new Properties();
+            properties.setProperty("user", config.getUsername());
+            properties.setProperty("password", config.getPassword() == null ? "" : config.getPassword());
+            properties.setProperty("characterEncoding", charset.name());
+            // Send a batch as a few multi-statement packets instead of a round trip per INSERT
+            properties.setProperty("rewriteBatchedStatements", "true");
+            this.conn = DriverManager.getConnection(config.getConnectionUrl(), properties);
+            this.charset = charset;
+            try (Statement stmt = conn.createStatement()) {
+                for (String setting : settings) {
+                    stmt.execute(setting);
+                }
+                stmt.execute("SET SESSION foreign_key_checks = 0");
+                stmt.execute("SET SESSION unique_checks = 0");
             }
+            conn.setAutoCommit(false);
         }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("MySQL restore failed with exit code: " + exitCode);
+        @Override
+        public void load(ChunkArchive.Chunk chunk) throws Exception {
+            String sql = new String(chunk.data(), charset);
+            try (Statement stmt = conn.createStatement()) {
+                if (chunk.kind() == ChunkArchive.Kind.DATA) {
+                    for (String statement : sql.split(MySqlParallelDump.STATEMENT_END)) {
+                        if (!statement.isBlank()) {
+                            stmt.addBatch(statement);
+                        }
+                    }
+                    stmt.executeBatch();
+                } else {
+                    // Definitions can contain newlines and semicolons; they are one statement each
+                    stmt.execute(sql);
+                }
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw new IOException("Loading chunk of " + chunk.table() + " failed: " + e.getMessage(), e);
+            }
         }
 
-        log.info("MySQL restore completed successfully");
+        @Override
+        public void close() throws SQLException {
+            conn.close();
+        }
+    }
+
+    @Override
+    public ProcessStats takeProcessStats(DatabaseConfig config) {
+        return processStats.remove(config);
     }
 
     @Override
@@ -134,11 +278,11 @@ public class MySqlConnector implements DatabaseConnector {
 
     @Override
     public boolean supportsIncrementalBackup() {
-        return true;
+        return false;
     }
 
     @Override
     public boolean supportsDifferentialBackup() {
-        return true;
+        return false;
     }
 }
\ No newline at end of file
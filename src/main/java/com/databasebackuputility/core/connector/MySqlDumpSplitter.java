@@ -0,0 +1,311 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits mysqldump output into chunks while it streams in, so the dump can be replayed
+ * over several connections. Table definitions become SCHEMA chunks in dump order, the
+ * extended INSERTs of each table are batched into DATA chunks joined by
+ * {@link MySqlParallelDump#STATEMENT_END}, and triggers, final views, routines and
+ * events become POST chunks. LOCK TABLES and DISABLE KEYS are dropped, since they
+ * would only serialize the parallel load. The SET statements heading the dump are
+ * not chunks but {@link #getSessionSettings() settings} every session replays.
+ * <p>
+ * The dump is read as ISO-8859-1, which maps every byte to one char, so binary values
+ * mysqldump wrote unescaped survive to the server unchanged, as they would through
+ * the mysql client, provided the sessions send strings as ISO-8859-1 too.
+ */
+class MySqlDumpSplitter implements ChunkSource {
+
+    private static final Pattern SECTION = Pattern.compile(
+            "^-- (Table structure for table|Temporary (?:view|table) structure for view|Dumping data for table"
+                    + "|Final view structure for view) `(.*)`\\s*$");
+
+    private static final Pattern DATA_STATEMENT = Pattern.compile(
+            "^(?:INSERT|REPLACE)\\s+(?:(?:LOW_PRIORITY|DELAYED|HIGH_PRIORITY|IGNORE)\\s+)*INTO\\s+(`(?:[^`]|``)+`|[^\\s(]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SKIPPED = Pattern.compile(
+            "^(?:LOCK TABLES\\b|UNLOCK TABLES\\b|/\\*!40000 ALTER TABLE .* (?:DIS|EN)ABLE KEYS \\*/$)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final int frameSize;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final List<String> sessionSettings = new ArrayList<>();
+    private final Deque<ChunkArchive.Chunk> ready = new ArrayDeque<>();
+    private final StringBuilder data = new StringBuilder();
+    private String dataTable;
+
+    private String delimiter = ";";
+    private ChunkArchive.Kind sectionKind = ChunkArchive.Kind.SCHEMA;
+    private String sectionLabel = "";
+    private boolean sectionSeen;
+    private String lookahead;
+
+    /**
+     * Reads the statements heading the dump right away, so sessions can be set up
+     * before the first chunk is requested
+     */
+    MySqlDumpSplitter(InputStream in, int frameSize) throws IOException {
+        this.in = in;
+        this.frameSize = frameSize;
+
+        String statement;
+        while ((statement = readStatement()) != null) {
+            if (sectionSeen || !isSetting(statement)) {
+                lookahead = statement;
+                break;
+            }
+            sessionSettings.add(statement);
+        }
+    }
+
+    /**
+     * SET statements heading the dump: character set, time zone, sql_mode and relaxed
+     * unique and foreign key checks
+     */
+    List<String> getSessionSettings() {
+        return sessionSettings;
+    }
+
+    @Override
+    public ChunkArchive.Chunk next() throws IOException {
+        while (ready.isEmpty()) {
+            String statement = lookahead != null ? lookahead : readStatement();
+            lookahead = null;
+            if (statement == null) {
+                flushData();
+                break;
+            }
+            accept(statement);
+        }
+        return ready.poll();
+    }
+
+    private void accept(String statement) {
+        Matcher insert = DATA_STATEMENT.matcher(statement);
+        if (insert.lookingAt()) {
+            String table = unquote(insert.group(1));
+            if (!table.equals(dataTable) || data.length() >= frameSize) {
+                flushData();
+                dataTable = table;
+            }
+            data.append(statement).append(MySqlParallelDump.STATEMENT_END);
+            return;
+        }
+        if (SKIPPED.matcher(statement).lookingAt()) {
+            return;
+        }
+
+        flushData();
+        // Statements around the rows of a table, its triggers, run once the rows are in
+        ChunkArchive.Kind kind = sectionKind == ChunkArchive.Kind.DATA ? ChunkArchive.Kind.POST : sectionKind;
+        ready.add(new ChunkArchive.Chunk(kind, sectionLabel, bytes(statement)));
+    }
+
+    private void flushData() {
+        if (!data.isEmpty()) {
+            ready.add(new ChunkArchive.Chunk(ChunkArchive.Kind.DATA, dataTable, bytes(data.toString())));
+            data.setLength(0);
+        }
+    }
+
+    /**
+     * Follow mysqldump's section comments to tell definitions from data and post-data objects
+     */
+    private void onComment(String line) {
+        Matcher section = SECTION.matcher(line);
+        if (section.matches()) {
+            sectionSeen = true;
+            sectionLabel = section.group(2).replace("``", "`");
+            String title = section.group(1);
+            if (title.startsWith("Dumping data")) {
+                sectionKind = ChunkArchive.Kind.DATA;
+            } else if (title.startsWith("Final view")) {
+                sectionKind = ChunkArchive.Kind.POST;
+            } else {
+                sectionKind = ChunkArchive.Kind.SCHEMA;
+            }
+        } else if (line.startsWith("-- Dumping routines for database") || line.startsWith("-- Dumping events for database")) {
+            sectionSeen = true;
+            sectionKind = ChunkArchive.Kind.POST;
+            sectionLabel = line.substring("-- Dumping ".length(), line.indexOf(" for database"));
+        }
+    }
+
+    /**
+     * Next statement without its delimiter, or null at the end of the dump. Quotes and
+     * comments are tracked so a delimiter inside them does not end the statement.
+     */
+    private String readStatement() throws IOException {
+        int c;
+        // Skip blank lines, comment lines and DELIMITER commands between statements
+        while (true) {
+            c = peek();
+            if (c == -1) {
+                return null;
+            }
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (c == '-' || c == 'D' || c == 'd') {
+                String line = readLine();
+                if (line.startsWith("--")) {
+                    onComment(line.stripTrailing());
+                } else if (line.regionMatches(true, 0, "DELIMITER ", 0, 10)) {
+                    delimiter = line.substring(10).strip();
+                } else {
+                    return finishStatement(new StringBuilder(line).append('\n'));
+                }
+            } else {
+                return finishStatement(new StringBuilder());
+            }
+        }
+    }
+
+    private String finishStatement(StringBuilder sql) throws IOException {
+        // A line read ahead may already hold the whole statement, or leave a quote open
+        char quote = openQuote(sql);
+        String line = sql.toString().stripTrailing();
+        if (quote == 0 && !line.isEmpty() && line.endsWith(delimiter)) {
+            return line.substring(0, line.length() - delimiter.length()).strip();
+        }
+
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    int escaped = read();
+                    if (escaped != -1) {
+                        sql.append((char) escaped);
+                    }
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = (char) c;
+            } else if (c == '#' || (c == ' ' && endsWith(sql, "-- ")) || (c == '\t' && endsWith(sql, "--\t"))) {
+                sql.append(readLine()).append('\n');
+            } else if (c == '*' && endsWith(sql, "/*") && peek() != '!') {
+                skipBlockComment(sql);
+            } else if (c == delimiter.charAt(delimiter.length() - 1) && endsWith(sql, delimiter)) {
+                return sql.substring(0, sql.length() - delimiter.length()).strip();
+            }
+        }
+        String rest = sql.toString().strip();
+        return rest.isEmpty() ? null : rest;
+    }
+
+    private static char openQuote(CharSequence text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+        }
+        return quote;
+    }
+
+    private void skipBlockComment(StringBuilder sql) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (c == '/' && endsWith(sql, "*/")) {
+                return;
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private static boolean endsWith(StringBuilder sql, String suffix) {
+        int start = sql.length() - suffix.length();
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sql.charAt(start + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Session settings; global ones such as GTID_PURGED must run only once
+     */
+    private static boolean isSetting(String statement) {
+        String sql = statement.toUpperCase(Locale.ROOT);
+        if (sql.contains("@@GLOBAL.")) {
+            return false;
+        }
+        return sql.startsWith("SET ") || sql.matches("(?s)/\\*!\\d+ SET .*");
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier.startsWith("`") && identifier.endsWith("`") && identifier.length() > 1) {
+            return identifier.substring(1, identifier.length() - 1).replace("``", "`");
+        }
+        return identifier;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,505 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveWriter;
+import com.databasebackuputility.model.DatabaseConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Dumps a MySQL database over several JDBC connections that all read the same snapshot.
+ * The snapshot is pinned by starting every worker's transaction while a global read lock
+ * is held, then releasing the lock; writers are blocked only for that moment.
+ * Tables with a single-column integer primary key are split into key ranges, so one
+ * large table is dumped by all workers at once. Each range becomes DATA chunks of
+ * extended INSERT statements in a {@link ChunkArchive}, which restore loads in parallel.
+ */
+@Slf4j
+class MySqlParallelDump {
+
+    static final String FORMAT = "mysql-sql";
+
+    /**
+     * Separates statements in a chunk. Data never contains a raw newline, since
+     * string values escape it, so restore can split on it safely.
+     */
+    static final String STATEMENT_END = ";\n";
+
+    private static final Set<String> INTEGER_TYPES = Set.of("tinyint", "smallint", "mediumint", "int", "bigint");
+
+    private final DatabaseConfig config;
+    private final int threads;
+    private final long chunkRows;
+    private final int frameSize;
+    private final int statementSize;
+
+    private record Table(String name, long rows, String keyColumn, List<String> columns) {
+    }
+
+    /**
+     * Rows of a table, or the key range [from, to) of it; the last range includes {@code to}
+     */
+    private record Unit(Table table, boolean ranged, long from, long to, boolean last) {
+
+        static Unit whole(Table table) {
+            return new Unit(table, false, 0, 0, true);
+        }
+    }
+
+    MySqlParallelDump(DatabaseConfig config, int threads, long chunkRows, int frameSize, int statementSize) {
+        this.config = config;
+        this.threads = Math.max(1, threads);
+        this.chunkRows = Math.max(1, chunkRows);
+        this.frameSize = frameSize;
+        this.statementSize = statementSize;
+    }
+
+    void dump(OutputStream outputStream) throws Exception {
+        List<Connection> workers = new ArrayList<>();
+        try {
+            openSnapshot(workers);
+            Connection main = workers.get(0);
+
+            ChunkArchiveWriter writer = new ChunkArchiveWriter(outputStream, FORMAT);
+            List<Table> tables = tables(main);
+            for (Table table : tables) {
+                String name = quote(table.name());
+                writeStatement(writer, ChunkArchive.Kind.SCHEMA, table.name(), "DROP TABLE IF EXISTS " + name);
+                writeStatement(writer, ChunkArchive.Kind.SCHEMA, table.name(),
+                        showCreate(main, "SHOW CREATE TABLE " + name, 2));
+            }
+
+            Queue<Unit> units = new ConcurrentLinkedQueue<>(units(main, tables));
+            log.info("Dumping {} tables as {} units with {} workers", tables.size(), units.size(), workers.size());
+            dumpUnits(workers, units, writer);
+
+            writePostData(main, writer);
+            writer.finish();
+            log.info("Wrote {} chunks", writer.getChunkCount());
+        } finally {
+            for (Connection conn : workers) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    log.debug("Closing dump connection failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a consistent-snapshot transaction on every worker connection. Without the
+     * privilege for a global read lock the transactions could see different data, so
+     * the dump falls back to a single connection, like mysqldump --single-transaction.
+     */
+    private void openSnapshot(List<Connection> workers) throws SQLException {
+        try (Connection coordinator = connect(); Statement lock = coordinator.createStatement()) {
+            int count = threads;
+            try {
+                lock.execute("FLUSH TABLES WITH READ LOCK");
+            } catch (SQLException e) {
+                log.warn("Cannot take a global read lock ({}), dumping with one connection", e.getMessage());
+                count = 1;
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    Connection conn = connect();
+                    workers.add(conn);
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("SET SESSION time_zone = '+00:00'");
+                        stmt.execute("SET SESSION TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+                        stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                    }
+                }
+            } finally {
+                if (count > 1) {
+                    lock.execute("UNLOCK TABLES");
+                }
+            }
+        }
+    }
+
+    /**
+     * Base tables, largest first so the long ones do not start last
+     */
+    private List<Table> tables(Connection conn) throws SQLException {
+        Map<String, long[]> sizes = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT TABLE_NAME, IFNULL(TABLE_ROWS, 0), IFNULL(DATA_LENGTH, 0) FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE' ORDER BY DATA_LENGTH DESC, TABLE_NAME")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sizes.put(rs.getString(1), new long[]{rs.getLong(2), rs.getLong(3)});
+                }
+            }
+        }
+
+        Map<String, List<String>> columns = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT TABLE_NAME, COLUMN_NAME, EXTRA FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String extra = rs.getString(3);
+                    // Generated columns cannot be inserted into; DEFAULT_GENERATED ones can
+                    if (extra != null && (extra.contains("VIRTUAL GENERATED") || extra.contains("STORED GENERATED"))) {
+                        continue;
+                    }
+                    columns.computeIfAbsent(rs.getString(1), t -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+
+        Map<String, String> keys = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT k.TABLE_NAME, MIN(k.COLUMN_NAME), MIN(c.DATA_TYPE), COUNT(*) " +
+                        "FROM information_schema.KEY_COLUMN_USAGE k JOIN information_schema.COLUMNS c " +
+                        "ON c.TABLE_SCHEMA = k.TABLE_SCHEMA AND c.TABLE_NAME = k.TABLE_NAME AND c.COLUMN_NAME = k.COLUMN_NAME " +
+                        "WHERE k.TABLE_SCHEMA = ? AND k.CONSTRAINT_NAME = 'PRIMARY' GROUP BY k.TABLE_NAME")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getInt(4) == 1 && INTEGER_TYPES.contains(rs.getString(3).toLowerCase(Locale.ROOT))) {
+                        keys.put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+
+        List<Table> tables = new ArrayList<>();
+        sizes.forEach((name, size) -> tables.add(
+                new Table(name, size[0], keys.get(name), columns.getOrDefault(name, List.of()))));
+        return tables;
+    }
+
+    /**
+     * Split tables into key ranges of about {@code chunkRows} rows. Row counts are
+     * estimates, bounds come from the snapshot itself, so no row falls between ranges.
+     */
+    private List<Unit> units(Connection conn, List<Table> tables) throws SQLException {
+        List<Unit> units = new ArrayList<>();
+        for (Table table : tables) {
+            if (table.keyColumn() == null || table.rows() <= chunkRows) {
+                units.add(Unit.whole(table));
+                continue;
+            }
+            String key = quote(table.keyColumn());
+            long min;
+            long max;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + quote(table.name()))) {
+                rs.next();
+                min = rs.getLong(1);
+                max = rs.getLong(2);
+                if (rs.wasNull()) {
+                    units.add(Unit.whole(table));
+                    continue;
+                }
+            }
+
+            // A span past Long.MAX_VALUE (unsigned BIGINT keys) overflows; dump such tables whole
+            if (max - min < 0) {
+                units.add(Unit.whole(table));
+                continue;
+            }
+            long ranges = Math.max(1, (table.rows() + chunkRows - 1) / chunkRows);
+            long step = Math.max(1, (max - min) / ranges + 1);
+            for (long from = min; ; from += step) {
+                boolean last = max - from < step;
+                units.add(new Unit(table, true, from, last ? max : from + step, last));
+                if (last) {
+                    break;
+                }
+            }
+        }
+        return units;
+    }
+
+    private void dumpUnits(List<Connection> workers, Queue<Unit> units, ChunkArchiveWriter writer) throws Exception {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mysql-dump-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size(), threadFactory);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Connection conn : workers) {
+                futures.add(executor.submit(() -> {
+                    Unit unit;
+                    while ((unit = units.poll()) != null) {
+                        dumpUnit(conn, unit, writer);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    units.clear();
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void dumpUnit(Connection conn, Unit unit, ChunkArchiveWriter writer) throws Exception {
+        Table table = unit.table();
+        if (table.columns().isEmpty()) {
+            return;
+        }
+        StringJoiner columnList = new StringJoiner(", ");
+        table.columns().forEach(column -> columnList.add(quote(column)));
+        String insert = "INSERT INTO " + quote(table.name()) + " (" + columnList + ") VALUES ";
+
+        String query = "SELECT " + columnList + " FROM " + quote(table.name());
+        if (unit.ranged()) {
+            String key = quote(table.keyColumn());
+            query += " WHERE " + key + " >= " + unit.from() + " AND " + key + (unit.last() ? " <= " : " < ") + unit.to();
+        }
+
+        StringBuilder frame = new StringBuilder(frameSize + statementSize);
+        int statementStart = -1;
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Stream rows instead of buffering the whole result in memory
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int count = meta.getColumnCount();
+                while (rs.next()) {
+                    if (statementStart < 0) {
+                        statementStart = frame.length();
+                        frame.append(insert);
+                    } else {
+                        frame.append(',');
+                    }
+                    frame.append('(');
+                    for (int i = 1; i <= count; i++) {
+                        if (i > 1) {
+                            frame.append(',');
+                        }
+                        appendValue(frame, rs, i, meta.getColumnType(i), meta.getColumnTypeName(i));
+                    }
+                    frame.append(')');
+
+                    if (frame.length() - statementStart >= statementSize) {
+                        frame.append(STATEMENT_END);
+                        statementStart = -1;
+                        if (frame.length() >= frameSize) {
+                            flush(writer, table.name(), frame);
+                        }
+                    }
+                }
+            }
+        }
+        if (statementStart >= 0) {
+            frame.append(STATEMENT_END);
+        }
+        flush(writer, table.name(), frame);
+    }
+
+    /**
+     * Append a column value as a SQL literal
+     * @param typeName Server type name; only real {@code BIT(n)} columns are written as bits,
+     *                 whatever the driver maps to {@link Types#BIT}
+     */
+    static void appendValue(StringBuilder out, ResultSet rs, int column, int type, String typeName)
+            throws SQLException {
+        if (type == Types.BIT && !"BIT".equalsIgnoreCase(typeName)) {
+            // TINYINT(1) and BOOLEAN when the driver reports them as BIT
+            long value = rs.getLong(column);
+            out.append(rs.wasNull() ? "NULL" : Long.toString(value));
+            return;
+        }
+        switch (type) {
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB, Types.BIT -> {
+                byte[] bytes = rs.getBytes(column);
+                if (bytes == null) {
+                    out.append("NULL");
+                } else {
+                    appendHex(out, bytes);
+                }
+            }
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.DECIMAL, Types.NUMERIC,
+                 Types.REAL, Types.FLOAT, Types.DOUBLE -> {
+                String value = rs.getString(column);
+                out.append(value == null ? "NULL" : value);
+            }
+            default -> {
+                String value = rs.getString(column);
+                if (value == null) {
+                    out.append("NULL");
+                } else {
+                    appendString(out, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quote a string literal the way the server parses it outside NO_BACKSLASH_ESCAPES mode
+     */
+    static void appendString(StringBuilder out, String value) {
+        out.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\'' -> out.append("\\'");
+                case '\0' -> out.append("\\0");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\u001a' -> out.append("\\Z");
+                default -> out.append(c);
+            }
+        }
+        out.append('\'');
+    }
+
+    private static void appendHex(StringBuilder out, byte[] bytes) {
+        if (bytes.length == 0) {
+            out.append("''");
+            return;
+        }
+        out.append("X'");
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        out.append('\'');
+    }
+
+    private static void flush(ChunkArchiveWriter writer, String table, StringBuilder frame) throws Exception {
+        if (frame.isEmpty()) {
+            return;
+        }
+        writer.write(ChunkArchive.Kind.DATA, table, frame.toString().getBytes(StandardCharsets.UTF_8));
+        frame.setLength(0);
+    }
+
+    /**
+     * Views, then triggers and routines, once all rows are loaded so triggers do not fire on them
+     */
+    private void writePostData(Connection conn, ChunkArchiveWriter writer) throws Exception {
+        for (Map.Entry<String, String> view : views(conn).entrySet()) {
+            writeStatement(writer, ChunkArchive.Kind.POST, view.getKey(), "DROP VIEW IF EXISTS " + quote(view.getKey()));
+            writeStatement(writer, ChunkArchive.Kind.POST, view.getKey(), view.getValue());
+        }
+
+        List<String> triggers = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT TRIGGER_NAME FROM information_schema.TRIGGERS WHERE TRIGGER_SCHEMA = ?")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    triggers.add(rs.getString(1));
+                }
+            }
+        }
+        for (String trigger : triggers) {
+            writeStatement(writer, ChunkArchive.Kind.POST, trigger, "DROP TRIGGER IF EXISTS " + quote(trigger));
+            writeStatement(writer, ChunkArchive.Kind.POST, trigger,
+                    showCreate(conn, "SHOW CREATE TRIGGER " + quote(trigger), 3));
+        }
+
+        Map<String, String> routines = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT ROUTINE_NAME, ROUTINE_TYPE FROM information_schema.ROUTINES WHERE ROUTINE_SCHEMA = ?")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    routines.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        for (Map.Entry<String, String> routine : routines.entrySet()) {
+            String name = quote(routine.getKey());
+            String create = showCreate(conn, "SHOW CREATE " + routine.getValue() + " " + name, 3);
+            if (create == null) {
+                log.warn("No privilege to read the definition of {} {}, skipped", routine.getValue(), routine.getKey());
+                continue;
+            }
+            writeStatement(writer, ChunkArchive.Kind.POST, routine.getKey(),
+                    "DROP " + routine.getValue() + " IF EXISTS " + name);
+            writeStatement(writer, ChunkArchive.Kind.POST, routine.getKey(), create);
+        }
+    }
+
+    /**
+     * View definitions, ordered so a view comes after the views it selects from
+     */
+    private Map<String, String> views(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT TABLE_NAME FROM information_schema.VIEWS WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME")) {
+            stmt.setString(1, config.getDatabaseName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String name : names) {
+            pending.put(name, showCreate(conn, "SHOW CREATE VIEW " + quote(name), 2));
+        }
+
+        Map<String, String> ordered = new LinkedHashMap<>();
+        while (!pending.isEmpty()) {
+            int before = pending.size();
+            for (Iterator<Map.Entry<String, String>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, String> view = it.next();
+                boolean ready = pending.keySet().stream()
+                        .noneMatch(other -> !other.equals(view.getKey()) && view.getValue().contains(quote(other)));
+                if (ready) {
+                    ordered.put(view.getKey(), view.getValue());
+                    it.remove();
+                }
+            }
+            if (pending.size() == before) {
+                // Names matched inside literals; keep the rest in name order
+                ordered.putAll(pending);
+                break;
+            }
+        }
+        return ordered;
+    }
+
+    private String showCreate(Connection conn, String sql, int column) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new SQLException("No result for " + sql);
+            }
+            return rs.getString(column);
+        }
+    }
+
+    private static void writeStatement(ChunkArchiveWriter writer, ChunkArchive.Kind kind, String table, String sql)
+            throws Exception {
+        writer.write(kind, table, sql.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * TINYINT(1) and YEAR keep their numeric values instead of the driver's boolean and date mappings
+     */
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", config.getUsername());
+        properties.setProperty("password", config.getPassword() == null ? "" : config.getPassword());
+        properties.setProperty("tinyInt1isBit", "false");
+        properties.setProperty("yearIsDateType", "false");
+        return DriverManager.getConnection(config.getConnectionUrl(), properties);
+    }
+}
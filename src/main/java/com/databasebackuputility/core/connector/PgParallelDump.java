@@ -0,0 +1,431 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveWriter;
+import com.databasebackuputility.model.DatabaseConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dumps a PostgreSQL database over several JDBC connections, the way pg_dump --jobs does.
+ * A coordinator exports its snapshot and every worker imports it, so all of them see the
+ * same data. Workers stream tables with binary COPY; large tables are split into primary
+ * key ranges, or block (ctid) ranges on servers with TID range scans. The schema comes
+ * from pg_dump run against the same snapshot, split into one chunk per object.
+ */
+@Slf4j
+class PgParallelDump {
+
+    static final String FORMAT = "pg-copy-binary";
+
+    /**
+     * Label of the SCHEMA chunk holding the session settings every restore session needs
+     */
+    static final String SETTINGS = "SETTINGS";
+
+    /**
+     * Binary COPY header: signature, flags, header extension length
+     */
+    static final byte[] COPY_HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final Pattern ENTRY_HEADER = Pattern.compile(
+            "^--\\n-- Name: ([^;]*); Type: ([^;]*); Schema: ([^;]*);[^\\n]*\\n--\\n", Pattern.MULTILINE);
+
+    /**
+     * psql meta-commands newer pg_dump versions emit; they are not SQL
+     */
+    private static final Pattern META_COMMAND = Pattern.compile("^\\\\(?:un)?restrict .*$\\n?", Pattern.MULTILINE);
+
+    private static final int TID_RANGE_SCAN_VERSION = 140000;
+
+    private final DatabaseConfig config;
+    private final int threads;
+    private final long chunkRows;
+    private final int frameSize;
+
+    private record Table(String name, long rows, long bytes, String keyColumn, List<String> columns) {
+    }
+
+    /**
+     * Rows of a table, or those matching {@code where}
+     */
+    private record Unit(Table table, String where) {
+    }
+
+    PgParallelDump(DatabaseConfig config, int threads, long chunkRows, int frameSize) {
+        this.config = config;
+        this.threads = Math.max(1, threads);
+        this.chunkRows = Math.max(1, chunkRows);
+        this.frameSize = frameSize;
+    }
+
+    void dump(OutputStream outputStream) throws Exception {
+        List<Connection> workers = new ArrayList<>();
+        try (Connection coordinator = connect()) {
+            coordinator.setAutoCommit(false);
+            coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            String snapshot = exportSnapshot(coordinator);
+            List<Table> tables = tables(coordinator);
+            lockTables(coordinator, tables);
+
+            for (int i = 0; i < threads; i++) {
+                workers.add(importSnapshot(snapshot));
+            }
+
+            ChunkArchiveWriter writer = new ChunkArchiveWriter(outputStream, FORMAT);
+            writeSection(writer, ChunkArchive.Kind.SCHEMA, pgDump(snapshot, "pre-data"));
+
+            Queue<Unit> units = new ConcurrentLinkedQueue<>(units(coordinator, tables));
+            log.info("Dumping {} tables as {} units with {} workers", tables.size(), units.size(), workers.size());
+            dumpUnits(workers, units, writer);
+
+            writeSequences(coordinator, writer);
+            writeSection(writer, ChunkArchive.Kind.POST, pgDump(snapshot, "post-data"));
+            writer.finish();
+            coordinator.commit();
+            log.info("Wrote {} chunks", writer.getChunkCount());
+        } finally {
+            for (Connection conn : workers) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    log.debug("Closing dump connection failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String exportSnapshot(Connection coordinator) throws SQLException {
+        try (Statement stmt = coordinator.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Hold ACCESS SHARE locks like pg_dump does, so no table is dropped or altered mid-dump
+     */
+    private void lockTables(Connection coordinator, List<Table> tables) throws SQLException {
+        try (Statement stmt = coordinator.createStatement()) {
+            for (Table table : tables) {
+                stmt.execute("LOCK TABLE " + table.name() + " IN ACCESS SHARE MODE");
+            }
+        }
+    }
+
+    private Connection importSnapshot(String snapshot) throws SQLException {
+        Connection conn = connect();
+        try {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'");
+            }
+            return conn;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tables with data, largest first so the long ones do not start last. Partitioned
+     * parents hold no rows themselves; their partitions are dumped as tables.
+     */
+    private List<Table> tables(Connection conn) throws SQLException {
+        List<Table> tables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT c.oid, format('%I.%I', n.nspname, c.relname), GREATEST(c.reltuples, 0)::bigint, " +
+                             "pg_relation_size(c.oid), " +
+                             "(SELECT CASE WHEN count(*) = 1 AND min(a.atttypid::regtype::text) IN " +
+                             "('smallint', 'integer', 'bigint') THEN quote_ident(min(a.attname::text)) END " +
+                             "FROM pg_index i JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey) " +
+                             "WHERE i.indrelid = c.oid AND i.indisprimary) " +
+                             "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                             "WHERE c.relkind = 'r' AND c.relpersistence <> 't' " +
+                             "AND n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg\\_toast%' " +
+                             "AND NOT EXISTS (SELECT 1 FROM pg_depend d WHERE d.classid = 'pg_class'::regclass " +
+                             "AND d.objid = c.oid AND d.deptype = 'e') " +
+                             "ORDER BY pg_relation_size(c.oid) DESC, 2")) {
+            while (rs.next()) {
+                tables.add(new Table(rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getString(5),
+                        columns(conn, rs.getLong(1))));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Columns COPY of the whole table would include: not dropped, not generated
+     */
+    private List<String> columns(Connection conn, long oid) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT quote_ident(attname) FROM pg_attribute WHERE attrelid = ? AND attnum > 0 " +
+                        "AND NOT attisdropped AND attgenerated = '' ORDER BY attnum")) {
+            stmt.setLong(1, oid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Split tables larger than {@code chunkRows} into key ranges, or block ranges when
+     * the server can scan them without reading the whole table
+     */
+    private List<Unit> units(Connection conn, List<Table> tables) throws SQLException {
+        int serverVersion;
+        int blockSize;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT current_setting('server_version_num')::int, current_setting('block_size')::int")) {
+            rs.next();
+            serverVersion = rs.getInt(1);
+            blockSize = rs.getInt(2);
+        }
+
+        List<Unit> units = new ArrayList<>();
+        for (Table table : tables) {
+            long ranges = (table.rows() + chunkRows - 1) / chunkRows;
+            if (ranges <= 1) {
+                units.add(new Unit(table, null));
+            } else if (table.keyColumn() != null) {
+                keyRanges(conn, table, ranges, units);
+            } else if (serverVersion >= TID_RANGE_SCAN_VERSION) {
+                long blocks = Math.max(1, table.bytes() / blockSize);
+                long step = Math.max(1, blocks / ranges + 1);
+                for (long from = 0; from < blocks; from += step) {
+                    String lower = "ctid >= '(" + from + ",0)'::tid";
+                    // The last range is open, rows may sit past the size read when the dump started
+                    units.add(new Unit(table, from + step >= blocks ? lower
+                            : lower + " AND ctid < '(" + (from + step) + ",0)'::tid"));
+                }
+            } else {
+                units.add(new Unit(table, null));
+            }
+        }
+        return units;
+    }
+
+    private void keyRanges(Connection conn, Table table, long ranges, List<Unit> units) throws SQLException {
+        String key = table.keyColumn();
+        long min;
+        long max;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT min(" + key + "), max(" + key + ") FROM " + table.name())) {
+            rs.next();
+            min = rs.getLong(1);
+            max = rs.getLong(2);
+            if (rs.wasNull() || max - min < 0) {
+                units.add(new Unit(table, null));
+                return;
+            }
+        }
+        long step = Math.max(1, (max - min) / ranges + 1);
+        for (long from = min; ; from += step) {
+            if (max - from < step) {
+                units.add(new Unit(table, key + " >= " + from));
+                return;
+            }
+            units.add(new Unit(table, key + " >= " + from + " AND " + key + " < " + (from + step)));
+        }
+    }
+
+    private void dumpUnits(List<Connection> workers, Queue<Unit> units, ChunkArchiveWriter writer) throws Exception {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pg-dump-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size(), threadFactory);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Connection conn : workers) {
+                futures.add(executor.submit(() -> {
+                    Unit unit;
+                    while ((unit = units.poll()) != null) {
+                        dumpUnit(conn, unit, writer);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    units.clear();
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * COPY the unit out in binary and cut the stream at row boundaries into DATA chunks,
+     * each a complete COPY stream with its own header and trailer
+     */
+    private void dumpUnit(Connection conn, Unit unit, ChunkArchiveWriter writer) throws Exception {
+        Table table = unit.table();
+        if (table.columns().isEmpty()) {
+            return;
+        }
+        String columns = String.join(", ", table.columns());
+        String query = "SELECT " + columns + " FROM ONLY " + table.name()
+                + (unit.where() == null ? "" : " WHERE " + unit.where());
+        String copy = "COPY (" + query + ") TO STDOUT (FORMAT binary)";
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(frameSize + (1 << 16));
+        DataOutputStream frameOut = new DataOutputStream(frame);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new PGCopyInputStream(conn.unwrap(PGConnection.class), copy), 1 << 16))) {
+            byte[] header = new byte[COPY_HEADER.length - 4];
+            in.readFully(header);
+            if (!Arrays.equals(header, 0, 11, COPY_HEADER, 0, 11)) {
+                throw new IOException("Unexpected binary COPY header from " + table.name());
+            }
+            in.skipNBytes(in.readInt());
+
+            byte[] field = new byte[8192];
+            short fieldCount;
+            while ((fieldCount = in.readShort()) != -1) {
+                if (frame.size() == 0) {
+                    frameOut.write(COPY_HEADER);
+                }
+                frameOut.writeShort(fieldCount);
+                for (int i = 0; i < fieldCount; i++) {
+                    int length = in.readInt();
+                    frameOut.writeInt(length);
+                    if (length > 0) {
+                        if (length > field.length) {
+                            field = new byte[length];
+                        }
+                        in.readFully(field, 0, length);
+                        frameOut.write(field, 0, length);
+                    }
+                }
+                if (frame.size() >= frameSize) {
+                    flush(writer, table.name(), frame, frameOut);
+                }
+            }
+            // Drain the stream so the driver completes the COPY
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        flush(writer, table.name(), frame, frameOut);
+    }
+
+    private static void flush(ChunkArchiveWriter writer, String table, ByteArrayOutputStream frame,
+                              DataOutputStream frameOut) throws IOException {
+        if (frame.size() == 0) {
+            return;
+        }
+        frameOut.writeShort(-1);
+        writer.write(ChunkArchive.Kind.DATA, table, frame.toByteArray());
+        frame.reset();
+    }
+
+    /**
+     * Sequence positions as of the snapshot; pg_dump keeps them in its data section
+     */
+    private void writeSequences(Connection conn, ChunkArchiveWriter writer) throws Exception {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT format('%I.%I', schemaname, sequencename), last_value FROM pg_sequences " +
+                             "WHERE last_value IS NOT NULL")) {
+            while (rs.next()) {
+                String sql = "SELECT pg_catalog.setval(" + quoteLiteral(rs.getString(1)) + ", "
+                        + rs.getLong(2) + ", true)";
+                writer.write(ChunkArchive.Kind.POST, "SEQUENCE SET " + rs.getString(1),
+                        sql.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Run pg_dump for one section of the schema against the exported snapshot
+     */
+    private String pgDump(String snapshot, String section) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(
+                "pg_dump",
+                "--host=" + config.getHost(),
+                "--port=" + config.getPort(),
+                "--username=" + config.getUsername(),
+                "--snapshot=" + snapshot,
+                "--section=" + section,
+                "--no-owner",
+                "--no-acl",
+                config.getDatabaseName());
+        pb.environment().put("PGPASSWORD", config.getPassword());
+
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        tempDir.mkdirs();
+        File errors = File.createTempFile("pg_dump-", ".log", tempDir);
+        try {
+            pb.redirectError(errors);
+            Process process = pb.start();
+            String script;
+            try (InputStream in = process.getInputStream()) {
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("pg_dump --section=" + section + " failed with exit code " + exitCode
+                        + ": " + Files.readString(errors.toPath()).strip());
+            }
+            return script;
+        } finally {
+            if (!errors.delete()) {
+                errors.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Split a pg_dump script into one chunk per object, labelled like "INDEX public.orders_pkey".
+     * The settings at the top of the script go first, labelled {@link #SETTINGS}.
+     */
+    static void writeSection(ChunkArchiveWriter writer, ChunkArchive.Kind kind, String script) throws IOException {
+        script = META_COMMAND.matcher(script).replaceAll("");
+        Matcher matcher = ENTRY_HEADER.matcher(script);
+        int start = 0;
+        String label = SETTINGS;
+        while (true) {
+            boolean found = matcher.find();
+            String sql = script.substring(start, found ? matcher.start() : script.length()).strip();
+            if (!sql.isEmpty() && (kind == ChunkArchive.Kind.SCHEMA || !label.equals(SETTINGS))) {
+                writer.write(kind, label, sql.getBytes(StandardCharsets.UTF_8));
+            }
+            if (!found) {
+                return;
+            }
+            String schema = matcher.group(3);
+            label = matcher.group(2) + " " + ("-".equals(schema) ? "" : schema + ".") + matcher.group(1);
+            start = matcher.end();
+        }
+    }
+
+    private static String quoteLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.getConnectionUrl(), config.getUsername(), config.getPassword());
+    }
+}
@@ -1,24 +1,65 @@
 package com.databasebackuputility.core.connector;
 
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveReader;
+import com.databasebackuputility.core.archive.ParallelChunkLoader;
+import com.databasebackuputility.core.process.ProcessPump;
 import com.databasebackuputility.model.BackupType;
 import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.ProcessStats;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * PostgreSQL database connector implementation
- * Uses pg_dump for backup and pg_restore for restore
+ * Uses pg_dump for backup and pg_restore for restore, or with the jdbc engine a
+ * parallel binary COPY dump from one exported snapshot into a chunked archive
  */
 @Slf4j
 @Component("POSTGRESQL")
+@RequiredArgsConstructor
 public class PostgreSqlConnector implements DatabaseConnector {
 
+    private final ProcessPump processPump;
+
+    private final Map<DatabaseConfig, ProcessStats> processStats = new ConcurrentHashMap<>();
+
+    @Value("${backup.postgresql.engine:pg_dump}")
+    private String engine;
+
+    @Value("${backup.postgresql.threads:4}")
+    private int threads;
+
+    @Value("${backup.postgresql.chunk-rows:1000000}")
+    private long chunkRows;
+
+    @Value("${backup.postgresql.frame-size:8388608}")
+    private int frameSize;
+
+    @Value("${backup.postgresql.maintenance-work-mem:1GB}")
+    private String maintenanceWorkMem;
+
+    /**
+     * Slowest tables and index builds reported after an archive restore
+     */
+    private static final int TIMING_REPORT_SIZE = 20;
+
     @Override
     public boolean testConnection(DatabaseConfig config) {
         try (Connection conn = DriverManager.getConnection(
@@ -36,6 +77,12 @@ public class PostgreSqlConnector implements DatabaseConnector {
     public void backup(DatabaseConfig config, BackupType backupType, OutputStream outputStream) throws Exception {
         log.info("Starting PostgreSQL backup for database: {}", config.getDatabaseName());
 
+        if ("jdbc".equalsIgnoreCase(engine)) {
+            new PgParallelDump(config, threads, chunkRows, frameSize).dump(outputStream);
+            log.info("PostgreSQL backup completed successfully");
+            return;
+        }
+
         ProcessBuilder pb = new ProcessBuilder();
         pb.command(
                 "pg_dump",
@@ -51,32 +98,184 @@ public class PostgreSqlConnector implements DatabaseConnector {
 
         // Set password via environment variable
         pb.environment().put("PGPASSWORD", config.getPassword());
-        pb.redirectErrorStream(true);
 
-        Process process = pb.start();
+        // --verbose progress goes to stderr, which the pump keeps out of the archive
+        processStats.put(config, processPump.run(pb, outputStream));
 
-        try (InputStream is = process.getInputStream()) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+        log.info("PostgreSQL backup completed successfully");
+    }
+
+    @Override
+    public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
+        log.info("Starting PostgreSQL restore from: {}", backupFilePath);
+
+        if (isArchive(backupFilePath)) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(backupFilePath), 1 << 16)) {
+                restoreArchive(config, in);
             }
+            return;
+        }
+
+        // pg_restore loads data first and builds indexes and constraints afterwards, in parallel
+        ProcessBuilder pb = pgRestore(config);
+        pb.command().add("--jobs=" + Math.max(1, threads));
+        pb.command().add(backupFilePath);
+
+        checkExitCode(ClientProcess.run(pb, InputStream.nullInputStream()));
+        log.info("PostgreSQL restore completed successfully");
+    }
+
+    /**
+     * Pipe the custom-format archive into pg_restore, which reads stdin without a file argument.
+     * pg_restore can only restore in parallel from a file, so with several threads
+     * configured the archive is spooled to a temporary file first.
+     */
+    @Override
+    public void restore(DatabaseConfig config, InputStream inputStream) throws Exception {
+        InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream, 1 << 16);
+        byte[] head = new byte[ChunkArchive.MAGIC.length];
+        in.mark(head.length);
+        int n = in.readNBytes(head, 0, head.length);
+        in.reset();
+        if (ChunkArchive.isArchive(head, n)) {
+            restoreArchive(config, in);
+            return;
         }
+        if (threads > 1) {
+            DatabaseConnector.super.restore(config, in);
+            return;
+        }
+
+        checkExitCode(ClientProcess.run(pgRestore(config), in));
+        log.info("PostgreSQL restore completed successfully");
+    }
 
-        int exitCode = process.waitFor();
+    private void checkExitCode(int exitCode) throws IOException {
         if (exitCode != 0) {
-            throw new IOException("pg_dump failed with exit code: " + exitCode);
+            throw new IOException("pg_restore failed with exit code: " + exitCode);
         }
+    }
 
-        log.info("PostgreSQL backup completed successfully");
+    private boolean isArchive(String path) throws IOException {
+        byte[] head = new byte[ChunkArchive.MAGIC.length];
+        try (InputStream in = new FileInputStream(path)) {
+            return ChunkArchive.isArchive(head, in.readNBytes(head, 0, head.length));
+        }
     }
 
-    @Override
-    public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
-        log.info("Starting PostgreSQL restore from: {}", backupFilePath);
+    /**
+     * Load a chunked archive: table definitions first, then rows over parallel COPY
+     * sessions, then indexes and primary/unique keys built concurrently, and last
+     * foreign keys, triggers and everything else that depends on them. Nothing
+     * maintains an index or checks a constraint while rows are loading.
+     */
+    private void restoreArchive(DatabaseConfig config, InputStream in) throws Exception {
+        ChunkArchiveReader reader = new ChunkArchiveReader(in);
+        if (!PgParallelDump.FORMAT.equals(reader.getFormat())) {
+            throw new IOException("Cannot restore a " + reader.getFormat() + " archive into PostgreSQL");
+        }
+        checkEmpty(config);
+        log.info("Loading chunked archive with {} connections", threads);
+
+        AtomicReference<String> settings = new AtomicReference<>();
+        ParallelChunkLoader loader = new ParallelChunkLoader(threads)
+                .parallelPost(chunk -> isIndependentPostStep(chunk.table()));
+        long start = System.currentTimeMillis();
+        int chunks = loader.load(reader, () -> new JdbcSession(config, settings));
+        log.info("Loaded {} chunks in {} ms", chunks, System.currentTimeMillis() - start);
+
+        List<ParallelChunkLoader.LabelStats> stats = loader.getStats();
+        for (int i = 0; i < stats.size(); i++) {
+            ParallelChunkLoader.LabelStats entry = stats.get(i);
+            if (i < TIMING_REPORT_SIZE) {
+                log.info("  {}: {} ms, {} bytes in {} chunks", entry.label(), entry.millis(), entry.bytes(), entry.chunks());
+            } else {
+                log.debug("  {}: {} ms, {} bytes in {} chunks", entry.label(), entry.millis(), entry.bytes(), entry.chunks());
+            }
+        }
+        log.info("PostgreSQL restore completed successfully");
+    }
+
+    /**
+     * Index builds and primary/unique keys only depend on their own table; foreign keys
+     * need the referenced keys and index attachments need both indexes
+     */
+    static boolean isIndependentPostStep(String label) {
+        return (label.startsWith("INDEX ") && !label.startsWith("INDEX ATTACH "))
+                || label.startsWith("CONSTRAINT ")
+                || label.startsWith("SEQUENCE SET ");
+    }
+
+    /**
+     * The archive holds CREATE statements only, so it loads into an empty database
+     */
+    private void checkEmpty(DatabaseConfig config) throws Exception {
+        try (Connection conn = DriverManager.getConnection(
+                config.getConnectionUrl(), config.getUsername(), config.getPassword());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT count(*) FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                             "WHERE c.relkind IN ('r', 'p') AND n.nspname NOT IN ('pg_catalog', 'information_schema') " +
+                             "AND n.nspname NOT LIKE 'pg\\_toast%'")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                throw new IOException("Database " + config.getDatabaseName()
+                        + " already has tables; restore jdbc-engine backups into an empty database");
+            }
+        }
+    }
+
+    /**
+     * Connection that runs schema chunks as SQL and loads data chunks with binary COPY.
+     * The dump's session settings are replayed on every session opened after they were read.
+     */
+    private final class JdbcSession implements ParallelChunkLoader.Session {
+
+        private final Connection conn;
+        private final AtomicReference<String> settings;
+
+        JdbcSession(DatabaseConfig config, AtomicReference<String> settings) throws Exception {
+            this.conn = DriverManager.getConnection(
+                    config.getConnectionUrl(), config.getUsername(), config.getPassword());
+            this.settings = settings;
+            try (Statement stmt = conn.createStatement()) {
+                // A failed restore is rerun from scratch, so commits need not wait for the WAL flush
+                stmt.execute("SET synchronous_commit = off");
+                stmt.execute("SET maintenance_work_mem = '" + maintenanceWorkMem.replace("'", "''") + "'");
+                if (settings.get() != null) {
+                    stmt.execute(settings.get());
+                }
+            }
+        }
+
+        @Override
+        public void load(ChunkArchive.Chunk chunk) throws Exception {
+            if (chunk.kind() == ChunkArchive.Kind.DATA) {
+                conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY " + chunk.table() + " FROM STDIN (FORMAT binary)",
+                        new ByteArrayInputStream(chunk.data()));
+                return;
+            }
+            String sql = new String(chunk.data(), StandardCharsets.UTF_8);
+            if (PgParallelDump.SETTINGS.equals(chunk.table())) {
+                settings.set(sql);
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            } catch (SQLException e) {
+                throw new IOException("Restoring " + chunk.table() + " failed: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            conn.close();
+        }
+    }
 
+    private ProcessBuilder pgRestore(DatabaseConfig config) {
         ProcessBuilder pb = new ProcessBuilder();
-        pb.command(
+        pb.command(new ArrayList<>(List.of(
                 "pg_restore",
                 "--host=" + config.getHost(),
                 "--port=" + config.getPort(),
@@ -84,29 +283,16 @@ public class PostgreSqlConnector implements DatabaseConnector {
                 "--dbname=" + config.getDatabaseName(),
                 "--clean",
                 "--if-exists",
-                "--verbose",
-                backupFilePath
-        );
+                "--verbose"
+        )));
 
         pb.environment().put("PGPASSWORD", config.getPassword());
-        pb.redirectErrorStream(true);
-
-        Process process = pb.start();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.debug(line);
-            }
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            log.warn("pg_restore completed with warnings (exit code: {})", exitCode);
-        }
+        return pb;
+    }
 
-        log.info("PostgreSQL restore completed");
+    @Override
+    public ProcessStats takeProcessStats(DatabaseConfig config) {
+        return processStats.remove(config);
     }
 
     @Override
@@ -132,7 +318,7 @@ public class PostgreSqlConnector implements DatabaseConnector {
 
     @Override
     public boolean supportsIncrementalBackup() {
-        return true;
+        return false;
     }
 
     @Override
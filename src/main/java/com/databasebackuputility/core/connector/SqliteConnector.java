@@ -0,0 +1,324 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveReader;
+import com.databasebackuputility.core.archive.ParallelChunkLoader;
+import com.databasebackuputility.core.jdbc.JdbcRowSession;
+import com.databasebackuputility.core.jdbc.KeysetExporter;
+import com.databasebackuputility.core.sqlite.PageDelta;
+import com.databasebackuputility.core.sqlite.PageSignature;
+import com.databasebackuputility.core.sqlite.SqliteDialect;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.DatabaseConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.sqlite.SQLiteConnection;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQLite database connector implementation
+ * Takes hot backups through SQLite's online backup API. WAL databases are copied from
+ * a single read snapshot that never blocks writers; rollback-journal databases are copied
+ * a bounded number of pages per step, letting writers in between steps. Incremental and differential backups
+ * ship only the pages whose hash changed since the last backup or the last full backup;
+ * restoring them replays those pages onto the database in its previous state.
+ * With the rows engine the tables are exported row by row through JDBC instead, into a
+ * chunked archive that does not carry free pages or index pages and restores into a
+ * new file; incrementals then fall back to deltas of that export.
+ */
+@Slf4j
+@Component("SQLITE")
+public class SqliteConnector implements DatabaseConnector {
+
+    @Value("${backup.sqlite.engine:online}")
+    private String engine;
+
+    @Value("${backup.sqlite.page-rows:10000}")
+    private int pageRows;
+
+    @Value("${backup.sqlite.frame-size:4194304}")
+    private int frameSize;
+
+    @Value("${backup.sqlite.state-dir:./backups/.sqlite}")
+    private String stateDir;
+
+    @Value("${backup.sqlite.pages-per-step:1024}")
+    private int pagesPerStep;
+
+    @Value("${backup.sqlite.step-sleep-ms:10}")
+    private int stepSleepMillis;
+
+    @Value("${backup.sqlite.busy-retries:300}")
+    private int busyRetries;
+
+    /**
+     * Rows per INSERT statement of a rows-engine restore
+     */
+    private static final int ROWS_PER_INSERT = 200;
+
+    /**
+     * Page signatures of dumps that are not stored yet, by database
+     */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private record Pending(BackupType backupType, PageSignature signature) {
+    }
+
+    @Override
+    public boolean testConnection(DatabaseConfig config) {
+        // Connecting would create a missing database file
+        if (!new File(config.getFilePath()).isFile()) {
+            log.error("SQLite database file not found: {}", config.getFilePath());
+            return false;
+        }
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl())) {
+            return conn.isValid(5);
+        } catch (Exception e) {
+            log.error("SQLite connection test failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void backup(DatabaseConfig config, BackupType backupType, OutputStream outputStream) throws Exception {
+        log.info("Starting SQLite backup for database: {}", config.getFilePath());
+
+        if (isRowsEngine()) {
+            exportRows(config, outputStream);
+            log.info("SQLite backup completed successfully");
+            return;
+        }
+
+        File snapshot = snapshot(config);
+        try {
+            PageSignature base = loadBase(config, backupType);
+            if (base != null && base.getPageSize() != PageSignature.readPageSize(snapshot)) {
+                log.warn("Page size of {} changed since the last backup", config.getFilePath());
+                base = null;
+            }
+            if (base == null && backupType != BackupType.FULL) {
+                log.warn("No earlier full backup of {} to compare pages with, taking a full backup",
+                        config.getFilePath());
+            }
+
+            PageSignature signature;
+            if (base == null) {
+                signature = PageDelta.copy(snapshot, outputStream);
+                pending.put(stateKey(config), new Pending(BackupType.FULL, signature));
+            } else {
+                signature = PageDelta.encode(snapshot, base, outputStream);
+                pending.put(stateKey(config), new Pending(backupType, signature));
+                log.info("{} of {} pages changed", signature.changedPages(base), signature.getPageCount());
+            }
+        } finally {
+            Files.deleteIfExists(snapshot.toPath());
+        }
+
+        log.info("SQLite backup completed successfully");
+    }
+
+    /**
+     * Make the stored backup the base for the next incremental, and a full
+     * backup also the base for differentials
+     */
+    @Override
+    public void backupStored(DatabaseConfig config, BackupType backupType, String storagePath) throws IOException {
+        Pending stored = pending.remove(stateKey(config));
+        if (stored == null) {
+            return;
+        }
+        Files.createDirectories(Paths.get(stateDir));
+        stored.signature().write(statePath(config, "last"));
+        if (stored.backupType() == BackupType.FULL) {
+            stored.signature().write(statePath(config, "full"));
+        }
+    }
+
+    @Override
+    public void restore(DatabaseConfig config, String backupFilePath) throws Exception {
+        log.info("Starting SQLite restore from: {}", backupFilePath);
+
+        byte[] head = new byte[16];
+        int n;
+        try (InputStream in = new FileInputStream(backupFilePath)) {
+            n = in.readNBytes(head, 0, head.length);
+        }
+
+        if (ChunkArchive.isArchive(head, n)) {
+            restoreRows(config, backupFilePath);
+        } else if (PageSignature.isDatabase(head, n)) {
+            restoreDatabase(config, new File(backupFilePath));
+        } else if (PageDelta.isPageDelta(head, n)) {
+            // Replay onto a copy, so a failed replay leaves the live database untouched
+            File working = snapshot(config);
+            try {
+                int pages;
+                try (InputStream in = new FileInputStream(backupFilePath)) {
+                    pages = PageDelta.apply(in, working);
+                }
+                log.info("Replayed {} changed pages", pages);
+                restoreDatabase(config, working);
+            } finally {
+                Files.deleteIfExists(working.toPath());
+            }
+        } else {
+            throw new IOException("Not an SQLite backup: " + backupFilePath);
+        }
+
+        log.info("SQLite restore completed successfully");
+    }
+
+    @Override
+    public long getDatabaseSize(DatabaseConfig config) throws Exception {
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT page_count * page_size FROM pragma_page_count(), pragma_page_size()")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public boolean supportsIncrementalBackup() {
+        return !isRowsEngine();
+    }
+
+    @Override
+    public boolean supportsDifferentialBackup() {
+        return !isRowsEngine();
+    }
+
+    private boolean isRowsEngine() {
+        return "rows".equalsIgnoreCase(engine);
+    }
+
+    /**
+     * Export every table inside one read transaction, so all pages come from the same
+     * snapshot. In rollback-journal mode writers wait for the export to finish.
+     */
+    private void exportRows(DatabaseConfig config, OutputStream outputStream) throws IOException, SQLException {
+        if (!new File(config.getFilePath()).isFile()) {
+            throw new FileNotFoundException("SQLite database file not found: " + config.getFilePath());
+        }
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl())) {
+            conn.setAutoCommit(false);
+            new KeysetExporter(new SqliteDialect(), pageRows, frameSize).export(conn, outputStream);
+            conn.commit();
+        }
+    }
+
+    /**
+     * Load a rows archive into a new database file, then swap it in through the online
+     * backup API. The new file has no journal to write, since a failed load is discarded.
+     */
+    private void restoreRows(DatabaseConfig config, String backupFilePath) throws Exception {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        Files.createDirectories(tempDir.toPath());
+        File working = File.createTempFile("sqlite-", ".db", tempDir);
+        try {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(backupFilePath), 1 << 16)) {
+                ChunkArchiveReader reader = new ChunkArchiveReader(in);
+                if (!KeysetExporter.FORMAT.equals(reader.getFormat())) {
+                    throw new IOException("Cannot restore a " + reader.getFormat() + " archive into SQLite");
+                }
+                SqliteDialect dialect = new SqliteDialect();
+                // SQLite has a single writer, so one loading session is as fast as several
+                int chunks = new ParallelChunkLoader(1).load(reader, () -> {
+                    Connection conn = DriverManager.getConnection("jdbc:sqlite:" + working.getAbsolutePath());
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("PRAGMA journal_mode = OFF");
+                        stmt.execute("PRAGMA synchronous = OFF");
+                        stmt.execute("PRAGMA busy_timeout = " + stepSleepMillis * busyRetries);
+                    }
+                    return new JdbcRowSession(conn, dialect, ROWS_PER_INSERT);
+                });
+                log.info("Loaded {} chunks", chunks);
+            }
+            restoreDatabase(config, working);
+        } finally {
+            Files.deleteIfExists(working.toPath());
+        }
+    }
+
+    /**
+     * Consistent copy of the live database, taken with the online backup API
+     */
+    private File snapshot(DatabaseConfig config) throws IOException, SQLException {
+        if (!new File(config.getFilePath()).isFile()) {
+            throw new FileNotFoundException("SQLite database file not found: " + config.getFilePath());
+        }
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        Files.createDirectories(tempDir.toPath());
+        File snapshot = File.createTempFile("sqlite-", ".db", tempDir);
+
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl())) {
+            int rc = conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", snapshot.getAbsolutePath(),
+                    null, stepSleepMillis, busyRetries, isWal(conn) ? -1 : pagesPerStep);
+            checkResult(rc, "backup");
+        } catch (SQLException | RuntimeException e) {
+            Files.deleteIfExists(snapshot.toPath());
+            throw e;
+        }
+        return snapshot;
+    }
+
+    /**
+     * In WAL mode a read transaction does not block writers, so the whole copy runs in
+     * one step from one consistent snapshot. Copying in steps would restart the copy
+     * on every commit another connection makes in between.
+     */
+    private boolean isWal(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            return rs.next() && "wal".equalsIgnoreCase(rs.getString(1));
+        }
+    }
+
+    /**
+     * Replace the live database with a database file through the online backup API,
+     * so connections other processes hold stay valid
+     */
+    private void restoreDatabase(DatabaseConfig config, File source) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl())) {
+            int rc = conn.unwrap(SQLiteConnection.class).getDatabase().restore("main", source.getAbsolutePath(),
+                    null, stepSleepMillis, busyRetries, pagesPerStep);
+            checkResult(rc, "restore");
+        }
+    }
+
+    private void checkResult(int rc, String operation) throws SQLException {
+        // SQLITE_OK or SQLITE_DONE
+        if (rc != 0 && rc != 101) {
+            throw new SQLException("SQLite online " + operation + " failed with result code " + rc);
+        }
+    }
+
+    private PageSignature loadBase(DatabaseConfig config, BackupType backupType) throws IOException {
+        if (backupType == BackupType.FULL) {
+            return null;
+        }
+        Path file = statePath(config, backupType == BackupType.DIFFERENTIAL ? "full" : "last");
+        return Files.exists(file) ? PageSignature.read(file) : null;
+    }
+
+    private String stateKey(DatabaseConfig config) {
+        return new File(config.getFilePath()).getAbsolutePath();
+    }
+
+    private Path statePath(DatabaseConfig config, String kind) {
+        String key = "sqlite_" + stateKey(config).replaceAll("[^A-Za-z0-9._-]", "_");
+        return Paths.get(stateDir).resolve(key + "." + kind + ".pages");
+    }
+}
@@ -0,0 +1,7 @@
+package com.databasebackuputility.core.dedup;
+
+/**
+ * Manifest entry: a chunk's SHA-256 address and its uncompressed length
+ */
+public record ChunkRef(String hash, int length) {
+}
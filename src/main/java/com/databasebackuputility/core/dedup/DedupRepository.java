@@ -0,0 +1,246 @@
+package com.databasebackuputility.core.dedup;
+
+import com.github.luben.zstd.Zstd;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed chunk store with one manifest per backup.
+ * <pre>
+ * repository/
+ *   chunks/ab/ab12...ef   zstd-compressed chunk, named by the SHA-256 of its content
+ *   manifests/name        one "hash length" line per chunk, in backup order
+ * </pre>
+ * Chunks are immutable and shared by every backup that contains them, so a backup
+ * only adds the chunks that changed since earlier ones. Chunks and manifests are
+ * written to temporary files and renamed into place, so concurrent backups and
+ * interrupted writes never leave a partial chunk under its final name.
+ */
+@Slf4j
+public class DedupRepository {
+
+    public static final String SCHEME = "dedup://";
+
+    private static final String MANIFEST_HEADER = "# dbbackup dedup manifest v1";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path chunkDir;
+    private final Path manifestDir;
+    private final int compressionLevel;
+
+    public DedupRepository(Path root, int compressionLevel) throws IOException {
+        this.chunkDir = root.resolve("chunks");
+        this.manifestDir = root.resolve("manifests");
+        this.compressionLevel = compressionLevel;
+        Files.createDirectories(chunkDir);
+        Files.createDirectories(manifestDir);
+    }
+
+    /**
+     * Store a chunk unless the repository already has it
+     * @return Bytes added to the repository, 0 if the chunk was already stored
+     */
+    public long putChunk(String hash, byte[] data, int off, int len) throws IOException {
+        Path target = chunkPath(hash);
+        if (Files.exists(target)) {
+            return 0;
+        }
+
+        byte[] compressed = Zstd.compress(Arrays.copyOfRange(data, off, off + len), compressionLevel);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "." + hash, ".tmp");
+        try {
+            Files.write(temp, compressed);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return compressed.length;
+    }
+
+    /**
+     * Read a chunk and verify it against its address
+     */
+    public byte[] getChunk(ChunkRef ref) throws IOException {
+        byte[] data = Zstd.decompress(Files.readAllBytes(chunkPath(ref.hash())), ref.length());
+        if (data.length != ref.length() || !ref.hash().equals(hash(data, 0, data.length))) {
+            throw new IOException("Chunk " + ref.hash() + " is corrupt");
+        }
+        return data;
+    }
+
+    /**
+     * Publish the manifest of a backup
+     */
+    public void writeManifest(String name, List<ChunkRef> chunks) throws IOException {
+        Path target = manifestPath(name);
+        Path temp = manifestDir.resolve("." + name + ".part");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+            for (ChunkRef chunk : chunks) {
+                writer.write(chunk.hash() + " " + chunk.length());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Chunks of a backup in order
+     */
+    public List<ChunkRef> readManifest(String name) throws IOException {
+        Path manifest = manifestPath(name);
+        if (!Files.exists(manifest)) {
+            throw new IOException("Backup not found in dedup repository: " + name);
+        }
+        List<ChunkRef> chunks = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(" ");
+            if (fields.length != 2 || !isHash(fields[0])) {
+                throw new IOException("Corrupt manifest " + name + ": " + line);
+            }
+            chunks.add(new ChunkRef(fields[0], Integer.parseInt(fields[1])));
+        }
+        return chunks;
+    }
+
+    /**
+     * Reassemble a backup from its manifest; chunks are read one at a time
+     */
+    public InputStream open(String name) throws IOException {
+        return new ManifestInputStream(readManifest(name).iterator());
+    }
+
+    /**
+     * Remove a backup's manifest. Its chunks stay, since other backups may share them
+     */
+    public boolean deleteManifest(String name) throws IOException {
+        return Files.deleteIfExists(manifestPath(name));
+    }
+
+    /**
+     * Names of all published backups
+     */
+    public List<String> listManifests() throws IOException {
+        try (Stream<Path> files = Files.list(manifestDir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public boolean hasManifest(String name) {
+        return Files.exists(manifestPath(name));
+    }
+
+    /**
+     * SHA-256 of a byte range as lowercase hex
+     */
+    public static String hash(byte[] data, int off, int len) {
+        MessageDigest digest = newDigest();
+        digest.update(data, off, len);
+        return HEX.formatHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Manifest file of a backup; the name comes from storage paths and must not leave the manifest directory
+     */
+    private Path manifestPath(String name) {
+        if (name == null || name.isEmpty() || name.startsWith(".") || name.contains("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("Invalid backup name for dedup repository: " + name);
+        }
+        Path manifest = manifestDir.resolve(name).normalize();
+        if (!manifest.getParent().equals(manifestDir.normalize())) {
+            throw new IllegalArgumentException("Invalid backup name for dedup repository: " + name);
+        }
+        return manifest;
+    }
+
+    private static boolean isHash(String value) {
+        if (value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path chunkPath(String hash) {
+        return chunkDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private class ManifestInputStream extends InputStream {
+
+        private final Iterator<ChunkRef> chunks;
+        private byte[] current = new byte[0];
+        private int position;
+
+        ManifestInputStream(Iterator<ChunkRef> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == current.length) {
+                if (!chunks.hasNext()) {
+                    return false;
+                }
+                current = getChunk(chunks.next());
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.databasebackuputility.core.dedup;
+
+import java.util.Random;
+
+/**
+ * Content-defined chunking with the FastCDC algorithm.
+ * Cut points depend only on the bytes around them, so an insert or delete early
+ * in a dump shifts the data but leaves the following chunk boundaries, and their
+ * hashes, unchanged. Uses normalized chunking: a stricter mask below the average
+ * size and a looser one above it keep chunk sizes close to the average.
+ */
+public class FastCdcChunker {
+
+    /**
+     * Gear hash table. Must never change: existing repositories would no longer
+     * find the same cut points and lose deduplication against older backups.
+     */
+    private static final long[] GEAR = gearTable();
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskSmall;
+    private final long maskLarge;
+
+    /**
+     * @param avgSize Target average chunk size, a power of two; chunks are
+     *                between a quarter and four times this size
+     */
+    public FastCdcChunker(int avgSize) {
+        if (Integer.bitCount(avgSize) != 1 || avgSize < 256) {
+            throw new IllegalArgumentException("Average chunk size must be a power of two >= 256: " + avgSize);
+        }
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        this.avgSize = avgSize;
+        this.minSize = avgSize / 4;
+        this.maxSize = avgSize * 4;
+        // Top bits of the gear hash depend on the most recent 64 bytes
+        this.maskSmall = -1L << (64 - (bits + 1));
+        this.maskLarge = -1L << (64 - (bits - 1));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Find the end of the chunk starting at {@code off}
+     * @param len Bytes available; fewer than the maximum chunk size only at the end of input
+     * @return Length of the chunk
+     */
+    public int nextChunkLength(byte[] data, int off, int len) {
+        if (len <= minSize) {
+            return len;
+        }
+        int normalEnd = Math.min(len, avgSize);
+        int end = Math.min(len, maxSize);
+        long hash = 0;
+        int i = minSize;
+
+        for (; i < normalEnd; i++) {
+            hash = (hash << 1) + GEAR[data[off + i] & 0xFF];
+            if ((hash & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[off + i] & 0xFF];
+            if ((hash & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    private static long[] gearTable() {
+        // java.util.Random's sequence is fixed by its specification, so the table is stable
+        Random random = new Random(0x6462636463L);
+        long[] table = new long[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,261 @@
+package com.databasebackuputility.core.delta;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * rsync-style signature of a backup's uncompressed content: a rolling weak checksum
+ * and a truncated SHA-256 for every full block, plus the length and SHA-256 of the
+ * whole content. A signature is all a later backup needs to be encoded as a delta;
+ * the base backup itself is only read again on restore.
+ */
+public class BlockSignature {
+
+    public static final int STRONG_LENGTH = 16;
+
+    private static final byte[] MAGIC = "DBSIG001".getBytes(StandardCharsets.US_ASCII);
+
+    private final int blockSize;
+    private final long length;
+    private final byte[] sha256;
+    private final int count;
+    private final int[] weak;
+    private final byte[] strong;
+    private String backupPath;
+
+    private int[] buckets;
+    private int[] next;
+
+    private BlockSignature(int blockSize, long length, byte[] sha256, int count, int[] weak, byte[] strong) {
+        this.blockSize = blockSize;
+        this.length = length;
+        this.sha256 = sha256;
+        this.count = count;
+        this.weak = weak;
+        this.strong = strong;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public byte[] getSha256() {
+        return sha256.clone();
+    }
+
+    public int getBlockCount() {
+        return count;
+    }
+
+    /**
+     * Storage path of the backup this signature describes
+     */
+    public String getBackupPath() {
+        return backupPath;
+    }
+
+    public void setBackupPath(String backupPath) {
+        this.backupPath = backupPath;
+    }
+
+    /**
+     * Whether any block has this weak checksum; cheap test before computing the strong hash
+     */
+    public boolean mayContain(int weakChecksum) {
+        buildIndex();
+        for (int i = buckets[bucket(weakChecksum)]; i >= 0; i = next[i]) {
+            if (weak[i] == weakChecksum) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Index of a block with these checksums, or -1
+     */
+    public int find(int weakChecksum, byte[] strongHash) {
+        buildIndex();
+        for (int i = buckets[bucket(weakChecksum)]; i >= 0; i = next[i]) {
+            if (weak[i] == weakChecksum
+                    && Arrays.equals(strong, i * STRONG_LENGTH, (i + 1) * STRONG_LENGTH,
+                    strongHash, 0, STRONG_LENGTH)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * rsync weak checksum of a block: two 16-bit sums that can be rolled one byte at a time
+     */
+    public static int weakChecksum(byte[] data, int off, int len) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < len; i++) {
+            int x = data[off + i] & 0xFF;
+            a += x;
+            b += (len - i) * x;
+        }
+        return (a & 0xFFFF) | (b << 16);
+    }
+
+    /**
+     * Slide the checksum window one byte forward
+     */
+    public static int roll(int weakChecksum, byte out, byte in, int blockSize) {
+        int x = out & 0xFF;
+        int a = ((weakChecksum & 0xFFFF) - x + (in & 0xFF)) & 0xFFFF;
+        int b = ((weakChecksum >>> 16) - blockSize * x + a) & 0xFFFF;
+        return a | (b << 16);
+    }
+
+    /**
+     * Truncated SHA-256 of a block
+     */
+    public static byte[] strongHash(MessageDigest digest, byte[] data, int off, int len) {
+        digest.update(data, off, len);
+        return Arrays.copyOf(digest.digest(), STRONG_LENGTH);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Save atomically; the file replaces any earlier signature at the same path
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling("." + file.getFileName() + ".part");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.write(MAGIC);
+            out.writeUTF(backupPath != null ? backupPath : "");
+            out.writeLong(length);
+            out.write(sha256);
+            out.writeInt(blockSize);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(weak[i]);
+            }
+            out.write(strong, 0, count * STRONG_LENGTH);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static BlockSignature read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a backup signature file: " + file);
+            }
+            String backupPath = in.readUTF();
+            long length = in.readLong();
+            byte[] sha256 = new byte[32];
+            in.readFully(sha256);
+            int blockSize = in.readInt();
+            int count = in.readInt();
+            int[] weak = new int[count];
+            for (int i = 0; i < count; i++) {
+                weak[i] = in.readInt();
+            }
+            byte[] strong = new byte[count * STRONG_LENGTH];
+            in.readFully(strong);
+
+            BlockSignature signature = new BlockSignature(blockSize, length, sha256, count, weak, strong);
+            signature.setBackupPath(backupPath.isEmpty() ? null : backupPath);
+            return signature;
+        }
+    }
+
+    private void buildIndex() {
+        if (buckets != null) {
+            return;
+        }
+        int size = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        buckets = new int[size];
+        Arrays.fill(buckets, -1);
+        next = new int[count];
+        // Insert in reverse so chains list the earliest block first
+        for (int i = count - 1; i >= 0; i--) {
+            int bucket = bucket(weak[i]);
+            next[i] = buckets[bucket];
+            buckets[bucket] = i;
+        }
+    }
+
+    private int bucket(int weakChecksum) {
+        return (weakChecksum * 0x9E3779B9 >>> 7) & (buckets.length - 1);
+    }
+
+    /**
+     * Computes the signature of content fed to it in order
+     */
+    public static class Builder {
+
+        private final int blockSize;
+        private final byte[] block;
+        private final MessageDigest blockDigest = newDigest();
+        private final MessageDigest contentDigest = newDigest();
+        private int filled;
+        private long length;
+        private int count;
+        private int[] weak = new int[1024];
+        private byte[] strong = new byte[1024 * STRONG_LENGTH];
+
+        public Builder(int blockSize) {
+            this.blockSize = blockSize;
+            this.block = new byte[blockSize];
+        }
+
+        public void update(byte[] data, int off, int len) {
+            contentDigest.update(data, off, len);
+            length += len;
+            while (len > 0) {
+                int n = Math.min(len, blockSize - filled);
+                System.arraycopy(data, off, block, filled, n);
+                filled += n;
+                off += n;
+                len -= n;
+                if (filled == blockSize) {
+                    addBlock();
+                    filled = 0;
+                }
+            }
+        }
+
+        /**
+         * Finish; a trailing partial block is covered by the content hash only
+         */
+        public BlockSignature build() {
+            return new BlockSignature(blockSize, length, contentDigest.digest(), count, weak, strong);
+        }
+
+        private void addBlock() {
+            if (count == weak.length) {
+                weak = Arrays.copyOf(weak, count * 2);
+                strong = Arrays.copyOf(strong, count * 2 * STRONG_LENGTH);
+            }
+            weak[count] = weakChecksum(block, 0, blockSize);
+            System.arraycopy(strongHash(blockDigest, block, 0, blockSize), 0, strong,
+                    count * STRONG_LENGTH, STRONG_LENGTH);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.databasebackuputility.core.delta;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static com.databasebackuputility.core.delta.DeltaEncoder.*;
+
+/**
+ * Applies a delta written by {@link DeltaEncoder} to the reconstructed content of its base.
+ * The base is checked against the length and hash recorded in the delta, and the
+ * result against the length and hash of the content the delta was made from.
+ */
+public final class DeltaDecoder {
+
+    /**
+     * Base backup a delta was encoded against
+     */
+    public record Header(String basePath, long baseLength, byte[] baseSha256, int blockSize) {
+    }
+
+    private DeltaDecoder() {
+    }
+
+    /**
+     * Whether a file starts with the delta magic
+     */
+    public static boolean isDelta(File file) throws IOException {
+        byte[] head = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.readNBytes(head, 0, head.length) == head.length && Arrays.equals(head, MAGIC);
+        }
+    }
+
+    /**
+     * Whether a stream starts with the delta magic.
+     * The stream must support mark/reset; its position is left unchanged.
+     */
+    public static boolean isDelta(InputStream in) throws IOException {
+        byte[] head = new byte[MAGIC.length];
+        in.mark(MAGIC.length);
+        int n = in.readNBytes(head, 0, head.length);
+        in.reset();
+        return n == head.length && Arrays.equals(head, MAGIC);
+    }
+
+    public static Header readHeader(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a delta backup");
+        }
+        String basePath = data.readUTF();
+        long baseLength = data.readLong();
+        byte[] baseSha256 = new byte[32];
+        data.readFully(baseSha256);
+        return new Header(basePath, baseLength, baseSha256, data.readInt());
+    }
+
+    /**
+     * Rebuild the content a delta describes
+     * @param base Reconstructed content of the base backup
+     * @param delta Delta stream, positioned at its start
+     * @return Bytes written
+     */
+    public static long apply(File base, InputStream delta, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(delta));
+        Header header = readHeader(in);
+        if (base.length() != header.baseLength()) {
+            throw new IOException(String.format("Base backup %s has %d bytes, delta expects %d",
+                    header.basePath(), base.length(), header.baseLength()));
+        }
+
+        MessageDigest digest = BlockSignature.newDigest();
+        byte[] buffer = new byte[Math.max(header.blockSize(), 1 << 16)];
+        long written = 0;
+
+        try (RandomAccessFile baseFile = new RandomAccessFile(base, "r")) {
+            while (true) {
+                int op = in.readUnsignedByte();
+                if (op == OP_COPY) {
+                    long offset = (long) in.readInt() * header.blockSize();
+                    long remaining = (long) in.readInt() * header.blockSize();
+                    if (offset + remaining > header.baseLength()) {
+                        throw new IOException("Delta copies beyond the end of its base");
+                    }
+                    baseFile.seek(offset);
+                    while (remaining > 0) {
+                        int n = (int) Math.min(buffer.length, remaining);
+                        baseFile.readFully(buffer, 0, n);
+                        out.write(buffer, 0, n);
+                        digest.update(buffer, 0, n);
+                        remaining -= n;
+                        written += n;
+                    }
+                } else if (op == OP_LITERAL) {
+                    int remaining = in.readInt();
+                    while (remaining > 0) {
+                        int n = Math.min(buffer.length, remaining);
+                        in.readFully(buffer, 0, n);
+                        out.write(buffer, 0, n);
+                        digest.update(buffer, 0, n);
+                        remaining -= n;
+                        written += n;
+                    }
+                } else if (op == OP_END) {
+                    long length = in.readLong();
+                    byte[] sha256 = new byte[32];
+                    in.readFully(sha256);
+                    if (length != written || !MessageDigest.isEqual(sha256, digest.digest())) {
+                        throw new IOException("Delta result does not match the original backup content");
+                    }
+                    return written;
+                } else {
+                    throw new IOException("Corrupt delta: unknown operation " + op);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.databasebackuputility.core.delta;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Encodes a dump as a binary delta against the signature of an earlier backup.
+ * A block-sized window slides over the new content; where its weak and strong
+ * checksums match a block of the base, a copy instruction is emitted, everything
+ * else becomes literal data. Matching works at any byte offset, so rows inserted
+ * or deleted early in a dump do not spoil the blocks after them.
+ * <p>
+ * Format, after the magic: base path (UTF), base length (long), base SHA-256,
+ * block size (int), then a sequence of {@code 'C' firstBlock count} and
+ * {@code 'L' length bytes} operations closed by {@code 'E' length sha256} describing
+ * the reconstructed content.
+ */
+public class DeltaEncoder {
+
+    public static final byte[] MAGIC = "DBDELTA1".getBytes(StandardCharsets.US_ASCII);
+    public static final int OP_COPY = 'C';
+    public static final int OP_LITERAL = 'L';
+    public static final int OP_END = 'E';
+
+    private final BlockSignature base;
+    private final int blockSize;
+    private final int maxLiteral;
+    private final MessageDigest digest = BlockSignature.newDigest();
+
+    private DataOutputStream out;
+    private int copyStart = -1;
+    private int copyCount;
+    private long copiedBytes;
+    private long literalBytes;
+
+    /**
+     * @param base Signature of the backup to diff against; must know its storage path
+     */
+    public DeltaEncoder(BlockSignature base) {
+        this.base = base;
+        this.blockSize = base.getBlockSize();
+        this.maxLiteral = Math.max(blockSize * 4, 1 << 20);
+    }
+
+    /**
+     * Write the delta of {@code in} against the base
+     * @return Signature of the new content, for the next backup in the chain
+     */
+    public BlockSignature encode(InputStream in, OutputStream target) throws IOException {
+        out = new DataOutputStream(target);
+        writeHeader();
+
+        BlockSignature.Builder signature = new BlockSignature.Builder(blockSize);
+        byte[] buf = new byte[maxLiteral + 2 * blockSize];
+        int literalStart = 0;
+        int pos = 0;
+        int limit = 0;
+        boolean eof = false;
+        boolean rolling = false;
+        int weak = 0;
+
+        while (true) {
+            if (limit - pos <= blockSize && !eof) {
+                // Keep the pending literal and the window, read more behind them
+                System.arraycopy(buf, literalStart, buf, 0, limit - literalStart);
+                pos -= literalStart;
+                limit -= literalStart;
+                literalStart = 0;
+                int n = in.read(buf, limit, buf.length - limit);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    signature.update(buf, limit, n);
+                    limit += n;
+                }
+                continue;
+            }
+            if (limit - pos < blockSize) {
+                break;
+            }
+
+            if (!rolling) {
+                weak = BlockSignature.weakChecksum(buf, pos, blockSize);
+                rolling = true;
+            }
+            if (base.mayContain(weak)) {
+                int block = base.find(weak, BlockSignature.strongHash(digest, buf, pos, blockSize));
+                if (block >= 0) {
+                    writeLiteral(buf, literalStart, pos - literalStart);
+                    addCopy(block);
+                    pos += blockSize;
+                    literalStart = pos;
+                    rolling = false;
+                    continue;
+                }
+            }
+
+            if (pos + 1 - literalStart >= maxLiteral) {
+                writeLiteral(buf, literalStart, pos + 1 - literalStart);
+                literalStart = pos + 1;
+            }
+            if (limit - pos > blockSize) {
+                weak = BlockSignature.roll(weak, buf[pos], buf[pos + blockSize], blockSize);
+            } else {
+                rolling = false;
+            }
+            pos++;
+        }
+        writeLiteral(buf, literalStart, limit - literalStart);
+        flushCopy();
+
+        BlockSignature result = signature.build();
+        out.writeByte(OP_END);
+        out.writeLong(result.getLength());
+        out.write(result.getSha256());
+        out.flush();
+        return result;
+    }
+
+    /**
+     * Bytes of the new content taken from the base
+     */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * Bytes of the new content stored in the delta
+     */
+    public long getLiteralBytes() {
+        return literalBytes;
+    }
+
+    private void writeHeader() throws IOException {
+        if (base.getBackupPath() == null) {
+            throw new IllegalArgumentException("Base signature has no backup path");
+        }
+        out.write(MAGIC);
+        out.writeUTF(base.getBackupPath());
+        out.writeLong(base.getLength());
+        out.write(base.getSha256());
+        out.writeInt(blockSize);
+    }
+
+    private void addCopy(int block) throws IOException {
+        if (copyStart >= 0 && block == copyStart + copyCount) {
+            copyCount++;
+        } else {
+            flushCopy();
+            copyStart = block;
+            copyCount = 1;
+        }
+        copiedBytes += blockSize;
+    }
+
+    private void flushCopy() throws IOException {
+        if (copyStart >= 0) {
+            out.writeByte(OP_COPY);
+            out.writeInt(copyStart);
+            out.writeInt(copyCount);
+            copyStart = -1;
+        }
+    }
+
+    private void writeLiteral(byte[] data, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        flushCopy();
+        out.writeByte(OP_LITERAL);
+        out.writeInt(len);
+        out.write(data, off, len);
+        literalBytes += len;
+    }
+}
@@ -0,0 +1,60 @@
+package com.databasebackuputility.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * What the generic JDBC engine needs to know about one database: how to list tables
+ * and their keys, how to recreate them, and how to read values
+ */
+public interface JdbcDialect {
+
+    /**
+     * A table to export
+     * @param columns Columns exported and restored, in table order
+     * @param keyColumns Unique, non-null columns ordering the export pages; may include a
+     *                   hidden column such as SQLite's rowid. Empty to read the table in one scan.
+     */
+    record Table(String name, List<String> columns, List<String> keyColumns) {
+    }
+
+    /**
+     * A statement recreating one object, labelled with the object's name
+     */
+    record Definition(String label, String sql) {
+    }
+
+    List<Table> tables(Connection conn) throws SQLException;
+
+    /**
+     * Statements creating the tables, run before any row is loaded
+     */
+    List<Definition> tableDefinitions(Connection conn) throws SQLException;
+
+    /**
+     * Statements run after all rows are loaded: indexes, views, triggers
+     */
+    List<Definition> postDefinitions(Connection conn) throws SQLException;
+
+    String quote(String identifier);
+
+    /**
+     * Most bind parameters one statement may have
+     */
+    int maxParameters();
+
+    /**
+     * Read a value in the form {@link RowFormat} stores it
+     */
+    default Object read(ResultSet rs, int column) throws SQLException {
+        return switch (rs.getMetaData().getColumnType(column)) {
+            case java.sql.Types.DATE -> rs.getObject(column, java.time.LocalDate.class);
+            case java.sql.Types.TIME -> rs.getObject(column, java.time.LocalTime.class);
+            case java.sql.Types.TIMESTAMP -> rs.getObject(column, java.time.LocalDateTime.class);
+            case java.sql.Types.TIMESTAMP_WITH_TIMEZONE -> rs.getObject(column, java.time.OffsetDateTime.class);
+            default -> rs.getObject(column);
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.databasebackuputility.core.jdbc;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ParallelChunkLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Loads chunks of a {@link KeysetExporter} archive: definitions run as SQL, rows are
+ * inserted with multi-row INSERT statements sent in JDBC batches, one transaction per chunk
+ */
+public class JdbcRowSession implements ParallelChunkLoader.Session {
+
+    private final Connection conn;
+    private final JdbcDialect dialect;
+    private final int rowsPerStatement;
+    private final Map<String, PreparedStatement> inserts = new HashMap<>();
+
+    /**
+     * @param rowsPerStatement Rows per INSERT, lowered where the columns would exceed
+     *                         the dialect's bind parameter limit
+     */
+    public JdbcRowSession(Connection conn, JdbcDialect dialect, int rowsPerStatement) throws SQLException {
+        this.conn = conn;
+        this.dialect = dialect;
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        conn.setAutoCommit(false);
+    }
+
+    @Override
+    public void load(ChunkArchive.Chunk chunk) throws Exception {
+        try {
+            if (chunk.kind() == ChunkArchive.Kind.DATA) {
+                insertRows(chunk);
+            } else {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(new String(chunk.data(), StandardCharsets.UTF_8));
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new IOException("Loading chunk of " + chunk.table() + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void insertRows(ChunkArchive.Chunk chunk) throws IOException, SQLException {
+        RowFormat.Reader reader = new RowFormat.Reader(chunk.data());
+        int columns = reader.getColumns().size();
+        int perStatement = Math.max(1, Math.min(rowsPerStatement, dialect.maxParameters() / Math.max(1, columns)));
+
+        PreparedStatement full = insert(chunk.table(), reader, perStatement);
+        Object[][] pending = new Object[perStatement][];
+        int buffered = 0;
+        Object[] row;
+        while ((row = reader.next()) != null) {
+            pending[buffered++] = row;
+            if (buffered == perStatement) {
+                bind(full, pending, buffered);
+                full.addBatch();
+                buffered = 0;
+            }
+        }
+        full.executeBatch();
+
+        if (buffered > 0) {
+            PreparedStatement rest = insert(chunk.table(), reader, buffered);
+            bind(rest, pending, buffered);
+            rest.executeUpdate();
+        }
+    }
+
+    private void bind(PreparedStatement stmt, Object[][] rows, int count) throws SQLException {
+        int index = 1;
+        for (int r = 0; r < count; r++) {
+            for (Object value : rows[r]) {
+                stmt.setObject(index++, value);
+            }
+        }
+    }
+
+    private PreparedStatement insert(String table, RowFormat.Reader reader, int rows) throws SQLException {
+        String key = table + '\0' + String.join("\0", reader.getColumns()) + '\0' + rows;
+        PreparedStatement stmt = inserts.get(key);
+        if (stmt == null) {
+            StringJoiner columns = new StringJoiner(", ", "(", ")");
+            StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+            reader.getColumns().forEach(column -> {
+                columns.add(dialect.quote(column));
+                placeholders.add("?");
+            });
+            StringJoiner values = new StringJoiner(", ");
+            for (int i = 0; i < rows; i++) {
+                values.add(placeholders.toString());
+            }
+            stmt = conn.prepareStatement("INSERT INTO " + dialect.quote(table) + " " + columns + " VALUES " + values);
+            inserts.put(key, stmt);
+        }
+        return stmt;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement stmt : inserts.values()) {
+            stmt.close();
+        }
+        conn.close();
+    }
+}
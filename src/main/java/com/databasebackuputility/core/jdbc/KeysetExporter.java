@@ -0,0 +1,144 @@
+package com.databasebackuputility.core.jdbc;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Exports a database through plain JDBC into a {@link ChunkArchive} of format
+ * {@link #FORMAT}, without any vendor dump tool. Each table is read in pages ordered
+ * by its key, every page starting after the last key of the one before (keyset
+ * pagination), so each query is an index range scan however deep into the table it is.
+ * Rows are stored in {@link RowFormat}. The caller provides the connection and the
+ * transaction that keeps the pages consistent with each other.
+ */
+@Slf4j
+public class KeysetExporter {
+
+    public static final String FORMAT = "jdbc-rows";
+
+    private final JdbcDialect dialect;
+    private final int pageSize;
+    private final int frameSize;
+
+    public KeysetExporter(JdbcDialect dialect, int pageSize, int frameSize) {
+        this.dialect = dialect;
+        this.pageSize = Math.max(1, pageSize);
+        this.frameSize = frameSize;
+    }
+
+    public void export(Connection conn, OutputStream outputStream) throws IOException, SQLException {
+        ChunkArchiveWriter writer = new ChunkArchiveWriter(outputStream, FORMAT);
+        for (JdbcDialect.Definition definition : dialect.tableDefinitions(conn)) {
+            writer.write(ChunkArchive.Kind.SCHEMA, definition.label(), bytes(definition.sql()));
+        }
+
+        long totalRows = 0;
+        for (JdbcDialect.Table table : dialect.tables(conn)) {
+            long rows = exportTable(conn, table, writer);
+            log.debug("Exported {} rows of {}", rows, table.name());
+            totalRows += rows;
+        }
+
+        for (JdbcDialect.Definition definition : dialect.postDefinitions(conn)) {
+            writer.write(ChunkArchive.Kind.POST, definition.label(), bytes(definition.sql()));
+        }
+        writer.finish();
+        log.info("Exported {} rows in {} chunks", totalRows, writer.getChunkCount());
+    }
+
+    private long exportTable(Connection conn, JdbcDialect.Table table, ChunkArchiveWriter writer)
+            throws IOException, SQLException {
+        List<String> keys = table.keyColumns();
+        StringJoiner select = new StringJoiner(", ");
+        keys.forEach(key -> select.add(dialect.quote(key)));
+        table.columns().forEach(column -> select.add(dialect.quote(column)));
+        String from = " FROM " + dialect.quote(table.name());
+
+        if (keys.isEmpty()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT " + select + from)) {
+                stmt.setFetchSize(pageSize);
+                return writeRows(stmt, table, 0, writer, new Object[0]);
+            }
+        }
+
+        StringJoiner order = new StringJoiner(", ");
+        StringJoiner params = new StringJoiner(", ");
+        keys.forEach(key -> {
+            order.add(dialect.quote(key));
+            params.add("?");
+        });
+        String after = keys.size() == 1 ? order + " > ?" : "(" + order + ") > (" + params + ")";
+        String suffix = " ORDER BY " + order + " LIMIT " + pageSize;
+
+        long rows = 0;
+        Object[] lastKey = null;
+        try (PreparedStatement first = conn.prepareStatement("SELECT " + select + from + suffix);
+             PreparedStatement next = conn.prepareStatement("SELECT " + select + from + " WHERE " + after + suffix)) {
+            first.setFetchSize(pageSize);
+            next.setFetchSize(pageSize);
+            while (true) {
+                PreparedStatement page = lastKey == null ? first : next;
+                if (lastKey != null) {
+                    for (int i = 0; i < lastKey.length; i++) {
+                        page.setObject(i + 1, lastKey[i]);
+                    }
+                }
+                Object[] key = new Object[keys.size()];
+                long pageRows = writeRows(page, table, keys.size(), writer, key);
+                rows += pageRows;
+                if (pageRows < pageSize) {
+                    return rows;
+                }
+                lastKey = key;
+            }
+        }
+    }
+
+    /**
+     * Write the rows a query returns as DATA chunks of about {@code frameSize} bytes
+     * @param lastKey Receives the key of the last row
+     */
+    private long writeRows(PreparedStatement stmt, JdbcDialect.Table table, int keyCount,
+                           ChunkArchiveWriter writer, Object[] lastKey) throws IOException, SQLException {
+        long rows = 0;
+        RowFormat.Writer chunk = new RowFormat.Writer(table.columns());
+        try (ResultSet rs = stmt.executeQuery()) {
+            int count = table.columns().size();
+            while (rs.next()) {
+                for (int i = 0; i < keyCount; i++) {
+                    lastKey[i] = rs.getObject(i + 1);
+                }
+                Object[] values = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = dialect.read(rs, keyCount + i + 1);
+                }
+                chunk.writeRow(values);
+                rows++;
+                if (chunk.size() >= frameSize) {
+                    writer.write(ChunkArchive.Kind.DATA, table.name(), chunk.toByteArray());
+                    chunk = new RowFormat.Writer(table.columns());
+                }
+            }
+        }
+        if (chunk.getRowCount() > 0) {
+            writer.write(ChunkArchive.Kind.DATA, table.name(), chunk.toByteArray());
+        }
+        return rows;
+    }
+
+    private static byte[] bytes(String sql) {
+        return sql.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,292 @@
+package com.databasebackuputility.core.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact typed row encoding for DATA chunks of the {@code jdbc-rows} archive format:
+ * <pre>
+ *   columns:varint { name:string }*columns
+ *   { { tag:byte value }*columns }*
+ * </pre>
+ * Integers are zigzag varints, strings and bytes are varint length-prefixed, so a row
+ * is typically smaller than its SQL text and is decoded without parsing. Each chunk
+ * names its columns, so it can be loaded on its own. Values of a Java type without a
+ * tag of their own are written as their string form.
+ */
+public final class RowFormat {
+
+    static final byte NULL = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte STRING = 3;
+    static final byte BYTES = 4;
+    static final byte DECIMAL = 5;
+    static final byte TRUE = 6;
+    static final byte FALSE = 7;
+    static final byte DATE = 8;
+    static final byte TIME = 9;
+    static final byte TIMESTAMP = 10;
+    static final byte TIMESTAMP_TZ = 11;
+
+    private RowFormat() {
+    }
+
+    /**
+     * Encodes rows into a chunk
+     */
+    public static final class Writer {
+
+        private final Buffer out = new Buffer();
+        private final int columns;
+        private int rows;
+
+        public Writer(List<String> columnNames) {
+            this.columns = columnNames.size();
+            out.writeVarLong(columns);
+            for (String name : columnNames) {
+                out.writeString(name);
+            }
+        }
+
+        public void writeRow(Object[] values) {
+            if (values.length != columns) {
+                throw new IllegalArgumentException("Expected " + columns + " values, got " + values.length);
+            }
+            for (Object value : values) {
+                writeValue(value);
+            }
+            rows++;
+        }
+
+        public int size() {
+            return out.size();
+        }
+
+        public int getRowCount() {
+            return rows;
+        }
+
+        public byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                out.write(NULL);
+            } else if (value instanceof Boolean b) {
+                out.write(b ? TRUE : FALSE);
+            } else if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                writeLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof BigDecimal d) {
+                writeDecimal(d);
+            } else if (value instanceof BigInteger i) {
+                writeDecimal(new BigDecimal(i));
+            } else if (value instanceof byte[] bytes) {
+                out.write(BYTES);
+                out.writeVarLong(bytes.length);
+                out.write(bytes, 0, bytes.length);
+            } else if (value instanceof java.sql.Date d) {
+                writeDate(d.toLocalDate());
+            } else if (value instanceof LocalDate d) {
+                writeDate(d);
+            } else if (value instanceof java.sql.Time t) {
+                writeTime(t.toLocalTime());
+            } else if (value instanceof LocalTime t) {
+                writeTime(t);
+            } else if (value instanceof java.sql.Timestamp t) {
+                writeTimestamp(t.toLocalDateTime());
+            } else if (value instanceof LocalDateTime t) {
+                writeTimestamp(t);
+            } else if (value instanceof OffsetDateTime t) {
+                out.write(TIMESTAMP_TZ);
+                Instant instant = t.toInstant();
+                out.writeZigZag(instant.getEpochSecond());
+                out.writeVarLong(instant.getNano());
+                out.writeZigZag(t.getOffset().getTotalSeconds());
+            } else {
+                out.write(STRING);
+                out.writeString(value.toString());
+            }
+        }
+
+        private void writeLong(long value) {
+            out.write(LONG);
+            out.writeZigZag(value);
+        }
+
+        private void writeDouble(double value) {
+            out.write(DOUBLE);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+
+        private void writeDecimal(BigDecimal value) {
+            out.write(DECIMAL);
+            out.writeZigZag(value.scale());
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeVarLong(unscaled.length);
+            out.write(unscaled, 0, unscaled.length);
+        }
+
+        private void writeDate(LocalDate date) {
+            out.write(DATE);
+            out.writeZigZag(date.toEpochDay());
+        }
+
+        private void writeTime(LocalTime time) {
+            out.write(TIME);
+            out.writeVarLong(time.toNanoOfDay());
+        }
+
+        private void writeTimestamp(LocalDateTime timestamp) {
+            out.write(TIMESTAMP);
+            out.writeZigZag(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeVarLong(timestamp.getNano());
+        }
+    }
+
+    /**
+     * Decodes the rows of a chunk
+     */
+    public static final class Reader {
+
+        private final byte[] data;
+        private int position;
+        private final List<String> columns;
+
+        public Reader(byte[] data) throws IOException {
+            this.data = data;
+            int count = (int) readVarLong();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(readString());
+            }
+            this.columns = List.copyOf(names);
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        /**
+         * Next row, or null after the last one
+         */
+        public Object[] next() throws IOException {
+            if (position == data.length) {
+                return null;
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = readValue();
+            }
+            return row;
+        }
+
+        private Object readValue() throws IOException {
+            byte tag = readByte();
+            return switch (tag) {
+                case NULL -> null;
+                case TRUE -> Boolean.TRUE;
+                case FALSE -> Boolean.FALSE;
+                case LONG -> readZigZag();
+                case DOUBLE -> {
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (readByte() & 0xff);
+                    }
+                    yield Double.longBitsToDouble(bits);
+                }
+                case STRING -> readString();
+                case BYTES -> readBytes();
+                case DECIMAL -> {
+                    int scale = (int) readZigZag();
+                    yield new BigDecimal(new BigInteger(readBytes()), scale);
+                }
+                case DATE -> LocalDate.ofEpochDay(readZigZag());
+                case TIME -> LocalTime.ofNanoOfDay(readVarLong());
+                case TIMESTAMP -> LocalDateTime.ofEpochSecond(readZigZag(), (int) readVarLong(), ZoneOffset.UTC);
+                case TIMESTAMP_TZ -> {
+                    Instant instant = Instant.ofEpochSecond(readZigZag(), readVarLong());
+                    yield instant.atOffset(ZoneOffset.ofTotalSeconds((int) readZigZag()));
+                }
+                default -> throw new IOException("Corrupt row data: unknown value tag " + tag);
+            };
+        }
+
+        private byte readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Corrupt row data: truncated row");
+            }
+            return data[position++];
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt row data: varint too long");
+        }
+
+        private long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = (int) readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IOException("Corrupt row data: value runs past the chunk");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1 << 16);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7fL) != 0) {
+                write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.databasebackuputility.core.process;
+
+import com.databasebackuputility.model.ProcessStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Runs an external dump tool and copies its stdout into a stream.
+ * A reader thread fills a few large reusable buffers from the tool's stdout while the
+ * calling thread writes full ones out, so the tool never waits for the consumer
+ * unless every buffer is full. Stderr is drained on its own thread: never mixed into
+ * the dump, logged, its progress lines reported at intervals, and its last lines
+ * added to the error when the tool fails. A tool running past the timeout, or whose
+ * output cannot be written, is terminated, and killed if it does not exit in time.
+ */
+@Slf4j
+@Component
+public class ProcessPump {
+
+    /**
+     * Stderr lines that report progress: pg_dump --verbose, mysqldump --verbose, mongodump
+     */
+    private static final Pattern PROGRESS = Pattern.compile(
+            "dumping contents of table|Retrieving table structure|Sending SELECT query|done dumping|\\d+(\\.\\d+)?%\\)");
+
+    private static final int STDERR_TAIL_LINES = 20;
+
+    @Value("${backup.process.buffer-size:1048576}")
+    private int bufferSize;
+
+    @Value("${backup.process.buffers:4}")
+    private int bufferCount;
+
+    @Value("${backup.process.timeout-seconds:0}")
+    private long timeoutSeconds;
+
+    @Value("${backup.process.kill-grace-seconds:10}")
+    private long killGraceSeconds;
+
+    @Value("${backup.process.progress-interval-seconds:10}")
+    private long progressIntervalSeconds;
+
+    private record Buffer(byte[] data, int length) {
+    }
+
+    private static final Buffer END = new Buffer(new byte[0], -1);
+
+    /**
+     * Start the tool and copy its stdout to {@code out}
+     * @return Counters of the run
+     * @throws IOException if the tool fails, times out, or its output cannot be written
+     */
+    public ProcessStats run(ProcessBuilder pb, OutputStream out) throws IOException, InterruptedException {
+        String command = pb.command().get(0);
+        pb.redirectErrorStream(false);
+        long start = System.nanoTime();
+        Process process = pb.start();
+
+        Stderr stderr = new Stderr(command, process.getErrorStream());
+        Thread stderrThread = daemon(stderr, command + "-stderr");
+
+        BlockingQueue<Buffer> free = new ArrayBlockingQueue<>(Math.max(2, bufferCount));
+        BlockingQueue<Buffer> full = new ArrayBlockingQueue<>(Math.max(2, bufferCount) + 1);
+        for (int i = 0; i < Math.max(2, bufferCount); i++) {
+            free.add(new Buffer(new byte[bufferSize], 0));
+        }
+        AtomicReference<IOException> readFailure = new AtomicReference<>();
+        Thread reader = daemon(() -> readStdout(process.getInputStream(), free, full, readFailure), command + "-stdout");
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread watchdog = null;
+        if (timeoutSeconds > 0) {
+            watchdog = daemon(() -> {
+                try {
+                    if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                        timedOut.set(true);
+                        log.warn("{} still running after {} seconds, terminating it", command, timeoutSeconds);
+                        kill(process);
+                    }
+                } catch (InterruptedException ignored) {
+                    // The tool finished
+                }
+            }, command + "-watchdog");
+        }
+
+        long bytes = 0;
+        try {
+            Buffer buffer;
+            while ((buffer = full.take()) != END) {
+                out.write(buffer.data(), 0, buffer.length());
+                bytes += buffer.length();
+                free.put(new Buffer(buffer.data(), 0));
+            }
+            reader.join();
+            if (readFailure.get() != null && !timedOut.get()) {
+                throw readFailure.get();
+            }
+            int exitCode = process.waitFor();
+            stderrThread.join();
+            if (timedOut.get()) {
+                throw new IOException(command + " timed out after " + timeoutSeconds + " seconds");
+            }
+            if (exitCode != 0) {
+                throw new IOException(command + " failed with exit code: " + exitCode + stderr.tail());
+            }
+
+            ProcessStats stats = ProcessStats.builder()
+                    .command(command)
+                    .exitCode(exitCode)
+                    .bytes(bytes)
+                    .durationMs((System.nanoTime() - start) / 1_000_000)
+                    .stderrLines(stderr.lines)
+                    .lastProgress(stderr.lastProgress)
+                    .build();
+            log.info(stats.getSummary());
+            return stats;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            kill(process);
+            throw e;
+        } finally {
+            reader.interrupt();
+            if (watchdog != null) {
+                watchdog.interrupt();
+            }
+        }
+    }
+
+    private static void readStdout(InputStream in, BlockingQueue<Buffer> free, BlockingQueue<Buffer> full,
+                                   AtomicReference<IOException> failure) {
+        try (in) {
+            while (true) {
+                byte[] data = free.take().data();
+                int length = in.readNBytes(data, 0, data.length);
+                if (length > 0) {
+                    full.put(new Buffer(data, length));
+                }
+                if (length < data.length) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure.set(e);
+        } catch (InterruptedException e) {
+            // The consumer gave up
+            return;
+        }
+        try {
+            full.put(END);
+        } catch (InterruptedException ignored) {
+            // The consumer gave up
+        }
+    }
+
+    /**
+     * Ask the tool and its children to exit, then force them
+     */
+    private void kill(Process process) {
+        if (!process.isAlive()) {
+            return;
+        }
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(killGraceSeconds, TimeUnit.SECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Drains stderr, keeping its last lines and the latest progress line
+     */
+    private final class Stderr implements Runnable {
+
+        private final String command;
+        private final InputStream in;
+        private final Deque<String> tail = new ArrayDeque<>();
+        private volatile long lines;
+        private volatile String lastProgress;
+
+        Stderr(String command, InputStream in) {
+            this.command = command;
+            this.in = in;
+        }
+
+        @Override
+        public void run() {
+            long nextReport = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    synchronized (tail) {
+                        tail.addLast(line);
+                        if (tail.size() > STDERR_TAIL_LINES) {
+                            tail.removeFirst();
+                        }
+                    }
+                    if (PROGRESS.matcher(line).find()) {
+                        lastProgress = line.strip();
+                        long now = System.nanoTime();
+                        if (now >= nextReport) {
+                            log.info("{}: {}", command, lastProgress);
+                            nextReport = now + TimeUnit.SECONDS.toNanos(progressIntervalSeconds);
+                            continue;
+                        }
+                    }
+                    log.debug("{}: {}", command, line);
+                }
+            } catch (IOException e) {
+                log.debug("Stopped reading {} stderr: {}", command, e.getMessage());
+            }
+        }
+
+        String tail() {
+            synchronized (tail) {
+                return tail.isEmpty() ? "" : ": " + String.join(System.lineSeparator(), tail).strip();
+            }
+        }
+    }
+}
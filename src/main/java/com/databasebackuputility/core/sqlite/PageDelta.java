@@ -0,0 +1,136 @@
+package com.databasebackuputility.core.sqlite;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Page-level incremental backup of an SQLite database: the pages that changed since
+ * a base snapshot, by page number. Format:
+ * <pre>
+ *   "DBPAGES1" pageSize:int pageCount:int baseDigest:32
+ *   { pageNumber:int page:pageSize }* 0:int
+ *   digest:32
+ * </pre>
+ * Page numbers are 1-based as in SQLite; page 1 is always included. The digests are
+ * {@link PageSignature#digest()} of the base and the resulting database, so replay
+ * refuses a target that is not in the base state and verifies the result.
+ */
+public final class PageDelta {
+
+    public static final byte[] MAGIC = "DBPAGES1".getBytes(StandardCharsets.US_ASCII);
+
+    private PageDelta() {
+    }
+
+    /**
+     * Whether the bytes start with the page delta magic
+     */
+    public static boolean isPageDelta(byte[] head, int length) {
+        return length >= MAGIC.length && Arrays.equals(head, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Copy a database snapshot as is, hashing its pages on the way
+     */
+    public static PageSignature copy(File snapshot, OutputStream out) throws IOException {
+        PageSignature.Builder builder = new PageSignature.Builder(PageSignature.readPageSize(snapshot));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(snapshot), 1 << 16)) {
+            byte[] page = new byte[builder.getPageSize()];
+            int n;
+            while ((n = in.readNBytes(page, 0, page.length)) > 0) {
+                if (n < page.length) {
+                    throw new IOException("Database file is not a whole number of pages: " + snapshot);
+                }
+                builder.add(page);
+                out.write(page);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Write the pages of a snapshot that differ from the base
+     * @param base Signature of the previous snapshot, with the same page size
+     * @return Signature of the snapshot
+     */
+    public static PageSignature encode(File snapshot, PageSignature base, OutputStream target) throws IOException {
+        int pageSize = PageSignature.readPageSize(snapshot);
+        if (pageSize != base.getPageSize()) {
+            throw new IOException("Page size changed from " + base.getPageSize() + " to " + pageSize);
+        }
+
+        PageSignature.Builder builder = new PageSignature.Builder(pageSize);
+        DataOutputStream out = new DataOutputStream(target);
+        out.write(MAGIC);
+        out.writeInt(pageSize);
+        long pageCount = snapshot.length() / pageSize;
+        out.writeInt((int) pageCount);
+        out.write(base.digest());
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(snapshot), 1 << 16)) {
+            byte[] page = new byte[pageSize];
+            for (int index = 0; index < pageCount; index++) {
+                if (in.readNBytes(page, 0, pageSize) != pageSize) {
+                    throw new IOException("Database snapshot changed while it was read: " + snapshot);
+                }
+                if (!base.matches(index, builder.add(page)) || index == 0) {
+                    out.writeInt(index + 1);
+                    out.write(page);
+                }
+            }
+        }
+
+        PageSignature signature = builder.build();
+        out.writeInt(0);
+        out.write(signature.digest());
+        out.flush();
+        return signature;
+    }
+
+    /**
+     * Replay a page delta onto a database file in its base state
+     * @return Number of pages written
+     */
+    public static int apply(InputStream delta, File database) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(delta, 1 << 16));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an SQLite page delta");
+        }
+        int pageSize = in.readInt();
+        int pageCount = in.readInt();
+        byte[] baseDigest = new byte[32];
+        in.readFully(baseDigest);
+
+        if (!Arrays.equals(PageSignature.of(database).digest(), baseDigest)) {
+            throw new IOException("Database " + database + " is not in the state this incremental was taken from;"
+                    + " restore its base backup first");
+        }
+
+        int written = 0;
+        try (RandomAccessFile file = new RandomAccessFile(database, "rw")) {
+            byte[] page = new byte[pageSize];
+            int pageNumber;
+            while ((pageNumber = in.readInt()) != 0) {
+                if (pageNumber < 0 || pageNumber > pageCount) {
+                    throw new IOException("Page " + pageNumber + " out of range in page delta");
+                }
+                in.readFully(page);
+                file.seek((long) (pageNumber - 1) * pageSize);
+                file.write(page);
+                written++;
+            }
+            file.setLength((long) pageCount * pageSize);
+            file.getFD().sync();
+        }
+
+        byte[] digest = new byte[32];
+        in.readFully(digest);
+        if (!Arrays.equals(PageSignature.of(database).digest(), digest)) {
+            throw new IOException("Database " + database + " does not match the backup after page replay");
+        }
+        return written;
+    }
+}
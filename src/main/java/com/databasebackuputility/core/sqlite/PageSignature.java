@@ -0,0 +1,195 @@
+package com.databasebackuputility.core.sqlite;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Truncated SHA-256 of every page of an SQLite database file.
+ * The online backup API copies pages verbatim, so comparing the signatures of two
+ * snapshots tells exactly which pages a write touched in between.
+ */
+public class PageSignature {
+
+    public static final int HASH_LENGTH = 16;
+
+    private static final byte[] MAGIC = "DBPGSIG1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SQLITE_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+    private final int pageSize;
+    private final int pageCount;
+    private final byte[] hashes;
+
+    private PageSignature(int pageSize, int pageCount, byte[] hashes) {
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.hashes = hashes;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Whether page {@code index} (0-based) has the given hash
+     */
+    public boolean matches(int index, byte[] hash) {
+        return index < pageCount
+                && Arrays.equals(hashes, index * HASH_LENGTH, (index + 1) * HASH_LENGTH, hash, 0, HASH_LENGTH);
+    }
+
+    /**
+     * Number of pages that differ from, or are missing in, {@code base}
+     */
+    public int changedPages(PageSignature base) {
+        int changed = 0;
+        for (int i = 0; i < pageCount; i++) {
+            if (base == null || i >= base.pageCount || !Arrays.equals(hashes, i * HASH_LENGTH, (i + 1) * HASH_LENGTH,
+                    base.hashes, i * HASH_LENGTH, (i + 1) * HASH_LENGTH)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Fingerprint of the database content. Page 1 is left out: it holds the header
+     * counters SQLite rewrites on every commit and backup, so it never matches between
+     * a backup and the database it was restored into.
+     */
+    public byte[] digest() {
+        MessageDigest digest = newDigest();
+        digest.update(intBytes(pageSize));
+        digest.update(intBytes(pageCount));
+        if (pageCount > 1) {
+            digest.update(hashes, HASH_LENGTH, (pageCount - 1) * HASH_LENGTH);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Page size from the database header; a stored value of 1 means 65536
+     */
+    public static int readPageSize(File database) throws IOException {
+        byte[] header = new byte[18];
+        try (InputStream in = new FileInputStream(database)) {
+            if (in.readNBytes(header, 0, header.length) != header.length
+                    || !Arrays.equals(header, 0, SQLITE_HEADER.length, SQLITE_HEADER, 0, SQLITE_HEADER.length)) {
+                throw new IOException("Not an SQLite database: " + database);
+            }
+        }
+        int pageSize = ((header[16] & 0xFF) << 8) | (header[17] & 0xFF);
+        return pageSize == 1 ? 65536 : pageSize;
+    }
+
+    /**
+     * Whether the bytes start with the SQLite database header
+     */
+    public static boolean isDatabase(byte[] head, int length) {
+        return length >= SQLITE_HEADER.length
+                && Arrays.equals(head, 0, SQLITE_HEADER.length, SQLITE_HEADER, 0, SQLITE_HEADER.length);
+    }
+
+    /**
+     * Hash every page of a database file that is not being written to
+     */
+    public static PageSignature of(File database) throws IOException {
+        Builder builder = new Builder(readPageSize(database));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(database), 1 << 16)) {
+            byte[] page = new byte[builder.getPageSize()];
+            while (in.readNBytes(page, 0, page.length) == page.length) {
+                builder.add(page);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Save atomically; the file replaces any earlier signature at the same path
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling("." + file.getFileName() + ".part");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.write(MAGIC);
+            out.writeInt(pageSize);
+            out.writeInt(pageCount);
+            out.write(hashes, 0, pageCount * HASH_LENGTH);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static PageSignature read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a page signature file: " + file);
+            }
+            int pageSize = in.readInt();
+            int pageCount = in.readInt();
+            byte[] hashes = new byte[pageCount * HASH_LENGTH];
+            in.readFully(hashes);
+            return new PageSignature(pageSize, pageCount, hashes);
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    /**
+     * Computes the signature of pages fed to it in order
+     */
+    public static class Builder {
+
+        private final int pageSize;
+        private final MessageDigest pageDigest = newDigest();
+        private int count;
+        private byte[] hashes = new byte[1024 * HASH_LENGTH];
+
+        public Builder(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * Hash the next page
+         * @return Its hash, truncated to {@link #HASH_LENGTH} bytes
+         */
+        public byte[] add(byte[] page) {
+            if ((count + 1) * HASH_LENGTH > hashes.length) {
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+            byte[] hash = Arrays.copyOf(pageDigest.digest(page), HASH_LENGTH);
+            System.arraycopy(hash, 0, hashes, count * HASH_LENGTH, HASH_LENGTH);
+            count++;
+            return hash;
+        }
+
+        public PageSignature build() {
+            return new PageSignature(pageSize, count, hashes);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.databasebackuputility.core.sqlite;
+
+import com.databasebackuputility.core.jdbc.JdbcDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * SQLite for the generic JDBC engine. Definitions come verbatim from sqlite_schema.
+ * Rowid tables are paged on their rowid, which is exported as well so the restored
+ * rows keep it; WITHOUT ROWID tables are paged on their primary key.
+ */
+public class SqliteDialect implements JdbcDialect {
+
+    private static final Pattern WITHOUT_ROWID = Pattern.compile("(?is).*\\)\\s*WITHOUT\\s+ROWID\\s*;?\\s*$");
+    private static final Pattern VIRTUAL = Pattern.compile("(?is)^\\s*CREATE\\s+VIRTUAL\\s+TABLE.*");
+    private static final List<String> ROWID_NAMES = List.of("rowid", "_rowid_", "oid");
+
+    @Override
+    public List<Table> tables(Connection conn) throws SQLException {
+        List<Table> tables = new ArrayList<>();
+        for (Definition table : query(conn, "SELECT name, sql FROM sqlite_master " +
+                "WHERE type = 'table' AND name NOT LIKE 'sqlite\\_%' ESCAPE '\\' ORDER BY rowid")) {
+            // Their shadow tables would be created twice on restore
+            if (VIRTUAL.matcher(table.sql()).matches()) {
+                throw new SQLException("Virtual table " + table.label()
+                        + " cannot be exported row by row; use the online backup engine");
+            }
+            tables.add(table(conn, table.label(), WITHOUT_ROWID.matcher(table.sql()).matches()));
+        }
+        return tables;
+    }
+
+    private Table table(Connection conn, String name, boolean withoutRowid) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<String> primaryKey = new ArrayList<>();
+        String integerKeyType = null;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT name, type, pk, hidden FROM pragma_table_xinfo(?) ORDER BY cid")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // Generated columns are computed again on restore
+                    if (rs.getInt("hidden") != 0) {
+                        continue;
+                    }
+                    columns.add(rs.getString("name"));
+                    int pk = rs.getInt("pk");
+                    if (pk > 0) {
+                        while (primaryKey.size() < pk) {
+                            primaryKey.add(null);
+                        }
+                        primaryKey.set(pk - 1, rs.getString("name"));
+                        integerKeyType = rs.getString("type");
+                    }
+                }
+            }
+        }
+
+        if (withoutRowid) {
+            return new Table(name, columns, primaryKey);
+        }
+        // An INTEGER PRIMARY KEY column is the rowid itself
+        if (primaryKey.size() == 1 && "INTEGER".equalsIgnoreCase(integerKeyType)) {
+            return new Table(name, columns, primaryKey);
+        }
+        for (String rowid : ROWID_NAMES) {
+            if (columns.stream().noneMatch(rowid::equalsIgnoreCase)) {
+                List<String> withRowid = new ArrayList<>();
+                withRowid.add(rowid);
+                withRowid.addAll(columns);
+                return new Table(name, withRowid, List.of(rowid));
+            }
+        }
+        // Every rowid alias is shadowed by a column: read in one scan in storage order
+        return new Table(name, columns, List.of());
+    }
+
+    @Override
+    public List<Definition> tableDefinitions(Connection conn) throws SQLException {
+        return query(conn, "SELECT name, sql FROM sqlite_master " +
+                "WHERE type = 'table' AND name NOT LIKE 'sqlite\\_%' ESCAPE '\\' ORDER BY rowid");
+    }
+
+    /**
+     * Indexes, then views, then triggers, which may be INSTEAD OF triggers on views;
+     * AUTOINCREMENT counters last, overwriting those the loaded rows advanced
+     */
+    @Override
+    public List<Definition> postDefinitions(Connection conn) throws SQLException {
+        List<Definition> definitions = query(conn, "SELECT name, sql FROM sqlite_master " +
+                "WHERE type IN ('index', 'view', 'trigger') AND sql IS NOT NULL " +
+                "ORDER BY CASE type WHEN 'index' THEN 0 WHEN 'view' THEN 1 ELSE 2 END, rowid");
+        if (hasSequences(conn)) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT name, seq FROM sqlite_sequence")) {
+                while (rs.next()) {
+                    String table = rs.getString(1).replace("'", "''");
+                    String label = "SEQUENCE " + rs.getString(1);
+                    definitions.add(new Definition(label, "DELETE FROM sqlite_sequence WHERE name = '" + table + "'"));
+                    definitions.add(new Definition(label,
+                            "INSERT INTO sqlite_sequence (name, seq) VALUES ('" + table + "', " + rs.getLong(2) + ")"));
+                }
+            }
+        }
+        return definitions;
+    }
+
+    private boolean hasSequences(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'sqlite_sequence'")) {
+            return rs.next();
+        }
+    }
+
+    private List<Definition> query(Connection conn, String sql) throws SQLException {
+        List<Definition> definitions = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                definitions.add(new Definition(rs.getString(1), rs.getString(2)));
+            }
+        }
+        return definitions;
+    }
+
+    @Override
+    public String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * SQLITE_MAX_VARIABLE_NUMBER since SQLite 3.32
+     */
+    @Override
+    public int maxParameters() {
+        return 32766;
+    }
+
+    /**
+     * Values keep their storage class whatever type the column declares
+     */
+    @Override
+    public Object read(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column);
+    }
+}
@@ -0,0 +1,127 @@
+package com.databasebackuputility.core.storage;
+
+import com.databasebackuputility.core.dedup.ChunkRef;
+import com.databasebackuputility.core.dedup.DedupRepository;
+import com.databasebackuputility.core.dedup.FastCdcChunker;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a backup into a deduplicating repository.
+ * The stream is cut into content-defined chunks; chunks the repository already
+ * holds are only referenced, new ones are compressed and stored. The backup becomes
+ * visible when its manifest is published on commit. Chunks written by an aborted
+ * backup stay in the repository and are reused by the next run.
+ */
+@Slf4j
+public class DedupSink extends StorageSink {
+
+    private final DedupRepository repository;
+    private final String name;
+    private final FastCdcChunker chunker;
+    private final List<ChunkRef> chunks = new ArrayList<>();
+
+    private byte[] buffer;
+    private int start;
+    private int count;
+    private long logicalBytes;
+    private long newChunks;
+    private long newBytes;
+    private boolean closed;
+
+    public DedupSink(DedupRepository repository, String name, FastCdcChunker chunker) {
+        this.repository = repository;
+        this.name = name;
+        this.chunker = chunker;
+        this.buffer = new byte[chunker.getMaxSize() * 4];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == buffer.length) {
+                compact();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+
+            // Only cut once a full maximum-size window is available, so cut points
+            // never depend on how the stream was split into writes
+            while (count - start >= chunker.getMaxSize()) {
+                cutChunk();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (count > start) {
+            cutChunk();
+        }
+        buffer = null;
+    }
+
+    @Override
+    public String commit() throws IOException {
+        close();
+        repository.writeManifest(name, chunks);
+        log.info("Backup stored in dedup repository: {} ({} chunks, {} new; {} bytes written for {} bytes of data)",
+                name, chunks.size(), newChunks, newBytes, logicalBytes);
+        return DedupRepository.SCHEME + name;
+    }
+
+    @Override
+    public void abort() {
+        closed = true;
+        buffer = null;
+        chunks.clear();
+    }
+
+    /**
+     * Bytes added to the repository by this backup, after compression
+     */
+    public long getNewBytes() {
+        return newBytes;
+    }
+
+    private void cutChunk() throws IOException {
+        int length = chunker.nextChunkLength(buffer, start, count - start);
+        String hash = DedupRepository.hash(buffer, start, length);
+        long added = repository.putChunk(hash, buffer, start, length);
+        if (added > 0) {
+            newChunks++;
+            newBytes += added;
+        }
+        chunks.add(new ChunkRef(hash, length));
+        logicalBytes += length;
+        start += length;
+    }
+
+    private void compact() {
+        System.arraycopy(buffer, start, buffer, 0, count - start);
+        count -= start;
+        start = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Sink already closed");
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.databasebackuputility.core.storage;
+
+import com.databasebackuputility.model.StorageTargetResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Writes one backup stream to several sinks at once. Each sink is fed by its own
+ * thread from its own queue of at most {@code bufferedChunks} chunks, so a slow sink
+ * only holds up the backup once its queue is full, and the others keep going at their
+ * own pace meanwhile. Chunks are copied once and shared by all queues.
+ * <p>
+ * With {@code requireAll} the first failing sink fails the backup, and copies other
+ * sinks already committed are deleted again through {@code discard}; a copy that cannot
+ * be deleted stays reported as stored in {@link #getResults}. Otherwise a failed sink is
+ * dropped and reported, and the backup succeeds as long as one sink commits.
+ */
+@Slf4j
+public class FanOutSink extends StorageSink {
+
+    /**
+     * A sink and the provider name it is reported under
+     */
+    public record Target(String provider, StorageSink sink) {
+    }
+
+    private static final byte[] END = new byte[0];
+
+    /**
+     * How long an abort waits for a writer thread that is still inside its sink
+     */
+    private static final long ABORT_WAIT_MILLIS = 30_000;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final boolean requireAll;
+    private final ExecutorService executor;
+    private final Predicate<String> discard;
+    private boolean closed;
+
+    /**
+     * @param discard Deletes a committed copy by its location, returning whether it did
+     */
+    public FanOutSink(List<Target> targets, int bufferedChunks, boolean requireAll, ExecutorService executor,
+                      Predicate<String> discard) {
+        this.requireAll = requireAll;
+        this.executor = executor;
+        this.discard = discard;
+        for (Target target : targets) {
+            Replica replica = new Replica(target, Math.max(1, bufferedChunks));
+            replicas.add(replica);
+            replica.writer = executor.submit(replica::drain);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Fan-out sink already closed");
+        }
+        if (len == 0) {
+            return;
+        }
+        byte[] chunk = Arrays.copyOfRange(b, off, off + len);
+        for (Replica replica : replicas) {
+            replica.offer(chunk);
+        }
+        checkFailures();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Finish every sink and commit them concurrently
+     * @return Location in the first sink that committed, in target order
+     */
+    @Override
+    public String commit() throws IOException {
+        close();
+        try {
+            for (Replica replica : replicas) {
+                replica.offer(END);
+            }
+            for (Replica replica : replicas) {
+                replica.awaitWriter();
+            }
+            checkFailures();
+
+            List<Future<?>> commits = new ArrayList<>();
+            for (Replica replica : replicas) {
+                if (replica.failure == null) {
+                    commits.add(executor.submit(replica::commit));
+                }
+            }
+            for (Future<?> commit : commits) {
+                await(commit);
+            }
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+
+        String location = null;
+        List<String> failed = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.location != null && location == null) {
+                location = replica.location;
+            } else if (replica.location == null) {
+                failed.add(replica.target.provider() + ": " + replica.failure.getMessage());
+            }
+        }
+        if (location == null || (requireAll && !failed.isEmpty())) {
+            discardCommitted();
+            throw new IOException("Backup not stored in " + String.join("; ", failed));
+        }
+        return location;
+    }
+
+    /**
+     * Delete the copies that committed when the backup as a whole failed
+     */
+    private void discardCommitted() {
+        for (Replica replica : replicas) {
+            String location = replica.location;
+            if (location == null) {
+                continue;
+            }
+            if (discard.test(location)) {
+                log.info("Deleted copy in {} at {}, the backup failed elsewhere", replica.target.provider(), location);
+                replica.failure = new IOException("Deleted, the backup failed in another provider");
+                replica.location = null;
+            } else {
+                log.warn("Backup failed, but its copy in {} at {} could not be deleted",
+                        replica.target.provider(), location);
+            }
+        }
+    }
+
+    /**
+     * Abort every sink that has not committed. Each writer thread is stopped first, so a
+     * sink is never aborted while it is still being written; one sink failing to abort
+     * does not keep the others from it
+     */
+    @Override
+    public void abort() {
+        closed = true;
+        for (Replica replica : replicas) {
+            if (replica.location == null) {
+                if (replica.failure == null) {
+                    replica.failure = new IOException("Aborted");
+                }
+                try {
+                    replica.stopWriter();
+                    replica.target.sink().abort();
+                } catch (RuntimeException e) {
+                    log.warn("Aborting backup in {} failed: {}", replica.target.provider(), e.getMessage());
+                }
+                replica.queue.clear();
+            }
+        }
+    }
+
+    /**
+     * One result per target, in target order
+     */
+    public List<StorageTargetResult> getResults() {
+        List<StorageTargetResult> results = new ArrayList<>();
+        for (Replica replica : replicas) {
+            results.add(StorageTargetResult.builder()
+                    .provider(replica.target.provider())
+                    .success(replica.location != null)
+                    .location(replica.location)
+                    .bytes(replica.bytes)
+                    .durationMs(replica.durationMs)
+                    .blockedMs(replica.blockedNanos / 1_000_000)
+                    .errorMessage(replica.location == null && replica.failure != null
+                            ? replica.failure.getMessage() : null)
+                    .build());
+        }
+        return results;
+    }
+
+    private void checkFailures() throws IOException {
+        int failed = 0;
+        for (Replica replica : replicas) {
+            Exception failure = replica.failure;
+            if (failure != null) {
+                if (requireAll) {
+                    throw new IOException("Storing backup in " + replica.target.provider() + " failed: "
+                            + failure.getMessage(), failure);
+                }
+                failed++;
+            }
+        }
+        if (failed == replicas.size()) {
+            throw new IOException("Storing backup failed in every provider");
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while storing backup");
+        } catch (ExecutionException e) {
+            // Failures are recorded per replica
+        }
+    }
+
+    /**
+     * One sink with its queue and writer thread
+     */
+    private final class Replica {
+
+        final Target target;
+        final BlockingQueue<byte[]> queue;
+        /**
+         * Held by the writer thread while it drains into the sink
+         */
+        final ReentrantLock draining = new ReentrantLock();
+        final long started = System.nanoTime();
+        Future<?> writer;
+        volatile Exception failure;
+        volatile String location;
+        volatile long bytes;
+        volatile long durationMs;
+        long blockedNanos;
+
+        Replica(Target target, int bufferedChunks) {
+            this.target = target;
+            this.queue = new ArrayBlockingQueue<>(bufferedChunks);
+        }
+
+        /**
+         * Queue a chunk, waiting while the queue is full; a failed replica takes no more
+         */
+        void offer(byte[] chunk) throws IOException {
+            if (failure != null || queue.offer(chunk)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                while (failure == null && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    // Check for failure again
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while storing backup");
+            } finally {
+                blockedNanos += System.nanoTime() - start;
+            }
+        }
+
+        void drain() {
+            draining.lock();
+            try {
+                byte[] chunk;
+                while ((chunk = queue.take()) != END) {
+                    target.sink().write(chunk);
+                    bytes += chunk.length;
+                }
+            } catch (Exception e) {
+                fail(e);
+            } finally {
+                draining.unlock();
+            }
+        }
+
+        /**
+         * Interrupt the writer thread and wait, with a bound, until it has left the sink
+         */
+        void stopWriter() {
+            writer.cancel(true);
+            try {
+                if (draining.tryLock(ABORT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    draining.unlock();
+                } else {
+                    log.warn("Writer for {} still running after {} ms, aborting anyway",
+                            target.provider(), ABORT_WAIT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void commit() {
+            try {
+                location = target.sink().commit();
+                durationMs = (System.nanoTime() - started) / 1_000_000;
+                log.info("Backup stored in {} at {}", target.provider(), location);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        void awaitWriter() throws IOException {
+            await(writer);
+        }
+
+        void fail(Exception e) {
+            if (failure == null) {
+                failure = e;
+                log.warn("Storing backup in {} failed: {}", target.provider(), e.getMessage());
+            }
+            target.sink().abort();
+            // Unblock the tee if it is waiting for space
+            queue.clear();
+        }
+    }
+}
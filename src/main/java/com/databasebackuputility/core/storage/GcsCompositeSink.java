@@ -0,0 +1,158 @@
+package com.databasebackuputility.core.storage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32C;
+
+/**
+ * Streams a backup into Google Cloud Storage as a parallel composite upload. Each part
+ * (see {@link ParallelPartSink}) is written as a temporary component object with a
+ * resumable upload in {@code chunkSize} requests, and on commit the components are
+ * composed into the backup, 32 at a time, then deleted. GCS checks every component
+ * against the CRC32C sent with it. A backup that fits in one part is uploaded straight
+ * under its final name.
+ */
+@Slf4j
+public class GcsCompositeSink extends ParallelPartSink<String> {
+
+    /**
+     * Sources a single compose request accepts
+     */
+    static final int MAX_COMPOSE_SOURCES = 32;
+
+    private static final int PARTS_PER_SIZE = 1000;
+    private static final int MAX_PART_SIZE = 1 << 30;
+
+    private final Storage storage;
+    private final String bucket;
+    private final String name;
+    private final int chunkSize;
+    private final String prefix;
+    private final Set<String> temporary = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted;
+
+    /**
+     * @param chunkSize Bytes per resumable upload request, a multiple of 256 KiB
+     */
+    public GcsCompositeSink(Storage storage, String bucket, String name, int partSize, int chunkSize,
+                            int maxInFlight, long memoryLimit, ExecutorService executor) {
+        super(partSize, maxInFlight, PARTS_PER_SIZE, MAX_PART_SIZE, memoryLimit, executor);
+        this.storage = storage;
+        this.bucket = bucket;
+        this.name = name;
+        this.chunkSize = chunkSize;
+        this.prefix = name + ".upload-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Override
+    protected void start() {
+        // Components are independent objects, nothing to open
+    }
+
+    @Override
+    protected String uploadPart(int partNumber, byte[] data, int length) throws IOException {
+        String component = String.format("%s-%05d", prefix, partNumber);
+        temporary.add(component);
+        write(component, data, length);
+        if (aborted) {
+            // Finished after the cleanup ran
+            delete(List.of(component));
+        }
+        return component;
+    }
+
+    @Override
+    protected void complete(List<String> components) throws IOException {
+        List<String> sources = components;
+        int level = 0;
+        while (sources.size() > MAX_COMPOSE_SOURCES) {
+            level++;
+            List<String> composed = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i += MAX_COMPOSE_SOURCES) {
+                String target = String.format("%s-c%d-%05d", prefix, level, i / MAX_COMPOSE_SOURCES);
+                temporary.add(target);
+                compose(sources.subList(i, Math.min(i + MAX_COMPOSE_SOURCES, sources.size())), target);
+                composed.add(target);
+            }
+            sources = composed;
+        }
+        compose(sources, name);
+        log.debug("Composed {} from {} components", name, components.size());
+        delete(temporary);
+        temporary.clear();
+    }
+
+    @Override
+    protected void putSingle(byte[] data, int length) throws IOException {
+        write(name, data, length);
+    }
+
+    @Override
+    protected void abortUpload() {
+        aborted = true;
+        delete(temporary);
+        temporary.clear();
+    }
+
+    @Override
+    protected String location() {
+        return String.format("gs://%s/%s", bucket, name);
+    }
+
+    private void write(String object, byte[] data, int length) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, length);
+        BlobInfo info = BlobInfo.newBuilder(BlobId.of(bucket, object))
+                .setContentType("application/octet-stream")
+                .setCrc32c(Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array()))
+                .build();
+        try (WriteChannel writer = storage.writer(info, Storage.BlobWriteOption.crc32cMatch())) {
+            writer.setChunkSize(chunkSize);
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+            while (buffer.hasRemaining()) {
+                writer.write(buffer);
+            }
+        } catch (StorageException e) {
+            throw new IOException("GCS upload of " + object + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void compose(List<String> sources, String target) throws IOException {
+        try {
+            storage.compose(Storage.ComposeRequest.newBuilder()
+                    .addSource(sources)
+                    .setTarget(BlobInfo.newBuilder(BlobId.of(bucket, target))
+                            .setContentType("application/octet-stream").build())
+                    .build());
+        } catch (StorageException e) {
+            throw new IOException("GCS compose of " + target + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void delete(Iterable<String> objects) {
+        List<BlobId> ids = new ArrayList<>();
+        objects.forEach(object -> ids.add(BlobId.of(bucket, object)));
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            storage.delete(ids);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete temporary objects of {}: {}", name, e.getMessage());
+        }
+    }
+}
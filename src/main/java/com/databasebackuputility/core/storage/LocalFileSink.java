@@ -0,0 +1,84 @@
+package com.databasebackuputility.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a backup straight into the local backup directory.
+ * Data goes to a hidden ".part" file that is synced and renamed onto the final name
+ * on commit, so readers never see a partially written backup, and a committed
+ * backup survives a crash.
+ */
+@Slf4j
+public class LocalFileSink extends StorageSink {
+
+    private final Path target;
+    private final Path partial;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private boolean closed;
+
+    public LocalFileSink(Path target, int bufferSize) throws IOException {
+        this.target = target;
+        this.partial = LocalFiles.partialPath(target);
+        Files.createDirectories(target.getParent());
+        this.channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), bufferSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    @Override
+    public String commit() throws IOException {
+        out.flush();
+        channel.force(true);
+        close();
+        LocalFiles.publish(partial, target);
+        log.info("File stored locally at: {}", target.toAbsolutePath());
+        return target.toAbsolutePath().toString();
+    }
+
+    @Override
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Failed to close partial file {}: {}", partial, e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial file {}: {}", partial, e.getMessage());
+        }
+    }
+}
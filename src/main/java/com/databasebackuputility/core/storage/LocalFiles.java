@@ -0,0 +1,96 @@
+package com.databasebackuputility.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Durable publishing of files into the local backup directory. A file only appears
+ * under its final name once its data and the directory entry are on disk, and never
+ * partially written.
+ */
+@Slf4j
+public final class LocalFiles {
+
+    private LocalFiles() {
+    }
+
+    /**
+     * Hidden sibling a file is written to before it is renamed onto {@code target}
+     */
+    public static Path partialPath(Path target) {
+        return target.resolveSibling("." + target.getFileName() + ".part");
+    }
+
+    /**
+     * Move a finished file to {@code target}. Within one filesystem this is a rename and
+     * no data is copied. Across filesystems the data is transferred channel to channel
+     * into the partial file, synced and renamed, and the source is deleted.
+     * @return How the file got there, for logging: "rename" or "copy"
+     */
+    public static String moveInto(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        sync(source);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(target.getParent());
+            return "rename";
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("{} is on another filesystem than {}, copying", source, target.getParent());
+        }
+
+        Path partial = partialPath(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            // The kernel copies file to file without passing the data through the heap
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        publish(partial, target);
+        Files.delete(source);
+        return "copy";
+    }
+
+    /**
+     * Rename a synced partial file onto its final name and sync the directory entry
+     */
+    public static void publish(Path partial, Path target) throws IOException {
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Flush a file's data to disk
+     */
+    public static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flush a directory, so renames in it survive a crash. Not every platform can open
+     * a directory; there the rename is as durable as the filesystem makes it.
+     */
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.databasebackuputility.core.storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base for sinks that upload a backup in numbered parts while it is being produced.
+ * Each filled part is uploaded on the executor while the next one fills; once
+ * {@code maxInFlight} parts are uploading, writes block until one finishes, so memory
+ * stays at {@code maxInFlight + 1} parts. A backup that fits in one part is published
+ * with {@link #putSingle} instead. The part size doubles every {@code partsPerSize}
+ * parts, up to {@code maxPartSize}, to keep large backups under the store's part limit,
+ * but never beyond what keeps those {@code maxInFlight + 1} parts within {@code memoryLimit}.
+ *
+ * @param <P> What the store returns for an uploaded part, needed to complete the upload
+ */
+public abstract class ParallelPartSink<P> extends StorageSink {
+
+    /**
+     * How long an abort waits for part uploads that are already running
+     */
+    private static final long ABORT_WAIT_MILLIS = 30_000;
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+    private final List<Future<P>> parts = new ArrayList<>();
+    private final int partsPerSize;
+    private final int maxPartSize;
+    private final Object uploadLock = new Object();
+    private int uploading;
+    private boolean aborted;
+
+    private int partSize;
+    private byte[] buffer;
+    private int count;
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * @param memoryLimit Bytes all part buffers of this upload may take together; it caps
+     *                    the part size, and with it the size of backup that fits in the
+     *                    store's part limit
+     */
+    protected ParallelPartSink(int partSize, int maxInFlight, int partsPerSize, int maxPartSize,
+                               long memoryLimit, ExecutorService executor) {
+        this.partSize = partSize;
+        this.executor = executor;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.partsPerSize = partsPerSize;
+        this.maxPartSize = (int) Math.max(partSize, Math.min(maxPartSize, memoryLimit / (Math.max(1, maxInFlight) + 1)));
+        this.buffer = new byte[partSize];
+    }
+
+    /**
+     * Start the upload, before the first part is sent
+     */
+    protected abstract void start() throws IOException;
+
+    /**
+     * Upload one part; called concurrently on the executor
+     * @param partNumber 1-based
+     */
+    protected abstract P uploadPart(int partNumber, byte[] data, int length) throws IOException;
+
+    /**
+     * Publish the backup from all of its parts, in order
+     */
+    protected abstract void complete(List<P> parts) throws IOException;
+
+    /**
+     * Publish a backup that fits in one part
+     */
+    protected abstract void putSingle(byte[] data, int length) throws IOException;
+
+    /**
+     * Discard the upload {@link #start} began and any parts already stored; never throws
+     */
+    protected abstract void abortUpload();
+
+    /**
+     * Storage path of the published backup
+     */
+    protected abstract String location();
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Upload of " + location() + " already closed");
+        }
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length) {
+                submitPart();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String commit() throws IOException {
+        close();
+        try {
+            if (!started) {
+                putSingle(buffer, count);
+            } else {
+                if (count > 0) {
+                    submitPart();
+                }
+                List<P> completed = new ArrayList<>(parts.size());
+                for (Future<P> part : parts) {
+                    completed.add(await(part));
+                }
+                complete(completed);
+            }
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e instanceof IOException io ? io : new IOException("Upload of " + location() + " failed", e);
+        }
+        return location();
+    }
+
+    /**
+     * Cancel the part uploads, wait for those already running to stop, then discard the
+     * upload, so no part lands after it was aborted
+     */
+    @Override
+    public void abort() {
+        closed = true;
+        synchronized (uploadLock) {
+            aborted = true;
+        }
+        parts.forEach(part -> part.cancel(true));
+        awaitRunningParts();
+        if (started) {
+            abortUpload();
+            started = false;
+        }
+    }
+
+    private void awaitRunningParts() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ABORT_WAIT_MILLIS);
+        synchronized (uploadLock) {
+            long remaining;
+            while (uploading > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(uploadLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand the filled buffer to the executor and continue with a free one
+     */
+    private void submitPart() throws IOException {
+        if (!started) {
+            start();
+            started = true;
+        }
+        // Fail fast instead of filling more parts after one was rejected
+        for (Future<P> part : parts) {
+            if (part.isDone()) {
+                await(part);
+            }
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part upload");
+        }
+
+        int partNumber = parts.size() + 1;
+        byte[] data = buffer;
+        int length = count;
+        try {
+            parts.add(executor.submit(() -> {
+                try {
+                    synchronized (uploadLock) {
+                        if (aborted) {
+                            return null;
+                        }
+                        uploading++;
+                    }
+                    try {
+                        return uploadPart(partNumber, data, length);
+                    } finally {
+                        synchronized (uploadLock) {
+                            uploading--;
+                            uploadLock.notifyAll();
+                        }
+                    }
+                } finally {
+                    freeBuffers.offer(data);
+                    inFlight.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+
+        if (partNumber % partsPerSize == 0 && partSize < maxPartSize) {
+            partSize = Math.min(partSize * 2, maxPartSize);
+            freeBuffers.clear();
+        }
+        byte[] next = freeBuffers.poll();
+        buffer = next != null && next.length == partSize ? next : new byte[partSize];
+        count = 0;
+    }
+
+    private P await(Future<P> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part upload");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io
+                    : new IOException("Part upload of " + location() + " failed: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.databasebackuputility.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streams a backup into S3 as a multipart upload while it is being produced, several
+ * parts at a time (see {@link ParallelPartSink}). Every part carries its Content-MD5,
+ * which S3 checks on receipt, and the returned ETag is compared with it as well. Part
+ * sizes double every 1000 parts so the 10000-part limit is not reached before the
+ * 5 TB object limit.
+ */
+@Slf4j
+public class S3MultipartSink extends ParallelPartSink<CompletedPart> {
+
+    private static final int PARTS_PER_SIZE = 1000;
+    private static final int MAX_PART_SIZE = 1 << 30;
+
+    private final S3Client client;
+    private final String bucket;
+    private final String key;
+
+    private volatile String uploadId;
+
+    public S3MultipartSink(S3Client client, String bucket, String key, int partSize, int maxInFlight,
+                           long memoryLimit, ExecutorService executor) {
+        super(partSize, maxInFlight, PARTS_PER_SIZE, MAX_PART_SIZE, memoryLimit, executor);
+        this.client = client;
+        this.bucket = bucket;
+        this.key = key;
+    }
+
+    @Override
+    protected void start() {
+        uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).build()).uploadId();
+    }
+
+    @Override
+    protected CompletedPart uploadPart(int partNumber, byte[] data, int length) throws IOException {
+        String md5 = md5(data, length);
+        UploadPartResponse response = client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)
+                        .contentMD5(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(md5)))
+                        .build(),
+                body(data, length));
+        checkETag(response.eTag(), md5, response.serverSideEncryption(), "part " + partNumber);
+        return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    }
+
+    @Override
+    protected void complete(List<CompletedPart> parts) {
+        client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+        log.debug("Completed multipart upload of {} in {} parts", key, parts.size());
+    }
+
+    @Override
+    protected void putSingle(byte[] data, int length) throws IOException {
+        String md5 = md5(data, length);
+        PutObjectResponse response = client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentLength((long) length)
+                        .contentMD5(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(md5)))
+                        .build(),
+                body(data, length));
+        checkETag(response.eTag(), md5, response.serverSideEncryption(), "object");
+    }
+
+    @Override
+    protected void abortUpload() {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId).build());
+        } catch (RuntimeException e) {
+            log.warn("Failed to abort multipart upload of {}: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    protected String location() {
+        return String.format("s3://%s/%s", bucket, key);
+    }
+
+    /**
+     * ETags of SSE-KMS and SSE-C objects are not the MD5 of the data
+     */
+    private void checkETag(String eTag, String md5, ServerSideEncryption encryption, String what) throws IOException {
+        if (encryption != null && encryption != ServerSideEncryption.AES256) {
+            return;
+        }
+        if (eTag == null || !eTag.replace("\"", "").equalsIgnoreCase(md5)) {
+            throw new IOException("S3 " + what + " of " + key + " has ETag " + eTag + ", expected MD5 " + md5);
+        }
+    }
+
+    /**
+     * Body over the buffer itself; the SDK reopens it on retries
+     */
+    private static RequestBody body(byte[] data, int length) {
+        return RequestBody.fromContentProvider(() -> new ByteArrayInputStream(data, 0, length),
+                length, "application/octet-stream");
+    }
+
+    private static String md5(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(data, 0, length);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.databasebackuputility.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads an S3 object as consecutive byte ranges fetched concurrently, returned in order.
+ * At most {@code parallelism} ranges are fetched or waiting to be read at a time, which
+ * bounds memory to that many ranges. Every range is requested with the ETag of the
+ * object, so an object replaced during the read fails instead of mixing two versions.
+ * A range the reader waits for that takes much longer than ranges usually do, counted
+ * from when its request started rather than from when it was queued, is requested a
+ * second time and whichever response arrives first is used.
+ */
+@Slf4j
+public class S3RangeInputStream extends InputStream {
+
+    /**
+     * Completed ranges the usual fetch time is taken from
+     */
+    private static final int TIMING_WINDOW = 32;
+
+    private static final int ATTEMPTS = 3;
+
+    private final S3Client client;
+    private final String bucket;
+    private final String key;
+    private final long size;
+    private final String eTag;
+    private final int rangeSize;
+    private final int parallelism;
+    private final long minHedgeMillis;
+    private final ExecutorService executor;
+
+    private final Map<Integer, Range> pending = new HashMap<>();
+    private final long[] timings = new long[TIMING_WINDOW];
+    private final AtomicInteger hedges = new AtomicInteger();
+    private int timingCount;
+    private final int rangeCount;
+    private int nextToSchedule;
+    private int current = -1;
+    private byte[] buffer = new byte[0];
+    private int position;
+    private volatile boolean closed;
+
+    /**
+     * @param size           Object size, from a HEAD request
+     * @param eTag           Object ETag the ranges must match
+     * @param minHedgeMillis A range is requested again after waiting at least this long
+     *                       and three times the median fetch time
+     */
+    public S3RangeInputStream(S3Client client, String bucket, String key, long size, String eTag,
+                              int rangeSize, int parallelism, long minHedgeMillis, ExecutorService executor) {
+        this.client = client;
+        this.bucket = bucket;
+        this.key = key;
+        this.size = size;
+        this.eTag = eTag;
+        this.rangeSize = rangeSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.minHedgeMillis = minHedgeMillis;
+        this.executor = executor;
+        this.rangeCount = (int) ((size + rangeSize - 1) / rangeSize);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buffer.length - position;
+    }
+
+    /**
+     * Ranges requested a second time because the first request was slow
+     */
+    public int getHedgeCount() {
+        return hedges.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pending.values().forEach(range -> range.result.cancel(false));
+        pending.clear();
+        buffer = new byte[0];
+    }
+
+    /**
+     * Make the current buffer non-empty, moving on to the next range if needed
+     * @return false at the end of the object
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("S3 download of " + key + " already closed");
+        }
+        while (position == buffer.length) {
+            if (current + 1 >= rangeCount) {
+                return false;
+            }
+            current++;
+            while (nextToSchedule < rangeCount && nextToSchedule < current + parallelism) {
+                schedule(nextToSchedule++);
+            }
+            buffer = await(pending.remove(current));
+            position = 0;
+        }
+        return true;
+    }
+
+    private void schedule(int index) {
+        Range range = new Range(index);
+        pending.put(index, range);
+        range.attempt();
+    }
+
+    private byte[] await(Range range) throws IOException {
+        try {
+            while (true) {
+                if (range.result.isDone() || range.hedged) {
+                    return range.result.get();
+                }
+                long hedgeAfter = hedgeAfterMillis();
+                // A range still queued for a thread is not slow yet
+                long waited = range.fetching ? (System.nanoTime() - range.fetchStarted) / 1_000_000 : 0;
+                if (range.fetching && waited >= hedgeAfter) {
+                    range.hedged = true;
+                    hedges.incrementAndGet();
+                    log.debug("Range {} of {} is slow after {} ms, requesting it again", range.index, key, waited);
+                    range.attempt();
+                    continue;
+                }
+                try {
+                    return range.result.get(hedgeAfter - waited, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Check again, the hedge delay may have moved with new timings
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("S3 download of " + key + " failed", cause);
+        }
+    }
+
+    private synchronized long hedgeAfterMillis() {
+        if (timingCount == 0) {
+            return Math.max(minHedgeMillis, 1);
+        }
+        long[] sorted = Arrays.copyOf(timings, Math.min(timingCount, TIMING_WINDOW));
+        Arrays.sort(sorted);
+        return Math.max(minHedgeMillis, sorted[sorted.length / 2] * 3);
+    }
+
+    private synchronized void recordTiming(long millis) {
+        timings[timingCount++ % TIMING_WINDOW] = millis;
+    }
+
+    /**
+     * One byte range, fetched by one or, once hedged, two requests
+     */
+    private final class Range {
+
+        final int index;
+        final long start;
+        final int length;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final AtomicInteger outstanding = new AtomicInteger();
+        volatile long fetchStarted;
+        volatile boolean fetching;
+        volatile boolean hedged;
+
+        Range(int index) {
+            this.index = index;
+            this.start = (long) index * rangeSize;
+            this.length = (int) Math.min(rangeSize, size - start);
+        }
+
+        void attempt() {
+            outstanding.incrementAndGet();
+            try {
+                executor.execute(this::fetch);
+            } catch (RejectedExecutionException e) {
+                fail(new IOException("S3 download of " + key + " rejected", e));
+            }
+        }
+
+        private void fetch() {
+            long attemptStart = System.nanoTime();
+            if (!fetching) {
+                fetchStarted = attemptStart;
+                fetching = true;
+            }
+            IOException last = null;
+            for (int attempt = 1; attempt <= ATTEMPTS && !result.isDone() && !closed; attempt++) {
+                try {
+                    byte[] data = get();
+                    if (result.complete(data)) {
+                        recordTiming((System.nanoTime() - attemptStart) / 1_000_000);
+                    }
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    last = e instanceof IOException io ? io
+                            : new IOException("S3 range " + index + " of " + key + " failed: " + e.getMessage(), e);
+                    log.debug("Range {} of {} failed on attempt {}: {}", index, key, attempt, e.getMessage());
+                }
+            }
+            fail(last != null ? last : new IOException("S3 download of " + key + " cancelled"));
+        }
+
+        private byte[] get() throws IOException {
+            GetObjectRequest request = GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .range("bytes=" + start + "-" + (start + length - 1))
+                    .ifMatch(eTag)
+                    .build();
+            try (ResponseInputStream<GetObjectResponse> in = client.getObject(request)) {
+                byte[] data = in.readNBytes(length);
+                if (data.length != length) {
+                    throw new EOFException("S3 range " + index + " of " + key + " returned "
+                            + data.length + " of " + length + " bytes");
+                }
+                return data;
+            }
+        }
+
+        /**
+         * The range fails only once no request for it is left
+         */
+        private void fail(IOException e) {
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.databasebackuputility.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Sink for providers that can only upload a complete file.
+ * The compressed stream is spooled to a single scratch file, uploaded on commit
+ * and then deleted, so the dump itself still never lands on disk uncompressed.
+ */
+@Slf4j
+public class SpooledUploadSink extends StorageSink {
+
+    /**
+     * Upload step invoked with the finished spool file
+     */
+    @FunctionalInterface
+    public interface Uploader {
+        String upload(File file) throws IOException;
+    }
+
+    private final File spoolFile;
+    private final OutputStream out;
+    private final Uploader uploader;
+    private boolean closed;
+
+    public SpooledUploadSink(File spoolFile, int bufferSize, Uploader uploader) throws IOException {
+        this.spoolFile = spoolFile;
+        this.uploader = uploader;
+        Files.createDirectories(spoolFile.getParentFile().toPath());
+        this.out = new BufferedOutputStream(Files.newOutputStream(spoolFile.toPath()), bufferSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    @Override
+    public String commit() throws IOException {
+        close();
+        try {
+            return uploader.upload(spoolFile);
+        } finally {
+            deleteSpool();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Failed to close spool file {}: {}", spoolFile, e.getMessage());
+        }
+        deleteSpool();
+    }
+
+    private void deleteSpool() {
+        if (spoolFile.exists() && !spoolFile.delete()) {
+            log.warn("Failed to delete spool file: {}", spoolFile.getName());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.databasebackuputility.core.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming destination for a single backup.
+ * Bytes written here are not visible under the final backup name until
+ * {@link #commit()} succeeds; {@link #abort()} discards everything written so far.
+ */
+public abstract class StorageSink extends OutputStream {
+
+    /**
+     * Finish the write and publish the backup
+     * @return Storage path of the published backup
+     * @throws IOException if the backup could not be published
+     */
+    public abstract String commit() throws IOException;
+
+    /**
+     * Discard a partially written backup; never throws
+     */
+    public abstract void abort();
+}
@@ -0,0 +1,265 @@
+package com.databasebackuputility.core.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded in-memory pipe between two pipeline stages.
+ * Data moves in fixed-size chunks; the writer blocks once all chunks are queued,
+ * so a slow consumer applies backpressure to the producer instead of growing memory.
+ * Chunk buffers are recycled, so the pipe never holds more than
+ * {@code (capacity + 2) * chunkSize} bytes. The pipe counts the bytes passed through
+ * it and how long each side waited for the other.
+ */
+public class BoundedPipe {
+
+    private static final Chunk EOF = new Chunk(new byte[0], 0);
+
+    private final int chunkSize;
+    private final BlockingQueue<Chunk> queue;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final PipeOutputStream outputStream;
+    private final PipeInputStream inputStream;
+
+    private volatile Throwable failure;
+    private volatile boolean readerClosed;
+
+    // Each counter is only updated by one side of the pipe
+    private volatile long bytesTransferred;
+    private volatile long writerBlockedNanos;
+    private volatile long readerWaitNanos;
+
+    public BoundedPipe(int chunkSize, int capacity) {
+        if (chunkSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Chunk size and capacity must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(capacity + 1);
+        this.freeBuffers = new ArrayBlockingQueue<>(capacity + 2);
+        this.outputStream = new PipeOutputStream();
+        this.inputStream = new PipeInputStream();
+    }
+
+    /**
+     * Write end of the pipe, used by the producing stage
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Read end of the pipe, used by the consuming stage
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Bytes the writer handed over
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Time the writer spent waiting for the reader to make room
+     */
+    public long getWriterBlockedNanos() {
+        return writerBlockedNanos;
+    }
+
+    /**
+     * Time the reader spent waiting for the writer to hand over data
+     */
+    public long getReaderWaitNanos() {
+        return readerWaitNanos;
+    }
+
+    /**
+     * Abort the pipe from the producer side; queued chunks are dropped and
+     * the reader gets an IOException on its next read
+     */
+    public void fail(Throwable cause) {
+        failure = cause;
+        if (!readerClosed) {
+            queue.clear();
+            queue.offer(EOF);
+        }
+    }
+
+    private byte[] takeBuffer() {
+        byte[] buffer = freeBuffers.poll();
+        return buffer != null ? buffer : new byte[chunkSize];
+    }
+
+    private record Chunk(byte[] data, int length) {
+    }
+
+    private class PipeOutputStream extends OutputStream {
+
+        private byte[] buffer = takeBuffer();
+        private int count;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            buffer[count++] = (byte) b;
+            if (count == chunkSize) {
+                pushChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                int n = Math.min(len, chunkSize - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == chunkSize) {
+                    pushChunk();
+                }
+            }
+        }
+
+        /**
+         * Partial chunks are only handed over on close; flushing every small
+         * write would defeat the point of chunked transfer
+         */
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0) {
+                enqueue(new Chunk(buffer, count));
+            }
+            buffer = null;
+            enqueue(EOF);
+        }
+
+        private void pushChunk() throws IOException {
+            enqueue(new Chunk(buffer, count));
+            buffer = takeBuffer();
+            count = 0;
+        }
+
+        private void enqueue(Chunk chunk) throws IOException {
+            if (readerClosed) {
+                throw new IOException("Pipe closed by downstream stage");
+            }
+            bytesTransferred += chunk.length();
+            if (queue.offer(chunk)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                queue.put(chunk);
+                writerBlockedNanos += System.nanoTime() - start;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to pipe");
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Pipe output already closed");
+            }
+            if (readerClosed) {
+                throw new IOException("Pipe closed by downstream stage");
+            }
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+
+        private Chunk current;
+        private int position;
+        private boolean eof;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current.data()[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length() - position);
+            System.arraycopy(current.data(), position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current != null ? current.length() - position : 0;
+        }
+
+        @Override
+        public void close() {
+            readerClosed = true;
+            // Unblock a writer waiting for space; it will see the closed flag
+            queue.clear();
+        }
+
+        private boolean fill() throws IOException {
+            while (current == null || position == current.length()) {
+                if (eof) {
+                    checkFailure();
+                    return false;
+                }
+                if (current != null) {
+                    freeBuffers.offer(current.data());
+                    current = null;
+                }
+                Chunk next = queue.poll();
+                try {
+                    if (next == null) {
+                        long start = System.nanoTime();
+                        next = queue.take();
+                        readerWaitNanos += System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading from pipe");
+                }
+                if (next == EOF) {
+                    eof = true;
+                } else {
+                    current = next;
+                    position = 0;
+                }
+            }
+            return true;
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) {
+                throw new IOException("Upstream stage failed: " + failure.getMessage(), failure);
+            }
+        }
+    }
+}
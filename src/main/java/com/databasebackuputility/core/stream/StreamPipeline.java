@@ -0,0 +1,206 @@
+package com.databasebackuputility.core.stream;
+
+import com.databasebackuputility.model.StageMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Linear chain of streaming stages connected by bounded pipes.
+ * Every stage except the last runs on the executor; the last one runs on the
+ * calling thread. A failure in any stage tears down the pipes on both sides so
+ * the other stages stop promptly, and the first failure is rethrown by {@link #run()}.
+ * After a run, {@link #getStageMetrics()} tells how each stage spent its time.
+ */
+@Slf4j
+public class StreamPipeline {
+
+    /**
+     * First stage: produces data into the pipeline
+     */
+    @FunctionalInterface
+    public interface Source {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Intermediate stage: reads from the previous stage and writes to the next
+     */
+    @FunctionalInterface
+    public interface Transform {
+        void process(InputStream in, OutputStream out) throws Exception;
+    }
+
+    /**
+     * Last stage: consumes everything the pipeline produced
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void readFrom(InputStream in) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int bufferedChunks;
+    private final List<String> names = new ArrayList<>();
+    private final List<Transform> stages = new ArrayList<>();
+    private List<StageMetrics> stageMetrics = List.of();
+
+    public StreamPipeline(ExecutorService executor, int chunkSize, int bufferedChunks) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.bufferedChunks = bufferedChunks;
+    }
+
+    /**
+     * Set the producing stage; must be called first
+     */
+    public StreamPipeline source(String name, Source source) {
+        if (!stages.isEmpty()) {
+            throw new IllegalStateException("Source must be the first stage");
+        }
+        return add(name, (in, out) -> source.writeTo(out));
+    }
+
+    /**
+     * Append an intermediate stage
+     */
+    public StreamPipeline transform(String name, Transform transform) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline has no source");
+        }
+        return add(name, transform);
+    }
+
+    /**
+     * Append the consuming stage
+     */
+    public StreamPipeline sink(String name, Sink sink) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline has no source");
+        }
+        return add(name, (in, out) -> sink.readFrom(in));
+    }
+
+    /**
+     * Run all stages to completion
+     * @throws Exception the first failure raised by any stage
+     */
+    public void run() throws Exception {
+        int count = stages.size();
+        if (count < 2) {
+            throw new IllegalStateException("Pipeline needs a source and a sink");
+        }
+
+        List<BoundedPipe> pipes = new ArrayList<>(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            pipes.add(new BoundedPipe(chunkSize, bufferedChunks));
+        }
+
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        List<Future<?>> futures = new ArrayList<>(count - 1);
+        long[] elapsedNanos = new long[count];
+
+        for (int i = 0; i < count - 1; i++) {
+            int index = i;
+            futures.add(executor.submit(() ->
+                    runStage(index, pipes, firstFailure, elapsedNanos)));
+        }
+        runStage(count - 1, pipes, firstFailure, elapsedNanos);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                firstFailure.compareAndSet(null, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                firstFailure.compareAndSet(null, e);
+                futures.forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+
+        stageMetrics = metrics(pipes, elapsedNanos);
+
+        Throwable failure = firstFailure.get();
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        } else if (failure != null) {
+            throw new IOException("Pipeline stage failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Bytes and time of each stage in the last run, in stage order. A stage's input is
+     * what the previous stage wrote; the sink's output is taken to equal its input.
+     */
+    public List<StageMetrics> getStageMetrics() {
+        return stageMetrics;
+    }
+
+    private List<StageMetrics> metrics(List<BoundedPipe> pipes, long[] elapsedNanos) {
+        List<StageMetrics> metrics = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            BoundedPipe in = i > 0 ? pipes.get(i - 1) : null;
+            BoundedPipe out = i < pipes.size() ? pipes.get(i) : null;
+            long waiting = in != null ? in.getReaderWaitNanos() : 0;
+            long blocked = out != null ? out.getWriterBlockedNanos() : 0;
+            long bytesIn = in != null ? in.getBytesTransferred() : 0;
+            metrics.add(StageMetrics.builder()
+                    .stage(names.get(i))
+                    .bytesIn(bytesIn)
+                    .bytesOut(out != null ? out.getBytesTransferred() : bytesIn)
+                    .busyMs(Math.max(0, elapsedNanos[i] - waiting - blocked) / 1_000_000)
+                    .waitingMs(waiting / 1_000_000)
+                    .blockedMs(blocked / 1_000_000)
+                    .build());
+        }
+        return metrics;
+    }
+
+    private StreamPipeline add(String name, Transform stage) {
+        names.add(name);
+        stages.add(stage);
+        return this;
+    }
+
+    private void runStage(int index, List<BoundedPipe> pipes, AtomicReference<Throwable> firstFailure,
+                          long[] elapsedNanos) {
+        long start = System.nanoTime();
+        InputStream in = index > 0 ? pipes.get(index - 1).getInputStream() : null;
+        BoundedPipe outPipe = index < pipes.size() ? pipes.get(index) : null;
+        OutputStream out = outPipe != null ? outPipe.getOutputStream() : null;
+
+        try {
+            stages.get(index).process(in, out);
+            if (out != null) {
+                out.close();
+            }
+        } catch (Throwable t) {
+            if (firstFailure.compareAndSet(null, t)) {
+                log.debug("Pipeline stage '{}' failed: {}", names.get(index), t.getMessage());
+            }
+            if (outPipe != null) {
+                outPipe.fail(t);
+            }
+        } finally {
+            elapsedNanos[index] = System.nanoTime() - start;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close input of stage '{}': {}", names.get(index), e.getMessage());
+                }
+            }
+        }
+    }
+}
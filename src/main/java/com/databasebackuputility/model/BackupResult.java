@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Result of a backup operation
@@ -20,6 +21,7 @@ public class BackupResult {
     private String backupId;
     private String filePath;
     private long fileSize;
+    private String checksum;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private long durationMs;
@@ -27,6 +29,12 @@ public class BackupResult {
     private BackupType backupType;
     private DatabaseType databaseType;
     private String databaseName;
+    private String baseBackupPath;
+    private String compressionType;
+    private CompressionDecision compressionDecision;
+    private ProcessStats dumpProcess;
+    private List<StageMetrics> stageMetrics;
+    private List<StorageTargetResult> storageTargets;
 
     /**
      * Calculate duration from start and end time
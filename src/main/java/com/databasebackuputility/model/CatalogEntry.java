@@ -0,0 +1,32 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored backup as recorded in the backup catalog
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogEntry {
+
+    private String backupId;
+    private DatabaseType databaseType;
+    private String databaseName;
+    private String host;
+    private BackupType backupType;
+    private String compression;
+    private String storageProvider;
+    private String location;
+    private String baseLocation;
+    private long sizeBytes;
+    private String sha256;
+    private LocalDateTime startTime;
+    private long durationMs;
+}
@@ -0,0 +1,30 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter and page for catalog listings; null fields do not filter
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogQuery {
+
+    private String databaseName;
+    private DatabaseType databaseType;
+    private BackupType backupType;
+    private String storageProvider;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Builder.Default
+    private int limit = 50;
+
+    private int offset;
+}
@@ -0,0 +1,35 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Codec and level used for a backup, and why they were chosen.
+ * For AUTO compression the statistics describe the sampled head of the dump.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompressionDecision {
+
+    private String codec;
+    private int level;
+    private boolean automatic;
+    private long sampleBytes;
+    private double entropyBitsPerByte;
+    private double sampleRatio;
+    private double estimatedMbPerSecond;
+    private double targetMbPerSecond;
+    private String reason;
+
+    /**
+     * One-line description, e.g. "ZSTD level 3 (auto: ...)"
+     */
+    public String getSummary() {
+        String name = "NONE".equals(codec) ? codec : codec + " level " + level;
+        return automatic ? name + " (auto: " + reason + ")" : name;
+    }
+}
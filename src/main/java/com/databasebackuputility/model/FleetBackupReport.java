@@ -0,0 +1,61 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregated result of a multi-database backup run
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetBackupReport {
+
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private int maxParallel;
+    private int maxParallelPerHost;
+
+    @Builder.Default
+    private List<BackupResult> results = new ArrayList<>();
+
+    public long getSuccessCount() {
+        return results.stream().filter(BackupResult::isSuccess).count();
+    }
+
+    public long getFailureCount() {
+        return results.size() - getSuccessCount();
+    }
+
+    public boolean isSuccess() {
+        return getFailureCount() == 0;
+    }
+
+    /**
+     * Sum of the individual backup durations, i.e. what a serial run would have taken
+     */
+    public long getSerialDurationMs() {
+        return results.stream().mapToLong(BackupResult::getDurationMs).sum();
+    }
+
+    /**
+     * Totals across all backups: stored size and wall-clock duration of the run
+     */
+    public BackupResult getTotals() {
+        BackupResult totals = BackupResult.builder()
+                .success(isSuccess())
+                .fileSize(results.stream().mapToLong(BackupResult::getFileSize).sum())
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        totals.calculateDuration();
+        return totals;
+    }
+}
@@ -0,0 +1,35 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Output counters of an external dump tool run, e.g. pg_dump
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessStats {
+
+    private String command;
+    private int exitCode;
+    private long bytes;
+    private long durationMs;
+    private long stderrLines;
+    private String lastProgress;
+
+    public double getMbPerSecond() {
+        return durationMs == 0 ? 0 : bytes / (1024.0 * 1024) / (durationMs / 1000.0);
+    }
+
+    /**
+     * One-line description, e.g. "pg_dump: 1024.00 MB in 12.3 s (83.25 MB/s)"
+     */
+    public String getSummary() {
+        return String.format("%s: %.2f MB in %.1f s (%.2f MB/s)",
+                command, bytes / (1024.0 * 1024), durationMs / 1000.0, getMbPerSecond());
+    }
+}
@@ -0,0 +1,42 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Throughput of one backup stage (dump, compress, store, ...). Busy time excludes the
+ * time the stage waited for input from the previous stage and the time it was blocked
+ * because the next stage had not taken its output yet, so the stage with the most busy
+ * time is the bottleneck.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageMetrics {
+
+    private String stage;
+    private long bytesIn;
+    private long bytesOut;
+    private long busyMs;
+    private long waitingMs;
+    private long blockedMs;
+
+    /**
+     * Output rate while busy
+     */
+    public double getBusyMbPerSecond() {
+        return busyMs == 0 ? 0 : Math.max(bytesIn, bytesOut) / (1024.0 * 1024) / (busyMs / 1000.0);
+    }
+
+    /**
+     * One-line description, e.g. "compress: 512.00 MB -> 98.30 MB, busy 4.1 s, waiting 0.2 s, blocked 1.3 s"
+     */
+    public String getSummary() {
+        return String.format("%s: %.2f MB -> %.2f MB, busy %.1f s (%.2f MB/s), waiting %.1f s, blocked %.1f s",
+                stage, bytesIn / (1024.0 * 1024), bytesOut / (1024.0 * 1024), busyMs / 1000.0,
+                getBusyMbPerSecond(), waitingMs / 1000.0, blockedMs / 1000.0);
+    }
+}
@@ -0,0 +1,41 @@
+package com.databasebackuputility.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of writing one backup to one storage provider. With several providers each
+ * gets its own, and blocked time is how long the backup stream waited because this
+ * provider's buffer was full, so the provider with the most blocked time held the others back.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageTargetResult {
+
+    private String provider;
+    private boolean success;
+    private String location;
+    private long bytes;
+    private long durationMs;
+    private long blockedMs;
+    private String errorMessage;
+
+    public double getMbPerSecond() {
+        return durationMs == 0 ? 0 : bytes / (1024.0 * 1024) / (durationMs / 1000.0);
+    }
+
+    /**
+     * One-line description, e.g. "S3: s3://backups/shop.sql.zst, 98.30 MB in 4.1 s (23.98 MB/s), blocked 0.0 s"
+     */
+    public String getSummary() {
+        if (!success) {
+            return String.format("%s: FAILED (%s)", provider, errorMessage);
+        }
+        return String.format("%s: %s, %.2f MB in %.1f s (%.2f MB/s), blocked %.1f s",
+                provider, location, bytes / (1024.0 * 1024), durationMs / 1000.0, getMbPerSecond(), blockedMs / 1000.0);
+    }
+}
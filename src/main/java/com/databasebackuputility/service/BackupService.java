@@ -1,18 +1,43 @@
 package com.databasebackuputility.service;
 
 import com.databasebackuputility.core.connector.DatabaseConnector;
+import com.databasebackuputility.core.delta.BlockSignature;
+import com.databasebackuputility.core.storage.FanOutSink;
+import com.databasebackuputility.core.storage.StorageSink;
+import com.databasebackuputility.core.stream.StreamPipeline;
 import com.databasebackuputility.model.BackupResult;
 import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.CompressionDecision;
 import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.StageMetrics;
+import com.databasebackuputility.model.StorageTargetResult;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main service for backup operations
@@ -26,6 +51,20 @@ public class BackupService {
     private final CompressionService compressionService;
     private final StorageService storageService;
     private final NotificationService notificationService;
+    private final DeltaService deltaService;
+    private final CatalogService catalogService;
+    private final MetricsService metricsService;
+
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool(stageThreadFactory());
+
+    @Value("${backup.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${backup.streaming.chunk-size:1048576}")
+    private int streamChunkSize;
+
+    @Value("${backup.streaming.buffered-chunks:8}")
+    private int streamBufferedChunks;
 
     /**
      * Execute backup operation
@@ -33,6 +72,15 @@ public class BackupService {
     public BackupResult backup(DatabaseConfig config, BackupType backupType,
                                CompressionService.CompressionType compressionType,
                                StorageService.StorageProvider storageProvider) {
+        return backup(config, backupType, compressionType, List.of(storageProvider));
+    }
+
+    /**
+     * Execute backup operation, storing the one backup stream in every provider at once
+     */
+    public BackupResult backup(DatabaseConfig config, BackupType backupType,
+                               CompressionService.CompressionType compressionType,
+                               List<StorageService.StorageProvider> storageProviders) {
 
         BackupResult result = BackupResult.builder()
                 .backupId(UUID.randomUUID().toString())
@@ -48,6 +96,7 @@ public class BackupService {
 
             // Validate configuration
             config.validate();
+            StorageService.checkProviders(storageProviders);
 
             // Get appropriate connector
             DatabaseConnector connector = getConnector(config);
@@ -57,33 +106,34 @@ public class BackupService {
                 throw new RuntimeException("Database connection test failed");
             }
 
-            // Create temporary backup file
-            File tempFile = createTempBackupFile(config);
-
-            // Execute backup
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                connector.backup(config, backupType, fos);
+            // Compressed data defeats chunk-level dedup; the repository compresses chunks itself
+            if (storageProviders.contains(StorageService.StorageProvider.DEDUP)
+                    && compressionType != CompressionService.CompressionType.NONE) {
+                log.info("Dedup repository compresses chunks itself, storing the dump uncompressed");
+                compressionType = CompressionService.CompressionType.NONE;
             }
 
-            result.setFileSize(tempFile.length());
-            log.info("Backup file created: {} ({} bytes)",
-                    tempFile.getName(), tempFile.length());
-
-            // Compress if needed
-            File finalFile = tempFile;
-            if (compressionType != CompressionService.CompressionType.NONE) {
-                finalFile = compressionService.compress(tempFile, compressionType);
-                result.setFileSize(finalFile.length());
-
-                // Delete uncompressed file
-                if (!tempFile.delete()) {
-                    log.warn("Failed to delete temporary file: {}", tempFile.getName());
+            // Without native support, incremental and differential backups are deltas of a full dump
+            BlockSignature deltaBase = null;
+            if (backupType != BackupType.FULL && !supportsNatively(connector, backupType)) {
+                deltaBase = deltaService.isEnabled() ? deltaService.loadBase(config, backupType) : null;
+                if (deltaBase == null) {
+                    log.warn("No earlier full backup of {} to diff against, taking a full backup",
+                            config.getDatabaseName());
+                    backupType = BackupType.FULL;
+                    result.setBackupType(backupType);
+                } else {
+                    result.setBaseBackupPath(deltaBase.getBackupPath());
                 }
             }
 
-            // Store backup
-            String storagePath = storageService.store(finalFile, storageProvider);
-            result.setFilePath(storagePath);
+            if (streamingEnabled) {
+                streamBackup(connector, config, backupType, deltaBase, compressionType, storageProviders, result);
+            } else {
+                tempFileBackup(connector, config, backupType, deltaBase, compressionType, storageProviders, result);
+            }
+            result.setDumpProcess(connector.takeProcessStats(config));
+            notifyStored(connector, config, backupType, result.getFilePath());
 
             // Mark as successful
             result.setSuccess(true);
@@ -92,6 +142,9 @@ public class BackupService {
 
             log.info("Backup completed successfully in {}", result.getFormattedDuration());
 
+            recordInCatalog(result, config);
+            metricsService.recordBackup(result);
+
             // Send notification
             notificationService.sendBackupNotification(result);
 
@@ -101,6 +154,7 @@ public class BackupService {
             result.setErrorMessage(e.getMessage());
             result.setEndTime(LocalDateTime.now());
             result.calculateDuration();
+            metricsService.recordBackup(result);
 
             // Send failure notification
             notificationService.sendBackupNotification(result);
@@ -109,6 +163,309 @@ public class BackupService {
         return result;
     }
 
+    /**
+     * Stream dump -> compression -> storage without intermediate files.
+     * Each stage runs on its own thread; the bounded pipes between them
+     * make the slowest stage pace the others. With AUTO compression the
+     * compress stage samples the head of the dump before choosing a codec,
+     * and the storage target is named once the choice is made.
+     * @param deltaBase Signature to diff the dump against, null unless this is a delta backup
+     */
+    private void streamBackup(DatabaseConnector connector, DatabaseConfig config, BackupType backupType,
+                              BlockSignature deltaBase, CompressionService.CompressionType compressionType,
+                              List<StorageService.StorageProvider> storageProviders,
+                              BackupResult result) throws Exception {
+
+        String baseName = buildBackupFileName(config, backupType, deltaBase != null);
+        AtomicLong dumpedBytes = new AtomicLong();
+        AtomicLong storedBytes = new AtomicLong();
+        AtomicReference<StorageSink> sink = new AtomicReference<>();
+        AtomicReference<BlockSignature> signature = new AtomicReference<>();
+        MessageDigest checksum = sha256();
+        boolean trackDelta = tracksDelta(connector, backupType, deltaBase);
+
+        List<StageMetrics> stages = new ArrayList<>();
+        CompletableFuture<CompressionDecision> decision = new CompletableFuture<>();
+        if (compressionType != CompressionService.CompressionType.AUTO) {
+            decision.complete(compressionService.fixedCompression(compressionType));
+        }
+
+        try {
+            StreamPipeline pipeline = new StreamPipeline(stageExecutor, streamChunkSize, streamBufferedChunks)
+                    .source("dump", out -> connector.backup(config, dumpType(backupType, deltaBase), out));
+            if (trackDelta) {
+                pipeline.transform("delta", (in, out) -> signature.set(deltaService.encode(in, out, deltaBase)));
+            }
+            pipeline.transform("compress", (in, out) -> {
+                byte[] sample = new byte[0];
+                try {
+                    if (!decision.isDone()) {
+                        long start = System.nanoTime();
+                        sample = compressionService.readSample(in);
+                        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                        decision.complete(compressionService.chooseCompression(sample, sample.length / seconds));
+                    }
+                } catch (Exception e) {
+                    decision.completeExceptionally(e);
+                    throw e;
+                }
+                try (OutputStream cos = compressionService.compressingStream(out, decision.join(), baseName)) {
+                    cos.write(sample);
+                    dumpedBytes.set(sample.length + IOUtils.copyLarge(in, cos, new byte[streamChunkSize]));
+                }
+            })
+                    .sink("store", in -> {
+                        String fileName = baseName + compressionService.getExtension(
+                                CompressionService.CompressionType.valueOf(decision.get().getCodec()));
+                        sink.set(storageService.openSink(fileName, storageProviders));
+                        // Not closed: the sink is published by commit() once all stages succeeded
+                        OutputStream out = new DigestOutputStream(sink.get(), checksum);
+                        storedBytes.set(IOUtils.copyLarge(in, out, new byte[streamChunkSize]));
+                    })
+                    .run();
+            stages.addAll(pipeline.getStageMetrics());
+
+            long start = System.nanoTime();
+            try {
+                result.setFilePath(sink.get().commit());
+            } finally {
+                if (sink.get() instanceof FanOutSink fanOut) {
+                    result.setStorageTargets(fanOut.getResults());
+                }
+            }
+            stages.add(fileStage("commit", storedBytes.get(), storedBytes.get(), start));
+            if (result.getStorageTargets() == null) {
+                result.setStorageTargets(List.of(singleTarget(
+                        storageProviders.get(0), result.getFilePath(), storedBytes.get(), stages)));
+            }
+        } catch (Exception e) {
+            if (sink.get() != null) {
+                sink.get().abort();
+            }
+            throw e;
+        }
+
+        if (trackDelta) {
+            recordSignature(config, backupType, signature.get(), result.getFilePath());
+        }
+        recordCompression(result, decision.join());
+        result.setStageMetrics(stages);
+        result.setFileSize(storedBytes.get());
+        result.setChecksum(HexFormat.of().formatHex(checksum.digest()));
+        log.info("Backup streamed: {} ({} bytes dumped, {} bytes stored)",
+                result.getFilePath(), dumpedBytes.get(), storedBytes.get());
+    }
+
+    /**
+     * Dump to a temporary file, compress it to a second file, then hand it to storage
+     */
+    private void tempFileBackup(DatabaseConnector connector, DatabaseConfig config, BackupType backupType,
+                                BlockSignature deltaBase, CompressionService.CompressionType compressionType,
+                                List<StorageService.StorageProvider> storageProviders,
+                                BackupResult result) throws Exception {
+
+        // Create temporary backup file
+        File tempFile = createTempBackupFile(config, backupType, deltaBase != null);
+        List<StageMetrics> stages = new ArrayList<>();
+        result.setStageMetrics(stages);
+
+        // Execute backup
+        long start = System.nanoTime();
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            connector.backup(config, dumpType(backupType, deltaBase), fos);
+        }
+        stages.add(fileStage("dump", 0, tempFile.length(), start));
+
+        // Replace the dump with its delta, keeping the signature of the full dump
+        BlockSignature signature = null;
+        if (tracksDelta(connector, backupType, deltaBase)) {
+            File deltaFile = new File(tempFile.getParentFile(), tempFile.getName() + ".part");
+            long dumpSize = tempFile.length();
+            start = System.nanoTime();
+            try (InputStream in = new BufferedInputStream(new FileInputStream(tempFile));
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(deltaFile))) {
+                signature = deltaService.encode(in, out, deltaBase);
+            }
+            Files.move(deltaFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            stages.add(fileStage("delta", dumpSize, tempFile.length(), start));
+        }
+
+        result.setFileSize(tempFile.length());
+        log.info("Backup file created: {} ({} bytes)",
+                tempFile.getName(), tempFile.length());
+
+        // Compress if needed
+        CompressionDecision decision = compressionType == CompressionService.CompressionType.AUTO
+                ? compressionService.chooseCompression(tempFile)
+                : compressionService.fixedCompression(compressionType);
+        recordCompression(result, decision);
+
+        File finalFile = tempFile;
+        if (!CompressionService.CompressionType.NONE.name().equals(decision.getCodec())) {
+            start = System.nanoTime();
+            finalFile = compressionService.compress(tempFile, decision);
+            stages.add(fileStage("compress", tempFile.length(), finalFile.length(), start));
+            result.setFileSize(finalFile.length());
+
+            // Delete uncompressed file
+            if (!tempFile.delete()) {
+                log.warn("Failed to delete temporary file: {}", tempFile.getName());
+            }
+        }
+
+        result.setChecksum(checksum(finalFile));
+
+        // Store backup
+        long storedSize = finalFile.length();
+        start = System.nanoTime();
+        List<StorageTargetResult> targets = storageService.store(finalFile, storageProviders);
+        stages.add(fileStage("store", storedSize, storedSize, start));
+        String storagePath = targets.stream().filter(StorageTargetResult::isSuccess)
+                .map(StorageTargetResult::getLocation).findFirst().orElseThrow();
+        result.setFilePath(storagePath);
+        result.setStorageTargets(targets);
+        // Local storage moved the file; remote providers leave the upload source behind
+        if (finalFile.exists() && !finalFile.getAbsolutePath().equals(storagePath) && !finalFile.delete()) {
+            log.warn("Failed to delete temporary file: {}", finalFile.getName());
+        }
+
+        if (signature != null) {
+            recordSignature(config, backupType, signature, storagePath);
+        }
+    }
+
+    /**
+     * Metrics of a step that runs on its own, so it never waits for another stage
+     */
+    private StageMetrics fileStage(String stage, long bytesIn, long bytesOut, long startNanos) {
+        return StageMetrics.builder()
+                .stage(stage)
+                .bytesIn(bytesIn)
+                .bytesOut(bytesOut)
+                .busyMs((System.nanoTime() - startNanos) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Whether the connector produces this backup type itself
+     */
+    private boolean supportsNatively(DatabaseConnector connector, BackupType backupType) {
+        return backupType == BackupType.INCREMENTAL
+                ? connector.supportsIncrementalBackup()
+                : connector.supportsDifferentialBackup();
+    }
+
+    /**
+     * Delta backups are diffs of a full dump
+     */
+    private BackupType dumpType(BackupType backupType, BlockSignature deltaBase) {
+        return deltaBase != null ? BackupType.FULL : backupType;
+    }
+
+    /**
+     * Signatures are kept for every backup whose content is a full dump,
+     * either stored as is or as a delta, unless the connector tracks changes itself
+     */
+    private boolean tracksDelta(DatabaseConnector connector, BackupType backupType, BlockSignature deltaBase) {
+        if (!deltaService.isEnabled()) {
+            return false;
+        }
+        if (deltaBase != null) {
+            return true;
+        }
+        return backupType == BackupType.FULL
+                && !(connector.supportsIncrementalBackup() && connector.supportsDifferentialBackup());
+    }
+
+    /**
+     * Make a stored backup the base of the next delta. A failure here only costs
+     * the next delta its base, so the backup itself still succeeds.
+     */
+    private void recordSignature(DatabaseConfig config, BackupType backupType,
+                                 BlockSignature signature, String storagePath) {
+        try {
+            deltaService.recordBackup(config, backupType, signature, storagePath);
+        } catch (IOException e) {
+            log.warn("Failed to record delta signature for {}: {}", config.getDatabaseName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Let the connector advance its change tracking. Like the delta signature,
+     * a failure only costs the next incremental its base.
+     */
+    private void notifyStored(DatabaseConnector connector, DatabaseConfig config,
+                              BackupType backupType, String storagePath) {
+        try {
+            connector.backupStored(config, backupType, storagePath);
+        } catch (IOException e) {
+            log.warn("Failed to record backup state for {}: {}", config.getDatabaseName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Add every stored copy of a backup to the catalog. The backup is in storage either
+     * way and {@code list --rebuild} picks it up, so a catalog failure does not fail it.
+     */
+    private void recordInCatalog(BackupResult result, DatabaseConfig config) {
+        for (StorageTargetResult target : result.getStorageTargets()) {
+            if (!target.isSuccess()) {
+                continue;
+            }
+            try {
+                catalogService.record(result, config,
+                        StorageService.StorageProvider.valueOf(target.getProvider()), target.getLocation());
+            } catch (Exception e) {
+                log.warn("Failed to record backup {} in catalog: {}", target.getLocation(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Result of a streamed backup with one provider, whose sink ran as the store and commit stages
+     */
+    private StorageTargetResult singleTarget(StorageService.StorageProvider provider, String location,
+                                             long storedBytes, List<StageMetrics> stages) {
+        long elapsedMs = stages.stream()
+                .filter(stage -> "store".equals(stage.getStage()) || "commit".equals(stage.getStage()))
+                .mapToLong(stage -> stage.getBusyMs() + stage.getWaitingMs() + stage.getBlockedMs())
+                .sum();
+        return StorageTargetResult.builder()
+                .provider(provider.name())
+                .success(true)
+                .location(location)
+                .bytes(storedBytes)
+                .durationMs(elapsedMs)
+                .build();
+    }
+
+    /**
+     * SHA-256 of the stored backup, hex encoded
+     */
+    private String checksum(File file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void recordCompression(BackupResult result, CompressionDecision decision) {
+        result.setCompressionType(decision.getCodec());
+        result.setCompressionDecision(decision);
+        if (decision.isAutomatic()) {
+            log.info("AUTO compression chose {}", decision.getSummary());
+        }
+    }
+
     /**
      * Test database connection
      */
@@ -141,14 +498,9 @@ public class BackupService {
     /**
      * Create temporary backup file
      */
-    private File createTempBackupFile(DatabaseConfig config) throws IOException {
-        String timestamp = LocalDateTime.now()
-                .format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-
-        String fileName = String.format("%s_%s_%s.sql",
-                config.getType().getName(),
-                config.getDatabaseName(),
-                timestamp);
+    private File createTempBackupFile(DatabaseConfig config, BackupType backupType, boolean delta)
+            throws IOException {
+        String fileName = buildBackupFileName(config, backupType, delta);
 
         File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
         if (!tempDir.exists()) {
@@ -158,6 +510,23 @@ public class BackupService {
         return new File(tempDir, fileName);
     }
 
+    /**
+     * Build the uncompressed backup file name, e.g. {@code mysql_shop_20240101_020000.sql}
+     * or {@code mysql_shop_20240101_020000_incremental.delta}
+     */
+    private String buildBackupFileName(DatabaseConfig config, BackupType backupType, boolean delta) {
+        String timestamp = LocalDateTime.now()
+                .format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String suffix = backupType == BackupType.FULL ? "" : "_" + backupType.name().toLowerCase();
+
+        return String.format("%s_%s_%s%s.%s",
+                config.getType().getName(),
+                config.getDatabaseName(),
+                timestamp,
+                suffix,
+                delta ? "delta" : "sql");
+    }
+
     /**
      * Get database size
      */
@@ -170,4 +539,15 @@ public class BackupService {
             return -1;
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        stageExecutor.shutdownNow();
+    }
+
+    private static CustomizableThreadFactory stageThreadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("backup-stage-");
+        factory.setDaemon(true);
+        return factory;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,400 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.core.dedup.DedupRepository;
+import com.databasebackuputility.core.delta.DeltaDecoder;
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.CatalogEntry;
+import com.databasebackuputility.model.CatalogQuery;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Matcher;
+
+/**
+ * Persistent catalog of stored backups in an embedded SQLite database.
+ * Every successful backup is recorded, so listing is an indexed query instead of
+ * a scan of the storage locations. The catalog only mirrors storage: if it is lost
+ * it is recreated from the backup file names and delta headers on first use.
+ * A backup stored in several providers has one row per copy, all with its backup id.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogService {
+
+    private static final String COLUMNS = "backup_id, database_type, database_name, host, backup_type, "
+            + "compression, storage_provider, location, base_location, size_bytes, sha256, started_at, duration_ms";
+
+    /**
+     * Columns of the backups table; each stored copy of a backup is its own row
+     */
+    private static final String TABLE = "("
+            + "backup_id TEXT NOT NULL, "
+            + "database_type TEXT NOT NULL, "
+            + "database_name TEXT NOT NULL, "
+            + "host TEXT, "
+            + "backup_type TEXT NOT NULL, "
+            + "compression TEXT, "
+            + "storage_provider TEXT NOT NULL, "
+            + "location TEXT NOT NULL UNIQUE, "
+            + "base_location TEXT, "
+            + "size_bytes INTEGER NOT NULL, "
+            + "sha256 TEXT, "
+            + "started_at INTEGER NOT NULL, "
+            + "duration_ms INTEGER NOT NULL, "
+            + "PRIMARY KEY (backup_id, location))";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS backups " + TABLE,
+            "CREATE INDEX IF NOT EXISTS idx_backups_database ON backups (database_name, started_at)",
+            "CREATE INDEX IF NOT EXISTS idx_backups_started ON backups (started_at)",
+            "CREATE INDEX IF NOT EXISTS idx_backups_type ON backups (backup_type, started_at)",
+            "CREATE INDEX IF NOT EXISTS idx_backups_storage ON backups (storage_provider, started_at)"
+    };
+
+    private static final DateTimeFormatter NAME_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final StorageService storageService;
+    private final CompressionService compressionService;
+
+    @Value("${backup.catalog.path:./backups/catalog.db}")
+    private String catalogPath;
+
+    private boolean initialized;
+
+    /**
+     * Record a stored backup. Recording the same location again replaces the entry
+     */
+    public void record(BackupResult result, DatabaseConfig config,
+                       StorageService.StorageProvider storageProvider) throws SQLException {
+        record(result, config, storageProvider, result.getFilePath());
+    }
+
+    /**
+     * Record one stored copy of a backup
+     * @param location Where this provider stored it
+     */
+    public synchronized void record(BackupResult result, DatabaseConfig config,
+                                    StorageService.StorageProvider storageProvider, String location)
+            throws SQLException {
+        CatalogEntry entry = CatalogEntry.builder()
+                .backupId(result.getBackupId())
+                .databaseType(result.getDatabaseType())
+                .databaseName(result.getDatabaseName())
+                .host(config.getType() == DatabaseType.SQLITE ? config.getFilePath() : config.getHost())
+                .backupType(result.getBackupType())
+                .compression(result.getCompressionType())
+                .storageProvider(storageProvider.name())
+                .location(location)
+                .baseLocation(result.getBaseBackupPath())
+                .sizeBytes(result.getFileSize())
+                .sha256(result.getChecksum())
+                .startTime(result.getStartTime())
+                .durationMs(result.getDurationMs())
+                .build();
+
+        try (Connection connection = connect()) {
+            insert(connection, entry);
+        }
+    }
+
+    /**
+     * Backups matching the query, newest first
+     */
+    public synchronized List<CatalogEntry> find(CatalogQuery query) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT " + COLUMNS + " FROM backups" + where(query, parameters)
+                + " ORDER BY started_at DESC, backup_id, storage_provider LIMIT ? OFFSET ?";
+        parameters.add(query.getLimit() > 0 ? query.getLimit() : -1);
+        parameters.add(Math.max(query.getOffset(), 0));
+
+        List<CatalogEntry> entries = new ArrayList<>();
+        try (Connection connection = connect();
+             PreparedStatement statement = prepare(connection, sql, parameters);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                entries.add(toEntry(rows));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Number of stored copies matching the query, ignoring its limit and offset
+     */
+    public synchronized long count(CatalogQuery query) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM backups" + where(query, parameters);
+
+        try (Connection connection = connect();
+             PreparedStatement statement = prepare(connection, sql, parameters);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Replace the local and dedup entries with what is actually in those locations.
+     * Checksums, hosts and durations are not part of the stored backups and stay empty
+     * for rebuilt entries; entries of backups that are still in storage keep theirs.
+     * Cloud entries cannot be listed back and are left as they are.
+     * @return Number of backups in the rebuilt catalog
+     */
+    public synchronized int rebuild() throws SQLException, IOException {
+        try (Connection connection = connect()) {
+            return rebuild(connection);
+        }
+    }
+
+    private int rebuild(Connection connection) throws SQLException, IOException {
+        List<CatalogEntry> entries = new ArrayList<>();
+        for (String location : storageService.listStoredBackups()) {
+            CatalogEntry known = findByLocation(connection, location);
+            if (known != null) {
+                entries.add(known);
+                continue;
+            }
+            try {
+                CatalogEntry entry = scan(location);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping unreadable backup {}: {}", location, e.getMessage());
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM backups WHERE storage_provider IN ('LOCAL', 'DEDUP')");
+            }
+            for (CatalogEntry entry : entries) {
+                insert(connection, entry);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        log.info("Backup catalog rebuilt from storage: {} backups", entries.size());
+        return entries.size();
+    }
+
+    /**
+     * Catalog entry derived from a stored backup's name; deltas name their base in the header
+     * @return null if the name is not a backup name
+     */
+    private CatalogEntry scan(String location) throws IOException {
+        String fileName = location.substring(location.lastIndexOf(File.separatorChar) + 1);
+        if (location.startsWith(DedupRepository.SCHEME)) {
+            fileName = location.substring(DedupRepository.SCHEME.length());
+        }
+        Matcher matcher = StorageService.BACKUP_FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        String baseLocation = null;
+        if ("delta".equals(matcher.group(5))) {
+            try (InputStream in = compressionService.decompressingStream(storageService.openStream(location))) {
+                baseLocation = DeltaDecoder.readHeader(in).basePath();
+            }
+        }
+
+        boolean dedup = location.startsWith(DedupRepository.SCHEME);
+        return CatalogEntry.builder()
+                .backupId(UUID.nameUUIDFromBytes(location.getBytes(StandardCharsets.UTF_8)).toString())
+                .databaseType(DatabaseType.fromString(matcher.group(1)))
+                .databaseName(matcher.group(2))
+                .backupType(matcher.group(4) != null
+                        ? BackupType.valueOf(matcher.group(4).toUpperCase()) : BackupType.FULL)
+                .compression(compressionService.detectCompressionType(fileName).name())
+                .storageProvider(dedup ? StorageService.StorageProvider.DEDUP.name()
+                        : StorageService.StorageProvider.LOCAL.name())
+                .location(location)
+                .baseLocation(baseLocation)
+                .sizeBytes(storageService.size(location))
+                .startTime(LocalDateTime.parse(matcher.group(3), NAME_TIMESTAMP))
+                .build();
+    }
+
+    private CatalogEntry findByLocation(Connection connection, String location) throws SQLException {
+        try (PreparedStatement statement = prepare(connection,
+                "SELECT " + COLUMNS + " FROM backups WHERE location = ?", List.of(location));
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? toEntry(rows) : null;
+        }
+    }
+
+    private void insert(Connection connection, CatalogEntry entry) throws SQLException {
+        List<Object> values = new ArrayList<>();
+        values.add(entry.getBackupId());
+        values.add(entry.getDatabaseType().name());
+        values.add(entry.getDatabaseName());
+        values.add(entry.getHost());
+        values.add(entry.getBackupType().name());
+        values.add(entry.getCompression());
+        values.add(entry.getStorageProvider());
+        values.add(entry.getLocation());
+        values.add(entry.getBaseLocation());
+        values.add(entry.getSizeBytes());
+        values.add(entry.getSha256());
+        values.add(toEpochMilli(entry.getStartTime()));
+        values.add(entry.getDurationMs());
+
+        try (PreparedStatement statement = prepare(connection,
+                "INSERT OR REPLACE INTO backups (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                values)) {
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * WHERE clause for the query's filters; each filter is backed by an index
+     */
+    private String where(CatalogQuery query, List<Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        if (query.getDatabaseName() != null) {
+            conditions.add("database_name = ?");
+            parameters.add(query.getDatabaseName());
+        }
+        if (query.getDatabaseType() != null) {
+            conditions.add("database_type = ?");
+            parameters.add(query.getDatabaseType().name());
+        }
+        if (query.getBackupType() != null) {
+            conditions.add("backup_type = ?");
+            parameters.add(query.getBackupType().name());
+        }
+        if (query.getStorageProvider() != null) {
+            conditions.add("storage_provider = ?");
+            parameters.add(query.getStorageProvider());
+        }
+        if (query.getFrom() != null) {
+            conditions.add("started_at >= ?");
+            parameters.add(toEpochMilli(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            conditions.add("started_at < ?");
+            parameters.add(toEpochMilli(query.getTo()));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private PreparedStatement prepare(Connection connection, String sql, List<Object> parameters)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+
+    private CatalogEntry toEntry(ResultSet rows) throws SQLException {
+        return CatalogEntry.builder()
+                .backupId(rows.getString("backup_id"))
+                .databaseType(DatabaseType.valueOf(rows.getString("database_type")))
+                .databaseName(rows.getString("database_name"))
+                .host(rows.getString("host"))
+                .backupType(BackupType.valueOf(rows.getString("backup_type")))
+                .compression(rows.getString("compression"))
+                .storageProvider(rows.getString("storage_provider"))
+                .location(rows.getString("location"))
+                .baseLocation(rows.getString("base_location"))
+                .sizeBytes(rows.getLong("size_bytes"))
+                .sha256(rows.getString("sha256"))
+                .startTime(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(rows.getLong("started_at")), ZoneId.systemDefault()))
+                .durationMs(rows.getLong("duration_ms"))
+                .build();
+    }
+
+    private long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Catalogs from before fan-out keyed rows by backup id alone, which kept only one copy
+     * of a backup; their rows move into a table keyed by backup id and location
+     */
+    private void migrateToCopyRows(Statement statement) throws SQLException {
+        try (ResultSet rows = statement.executeQuery(
+                "SELECT pk FROM pragma_table_info('backups') WHERE name = 'location'")) {
+            if (!rows.next() || rows.getInt(1) != 0) {
+                return;
+            }
+        }
+        log.info("Migrating backup catalog to one row per stored copy");
+        statement.execute("CREATE TABLE backups_copies " + TABLE);
+        statement.execute("INSERT INTO backups_copies (" + COLUMNS + ") SELECT " + COLUMNS + " FROM backups");
+        statement.execute("DROP TABLE backups");
+        statement.execute("ALTER TABLE backups_copies RENAME TO backups");
+    }
+
+    /**
+     * Open the catalog, creating the schema on first use. A missing catalog
+     * file is rebuilt from storage before it is used
+     */
+    private Connection connect() throws SQLException {
+        Path file = Paths.get(catalogPath);
+        boolean missing = !Files.exists(file);
+        if (missing) {
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            } catch (IOException e) {
+                throw new SQLException("Cannot create catalog directory for " + file, e);
+            }
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("busy_timeout", "10000");
+        properties.setProperty("journal_mode", "WAL");
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file, properties);
+
+        if (!initialized || missing) {
+            try (Statement statement = connection.createStatement()) {
+                migrateToCopyRows(statement);
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            initialized = true;
+            if (missing) {
+                try {
+                    rebuild(connection);
+                } catch (IOException | SQLException e) {
+                    log.warn("Could not rebuild backup catalog from storage: {}", e.getMessage());
+                }
+            }
+        }
+        return connection;
+    }
+}
@@ -1,11 +1,38 @@
 package com.databasebackuputility.service;
 
+import com.databasebackuputility.core.compression.ParallelGzipInputStream;
+import com.databasebackuputility.core.compression.ParallelGzipOutputStream;
+import com.databasebackuputility.core.compression.ParallelXzOutputStream;
+import com.databasebackuputility.model.CompressionDecision;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
 
 import java.io.*;
-import java.util.zip.GZIPInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -17,14 +44,99 @@ import java.util.zip.ZipOutputStream;
 @Service
 public class CompressionService {
 
+    /**
+     * AUTO is resolved to one of the other types per backup, see {@link #chooseCompression}
+     */
     public enum CompressionType {
-        NONE, GZIP, ZIP
+        NONE, GZIP, ZIP, ZSTD, LZ4, XZ, AUTO
+    }
+
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+    private static final byte[] ZIP_MAGIC = {0x50, 0x4b, 0x03, 0x04};
+    private static final byte[] ZSTD_MAGIC = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+    private static final byte[] LZ4_MAGIC = {0x04, 0x22, 0x4d, 0x18};
+    private static final byte[] XZ_MAGIC = {(byte) 0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00};
+    private static final int MAX_MAGIC_LENGTH = 6;
+    private static final int ZSTD_MAX_WINDOW_LOG = 31;
+
+    @Value("${backup.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${backup.compression.threads:0}")
+    private int compressionThreads;
+
+    @Value("${backup.compression.block-size:1048576}")
+    private int compressionBlockSize;
+
+    @Value("${backup.compression.zstd.level:3}")
+    private int zstdLevel;
+
+    @Value("${backup.compression.zstd.workers:0}")
+    private int zstdWorkers;
+
+    @Value("${backup.compression.zstd.long-distance-window-log:27}")
+    private int zstdWindowLog;
+
+    @Value("${backup.compression.lz4.level:0}")
+    private int lz4Level;
+
+    @Value("${backup.compression.xz.preset:6}")
+    private int xzPreset;
+
+    @Value("${backup.compression.xz.block-size:25165824}")
+    private int xzBlockSize;
+
+    @Value("${backup.compression.auto.sample-size:4194304}")
+    private int autoSampleSize;
+
+    @Value("${backup.compression.auto.candidates:zstd:9,zstd:6,zstd:3,zstd:1,lz4:0}")
+    private String[] autoCandidates;
+
+    @Value("${backup.compression.auto.target-throughput:0}")
+    private double autoTargetMbPerSecond;
+
+    @Value("${backup.compression.auto.incompressible-entropy:7.5}")
+    private double autoIncompressibleEntropy;
+
+    @Value("${backup.compression.auto.min-savings:0.1}")
+    private double autoMinSavings;
+
+    private ExecutorService compressionExecutor;
+
+    @PostConstruct
+    void startWorkers() {
+        if (compressionThreads <= 0) {
+            compressionThreads = Runtime.getRuntime().availableProcessors();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("compress-");
+        threadFactory.setDaemon(true);
+        compressionExecutor = Executors.newFixedThreadPool(compressionThreads, threadFactory);
+        if (zstdWorkers <= 0) {
+            zstdWorkers = compressionThreads;
+        }
+        log.debug("Compression pool started with {} threads, level {}", compressionThreads, compressionLevel);
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        compressionExecutor.shutdownNow();
     }
 
     /**
      * Compress file using specified compression type
      */
     public File compress(File source, CompressionType type) throws IOException {
+        CompressionDecision decision = type == CompressionType.AUTO
+                ? chooseCompression(source)
+                : fixedCompression(type);
+        return compress(source, decision);
+    }
+
+    /**
+     * Compress file with the codec and level of a decision
+     */
+    public File compress(File source, CompressionDecision decision) throws IOException {
+        CompressionType type = CompressionType.valueOf(decision.getCodec());
         if (type == CompressionType.NONE) {
             return source;
         }
@@ -34,13 +146,9 @@ public class CompressionService {
 
         log.info("Compressing file: {} -> {}", source.getName(), outputFile.getName());
 
-        switch (type) {
-            case GZIP:
-                compressGzip(source, outputFile);
-                break;
-            case ZIP:
-                compressZip(source, outputFile);
-                break;
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = compressingStream(new FileOutputStream(outputFile), decision, source.getName())) {
+            IOUtils.copyLarge(in, out, new byte[compressionBlockSize]);
         }
 
         log.info("Compression completed. Original: {} bytes, Compressed: {} bytes",
@@ -50,28 +158,255 @@ public class CompressionService {
     }
 
     /**
-     * Decompress file
+     * Wrap a stream with the compressor for the given type.
+     * Closing the returned stream finishes the compressed data and closes the target.
+     * @param target Stream receiving compressed bytes
+     * @param type Compression type
+     * @param entryName Name of the archive entry, used by ZIP only
+     */
+    public OutputStream compressingStream(OutputStream target, CompressionType type,
+                                          String entryName) throws IOException {
+        return compressingStream(target, type, defaultLevel(type), entryName);
+    }
+
+    /**
+     * Wrap a stream with the compressor chosen by a decision
+     */
+    public OutputStream compressingStream(OutputStream target, CompressionDecision decision,
+                                          String entryName) throws IOException {
+        return compressingStream(target, CompressionType.valueOf(decision.getCodec()),
+                decision.getLevel(), entryName);
+    }
+
+    private OutputStream compressingStream(OutputStream target, CompressionType type, int level,
+                                           String entryName) throws IOException {
+        switch (type) {
+            case GZIP:
+                return newGzipStream(target, level);
+            case ZIP:
+                ZipOutputStream zos = new ZipOutputStream(target);
+                zos.setLevel(level);
+                zos.putNextEntry(new ZipEntry(entryName));
+                return zos;
+            case ZSTD:
+                return newZstdStream(target, level);
+            case LZ4:
+                return newLz4Stream(target, level);
+            case XZ:
+                return newXzStream(target, level);
+            case AUTO:
+                throw new IllegalArgumentException("AUTO compression must be resolved with chooseCompression first");
+            default:
+                return target;
+        }
+    }
+
+    /**
+     * Decision for an explicitly requested type, using the configured level
+     */
+    public CompressionDecision fixedCompression(CompressionType type) {
+        if (type == CompressionType.AUTO) {
+            throw new IllegalArgumentException("AUTO compression must be resolved with chooseCompression");
+        }
+        return CompressionDecision.builder()
+                .codec(type.name())
+                .level(defaultLevel(type))
+                .reason("requested")
+                .build();
+    }
+
+    /**
+     * Read the head of a dump for {@link #chooseCompression}; the caller must
+     * write the returned bytes ahead of the rest of the stream
+     * @return Up to {@code auto.sample-size} bytes; fewer means the whole input was read
+     */
+    public byte[] readSample(InputStream in) throws IOException {
+        byte[] sample = new byte[autoSampleSize];
+        int n = IOUtils.read(in, sample);
+        return n == sample.length ? sample : Arrays.copyOf(sample, n);
+    }
+
+    /**
+     * Choose codec and level for a file by sampling its head
+     */
+    public CompressionDecision chooseCompression(File source) throws IOException {
+        try (InputStream in = new FileInputStream(source)) {
+            return chooseCompression(readSample(in), 0);
+        }
+    }
+
+    /**
+     * Resolve AUTO compression from a sample of the dump.
+     * <ol>
+     *   <li>A sample whose byte entropy is close to 8 bits is already compressed
+     *       (BLOBs, compressed columns) and is stored as is.</li>
+     *   <li>Otherwise every candidate codec compresses the sample once; candidates that
+     *       would save less than {@code auto.min-savings} are not worth their CPU.</li>
+     *   <li>Of the rest, the smallest output wins among those whose estimated throughput
+     *       (single-thread trial speed times the codec's worker count) keeps up with the
+     *       target: {@code auto.target-throughput} in MB/s, or the rate the dump
+     *       produced the sample when that is 0. If none keeps up, the fastest wins.</li>
+     * </ol>
+     * @param sample Head of the dump, as returned by {@link #readSample}
+     * @param sourceBytesPerSecond Rate at which the dump produced the sample; 0 if unknown
+     */
+    public CompressionDecision chooseCompression(byte[] sample, double sourceBytesPerSecond) throws IOException {
+        CompressionDecision.CompressionDecisionBuilder decision = CompressionDecision.builder()
+                .automatic(true)
+                .sampleBytes(sample.length);
+
+        if (sample.length == 0) {
+            return decision.codec(CompressionType.NONE.name()).sampleRatio(1).reason("empty dump").build();
+        }
+
+        double entropy = entropy(sample);
+        decision.entropyBitsPerByte(entropy);
+        if (entropy >= autoIncompressibleEntropy) {
+            return decision.codec(CompressionType.NONE.name())
+                    .sampleRatio(1)
+                    .reason(String.format(Locale.ROOT, "sample entropy %.2f bits/byte, data is already compressed",
+                            entropy))
+                    .build();
+        }
+
+        // The whole dump fit in the sample, so speed does not matter
+        boolean wholeInput = sample.length < autoSampleSize;
+        double targetMbPerSecond = autoTargetMbPerSecond > 0 ? autoTargetMbPerSecond
+                : wholeInput ? 0 : sourceBytesPerSecond / (1024 * 1024);
+        decision.targetMbPerSecond(targetMbPerSecond);
+
+        List<Trial> trials = new ArrayList<>();
+        for (String candidate : autoCandidates) {
+            trials.add(trial(candidate.trim(), sample));
+        }
+
+        Trial best = null;
+        Trial fastest = null;
+        for (Trial trial : trials) {
+            if (fastest == null || trial.mbPerSecond() > fastest.mbPerSecond()) {
+                fastest = trial;
+            }
+            if (trial.mbPerSecond() >= targetMbPerSecond && (best == null || trial.ratio() < best.ratio())) {
+                best = trial;
+            }
+        }
+
+        String reason;
+        if (best == null) {
+            best = fastest;
+            reason = String.format(Locale.ROOT, "no candidate keeps up with %.0f MB/s, using the fastest",
+                    targetMbPerSecond);
+        } else if (targetMbPerSecond > 0) {
+            reason = String.format(Locale.ROOT, "smallest output that keeps up with %.0f MB/s", targetMbPerSecond);
+        } else {
+            reason = "smallest output";
+        }
+
+        if (best == null || 1 - best.ratio() < autoMinSavings) {
+            double ratio = best != null ? best.ratio() : 1;
+            return decision.codec(CompressionType.NONE.name())
+                    .sampleRatio(ratio)
+                    .reason(String.format(Locale.ROOT, "best candidate saves only %.1f%% on the sample",
+                            (1 - ratio) * 100))
+                    .build();
+        }
+
+        return decision.codec(best.type().name())
+                .level(best.level())
+                .sampleRatio(best.ratio())
+                .estimatedMbPerSecond(best.mbPerSecond())
+                .reason(String.format(Locale.ROOT, "%s, ratio %.2f, entropy %.2f bits/byte",
+                        reason, best.ratio(), entropy))
+                .build();
+    }
+
+    /**
+     * Wrap a stream with the decompressor for the given type.
+     * GZIP backups written with a block index are inflated in parallel;
+     * other gzip files fall back to a serial decoder.
+     */
+    public InputStream decompressingStream(InputStream source, CompressionType type) throws IOException {
+        switch (type) {
+            case GZIP:
+                return new ParallelGzipInputStream(source, compressionExecutor, compressionThreads * 2);
+            case ZIP:
+                ZipInputStream zis = new ZipInputStream(source);
+                if (zis.getNextEntry() == null) {
+                    throw new IOException("ZIP archive has no entries");
+                }
+                return zis;
+            case ZSTD:
+                // Frames written with long-distance matching need a larger window than the default
+                return new ZstdInputStream(source).setLongMax(ZSTD_MAX_WINDOW_LOG);
+            case LZ4:
+                return new LZ4FrameInputStream(source);
+            case XZ:
+                return new XZInputStream(source);
+            default:
+                return source;
+        }
+    }
+
+    /**
+     * Wrap a stream with the decompressor matching its magic bytes
+     */
+    public InputStream decompressingStream(InputStream source) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source, compressionBlockSize);
+        return decompressingStream(buffered, detectCompressionType(buffered));
+    }
+
+    /**
+     * Detect compression type from the leading magic bytes.
+     * The stream must support mark/reset; its position is left unchanged.
+     */
+    public CompressionType detectCompressionType(InputStream in) throws IOException {
+        byte[] head = new byte[MAX_MAGIC_LENGTH];
+        in.mark(MAX_MAGIC_LENGTH);
+        int n = IOUtils.read(in, head);
+        in.reset();
+
+        if (startsWith(head, n, GZIP_MAGIC)) {
+            return CompressionType.GZIP;
+        } else if (startsWith(head, n, ZIP_MAGIC)) {
+            return CompressionType.ZIP;
+        } else if (startsWith(head, n, ZSTD_MAGIC)) {
+            return CompressionType.ZSTD;
+        } else if (startsWith(head, n, LZ4_MAGIC)) {
+            return CompressionType.LZ4;
+        } else if (startsWith(head, n, XZ_MAGIC)) {
+            return CompressionType.XZ;
+        }
+        return CompressionType.NONE;
+    }
+
+    /**
+     * Decompress file; the format is detected from its content, not its name
      */
     public File decompress(File compressed) throws IOException {
-        String fileName = compressed.getName();
-        CompressionType type = detectCompressionType(fileName);
+        CompressionType type;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(compressed))) {
+            type = detectCompressionType(in);
+        }
 
         if (type == CompressionType.NONE) {
             return compressed;
         }
 
         String outputPath = removeExtension(compressed.getAbsolutePath(), type);
+        if (outputPath.equals(compressed.getAbsolutePath())) {
+            outputPath += ".decompressed";
+        }
         File outputFile = new File(outputPath);
 
-        log.info("Decompressing file: {} -> {}", compressed.getName(), outputFile.getName());
+        log.info("Decompressing {} file: {} -> {}", type, compressed.getName(), outputFile.getName());
 
-        switch (type) {
-            case GZIP:
-                decompressGzip(compressed, outputFile);
-                break;
-            case ZIP:
-                decompressZip(compressed, outputFile);
-                break;
+        try (InputStream in = decompressingStream(new FileInputStream(compressed), type);
+             OutputStream out = new FileOutputStream(outputFile)) {
+            IOUtils.copyLarge(in, out, new byte[compressionBlockSize]);
+
+            if (in instanceof ParallelGzipInputStream && ((ParallelGzipInputStream) in).isSerialFallback()) {
+                log.info("Backup has no gzip block index, decompressed serially");
+            }
         }
 
         log.info("Decompression completed");
@@ -79,85 +414,171 @@ public class CompressionService {
     }
 
     /**
-     * GZIP compression
+     * Multi-threaded gzip writer; blocks are compressed on the shared pool
+     * with two blocks in flight per worker to keep every core busy
      */
-    private void compressGzip(File source, File output) throws IOException {
-        try (FileInputStream fis = new FileInputStream(source);
-             FileOutputStream fos = new FileOutputStream(output);
-             GzipCompressorOutputStream gzos = new GzipCompressorOutputStream(fos)) {
+    private OutputStream newGzipStream(OutputStream target, int level) {
+        return new ParallelGzipOutputStream(target, level, compressionBlockSize,
+                compressionExecutor, compressionThreads * 2);
+    }
 
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = fis.read(buffer)) != -1) {
-                gzos.write(buffer, 0, len);
-            }
-            gzos.finish();
+    /**
+     * Multi-threaded zstd writer with long-distance matching, which finds
+     * repeats far apart in large SQL dumps
+     */
+    private OutputStream newZstdStream(OutputStream target, int level) throws IOException {
+        ZstdOutputStream zos = new ZstdOutputStream(target, level);
+        zos.setChecksum(true);
+        zos.setWorkers(zstdWorkers);
+        if (zstdWindowLog > 0) {
+            zos.setLong(zstdWindowLog);
         }
+        return zos;
     }
 
     /**
-     * GZIP decompression
+     * LZ4 frame writer with 4 MB independent blocks. Level 0 uses the fast
+     * compressor; higher levels switch to LZ4-HC
      */
-    private void decompressGzip(File compressed, File output) throws IOException {
-        try (FileInputStream fis = new FileInputStream(compressed);
-             GZIPInputStream gis = new GZIPInputStream(fis);
-             FileOutputStream fos = new FileOutputStream(output)) {
+    private OutputStream newLz4Stream(OutputStream target, int level) throws IOException {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        return new LZ4FrameOutputStream(target,
+                LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB,
+                -1L,
+                level > 0 ? factory.highCompressor(level) : factory.fastCompressor(),
+                XXHashFactory.fastestInstance().hash32(),
+                LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+                LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM);
+    }
 
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = gis.read(buffer)) != -1) {
-                fos.write(buffer, 0, len);
-            }
-        }
+    /**
+     * Multi-threaded xz writer producing a standard .xz stream with one block
+     * per {@code xz.block-size} bytes and a block index. Each LZMA2 encoder needs
+     * roughly ten times its dictionary in memory, so only one block per worker is in flight
+     */
+    private OutputStream newXzStream(OutputStream target, int preset) throws IOException {
+        LZMA2Options options = new LZMA2Options(preset);
+        // A dictionary larger than the block gains nothing and costs memory
+        options.setDictSize(Math.max(LZMA2Options.DICT_SIZE_MIN, Math.min(options.getDictSize(), xzBlockSize)));
+        return new ParallelXzOutputStream(target, options, xzBlockSize,
+                compressionExecutor, compressionThreads);
     }
 
     /**
-     * ZIP compression
+     * Compress the sample once with a candidate such as "zstd:3", timing a single thread
      */
-    private void compressZip(File source, File output) throws IOException {
-        try (FileInputStream fis = new FileInputStream(source);
-             FileOutputStream fos = new FileOutputStream(output);
-             ZipOutputStream zos = new ZipOutputStream(fos)) {
+    private Trial trial(String candidate, byte[] sample) throws IOException {
+        String[] parts = candidate.split(":");
+        CompressionType type = CompressionType.valueOf(parts[0].toUpperCase(Locale.ROOT));
+        int level = parts.length > 1 ? Integer.parseInt(parts[1]) : defaultLevel(type);
+
+        long start = System.nanoTime();
+        long compressedSize;
+        switch (type) {
+            case GZIP:
+            case ZIP:
+                CountingOutputStream deflated = new CountingOutputStream(NullOutputStream.INSTANCE);
+                Deflater deflater = new Deflater(level, true);
+                try (DeflaterOutputStream dos = new DeflaterOutputStream(deflated, deflater)) {
+                    dos.write(sample);
+                } finally {
+                    deflater.end();
+                }
+                compressedSize = deflated.getByteCount();
+                break;
+            case ZSTD:
+                compressedSize = Zstd.compress(sample, level).length;
+                break;
+            case LZ4:
+                LZ4Factory factory = LZ4Factory.fastestInstance();
+                compressedSize = (level > 0 ? factory.highCompressor(level) : factory.fastCompressor())
+                        .compress(sample).length;
+                break;
+            case XZ:
+                CountingOutputStream xzOut = new CountingOutputStream(NullOutputStream.INSTANCE);
+                try (XZOutputStream xz = new XZOutputStream(xzOut, new LZMA2Options(level))) {
+                    xz.write(sample);
+                }
+                compressedSize = xzOut.getByteCount();
+                break;
+            default:
+                throw new IllegalArgumentException("Not a compression candidate: " + candidate);
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
 
-            ZipEntry entry = new ZipEntry(source.getName());
-            zos.putNextEntry(entry);
+        double mbPerSecond = sample.length / seconds / (1024 * 1024) * parallelism(type);
+        double ratio = (double) compressedSize / sample.length;
+        log.debug("AUTO trial {}: ratio {}, ~{} MB/s", candidate,
+                String.format(Locale.ROOT, "%.3f", ratio), String.format(Locale.ROOT, "%.0f", mbPerSecond));
+        return new Trial(type, level, ratio, mbPerSecond);
+    }
+
+    /**
+     * Result of compressing the AUTO sample with one candidate
+     */
+    private record Trial(CompressionType type, int level, double ratio, double mbPerSecond) {
+    }
 
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = fis.read(buffer)) != -1) {
-                zos.write(buffer, 0, len);
+    /**
+     * Shannon entropy of the byte distribution, 0 to 8 bits per byte
+     */
+    private static double entropy(byte[] data) {
+        long[] counts = new long[256];
+        for (byte b : data) {
+            counts[b & 0xFF]++;
+        }
+        double entropy = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                double p = (double) count / data.length;
+                entropy -= p * Math.log(p) / Math.log(2);
             }
-            zos.closeEntry();
         }
+        return entropy;
     }
 
     /**
-     * ZIP decompression
+     * Threads a codec's writer compresses on
      */
-    private void decompressZip(File compressed, File output) throws IOException {
-        try (FileInputStream fis = new FileInputStream(compressed);
-             ZipInputStream zis = new ZipInputStream(fis);
-             FileOutputStream fos = new FileOutputStream(output)) {
+    private int parallelism(CompressionType type) {
+        switch (type) {
+            case GZIP:
+            case XZ:
+                return compressionThreads;
+            case ZSTD:
+                return zstdWorkers;
+            default:
+                return 1;
+        }
+    }
 
-            ZipEntry entry = zis.getNextEntry();
-            if (entry != null) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = zis.read(buffer)) != -1) {
-                    fos.write(buffer, 0, len);
-                }
-            }
+    /**
+     * Configured level for a type
+     */
+    private int defaultLevel(CompressionType type) {
+        switch (type) {
+            case GZIP:
+            case ZIP:
+                return compressionLevel;
+            case ZSTD:
+                return zstdLevel;
+            case LZ4:
+                return lz4Level;
+            case XZ:
+                return xzPreset;
+            default:
+                return 0;
         }
     }
 
     /**
      * Detect compression type from file extension
      */
-    private CompressionType detectCompressionType(String fileName) {
-        if (fileName.endsWith(".gz")) {
-            return CompressionType.GZIP;
-        } else if (fileName.endsWith(".zip")) {
-            return CompressionType.ZIP;
+    public CompressionType detectCompressionType(String fileName) {
+        for (CompressionType type : CompressionType.values()) {
+            if (!getExtension(type).isEmpty() && fileName.endsWith(getExtension(type))) {
+                return type;
+            }
         }
         return CompressionType.NONE;
     }
@@ -165,14 +586,29 @@ public class CompressionService {
     /**
      * Get file extension for compression type
      */
-    private String getExtension(CompressionType type) {
+    public String getExtension(CompressionType type) {
         switch (type) {
             case GZIP: return ".gz";
             case ZIP: return ".zip";
+            case ZSTD: return ".zst";
+            case LZ4: return ".lz4";
+            case XZ: return ".xz";
             default: return "";
         }
     }
 
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Remove compression extension from filename
      */
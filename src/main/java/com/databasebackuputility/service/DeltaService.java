@@ -0,0 +1,104 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.core.delta.BlockSignature;
+import com.databasebackuputility.core.delta.DeltaEncoder;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Incremental and differential backups as binary deltas of the full dump.
+ * Works for every connector: the dump is diffed against the block signature of
+ * the last full backup (differential) or the last backup of any type (incremental).
+ * Signatures are kept per database in {@code backup.delta.state-dir}; each delta
+ * names its base backup in its header, so restore can walk the chain back to a full.
+ */
+@Slf4j
+@Service
+public class DeltaService {
+
+    @Value("${backup.delta.enabled:true}")
+    private boolean deltaEnabled;
+
+    @Value("${backup.delta.state-dir:./backups/.delta}")
+    private String stateDir;
+
+    @Value("${backup.delta.block-size:32768}")
+    private int blockSize;
+
+    public boolean isEnabled() {
+        return deltaEnabled;
+    }
+
+    /**
+     * Signature of the backup an incremental or differential backup is diffed against
+     * @return null if there is no earlier full backup of this database
+     */
+    public BlockSignature loadBase(DatabaseConfig config, BackupType backupType) throws IOException {
+        if (backupType == BackupType.FULL) {
+            return null;
+        }
+        Path file = signaturePath(config, backupType == BackupType.DIFFERENTIAL ? "full" : "last");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        BlockSignature signature = BlockSignature.read(file);
+        return signature.getBackupPath() != null ? signature : null;
+    }
+
+    /**
+     * Copy the dump to {@code out}, as a delta if a base is given
+     * @param base Signature to diff against, or null for a full backup
+     * @return Signature of the dump, to record once the backup is stored
+     */
+    public BlockSignature encode(InputStream in, OutputStream out, BlockSignature base) throws IOException {
+        if (base == null) {
+            BlockSignature.Builder builder = new BlockSignature.Builder(blockSize);
+            byte[] buffer = new byte[Math.max(blockSize, 1 << 16)];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                builder.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+            return builder.build();
+        }
+
+        DeltaEncoder encoder = new DeltaEncoder(base);
+        BlockSignature signature = encoder.encode(in, out);
+        log.info("Delta against {}: {} bytes unchanged, {} bytes new",
+                base.getBackupPath(), encoder.getCopiedBytes(), encoder.getLiteralBytes());
+        return signature;
+    }
+
+    /**
+     * Remember a stored backup as the base for the next incremental, and a full
+     * backup also as the base for differentials
+     */
+    public void recordBackup(DatabaseConfig config, BackupType backupType,
+                             BlockSignature signature, String storagePath) throws IOException {
+        Files.createDirectories(Paths.get(stateDir));
+        signature.setBackupPath(storagePath);
+        signature.write(signaturePath(config, "last"));
+        if (backupType == BackupType.FULL) {
+            signature.write(signaturePath(config, "full"));
+        }
+    }
+
+    private Path signaturePath(DatabaseConfig config, String kind) {
+        String source = config.getType() == DatabaseType.SQLITE
+                ? config.getFilePath()
+                : config.getHost() + "_" + config.getPort();
+        String key = config.getType().getName() + "_" + source + "_" + config.getDatabaseName();
+        return Paths.get(stateDir).resolve(key.replaceAll("[^A-Za-z0-9._-]", "_") + "." + kind + ".sig");
+    }
+}
@@ -0,0 +1,273 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import com.databasebackuputility.model.FleetBackupReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs backups of many databases concurrently.
+ * Honors a global concurrency cap and a per-server cap, so a run never puts
+ * more than {@code backup.max-parallel-per-host} dumps on the same server.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FleetBackupService {
+
+    private final BackupService backupService;
+
+    @Value("${backup.max-parallel-backups:3}")
+    private int maxParallelBackups;
+
+    @Value("${backup.max-parallel-per-host:1}")
+    private int maxParallelPerHost;
+
+    @Value("${backup.fleet.largest-first:true}")
+    private boolean largestFirst;
+
+    /**
+     * Back up every database in the inventory
+     * @return Report with one result per database, in inventory order
+     */
+    public FleetBackupReport backupAll(List<DatabaseConfig> configs, BackupType backupType,
+                                       CompressionService.CompressionType compressionType,
+                                       List<StorageService.StorageProvider> storageProviders) throws InterruptedException {
+
+        int parallel = Math.max(1, maxParallelBackups);
+        int perHost = Math.max(1, maxParallelPerHost);
+
+        FleetBackupReport report = FleetBackupReport.builder()
+                .startTime(LocalDateTime.now())
+                .maxParallel(parallel)
+                .maxParallelPerHost(perHost)
+                .build();
+
+        log.info("Starting fleet backup of {} databases (max parallel: {}, per host: {})",
+                configs.size(), parallel, perHost);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, fleetThreadFactory());
+        BackupResult[] results = new BackupResult[configs.size()];
+
+        try {
+            List<Integer> pending = scheduleOrder(configs, executor, perHost);
+            Map<String, Integer> runningPerHost = new HashMap<>();
+            Set<String> runningNames = new HashSet<>();
+            ReentrantLock lock = new ReentrantLock();
+            Condition slotFreed = lock.newCondition();
+            int[] running = {0};
+
+            lock.lock();
+            try {
+                while (!pending.isEmpty()) {
+                    Integer next = null;
+                    if (running[0] < parallel) {
+                        for (Integer index : pending) {
+                            DatabaseConfig config = configs.get(index);
+                            if (runningPerHost.getOrDefault(hostKey(config), 0) < perHost
+                                    && !runningNames.contains(nameKey(config))) {
+                                next = index;
+                                break;
+                            }
+                        }
+                    }
+                    if (next == null) {
+                        slotFreed.await();
+                        continue;
+                    }
+
+                    pending.remove(next);
+                    DatabaseConfig config = configs.get(next);
+                    String host = hostKey(config);
+                    String name = nameKey(config);
+                    runningPerHost.merge(host, 1, Integer::sum);
+                    runningNames.add(name);
+                    running[0]++;
+
+                    int index = next;
+                    executor.execute(() -> {
+                        try {
+                            results[index] = runBackup(config, backupType, compressionType, storageProviders);
+                        } finally {
+                            lock.lock();
+                            try {
+                                runningPerHost.merge(host, -1, Integer::sum);
+                                runningNames.remove(name);
+                                running[0]--;
+                                slotFreed.signalAll();
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    });
+                }
+
+                while (running[0] > 0) {
+                    slotFreed.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.setResults(new ArrayList<>(Arrays.asList(results)));
+        report.setEndTime(LocalDateTime.now());
+
+        log.info("Fleet backup finished in {}: {} succeeded, {} failed (serial time would be {} ms)",
+                report.getTotals().getFormattedDuration(), report.getSuccessCount(),
+                report.getFailureCount(), report.getSerialDurationMs());
+
+        return report;
+    }
+
+    /**
+     * Load a CSV inventory with lines of {@code type,host,port,database,username[,password]}.
+     * Blank lines and lines starting with '#' are ignored; an empty port means the default
+     * for the database type. For SQLite the host column holds the database file path.
+     * @param defaultPassword Password used for entries that do not specify one
+     */
+    public List<DatabaseConfig> loadInventory(Path inventoryFile, String defaultPassword) throws IOException {
+        List<DatabaseConfig> configs = new ArrayList<>();
+        int lineNumber = 0;
+
+        for (String line : Files.readAllLines(inventoryFile)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = trimmed.split(",", -1);
+            if (fields.length < 4) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid inventory line %d: expected type,host,port,database,username[,password]",
+                        lineNumber));
+            }
+
+            DatabaseType type = DatabaseType.fromString(fields[0].trim());
+            String port = fields[2].trim();
+            String username = fields.length > 4 ? fields[4].trim() : "";
+            String password = fields.length > 5 ? fields[5].trim() : "";
+
+            DatabaseConfig.DatabaseConfigBuilder builder = DatabaseConfig.builder()
+                    .type(type)
+                    .databaseName(fields[3].trim());
+
+            if (type == DatabaseType.SQLITE) {
+                builder.filePath(fields[1].trim());
+            } else {
+                builder.host(fields[1].trim())
+                        .port(port.isEmpty() ? type.getDefaultPort() : Integer.parseInt(port))
+                        .username(username.isEmpty() ? null : username)
+                        .password(password.isEmpty() ? defaultPassword : password);
+            }
+
+            configs.add(builder.build());
+        }
+
+        return configs;
+    }
+
+    private BackupResult runBackup(DatabaseConfig config, BackupType backupType,
+                                   CompressionService.CompressionType compressionType,
+                                   List<StorageService.StorageProvider> storageProviders) {
+        try {
+            return backupService.backup(config, backupType, compressionType, storageProviders);
+        } catch (Exception e) {
+            log.error("Backup of {} failed: {}", config.getDatabaseName(), e.getMessage(), e);
+            return BackupResult.builder()
+                    .success(false)
+                    .backupType(backupType)
+                    .databaseType(config.getType())
+                    .databaseName(config.getDatabaseName())
+                    .errorMessage(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Indexes of the configs in dispatch order. Starting the biggest databases first
+     * keeps one large dump from running alone at the end of the window. The size
+     * queries honor the per-host cap just like the backups do.
+     */
+    private List<Integer> scheduleOrder(List<DatabaseConfig> configs, ExecutorService executor, int perHost)
+            throws InterruptedException {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < configs.size(); i++) {
+            order.add(i);
+        }
+        if (!largestFirst || configs.size() < 2) {
+            return new LinkedList<>(order);
+        }
+
+        Map<String, Semaphore> hostSlots = new HashMap<>();
+        List<Callable<Long>> sizeQueries = new ArrayList<>();
+        for (DatabaseConfig config : configs) {
+            Semaphore slots = hostSlots.computeIfAbsent(hostKey(config), host -> new Semaphore(perHost));
+            sizeQueries.add(() -> {
+                slots.acquire();
+                try {
+                    return backupService.getDatabaseSize(config);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+
+        long[] sizes = new long[configs.size()];
+        List<Future<Long>> futures = executor.invokeAll(sizeQueries);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                sizes[i] = futures.get(i).get();
+            } catch (ExecutionException e) {
+                sizes[i] = -1;
+            }
+        }
+
+        order.sort(Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+        return new LinkedList<>(order);
+    }
+
+    /**
+     * Key identifying the server a backup runs against
+     */
+    private String hostKey(DatabaseConfig config) {
+        if (config.getType() == DatabaseType.SQLITE) {
+            return "file:" + config.getFilePath();
+        }
+        // An incomplete config fails in its own backup, it only needs a key to be scheduled
+        String host = config.getHost() == null ? "" : config.getHost().toLowerCase(Locale.ROOT);
+        return host + ":" + config.getPort();
+    }
+
+    /**
+     * Backups of the same database name share a file name prefix, so they never run at once
+     */
+    private String nameKey(DatabaseConfig config) {
+        String type = config.getType() == null ? "" : config.getType().getName();
+        return type + "_" + config.getDatabaseName();
+    }
+
+    private static CustomizableThreadFactory fleetThreadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("fleet-backup-");
+        factory.setDaemon(true);
+        return factory;
+    }
+}
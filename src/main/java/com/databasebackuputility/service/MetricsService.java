@@ -0,0 +1,138 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.ProcessStats;
+import com.databasebackuputility.model.StageMetrics;
+import com.databasebackuputility.model.StorageTargetResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exports the outcome and stage metrics of each backup in the Prometheus text format,
+ * one file per database, for the node_exporter textfile collector or any scraper
+ * that reads a directory
+ */
+@Slf4j
+@Service
+public class MetricsService {
+
+    @Value("${backup.metrics.textfile-dir:}")
+    private String textfileDir;
+
+    /**
+     * Replace the metrics file of the backup's database. A failure here is logged
+     * and never fails the backup.
+     */
+    public void recordBackup(BackupResult result) {
+        if (textfileDir == null || textfileDir.isBlank()) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(textfileDir);
+            Files.createDirectories(dir);
+            String name = ("dbbackup_" + result.getDatabaseType() + "_" + result.getDatabaseName())
+                    .replaceAll("[^A-Za-z0-9._-]", "_");
+            Path file = dir.resolve(name + ".prom");
+            // The collector must never read a half-written file
+            Path temp = dir.resolve(name + ".prom.tmp");
+            Files.writeString(temp, format(result), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write backup metrics to {}: {}", textfileDir, e.getMessage());
+        }
+    }
+
+    String format(BackupResult result) {
+        StringBuilder out = new StringBuilder();
+        String labels = "database=\"" + escape(result.getDatabaseName()) + "\",type=\"" + result.getDatabaseType() + "\"";
+
+        gauge(out, "dbbackup_last_success", "Whether the last backup succeeded", labels, result.isSuccess() ? 1 : 0);
+        if (result.getEndTime() != null) {
+            gauge(out, "dbbackup_last_timestamp_seconds", "End time of the last backup", labels,
+                    result.getEndTime().atZone(ZoneId.systemDefault()).toEpochSecond());
+        }
+        gauge(out, "dbbackup_last_duration_seconds", "Duration of the last backup", labels,
+                result.getDurationMs() / 1000.0);
+        if (result.getStorageTargets() != null && !result.getStorageTargets().isEmpty()) {
+            targetGauge(out, result, labels, "dbbackup_storage_success", "Whether a storage provider stored the backup",
+                    target -> target.isSuccess() ? 1 : 0);
+            targetGauge(out, result, labels, "dbbackup_storage_bytes", "Bytes written to a storage provider",
+                    StorageTargetResult::getBytes);
+            targetGauge(out, result, labels, "dbbackup_storage_seconds", "Time a storage provider took",
+                    target -> target.getDurationMs() / 1000.0);
+        }
+        if (!result.isSuccess()) {
+            return out.toString();
+        }
+        gauge(out, "dbbackup_last_size_bytes", "Stored size of the last backup", labels, result.getFileSize());
+
+        if (result.getStageMetrics() != null && !result.getStageMetrics().isEmpty()) {
+            stageGauge(out, result, labels, "dbbackup_stage_bytes_in", "Bytes a stage read", StageMetrics::getBytesIn);
+            stageGauge(out, result, labels, "dbbackup_stage_bytes_out", "Bytes a stage wrote", StageMetrics::getBytesOut);
+            stageGauge(out, result, labels, "dbbackup_stage_busy_seconds",
+                    "Time a stage spent working", stage -> stage.getBusyMs() / 1000.0);
+            stageGauge(out, result, labels, "dbbackup_stage_waiting_seconds",
+                    "Time a stage waited for the previous stage", stage -> stage.getWaitingMs() / 1000.0);
+            stageGauge(out, result, labels, "dbbackup_stage_blocked_seconds",
+                    "Time a stage was blocked on the next stage", stage -> stage.getBlockedMs() / 1000.0);
+        }
+
+        ProcessStats process = result.getDumpProcess();
+        if (process != null) {
+            String toolLabels = labels + ",tool=\"" + escape(process.getCommand()) + "\"";
+            gauge(out, "dbbackup_dump_tool_bytes", "Bytes the dump tool wrote", toolLabels, process.getBytes());
+            gauge(out, "dbbackup_dump_tool_seconds", "Run time of the dump tool", toolLabels,
+                    process.getDurationMs() / 1000.0);
+        }
+        return out.toString();
+    }
+
+    private void stageGauge(StringBuilder out, BackupResult result, String labels, String name, String help,
+                            ToDoubleFunction<StageMetrics> value) {
+        header(out, name, help);
+        for (StageMetrics stage : result.getStageMetrics()) {
+            sample(out, name, labels + ",stage=\"" + escape(stage.getStage()) + "\"", value.applyAsDouble(stage));
+        }
+    }
+
+    private void targetGauge(StringBuilder out, BackupResult result, String labels, String name, String help,
+                             ToDoubleFunction<StorageTargetResult> value) {
+        header(out, name, help);
+        for (StorageTargetResult target : result.getStorageTargets()) {
+            sample(out, name, labels + ",provider=\"" + escape(target.getProvider()) + "\"", value.applyAsDouble(target));
+        }
+    }
+
+    private void gauge(StringBuilder out, String name, String help, String labels, double value) {
+        header(out, name, help);
+        sample(out, name, labels, value);
+    }
+
+    private void header(StringBuilder out, String name, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+    }
+
+    private void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ");
+        out.append(value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.3f", value));
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
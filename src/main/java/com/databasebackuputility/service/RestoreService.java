@@ -1,13 +1,23 @@
 package com.databasebackuputility.service;
 
 import com.databasebackuputility.core.connector.DatabaseConnector;
+import com.databasebackuputility.core.delta.DeltaDecoder;
+import com.databasebackuputility.core.stream.StreamPipeline;
 import com.databasebackuputility.model.DatabaseConfig;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Service for database restore operations
@@ -21,10 +31,27 @@ public class RestoreService {
     private final CompressionService compressionService;
     private final StorageService storageService;
 
+    /**
+     * Longest chain of delta backups followed back to a full backup
+     */
+    private static final int MAX_DELTA_CHAIN = 1000;
+
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool(stageThreadFactory());
+
+    @Value("${backup.streaming.restore:true}")
+    private boolean streamingEnabled;
+
+    @Value("${backup.streaming.chunk-size:1048576}")
+    private int streamChunkSize;
+
+    @Value("${backup.streaming.buffered-chunks:8}")
+    private int streamBufferedChunks;
+
     /**
      * Restore database from backup file
      */
     public boolean restore(DatabaseConfig config, String backupPath) {
+        List<File> temporaryFiles = new ArrayList<>();
         try {
             log.info("Starting restore operation for database: {}", config.getDatabaseName());
 
@@ -40,30 +67,15 @@ public class RestoreService {
                 return false;
             }
 
-            // Retrieve backup file from storage
-            File backupFile = storageService.retrieve(backupPath);
+            if (streamingEnabled) {
+                streamRestore(connector, config, backupPath, temporaryFiles);
+            } else {
+                // Retrieve, decompress and, for delta backups, rebuild the full dump
+                File dumpFile = materialize(backupPath, temporaryFiles, 0);
 
-            if (!backupFile.exists()) {
-                log.error("Backup file not found: {}", backupPath);
-                return false;
-            }
-
-            // Decompress if needed
-            File decompressedFile = backupFile;
-            if (backupFile.getName().endsWith(".gz") || backupFile.getName().endsWith(".zip")) {
-                log.info("Decompressing backup file...");
-                decompressedFile = compressionService.decompress(backupFile);
-            }
-
-            // Execute restore
-            log.info("Restoring from: {}", decompressedFile.getAbsolutePath());
-            connector.restore(config, decompressedFile.getAbsolutePath());
-
-            // Cleanup temporary files
-            if (!decompressedFile.equals(backupFile)) {
-                if (decompressedFile.delete()) {
-                    log.debug("Cleaned up temporary decompressed file");
-                }
+                // Execute restore
+                log.info("Restoring from: {}", dumpFile.getAbsolutePath());
+                connector.restore(config, dumpFile.getAbsolutePath());
             }
 
             log.info("Restore completed successfully");
@@ -72,14 +84,110 @@ public class RestoreService {
         } catch (Exception e) {
             log.error("Restore operation failed: {}", e.getMessage(), e);
             return false;
+        } finally {
+            // Cleanup temporary files
+            for (File file : temporaryFiles) {
+                if (file.delete()) {
+                    log.debug("Cleaned up temporary file {}", file.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream storage -> decompression -> database client, so the client loads
+     * while the backup is still being inflated and no decompressed copy hits the disk.
+     * A delta is applied on the fly too, but its base chain has to be rebuilt
+     * into a file first, since the delta copies blocks from anywhere in the base.
+     */
+    private void streamRestore(DatabaseConnector connector, DatabaseConfig config, String backupPath,
+                               List<File> temporaryFiles) throws Exception {
+        log.info("Streaming restore from: {}", backupPath);
+
+        try (InputStream dump = new BufferedInputStream(
+                compressionService.decompressingStream(storageService.openStream(backupPath)), streamChunkSize)) {
+            File base = null;
+            if (DeltaDecoder.isDelta(dump)) {
+                dump.mark(streamChunkSize);
+                DeltaDecoder.Header header = DeltaDecoder.readHeader(dump);
+                dump.reset();
+                log.info("{} is a delta of {}", backupPath, header.basePath());
+                base = materialize(header.basePath(), temporaryFiles, 1);
+            }
+
+            File deltaBase = base;
+            new StreamPipeline(stageExecutor, streamChunkSize, streamBufferedChunks)
+                    .source("decompress", out -> {
+                        if (deltaBase == null) {
+                            IOUtils.copyLarge(dump, out, new byte[streamChunkSize]);
+                        } else {
+                            DeltaDecoder.apply(deltaBase, dump, out);
+                        }
+                    })
+                    .sink("load", in -> connector.restore(config, in))
+                    .run();
         }
     }
 
+    /**
+     * Produce the plain dump a stored backup represents
+     * @param temporaryFiles Collects files created on the way, for the caller to delete
+     */
+    private File materialize(String backupPath, List<File> temporaryFiles, int depth) throws IOException {
+        if (depth > MAX_DELTA_CHAIN) {
+            throw new IOException("Delta chain longer than " + MAX_DELTA_CHAIN + " backups");
+        }
+
+        // Retrieve backup file from storage
+        File backupFile = storageService.retrieve(backupPath);
+        if (storageService.isTemporaryCopy(backupPath)) {
+            temporaryFiles.add(backupFile);
+        }
+
+        if (!backupFile.exists()) {
+            throw new FileNotFoundException("Backup file not found: " + backupPath);
+        }
+
+        // Decompress if needed; the format is detected from the file's magic bytes
+        File decompressedFile = compressionService.decompress(backupFile);
+        if (!decompressedFile.equals(backupFile)) {
+            temporaryFiles.add(decompressedFile);
+        }
+
+        if (!DeltaDecoder.isDelta(decompressedFile)) {
+            return decompressedFile;
+        }
+
+        DeltaDecoder.Header header;
+        try (InputStream in = new FileInputStream(decompressedFile)) {
+            header = DeltaDecoder.readHeader(in);
+        }
+        log.info("{} is a delta of {}", backupFile.getName(), header.basePath());
+        File base = materialize(header.basePath(), temporaryFiles, depth + 1);
+
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        tempDir.mkdirs();
+        File rebuilt = File.createTempFile(backupFile.getName() + ".", ".sql", tempDir);
+        temporaryFiles.add(rebuilt);
+
+        try (InputStream in = new FileInputStream(decompressedFile);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(rebuilt))) {
+            DeltaDecoder.apply(base, in, out);
+        }
+        log.info("Applied delta {} ({} bytes)", backupFile.getName(), rebuilt.length());
+        return rebuilt;
+    }
+
     /**
      * Validate backup file
      */
     public boolean validateBackup(String backupPath) {
         try {
+            // Remote and repository backups are checked when they are retrieved
+            if (storageService.isTemporaryCopy(backupPath)) {
+                return true;
+            }
+
             File backupFile = new File(backupPath);
 
             if (!backupFile.exists()) {
@@ -116,4 +224,15 @@ public class RestoreService {
 
         return connector;
     }
+
+    @PreDestroy
+    public void shutdown() {
+        stageExecutor.shutdownNow();
+    }
+
+    private static CustomizableThreadFactory stageThreadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("restore-stage-");
+        factory.setDaemon(true);
+        return factory;
+    }
 }
\ No newline at end of file
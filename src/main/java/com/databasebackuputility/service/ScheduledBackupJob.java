@@ -20,6 +20,9 @@ class ScheduledBackupJob implements Job {
 
         DatabaseConfig config = (DatabaseConfig) dataMap.get("databaseConfig");
         BackupType backupType = (BackupType) dataMap.get("backupType");
+        CompressionService.CompressionType compressionType = dataMap.containsKey("compressionType")
+                ? (CompressionService.CompressionType) dataMap.get("compressionType")
+                : CompressionService.CompressionType.GZIP;
 
         log.info("Executing scheduled backup for database: {}", config.getDatabaseName());
 
@@ -32,7 +35,7 @@ class ScheduledBackupJob implements Job {
                 backupService.backup(
                         config,
                         backupType,
-                        CompressionService.CompressionType.GZIP,
+                        compressionType,
                         StorageService.StorageProvider.LOCAL
                 );
             } else {
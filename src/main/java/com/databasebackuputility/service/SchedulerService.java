@@ -23,10 +23,19 @@ public class SchedulerService {
     private final Scheduler scheduler;
 
     /**
-     * Schedule a backup job
+     * Schedule a backup job using GZIP compression
      */
     public void scheduleBackup(String jobName, DatabaseConfig config,
                                BackupType backupType, String cronExpression) throws SchedulerException {
+        scheduleBackup(jobName, config, backupType, CompressionService.CompressionType.GZIP, cronExpression);
+    }
+
+    /**
+     * Schedule a backup job with its own compression, e.g. XZ for monthly archive copies
+     */
+    public void scheduleBackup(String jobName, DatabaseConfig config, BackupType backupType,
+                               CompressionService.CompressionType compressionType,
+                               String cronExpression) throws SchedulerException {
 
         log.info("Scheduling backup job: {} with cron: {}", jobName, cronExpression);
 
@@ -34,6 +43,7 @@ public class SchedulerService {
         JobDataMap jobDataMap = new JobDataMap();
         jobDataMap.put("databaseConfig", config);
         jobDataMap.put("backupType", backupType);
+        jobDataMap.put("compressionType", compressionType);
 
         JobDetail jobDetail = newJob(ScheduledBackupJob.class)
                 .withIdentity(jobName, "backup-jobs")
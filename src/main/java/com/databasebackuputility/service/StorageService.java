@@ -1,18 +1,60 @@
 package com.databasebackuputility.service;
 
+import com.databasebackuputility.core.dedup.ChunkRef;
+import com.databasebackuputility.core.dedup.DedupRepository;
+import com.databasebackuputility.core.dedup.FastCdcChunker;
+import com.databasebackuputility.core.storage.AzureBlockSink;
+import com.databasebackuputility.core.storage.DedupSink;
+import com.databasebackuputility.core.storage.FanOutSink;
+import com.databasebackuputility.core.storage.GcsCompositeSink;
+import com.databasebackuputility.core.storage.LocalFileSink;
+import com.databasebackuputility.core.storage.LocalFiles;
+import com.databasebackuputility.core.storage.S3MultipartSink;
+import com.databasebackuputility.core.storage.S3RangeInputStream;
+import com.databasebackuputility.core.storage.StorageSink;
+import com.databasebackuputility.model.StorageTargetResult;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 /**
  * Service for managing backup file storage (local and cloud)
@@ -33,12 +75,137 @@ public class StorageService {
     @Value("${storage.s3.enabled:false}")
     private boolean s3Enabled;
 
+    @Value("${storage.s3.region:us-east-1}")
+    private String s3Region;
+
+    @Value("${storage.s3.access-key:}")
+    private String s3AccessKey;
+
+    @Value("${storage.s3.secret-key:}")
+    private String s3SecretKey;
+
+    @Value("${storage.s3.endpoint:}")
+    private String s3Endpoint;
+
+    @Value("${storage.s3.path-style:false}")
+    private boolean s3PathStyle;
+
+    @Value("${storage.s3.part-size:16777216}")
+    private int s3PartSize;
+
+    @Value("${storage.s3.max-in-flight:4}")
+    private int s3MaxInFlight;
+
+    @Value("${storage.s3.range-size:16777216}")
+    private int s3RangeSize;
+
+    @Value("${storage.s3.download-parallelism:8}")
+    private int s3DownloadParallelism;
+
+    @Value("${storage.s3.hedge-after-ms:1000}")
+    private long s3HedgeAfterMillis;
+
+    @Value("${storage.gcs.enabled:false}")
+    private boolean gcsEnabled;
+
+    @Value("${storage.gcs.bucket-name:}")
+    private String gcsBucketName;
+
+    @Value("${storage.gcs.project-id:}")
+    private String gcsProjectId;
+
+    @Value("${storage.gcs.credentials-path:}")
+    private String gcsCredentialsPath;
+
+    @Value("${storage.gcs.endpoint:}")
+    private String gcsEndpoint;
+
+    @Value("${storage.gcs.part-size:33554432}")
+    private int gcsPartSize;
+
+    @Value("${storage.gcs.chunk-size:16777216}")
+    private int gcsChunkSize;
+
+    @Value("${storage.gcs.max-in-flight:4}")
+    private int gcsMaxInFlight;
+
+    @Value("${storage.azure.enabled:false}")
+    private boolean azureEnabled;
+
+    @Value("${storage.azure.container-name:}")
+    private String azureContainerName;
+
+    @Value("${storage.azure.connection-string:}")
+    private String azureConnectionString;
+
+    @Value("${storage.azure.block-size:8388608}")
+    private int azureBlockSize;
+
+    @Value("${storage.azure.max-in-flight:4}")
+    private int azureMaxInFlight;
+
+    @Value("${storage.fan-out.buffered-chunks:16}")
+    private int fanOutBufferedChunks;
+
+    @Value("${storage.fan-out.require-all:true}")
+    private boolean fanOutRequireAll;
+
+    @Value("${storage.upload.memory-limit:1073741824}")
+    private long uploadMemoryLimit;
+
+    @Value("${storage.dedup.path:./backups/repository}")
+    private String dedupPath;
+
+    @Value("${storage.dedup.avg-chunk-size:262144}")
+    private int dedupAvgChunkSize;
+
+    @Value("${storage.dedup.compression-level:3}")
+    private int dedupCompressionLevel;
+
+    @Value("${backup.streaming.chunk-size:1048576}")
+    private int streamBufferSize;
+
+    /**
+     * S3 minimum for every part but the last
+     */
+    private static final int S3_MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Resumable upload requests must be a multiple of this
+     */
+    private static final int GCS_CHUNK_GRANULARITY = 256 * 1024;
+
+    public static final String GCS_SCHEME = "gs://";
+    public static final String AZURE_SCHEME = "azure://";
+
+    private final ExecutorService transferExecutor = Executors.newCachedThreadPool(transferThreadFactory());
+
+    /**
+     * Shared by all backups so connections and TLS sessions are reused
+     */
+    private S3Client s3Client;
+
+    private Storage gcsClient;
+
+    private BlobContainerClient azureContainer;
+
+    /**
+     * Names of backup files as {@code BackupService} builds them:
+     * type, database, timestamp, optional backup type, dump format and compression extension
+     */
+    public static final Pattern BACKUP_FILE_NAME = Pattern.compile(
+            "^([a-z]+)_(.+)_(\\d{8}_\\d{6})(?:_(incremental|differential))?\\.(sql|delta)(\\.[a-z0-9]+)?$");
+
+    /**
+     * DEDUP stores backups in a content-addressed chunk repository, see {@link DedupRepository}
+     */
     public enum StorageProvider {
-        LOCAL, S3, GCS, AZURE
+        LOCAL, S3, GCS, AZURE, DEDUP
     }
 
     /**
-     * Store backup file
+     * Store backup file. Local storage moves the file rather than copying it, so the
+     * caller must not expect it to remain where it was.
      */
     public String store(File file, StorageProvider provider) throws IOException {
         log.info("Storing backup file: {} using provider: {}", file.getName(), provider);
@@ -47,52 +214,301 @@ public class StorageService {
             case LOCAL:
                 return storeLocal(file);
             case S3:
-                return storeS3(file);
+            case GCS:
+            case AZURE:
+                return storeStreamed(file, provider);
+            case DEDUP:
+                return storeDedup(file);
             default:
                 throw new UnsupportedOperationException("Storage provider not implemented: " + provider);
         }
     }
 
     /**
-     * Store file locally
+     * Open a streaming sink for a backup that is still being produced
+     * @param fileName Final backup file name
+     * @param provider Storage provider
+     * @return Sink that publishes the backup on commit
      */
-    private String storeLocal(File file) throws IOException {
-        Path targetDir = Paths.get(localBasePath);
-        Files.createDirectories(targetDir);
+    public StorageSink openSink(String fileName, StorageProvider provider) throws IOException {
+        log.info("Streaming backup file: {} using provider: {}", fileName, provider);
 
-        Path targetPath = targetDir.resolve(file.getName());
-        Files.copy(file.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        switch (provider) {
+            case LOCAL:
+                return new LocalFileSink(Paths.get(localBasePath).resolve(fileName), streamBufferSize);
+            case S3:
+                return s3Sink(fileName);
+            case GCS:
+                return gcsSink(fileName);
+            case AZURE:
+                return azureSink(fileName);
+            case DEDUP:
+                return new DedupSink(dedupRepository(), fileName, new FastCdcChunker(dedupAvgChunkSize));
+            default:
+                throw new UnsupportedOperationException("Storage provider not implemented: " + provider);
+        }
+    }
+
+    /**
+     * Store a file in several providers at once. Local storage moves the file, so it
+     * goes last, after the remote uploads have read it.
+     * With storage.fan-out.require-all set, the file is not moved into local storage once
+     * an upload failed, and copies already stored are deleted again when the backup fails.
+     * @return One result per provider, in the given order
+     * @throws IOException if a provider failed and storage.fan-out.require-all is set,
+     *                     or every provider failed
+     */
+    public List<StorageTargetResult> store(File file, List<StorageProvider> providers) throws IOException {
+        List<StorageTargetResult> results = new ArrayList<>();
+        List<Future<StorageTargetResult>> remote = new ArrayList<>();
+        for (StorageProvider provider : providers) {
+            remote.add(provider == StorageProvider.LOCAL ? null
+                    : transferExecutor.submit(() -> storeTarget(file, provider)));
+        }
+        for (int i = 0; i < providers.size(); i++) {
+            results.add(remote.get(i) == null ? null : awaitTarget(remote.get(i)));
+        }
+        boolean uploadFailed = results.stream().anyMatch(result -> result != null && !result.isSuccess());
+        for (int i = 0; i < providers.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, fanOutRequireAll && uploadFailed
+                        ? StorageTargetResult.builder().provider(providers.get(i).name())
+                                .errorMessage("Skipped, an upload already failed").build()
+                        : storeTarget(file, providers.get(i)));
+            }
+        }
+
+        List<String> failed = new ArrayList<>();
+        results.stream().filter(result -> !result.isSuccess())
+                .forEach(result -> failed.add(result.getProvider() + ": " + result.getErrorMessage()));
+        if (failed.size() == results.size() || (fanOutRequireAll && !failed.isEmpty())) {
+            discardStored(results);
+            throw new IOException("Backup not stored in " + String.join("; ", failed));
+        }
+        return results;
+    }
 
-        log.info("File stored locally at: {}", targetPath.toAbsolutePath());
+    /**
+     * Delete the copies of a backup that failed as a whole; a copy that cannot be
+     * deleted stays in the results as stored
+     */
+    private void discardStored(List<StorageTargetResult> results) {
+        for (StorageTargetResult result : results) {
+            if (!result.isSuccess()) {
+                continue;
+            }
+            if (delete(result.getLocation())) {
+                log.info("Deleted copy in {} at {}, the backup failed elsewhere", result.getProvider(),
+                        result.getLocation());
+                result.setSuccess(false);
+                result.setErrorMessage("Deleted, the backup failed in another provider");
+                result.setLocation(null);
+            } else {
+                log.warn("Backup failed, but its copy in {} at {} could not be deleted",
+                        result.getProvider(), result.getLocation());
+            }
+        }
+    }
+
+    private StorageTargetResult storeTarget(File file, StorageProvider provider) {
+        long size = file.length();
+        long start = System.nanoTime();
+        StorageTargetResult.StorageTargetResultBuilder result = StorageTargetResult.builder()
+                .provider(provider.name())
+                .bytes(size);
+        try {
+            result.location(store(file, provider)).success(true);
+        } catch (Exception e) {
+            log.error("Storing {} in {} failed: {}", file.getName(), provider, e.getMessage());
+            result.errorMessage(e.getMessage());
+        }
+        return result.durationMs((System.nanoTime() - start) / 1_000_000).build();
+    }
+
+    private static StorageTargetResult awaitTarget(Future<StorageTargetResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while storing backup");
+        } catch (ExecutionException e) {
+            throw new IOException("Storing backup failed", e.getCause());
+        }
+    }
+
+    /**
+     * Open one sink that writes the backup to every provider at once, each from its own
+     * bounded buffer; a single provider gets its sink directly
+     */
+    public StorageSink openSink(String fileName, List<StorageProvider> providers) throws IOException {
+        if (providers.size() == 1) {
+            return openSink(fileName, providers.get(0));
+        }
+        List<FanOutSink.Target> targets = new ArrayList<>();
+        try {
+            for (StorageProvider provider : providers) {
+                targets.add(new FanOutSink.Target(provider.name(), openSink(fileName, provider)));
+            }
+        } catch (IOException | RuntimeException e) {
+            targets.forEach(target -> target.sink().abort());
+            throw e;
+        }
+        return new FanOutSink(targets, fanOutBufferedChunks, fanOutRequireAll, transferExecutor, this::delete);
+    }
+
+    /**
+     * Store file locally by moving it into the backup directory; the file is consumed
+     */
+    private String storeLocal(File file) throws IOException {
+        Path targetPath = Paths.get(localBasePath).resolve(file.getName());
+        String method = LocalFiles.moveInto(file.toPath(), targetPath);
+
+        log.info("File stored locally at: {} ({})", targetPath.toAbsolutePath(), method);
         return targetPath.toAbsolutePath().toString();
     }
 
     /**
-     * Store file in AWS S3
+     * Store file in a cloud provider through the same sink a streamed backup uses
+     */
+    private String storeStreamed(File file, StorageProvider provider) throws IOException {
+        StorageSink sink = openSink(file.getName(), provider);
+        try {
+            Files.copy(file.toPath(), sink);
+            String path = sink.commit();
+            log.info("File stored in {} at: {}", provider, path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            sink.abort();
+            log.error("Failed to upload to {}: {}", provider, e.getMessage());
+            throw e instanceof IOException io ? io : new IOException(provider + " upload failed", e);
+        }
+    }
+
+    /**
+     * Multipart upload of the stream as it is produced, several parts at a time
      */
-    private String storeS3(File file) throws IOException {
+    private StorageSink s3Sink(String key) {
         if (!s3Enabled) {
             throw new IllegalStateException("S3 storage is not enabled");
         }
+        return new S3MultipartSink(s3Client(), s3BucketName, key,
+                Math.max(S3_MIN_PART_SIZE, s3PartSize), s3MaxInFlight, uploadMemoryLimit, transferExecutor);
+    }
 
-        try {
-            S3Client s3Client = S3Client.builder().build();
+    /**
+     * Parallel composite upload, components written with large resumable chunks
+     */
+    private StorageSink gcsSink(String name) {
+        if (!gcsEnabled) {
+            throw new IllegalStateException("GCS storage is not enabled");
+        }
+        int chunkSize = Math.max(GCS_CHUNK_GRANULARITY, gcsChunkSize / GCS_CHUNK_GRANULARITY * GCS_CHUNK_GRANULARITY);
+        return new GcsCompositeSink(gcsClient(), gcsBucketName, name,
+                Math.max(chunkSize, gcsPartSize), chunkSize, gcsMaxInFlight, uploadMemoryLimit, transferExecutor);
+    }
 
-            PutObjectRequest putRequest = PutObjectRequest.builder()
-                    .bucket(s3BucketName)
-                    .key(file.getName())
-                    .build();
+    /**
+     * Blocks staged concurrently, then committed as one block list
+     */
+    private StorageSink azureSink(String name) {
+        if (!azureEnabled) {
+            throw new IllegalStateException("Azure storage is not enabled");
+        }
+        return new AzureBlockSink(azureContainer().getBlobClient(name).getBlockBlobClient(), azureContainerName, name,
+                azureBlockSize, azureMaxInFlight, uploadMemoryLimit, transferExecutor);
+    }
 
-            s3Client.putObject(putRequest, RequestBody.fromFile(file));
+    private synchronized Storage gcsClient() {
+        if (gcsClient == null) {
+            StorageOptions.Builder builder = StorageOptions.newBuilder();
+            if (gcsProjectId != null && !gcsProjectId.isBlank()) {
+                builder.setProjectId(gcsProjectId);
+            }
+            if (gcsCredentialsPath != null && !gcsCredentialsPath.isBlank()) {
+                try (InputStream in = Files.newInputStream(Paths.get(gcsCredentialsPath))) {
+                    builder.setCredentials(GoogleCredentials.fromStream(in));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot read GCS credentials " + gcsCredentialsPath, e);
+                }
+            } else if (gcsEndpoint != null && !gcsEndpoint.isBlank()) {
+                // Emulators such as fake-gcs-server take no credentials
+                builder.setCredentials(NoCredentials.getInstance());
+            }
+            if (gcsEndpoint != null && !gcsEndpoint.isBlank()) {
+                builder.setHost(gcsEndpoint);
+            }
+            gcsClient = builder.build().getService();
+        }
+        return gcsClient;
+    }
 
-            String s3Path = String.format("s3://%s/%s", s3BucketName, file.getName());
-            log.info("File stored in S3 at: {}", s3Path);
+    /**
+     * Azurite and other emulators are reached through their connection string
+     */
+    private synchronized BlobContainerClient azureContainer() {
+        if (azureContainer == null) {
+            azureContainer = new BlobServiceClientBuilder()
+                    .connectionString(azureConnectionString)
+                    .buildClient()
+                    .getBlobContainerClient(azureContainerName);
+        }
+        return azureContainer;
+    }
 
-            return s3Path;
+    private synchronized S3Client s3Client() {
+        if (s3Client == null) {
+            S3ClientBuilder builder = S3Client.builder()
+                    .region(Region.of(s3Region))
+                    // Every in-flight part and range, hedges included, needs its own connection
+                    .httpClientBuilder(ApacheHttpClient.builder().maxConnections(
+                            Math.max(50, Math.max(s3MaxInFlight, s3DownloadParallelism) * 2)))
+                    .forcePathStyle(s3PathStyle);
+            if (s3Endpoint != null && !s3Endpoint.isBlank()) {
+                builder.endpointOverride(URI.create(s3Endpoint));
+            }
+            if (s3AccessKey != null && !s3AccessKey.isBlank()) {
+                builder.credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(s3AccessKey, s3SecretKey)));
+            }
+            s3Client = builder.build();
+        }
+        return s3Client;
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to upload to S3: {}", e.getMessage());
-            throw new IOException("S3 upload failed", e);
+    @PreDestroy
+    public synchronized void shutdown() {
+        transferExecutor.shutdownNow();
+        if (s3Client != null) {
+            s3Client.close();
+            s3Client = null;
+        }
+        if (gcsClient != null) {
+            try {
+                gcsClient.close();
+            } catch (Exception e) {
+                log.debug("Failed to close GCS client: {}", e.getMessage());
+            }
+            gcsClient = null;
+        }
+    }
+
+    private static CustomizableThreadFactory transferThreadFactory() {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory("storage-transfer-");
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Store file in the dedup repository; only chunks the repository lacks are written
+     */
+    private String storeDedup(File file) throws IOException {
+        DedupSink sink = new DedupSink(dedupRepository(), file.getName(), new FastCdcChunker(dedupAvgChunkSize));
+        try {
+            Files.copy(file.toPath(), sink);
+            return sink.commit();
+        } catch (IOException e) {
+            sink.abort();
+            throw e;
         }
     }
 
@@ -102,17 +518,106 @@ public class StorageService {
     public File retrieve(String storagePath) throws IOException {
         if (storagePath.startsWith("s3://")) {
             return retrieveFromS3(storagePath);
+        } else if (storagePath.startsWith(DedupRepository.SCHEME)) {
+            return retrieveFromDedup(storagePath);
+        } else if (storagePath.startsWith(GCS_SCHEME) || storagePath.startsWith(AZURE_SCHEME)) {
+            return download(storagePath, openStream(storagePath));
         } else {
             return new File(storagePath);
         }
     }
 
     /**
-     * Retrieve file from S3
+     * Reassemble a backup from the dedup repository into a temporary file
+     */
+    private File retrieveFromDedup(String dedupPath) throws IOException {
+        String name = dedupPath.substring(DedupRepository.SCHEME.length());
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        Files.createDirectories(tempDir.toPath());
+        File target = new File(tempDir, name);
+
+        try (InputStream in = dedupRepository().open(name);
+             OutputStream out = Files.newOutputStream(target.toPath())) {
+            in.transferTo(out);
+        }
+
+        log.info("Reassembled {} from dedup repository ({} bytes)", name, target.length());
+        return target;
+    }
+
+    /**
+     * Whether a storage path names a backup that {@link #retrieve} copies to a temporary file
+     */
+    public boolean isTemporaryCopy(String storagePath) {
+        return storagePath.startsWith("s3://") || storagePath.startsWith(DedupRepository.SCHEME)
+                || storagePath.startsWith(GCS_SCHEME) || storagePath.startsWith(AZURE_SCHEME);
+    }
+
+    /**
+     * Download a backup from S3 into a temporary file
      */
     private File retrieveFromS3(String s3Path) throws IOException {
-        // Implementation for S3 download
-        throw new UnsupportedOperationException("S3 download not yet implemented");
+        return download(s3Path, openS3(s3Path));
+    }
+
+    /**
+     * Copy a remote backup into a temporary file named like it
+     */
+    private File download(String storagePath, InputStream stream) throws IOException {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"), "dbbackup");
+        Files.createDirectories(tempDir.toPath());
+        File target = new File(tempDir, Paths.get(objectName(storagePath)).getFileName().toString());
+
+        try (InputStream in = stream;
+             OutputStream out = Files.newOutputStream(target.toPath())) {
+            in.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target.toPath());
+            throw e;
+        }
+
+        log.info("Downloaded {} ({} bytes)", storagePath, target.length());
+        return target;
+    }
+
+    /**
+     * Read an S3 object over parallel ranged GETs
+     */
+    private InputStream openS3(String s3Path) throws IOException {
+        HeadObjectResponse head = headS3(s3Path);
+        return new S3RangeInputStream(s3Client(), bucketName(s3Path), objectName(s3Path), head.contentLength(), head.eTag(),
+                Math.max(1 << 20, s3RangeSize), s3DownloadParallelism, s3HedgeAfterMillis, transferExecutor);
+    }
+
+    private HeadObjectResponse headS3(String s3Path) throws IOException {
+        try {
+            return s3Client().headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName(s3Path)).key(objectName(s3Path)).build());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException("Backup file not found: " + s3Path);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to read S3 object " + s3Path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bucket or container of a {@code scheme://bucket/name} path
+     */
+    private static String bucketName(String storagePath) {
+        String path = storagePath.substring(storagePath.indexOf("://") + 3);
+        int slash = path.indexOf('/');
+        if (slash <= 0 || slash == path.length() - 1) {
+            throw new IllegalArgumentException("Invalid storage path: " + storagePath);
+        }
+        return path.substring(0, slash);
+    }
+
+    /**
+     * Object name of a {@code scheme://bucket/name} path
+     */
+    private static String objectName(String storagePath) {
+        String bucket = bucketName(storagePath);
+        return storagePath.substring(storagePath.indexOf("://") + 3 + bucket.length() + 1);
     }
 
     /**
@@ -122,6 +627,13 @@ public class StorageService {
         try {
             if (storagePath.startsWith("s3://")) {
                 return deleteFromS3(storagePath);
+            } else if (storagePath.startsWith(GCS_SCHEME)) {
+                return gcsClient().delete(BlobId.of(bucketName(storagePath), objectName(storagePath)));
+            } else if (storagePath.startsWith(AZURE_SCHEME)) {
+                return azureContainer().getBlobClient(objectName(storagePath)).deleteIfExists();
+            } else if (storagePath.startsWith(DedupRepository.SCHEME)) {
+                // Chunks are shared with other backups and stay in the repository
+                return dedupRepository().deleteManifest(storagePath.substring(DedupRepository.SCHEME.length()));
             } else {
                 File file = new File(storagePath);
                 return file.delete();
@@ -136,8 +648,10 @@ public class StorageService {
      * Delete file from S3
      */
     private boolean deleteFromS3(String s3Path) {
-        // Implementation for S3 deletion
-        throw new UnsupportedOperationException("S3 deletion not yet implemented");
+        s3Client().deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName(s3Path)).key(objectName(s3Path)).build());
+        log.info("Deleted {}", s3Path);
+        return true;
     }
 
     /**
@@ -148,8 +662,101 @@ public class StorageService {
         if (!backupDir.exists()) {
             return new File[0];
         }
-        return backupDir.listFiles((dir, name) ->
-                name.endsWith(".sql") || name.endsWith(".gz") || name.endsWith(".zip"));
+        File[] files = backupDir.listFiles((dir, name) -> BACKUP_FILE_NAME.matcher(name).matches());
+        return files != null ? files : new File[0];
+    }
+
+    /**
+     * Storage paths of every backup in local storage and the dedup repository,
+     * in the form {@link #store} returns them
+     */
+    public List<String> listStoredBackups() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (File file : listBackups()) {
+            paths.add(file.getAbsolutePath());
+        }
+        if (Files.isDirectory(Paths.get(dedupPath))) {
+            for (String name : dedupRepository().listManifests()) {
+                if (BACKUP_FILE_NAME.matcher(name).matches()) {
+                    paths.add(DedupRepository.SCHEME + name);
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Read a stored backup without copying it to a temporary file
+     */
+    public InputStream openStream(String storagePath) throws IOException {
+        if (storagePath.startsWith("s3://")) {
+            return openS3(storagePath);
+        } else if (storagePath.startsWith(GCS_SCHEME)) {
+            return Channels.newInputStream(gcsClient().reader(BlobId.of(bucketName(storagePath), objectName(storagePath))));
+        } else if (storagePath.startsWith(AZURE_SCHEME)) {
+            return azureContainer().getBlobClient(objectName(storagePath)).openInputStream();
+        } else if (storagePath.startsWith(DedupRepository.SCHEME)) {
+            return dedupRepository().open(storagePath.substring(DedupRepository.SCHEME.length()));
+        } else {
+            return Files.newInputStream(Paths.get(storagePath));
+        }
+    }
+
+    /**
+     * Size of a stored backup in bytes
+     */
+    public long size(String storagePath) throws IOException {
+        if (storagePath.startsWith("s3://")) {
+            return headS3(storagePath).contentLength();
+        } else if (storagePath.startsWith(GCS_SCHEME)) {
+            Blob blob = gcsClient().get(BlobId.of(bucketName(storagePath), objectName(storagePath)));
+            if (blob == null) {
+                throw new FileNotFoundException("Backup file not found: " + storagePath);
+            }
+            return blob.getSize();
+        } else if (storagePath.startsWith(AZURE_SCHEME)) {
+            return azureContainer().getBlobClient(objectName(storagePath)).getProperties().getBlobSize();
+        } else if (storagePath.startsWith(DedupRepository.SCHEME)) {
+            return dedupRepository().readManifest(storagePath.substring(DedupRepository.SCHEME.length()))
+                    .stream().mapToLong(ChunkRef::length).sum();
+        } else {
+            return Files.size(Paths.get(storagePath));
+        }
+    }
+
+    private DedupRepository dedupRepository() throws IOException {
+        return new DedupRepository(Paths.get(dedupPath), dedupCompressionLevel);
+    }
+
+    /**
+     * Parse a comma-separated provider list such as {@code local,s3}; duplicates are dropped
+     */
+    public static List<StorageProvider> parseProviders(String providerNames) {
+        List<StorageProvider> providers = new ArrayList<>();
+        for (String name : providerNames.split(",")) {
+            if (!name.isBlank()) {
+                StorageProvider provider = StorageProvider.valueOf(name.trim().toUpperCase());
+                if (!providers.contains(provider)) {
+                    providers.add(provider);
+                }
+            }
+        }
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("No storage provider given");
+        }
+        checkProviders(providers);
+        return providers;
+    }
+
+    /**
+     * DEDUP needs the dump uncompressed while the other providers store it compressed,
+     * so it cannot share a backup stream with them
+     */
+    public static void checkProviders(List<StorageProvider> providers) {
+        if (providers.size() > 1 && providers.contains(StorageProvider.DEDUP)) {
+            throw new IllegalArgumentException("DEDUP cannot be combined with other storage providers: "
+                    + providers);
+        }
     }
 
     /**
@@ -0,0 +1,94 @@
+package com.databasebackuputility.core.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkArchiveTests {
+
+    @Test
+    void loaderRunsSchemaBeforeDataBeforePost() throws Exception {
+        byte[] archive = archive(200);
+        List<String> loaded = new CopyOnWriteArrayList<>();
+
+        ChunkArchiveReader reader = new ChunkArchiveReader(new ByteArrayInputStream(archive));
+        ParallelChunkLoader loader = new ParallelChunkLoader(4)
+                .parallelPost(chunk -> new String(chunk.data(), StandardCharsets.UTF_8).startsWith("index"));
+        int count = loader.load(reader, () -> new ParallelChunkLoader.Session() {
+            @Override
+            public void load(ChunkArchive.Chunk chunk) {
+                loaded.add(chunk.kind() + ":" + new String(chunk.data(), StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertThat(reader.getFormat()).isEqualTo("test");
+        assertThat(count).isEqualTo(204);
+        assertThat(reader.getIndex()).hasSize(204);
+        assertThat(loaded).hasSize(204);
+        assertThat(loaded.subList(0, 2)).containsExactly("SCHEMA:create a", "SCHEMA:create b");
+        assertThat(loaded.subList(2, 202)).allMatch(entry -> entry.startsWith("DATA:"));
+        assertThat(loaded.subList(202, 204)).containsExactly("POST:index a", "POST:foreign key b");
+        assertThat(loader.getStats()).extracting(ParallelChunkLoader.LabelStats::chunks).containsExactly(102, 102);
+    }
+
+    @Test
+    void workerFailureAndTruncationAbortTheLoad() throws Exception {
+        byte[] archive = archive(50);
+
+        assertThatThrownBy(() -> new ParallelChunkLoader(3).load(
+                new ChunkArchiveReader(new ByteArrayInputStream(archive)), () -> new ParallelChunkLoader.Session() {
+                    @Override
+                    public void load(ChunkArchive.Chunk chunk) {
+                        if (new String(chunk.data(), StandardCharsets.UTF_8).equals("row 17")) {
+                            throw new IllegalStateException("duplicate key");
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                }))
+                .hasMessage("duplicate key");
+
+        ChunkArchiveReader truncated = new ChunkArchiveReader(
+                new ByteArrayInputStream(Arrays.copyOf(archive, archive.length - 10)));
+        assertThatThrownBy(() -> {
+            while (truncated.next() != null) {
+                // read to the end
+            }
+        }).isInstanceOf(EOFException.class);
+    }
+
+    private static byte[] archive(int rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkArchiveWriter writer = new ChunkArchiveWriter(out, "test");
+        writer.write(ChunkArchive.Kind.SCHEMA, "a", bytes("create a"));
+        writer.write(ChunkArchive.Kind.SCHEMA, "b", bytes("create b"));
+        for (int i = 0; i < rows; i++) {
+            writer.write(ChunkArchive.Kind.DATA, i % 2 == 0 ? "a" : "b", bytes("row " + i));
+        }
+        writer.write(ChunkArchive.Kind.POST, "b", bytes("foreign key b"));
+        writer.write(ChunkArchive.Kind.POST, "a", bytes("index a"));
+        assertThatThrownBy(() -> writer.write(ChunkArchive.Kind.DATA, "a", bytes("late")))
+                .isInstanceOf(IllegalStateException.class);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.databasebackuputility.core.connector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisabledOnOs(OS.WINDOWS)
+class ClientProcessTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void inputIsFedToTheClient() throws Exception {
+        Path loaded = dir.resolve("loaded.sql");
+        ProcessBuilder pb = new ProcessBuilder("sh", "-c", "cat > '" + loaded + "'");
+
+        int exitCode = ClientProcess.run(pb, new ByteArrayInputStream("INSERT INTO t VALUES (1);".getBytes()));
+
+        assertThat(exitCode).isZero();
+        assertThat(loaded).hasContent("INSERT INTO t VALUES (1);");
+    }
+
+    @Test
+    void failingInputKillsTheClient() throws Exception {
+        Path pidFile = dir.resolve("client.pid");
+        // The client would wait for the rest of its input forever
+        ProcessBuilder pb = new ProcessBuilder("sh", "-c", "echo $$ > '" + pidFile + "'; exec cat > /dev/null");
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(new byte[100_000]), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("S3 connection reset");
+            }
+        });
+
+        assertThatThrownBy(() -> ClientProcess.run(pb, failing)).hasMessage("S3 connection reset");
+
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (isAlive(pid) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(isAlive(pid)).isFalse();
+    }
+
+    private static boolean isAlive(long pid) {
+        Optional<ProcessHandle> process = ProcessHandle.of(pid);
+        return process.isPresent() && process.get().isAlive();
+    }
+}
@@ -0,0 +1,35 @@
+package com.databasebackuputility.core.connector;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MongoParallelDumpTests {
+
+    @Test
+    void dataChunkSplitsBackIntoTheDocumentsWritten() throws Exception {
+        Document first = new Document("_id", new ObjectId()).append("name", "ada").append("tags", List.of("a", "b"));
+        Document second = new Document("_id", 42L).append("nested", new Document("x", 1.5)).append("blob", new byte[]{0, 1});
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        chunk.write(MongoParallelDump.bson(first));
+        chunk.write(MongoParallelDump.bson(second));
+
+        List<RawBsonDocument> documents = MongoParallelDump.documents(chunk.toByteArray());
+
+        assertThat(documents).hasSize(2);
+        assertThat(documents.get(0).toJson()).isEqualTo(first.toJson());
+        assertThat(documents.get(1).getInt64("_id").getValue()).isEqualTo(42L);
+        assertThat(documents.get(1).getDocument("nested").getDouble("x").getValue()).isEqualTo(1.5);
+
+        byte[] truncated = Arrays.copyOf(chunk.toByteArray(), chunk.size() - 3);
+        assertThatThrownBy(() -> MongoParallelDump.documents(truncated)).hasMessageContaining("Corrupt BSON chunk");
+    }
+}
@@ -0,0 +1,97 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MySqlDumpSplitterTests {
+
+    private static final String DUMP = """
+            -- MySQL dump 10.13  Distrib 8.0.36, for Linux (x86_64)
+            --
+            -- Host: db1    Database: shop
+            -- ------------------------------------------------------
+            /*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;
+            /*!50503 SET NAMES utf8mb4 */;
+            /*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */;
+
+            --
+            -- Table structure for table `orders`
+            --
+
+            DROP TABLE IF EXISTS `orders`;
+            CREATE TABLE `orders` (
+              `id` int NOT NULL,
+              `note` varchar(50) DEFAULT 'a;b',
+              PRIMARY KEY (`id`)
+            ) ENGINE=InnoDB;
+
+            --
+            -- Dumping data for table `orders`
+            --
+
+            LOCK TABLES `orders` WRITE;
+            /*!40000 ALTER TABLE `orders` DISABLE KEYS */;
+            INSERT INTO `orders` VALUES (1,'it\\'s; -- not a comment\\n'),(2,NULL);
+            INSERT INTO `orders` VALUES (3,'x');
+            /*!40000 ALTER TABLE `orders` ENABLE KEYS */;
+            UNLOCK TABLES;
+            /*!50003 SET @saved_sql_mode       = @@sql_mode */ ;
+            DELIMITER ;;
+            /*!50003 CREATE*/ /*!50003 TRIGGER `orders_bi` BEFORE INSERT ON `orders` FOR EACH ROW BEGIN
+              SET NEW.note = 'ok;';
+            END */;;
+            DELIMITER ;
+            /*!50003 SET sql_mode              = @saved_sql_mode */ ;
+
+            --
+            -- Table structure for table `items`
+            --
+
+            CREATE TABLE `items` (`id` int) ENGINE=InnoDB;
+
+            --
+            -- Dumping data for table `items`
+            --
+
+            INSERT INTO `items` VALUES (1),(2);
+            /*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
+
+            -- Dump completed on 2026-03-01  2:00:00
+            """;
+
+    @Test
+    void splitsDumpIntoOrderedDefinitionsAndPerTableData() throws Exception {
+        MySqlDumpSplitter splitter = new MySqlDumpSplitter(
+                new ByteArrayInputStream(DUMP.getBytes(StandardCharsets.UTF_8)), 1 << 20);
+
+        List<String> chunks = new ArrayList<>();
+        ChunkArchive.Chunk chunk;
+        while ((chunk = splitter.next()) != null) {
+            chunks.add(chunk.kind() + " " + chunk.table() + ": "
+                    + new String(chunk.data(), StandardCharsets.ISO_8859_1));
+        }
+
+        assertThat(splitter.getSessionSettings()).containsExactly(
+                "/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */",
+                "/*!50503 SET NAMES utf8mb4 */",
+                "/*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */");
+        assertThat(chunks).hasSize(9);
+        assertThat(chunks.get(0)).isEqualTo("SCHEMA orders: DROP TABLE IF EXISTS `orders`");
+        assertThat(chunks.get(1)).startsWith("SCHEMA orders: CREATE TABLE `orders`").endsWith(") ENGINE=InnoDB");
+        assertThat(chunks.get(2)).isEqualTo("DATA orders: INSERT INTO `orders` VALUES "
+                + "(1,'it\\'s; -- not a comment\\n'),(2,NULL);\nINSERT INTO `orders` VALUES (3,'x');\n");
+        assertThat(chunks.get(3)).isEqualTo("POST orders: /*!50003 SET @saved_sql_mode       = @@sql_mode */");
+        assertThat(chunks.get(4)).startsWith("POST orders: /*!50003 CREATE*/").contains("'ok;';").endsWith("END */");
+        assertThat(chunks.get(5)).isEqualTo("POST orders: /*!50003 SET sql_mode              = @saved_sql_mode */");
+        assertThat(chunks.get(6)).startsWith("SCHEMA items: CREATE TABLE `items`");
+        assertThat(chunks.get(7)).isEqualTo("DATA items: INSERT INTO `items` VALUES (1),(2);\n");
+        assertThat(chunks.get(8)).startsWith("POST items: /*!40101 SET CHARACTER_SET_CLIENT");
+    }
+}
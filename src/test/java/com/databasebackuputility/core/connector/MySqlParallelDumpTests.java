@@ -0,0 +1,74 @@
+package com.databasebackuputility.core.connector;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MySqlParallelDumpTests {
+
+    @Test
+    void writesBitColumnsAsHex() throws SQLException {
+        assertThat(literal(new byte[]{0x05}, Types.BIT, "BIT")).isEqualTo("X'05'");
+    }
+
+    @Test
+    void writesTinyIntReportedAsBitAsNumber() throws SQLException {
+        // Connector/J reports TINYINT(1) as BIT unless tinyInt1isBit is off
+        assertThat(literal(new byte[]{'1'}, Types.BIT, "TINYINT")).isEqualTo("1");
+        assertThat(literal(new byte[]{'0'}, Types.BIT, "TINYINT")).isEqualTo("0");
+        assertThat(literal(null, Types.BIT, "TINYINT")).isEqualTo("NULL");
+        assertThat(literal("1".getBytes(StandardCharsets.US_ASCII), Types.TINYINT, "TINYINT")).isEqualTo("1");
+    }
+
+    @Test
+    void writesBinaryAsHex() throws SQLException {
+        assertThat(literal(new byte[]{0x00, (byte) 0xff, 0x10}, Types.VARBINARY, "VARBINARY")).isEqualTo("X'00ff10'");
+        assertThat(literal(new byte[0], Types.BLOB, "BLOB")).isEqualTo("''");
+    }
+
+    @Test
+    void writesNullForEveryType() throws SQLException {
+        assertThat(literal(null, Types.BIT, "BIT")).isEqualTo("NULL");
+        assertThat(literal(null, Types.VARBINARY, "VARBINARY")).isEqualTo("NULL");
+        assertThat(literal(null, Types.INTEGER, "INT")).isEqualTo("NULL");
+        assertThat(literal(null, Types.VARCHAR, "VARCHAR")).isEqualTo("NULL");
+    }
+
+    @Test
+    void escapesStrings() throws SQLException {
+        String value = "it's \\ a\nb\r\0\u001a";
+        assertThat(literal(value.getBytes(StandardCharsets.UTF_8), Types.VARCHAR, "VARCHAR"))
+                .isEqualTo("'it\\'s \\\\ a\\nb\\r\\0\\Z'");
+    }
+
+    private static String literal(byte[] value, int type, String typeName) throws SQLException {
+        StringBuilder out = new StringBuilder();
+        MySqlParallelDump.appendValue(out, row(value), 1, type, typeName);
+        return out.toString();
+    }
+
+    /**
+     * A result set positioned on one row with one column, as the driver returns it
+     */
+    private static ResultSet row(byte[] value) {
+        boolean[] wasNull = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(MySqlParallelDumpTests.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    wasNull[0] = value == null;
+                    return switch (method.getName()) {
+                        case "getBytes" -> value;
+                        case "getString" -> value == null ? null : new String(value, StandardCharsets.UTF_8);
+                        case "getLong" -> value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+                        case "wasNull" -> wasNull[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+}
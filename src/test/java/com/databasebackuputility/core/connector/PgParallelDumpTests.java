@@ -0,0 +1,75 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.core.archive.ChunkArchive;
+import com.databasebackuputility.core.archive.ChunkArchiveReader;
+import com.databasebackuputility.core.archive.ChunkArchiveWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgParallelDumpTests {
+
+    private static final String PRE_DATA = """
+            --
+            -- PostgreSQL database dump
+            --
+
+            \\restrict AbC123
+
+            SET statement_timeout = 0;
+            SELECT pg_catalog.set_config('search_path', '', false);
+
+            --
+            -- Name: shop; Type: SCHEMA; Schema: -; Owner: -
+            --
+
+            CREATE SCHEMA shop;
+
+
+            --
+            -- Name: orders; Type: TABLE; Schema: shop; Owner: -
+            --
+
+            CREATE TABLE shop.orders (
+                id bigint NOT NULL,
+                note text DEFAULT ';
+            --'::text
+            );
+
+
+            --
+            -- PostgreSQL database dump complete
+            --
+
+            \\unrestrict AbC123
+            """;
+
+    @Test
+    void splitsPgDumpScriptIntoOneChunkPerObject() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkArchiveWriter writer = new ChunkArchiveWriter(out, PgParallelDump.FORMAT);
+        PgParallelDump.writeSection(writer, ChunkArchive.Kind.SCHEMA, PRE_DATA);
+        writer.finish();
+
+        ChunkArchiveReader reader = new ChunkArchiveReader(new ByteArrayInputStream(out.toByteArray()));
+        List<ChunkArchive.Chunk> chunks = new ArrayList<>();
+        ChunkArchive.Chunk chunk;
+        while ((chunk = reader.next()) != null) {
+            chunks.add(chunk);
+        }
+
+        assertThat(chunks).extracting(ChunkArchive.Chunk::table)
+                .containsExactly(PgParallelDump.SETTINGS, "SCHEMA shop", "TABLE shop.orders");
+        String settings = new String(chunks.get(0).data(), StandardCharsets.UTF_8);
+        assertThat(settings).contains("SET statement_timeout = 0;").doesNotContain("\\restrict");
+        String table = new String(chunks.get(2).data(), StandardCharsets.UTF_8);
+        assertThat(table).startsWith("CREATE TABLE shop.orders").contains("';\n--'::text")
+                .doesNotContain("unrestrict");
+    }
+}
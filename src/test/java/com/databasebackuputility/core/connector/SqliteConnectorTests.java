@@ -0,0 +1,155 @@
+package com.databasebackuputility.core.connector;
+
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqliteConnectorTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteConnector connector;
+    private DatabaseConfig source;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connector = new SqliteConnector();
+        ReflectionTestUtils.setField(connector, "stateDir", tempDir.resolve("state").toString());
+        ReflectionTestUtils.setField(connector, "pagesPerStep", 64);
+        ReflectionTestUtils.setField(connector, "stepSleepMillis", 1);
+        ReflectionTestUtils.setField(connector, "busyRetries", 100);
+
+        source = config("edge.db");
+        execute(source, "CREATE TABLE readings (id INTEGER PRIMARY KEY, value TEXT)");
+        try (Connection conn = DriverManager.getConnection(source.getConnectionUrl());
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO readings (value) VALUES (?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < 20_000; i++) {
+                insert.setString(1, "reading-" + i + "-".repeat(40));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            conn.commit();
+        }
+    }
+
+    @Test
+    void incrementalShipsChangedPagesAndReplaysOntoRestoredFull() throws Exception {
+        File full = backup(BackupType.FULL, "full.db");
+        execute(source, "UPDATE readings SET value = 'changed' WHERE id = 10000");
+        File incremental = backup(BackupType.INCREMENTAL, "incremental.pages");
+
+        assertThat(incremental.length()).isLessThan(full.length() / 20);
+
+        DatabaseConfig target = config("restored.db");
+        connector.restore(target, full.getAbsolutePath());
+        connector.restore(target, incremental.getAbsolutePath());
+
+        assertThat(query(target, "SELECT value FROM readings WHERE id = 10000")).isEqualTo("changed");
+        assertThat(query(target, "SELECT COUNT(*) FROM readings")).isEqualTo("20000");
+    }
+
+    @Test
+    void incrementalIsRefusedByDatabaseInAnotherState() throws Exception {
+        File full = backup(BackupType.FULL, "full.db");
+        execute(source, "DELETE FROM readings WHERE id < 5000");
+        File incremental = backup(BackupType.INCREMENTAL, "incremental.pages");
+
+        DatabaseConfig target = config("restored.db");
+        connector.restore(target, full.getAbsolutePath());
+        execute(target, "UPDATE readings SET value = 'local edit' WHERE id = 15000");
+
+        assertThatThrownBy(() -> connector.restore(target, incremental.getAbsolutePath()))
+                .hasMessageContaining("restore its base backup first");
+        assertThat(query(target, "SELECT COUNT(*) FROM readings")).isEqualTo("20000");
+    }
+
+    @Test
+    void rowsEngineRestoresValuesAndSchemaObjects() throws Exception {
+        ReflectionTestUtils.setField(connector, "engine", "rows");
+        ReflectionTestUtils.setField(connector, "pageRows", 1000);
+        ReflectionTestUtils.setField(connector, "frameSize", 64 * 1024);
+        execute(source, "CREATE TABLE events (seq INTEGER PRIMARY KEY AUTOINCREMENT, score REAL, payload BLOB, note TEXT)");
+        execute(source, "INSERT INTO events (score, payload, note) VALUES (1.5, x'00ff10', NULL), (-2.25, NULL, 'it''s')");
+        execute(source, "DELETE FROM events WHERE seq = 2");
+        execute(source, "CREATE TABLE tags (name TEXT, weight INTEGER)");
+        execute(source, "INSERT INTO tags VALUES ('a', 9223372036854775807), ('b', -1)");
+        execute(source, "DELETE FROM tags WHERE name = 'a'");
+        execute(source, "CREATE TABLE pairs (a TEXT, b INTEGER, PRIMARY KEY (a, b)) WITHOUT ROWID");
+        execute(source, "INSERT INTO pairs VALUES ('x', 2), ('x', 1), ('y', 1)");
+        execute(source, "CREATE INDEX readings_value ON readings (value)");
+        execute(source, "CREATE VIEW short_readings AS SELECT id FROM readings WHERE id < 10");
+        execute(source, "CREATE TRIGGER tag_upper AFTER INSERT ON tags BEGIN " +
+                "UPDATE tags SET name = upper(name) WHERE rowid = new.rowid; END");
+
+        File archive = backup(BackupType.FULL, "rows.chunks");
+        DatabaseConfig target = config("restored.db");
+        connector.restore(target, archive.getAbsolutePath());
+
+        assertThat(query(target, "SELECT COUNT(*) FROM readings")).isEqualTo("20000");
+        assertThat(query(target, "SELECT value FROM readings WHERE id = 12345"))
+                .isEqualTo(query(source, "SELECT value FROM readings WHERE id = 12345"));
+        assertThat(query(target, "SELECT typeof(score) || typeof(payload) || typeof(note) || hex(payload) " +
+                "FROM events WHERE seq = 1")).isEqualTo("realblobnull00FF10");
+        assertThat(query(target, "SELECT seq FROM sqlite_sequence WHERE name = 'events'")).isEqualTo("2");
+        assertThat(query(target, "SELECT rowid || ':' || weight FROM tags")).isEqualTo("2:-1");
+        assertThat(query(target, "SELECT group_concat(a || b, ',') FROM pairs")).isEqualTo("x1,x2,y1");
+        assertThat(query(target, "SELECT COUNT(*) FROM short_readings")).isEqualTo("9");
+        assertThat(query(target, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'readings_value'")).isEqualTo("1");
+
+        execute(target, "INSERT INTO tags VALUES ('c', 0)");
+        assertThat(query(target, "SELECT name FROM tags WHERE weight = 0")).isEqualTo("C");
+        execute(target, "INSERT INTO events (score) VALUES (0)");
+        assertThat(query(target, "SELECT MAX(seq) FROM events")).isEqualTo("3");
+    }
+
+    private File backup(BackupType backupType, String fileName) throws Exception {
+        File file = tempDir.resolve(fileName).toFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            connector.backup(source, backupType, out);
+        }
+        connector.backupStored(source, backupType, file.getAbsolutePath());
+        return file;
+    }
+
+    private DatabaseConfig config(String fileName) {
+        return DatabaseConfig.builder()
+                .type(DatabaseType.SQLITE)
+                .filePath(tempDir.resolve(fileName).toString())
+                .build();
+    }
+
+    private static void execute(DatabaseConfig config, String sql) throws Exception {
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl());
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private static String query(DatabaseConfig config, String sql) throws Exception {
+        try (Connection conn = DriverManager.getConnection(config.getConnectionUrl());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.databasebackuputility.core.dedup;
+
+import com.databasebackuputility.core.storage.DedupSink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DedupRepositoryTests {
+
+    private static final int AVG_CHUNK = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void secondBackupStoresOnlyChangedChunks() throws Exception {
+        DedupRepository repository = new DedupRepository(tempDir, 3);
+        byte[] night1 = randomDump(2_000_000);
+
+        // Same dump with a row inserted near the start, which shifts every later byte
+        byte[] night2 = new byte[night1.length + 100];
+        System.arraycopy(night1, 0, night2, 0, 50_000);
+        System.arraycopy(night1, 50_000, night2, 50_100, night1.length - 50_000);
+
+        DedupSink first = store(repository, "night1.sql", night1, 7919);
+        DedupSink second = store(repository, "night2.sql", night2, 65536);
+
+        assertThat(second.getNewBytes()).isLessThan(first.getNewBytes() / 20);
+        assertThat(read(repository, "night1.sql")).isEqualTo(night1);
+        assertThat(read(repository, "night2.sql")).isEqualTo(night2);
+    }
+
+    @Test
+    void backupNamesCannotLeaveTheManifestDirectory() throws Exception {
+        DedupRepository repository = new DedupRepository(tempDir, 3);
+        Files.writeString(tempDir.resolve("outside"), "keep");
+
+        for (String name : new String[]{"../outside", "..", "a/../../outside", "..\\outside", ""}) {
+            assertThatThrownBy(() -> repository.deleteManifest(name)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> repository.writeManifest(name, List.of()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(tempDir.resolve("outside")).hasContent("keep");
+    }
+
+    @Test
+    void cutPointsDoNotDependOnWriteSizes() throws Exception {
+        DedupRepository repository = new DedupRepository(tempDir, 3);
+        byte[] dump = randomDump(500_000);
+
+        store(repository, "a.sql", dump, 1);
+        store(repository, "b.sql", dump, 100_000);
+
+        assertThat(repository.readManifest("b.sql")).isEqualTo(repository.readManifest("a.sql"));
+    }
+
+    private static DedupSink store(DedupRepository repository, String name, byte[] data, int writeSize)
+            throws Exception {
+        DedupSink sink = new DedupSink(repository, name, new FastCdcChunker(AVG_CHUNK));
+        for (int off = 0; off < data.length; off += writeSize) {
+            sink.write(data, off, Math.min(writeSize, data.length - off));
+        }
+        sink.commit();
+        return sink;
+    }
+
+    private static byte[] read(DedupRepository repository, String name) throws Exception {
+        try (InputStream in = repository.open(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomDump(int size) {
+        byte[] data = new byte[size];
+        new Random(1).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,114 @@
+package com.databasebackuputility.core.delta;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeltaCodecTests {
+
+    private static final int BLOCK_SIZE = 2048;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deltaOfEditedDumpIsSmallAndRebuildsIt() throws Exception {
+        byte[] full = randomBytes(1_000_000, 1);
+        byte[] edited = edit(full);
+
+        BlockSignature base = signatureOf(full, "full.sql");
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DeltaEncoder encoder = new DeltaEncoder(base);
+        BlockSignature next = encoder.encode(new ByteArrayInputStream(edited), delta);
+
+        assertThat(delta.size()).isLessThan(edited.length / 20);
+        assertThat(encoder.getCopiedBytes() + encoder.getLiteralBytes()).isEqualTo(edited.length);
+        assertThat(next.getLength()).isEqualTo(edited.length);
+        assertThat(apply(full, delta.toByteArray())).isEqualTo(edited);
+    }
+
+    @Test
+    void chainOfDeltasRebuildsLatestDump() throws Exception {
+        byte[] day0 = randomBytes(300_000, 2);
+        byte[] day1 = edit(day0);
+        byte[] day2 = edit(day1);
+
+        BlockSignature signature = signatureOf(day0, "day0.sql");
+        ByteArrayOutputStream delta1 = new ByteArrayOutputStream();
+        signature = new DeltaEncoder(signature).encode(new ByteArrayInputStream(day1), delta1);
+        signature.setBackupPath("day1.delta");
+        ByteArrayOutputStream delta2 = new ByteArrayOutputStream();
+        new DeltaEncoder(signature).encode(new ByteArrayInputStream(day2), delta2);
+
+        byte[] rebuilt1 = apply(day0, delta1.toByteArray());
+        assertThat(apply(rebuilt1, delta2.toByteArray())).isEqualTo(day2);
+    }
+
+    @Test
+    void signatureSurvivesWriteAndRead() throws Exception {
+        BlockSignature signature = signatureOf(randomBytes(100_000, 3), "/backups/a.sql.gz");
+        Path file = tempDir.resolve("a.sig");
+        signature.write(file);
+
+        BlockSignature read = BlockSignature.read(file);
+        assertThat(read.getBackupPath()).isEqualTo("/backups/a.sql.gz");
+        assertThat(read.getBlockCount()).isEqualTo(signature.getBlockCount());
+        assertThat(read.getSha256()).isEqualTo(signature.getSha256());
+    }
+
+    @Test
+    void applyingToWrongBaseFails() throws Exception {
+        byte[] full = randomBytes(200_000, 4);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        new DeltaEncoder(signatureOf(full, "full.sql")).encode(new ByteArrayInputStream(edit(full)), delta);
+
+        byte[] otherBase = randomBytes(full.length, 5);
+        assertThatThrownBy(() -> apply(otherBase, delta.toByteArray())).isInstanceOf(IOException.class);
+    }
+
+    private static BlockSignature signatureOf(byte[] data, String path) {
+        BlockSignature.Builder builder = new BlockSignature.Builder(BLOCK_SIZE);
+        builder.update(data, 0, data.length);
+        BlockSignature signature = builder.build();
+        signature.setBackupPath(path);
+        return signature;
+    }
+
+    private byte[] apply(byte[] base, byte[] delta) throws IOException {
+        File baseFile = Files.createTempFile(tempDir, "base", ".sql").toFile();
+        Files.write(baseFile.toPath(), base);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeltaDecoder.apply(baseFile, new ByteArrayInputStream(delta), out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Insert, overwrite and delete a few small ranges, like rows changing between nights
+     */
+    private static byte[] edit(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int third = data.length / 3;
+        out.write(data, 0, third);
+        out.writeBytes("INSERT INTO orders VALUES (42);".getBytes());
+        out.write(data, third, third);
+        out.writeBytes(randomBytes(500, 9));
+        out.write(data, 2 * third + 500, data.length - 2 * third - 1500);
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
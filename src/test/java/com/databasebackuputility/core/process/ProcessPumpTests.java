@@ -0,0 +1,60 @@
+package com.databasebackuputility.core.process;
+
+import com.databasebackuputility.model.ProcessStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisabledOnOs(OS.WINDOWS)
+class ProcessPumpTests {
+
+    private ProcessPump pump;
+
+    @BeforeEach
+    void setUp() {
+        pump = new ProcessPump();
+        ReflectionTestUtils.setField(pump, "bufferSize", 64 * 1024);
+        ReflectionTestUtils.setField(pump, "bufferCount", 3);
+        ReflectionTestUtils.setField(pump, "killGraceSeconds", 1L);
+        ReflectionTestUtils.setField(pump, "progressIntervalSeconds", 0L);
+    }
+
+    @Test
+    void stdoutIsCopiedWholeWithStderrKeptOut() throws Exception {
+        // 8 MB of output interleaved with progress lines on stderr
+        ProcessBuilder pb = new ProcessBuilder("sh", "-c",
+                "for i in 1 2 3 4 5 6 7 8; do head -c 1048576 /dev/zero; echo \"dumping contents of table t$i\" >&2; done");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProcessStats stats = pump.run(pb, out);
+
+        assertThat(out.size()).isEqualTo(8 << 20);
+        assertThat(out.toByteArray()).containsOnly(0);
+        assertThat(stats.getBytes()).isEqualTo(8 << 20);
+        assertThat(stats.getStderrLines()).isEqualTo(8);
+        assertThat(stats.getLastProgress()).isEqualTo("dumping contents of table t8");
+    }
+
+    @Test
+    void failuresCarryStderrAndHungToolsAreKilled() throws Exception {
+        ProcessBuilder failing = new ProcessBuilder("sh", "-c", "echo partial; echo 'access denied' >&2; exit 3");
+        assertThatThrownBy(() -> pump.run(failing, OutputStream.nullOutputStream()))
+                .hasMessageContaining("exit code: 3")
+                .hasMessageContaining("access denied");
+
+        ReflectionTestUtils.setField(pump, "timeoutSeconds", 1L);
+        ProcessBuilder hung = new ProcessBuilder("sh", "-c", "echo start; sleep 60");
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> pump.run(hung, OutputStream.nullOutputStream()))
+                .hasMessageContaining("timed out");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(10_000);
+    }
+}
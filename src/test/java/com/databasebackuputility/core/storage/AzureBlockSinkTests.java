@@ -0,0 +1,236 @@
+package com.databasebackuputility.core.storage;
+
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.azure.storage.common.policy.RequestRetryOptions;
+import com.azure.storage.common.policy.RetryPolicyType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AzureBlockSinkTests {
+
+    private static final int BLOCK = 64 << 10;
+
+    private LocalBlobServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalBlobServer();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    void blocksAreStagedConcurrentlyAndCommittedInOrder() throws Exception {
+        byte[] data = new byte[BLOCK * 6 + 1234];
+        new Random(17).nextBytes(data);
+
+        AzureBlockSink sink = sink("db/full.sql.zst");
+        for (int off = 0; off < data.length; off += 10_000) {
+            sink.write(data, off, Math.min(10_000, data.length - off));
+        }
+
+        assertThat(sink.commit()).isEqualTo("azure://backups/db/full.sql.zst");
+        assertThat(server.blobs.get("db/full.sql.zst")).isEqualTo(data);
+        assertThat(server.staged.get("db/full.sql.zst")).hasSize(7);
+        // The service requires block ids of one blob to have the same length
+        assertThat(server.staged.get("db/full.sql.zst").keySet()).extracting(String::length).containsOnly(
+                server.staged.get("db/full.sql.zst").keySet().iterator().next().length());
+    }
+
+    @Test
+    void smallBackupIsUploadedInOneRequest() throws Exception {
+        AzureBlockSink sink = sink("small.sql");
+        sink.write("CREATE TABLE t (id int);".getBytes(StandardCharsets.UTF_8));
+
+        sink.commit();
+
+        assertThat(server.blobs.get("small.sql")).asString(StandardCharsets.UTF_8)
+                .isEqualTo("CREATE TABLE t (id int);");
+        assertThat(server.staged).doesNotContainKey("small.sql");
+    }
+
+    @Test
+    void abortedOrRejectedUploadIsNeverCommitted() throws Exception {
+        AzureBlockSink aborted = sink("aborted.sql");
+        aborted.write(new byte[BLOCK * 3]);
+        aborted.abort();
+        assertThat(server.blobs).doesNotContainKey("aborted.sql");
+
+        server.corruptBlocks.add("rejected.sql");
+        AzureBlockSink rejected = sink("rejected.sql");
+        assertThatThrownBy(() -> {
+            rejected.write(new byte[BLOCK * 3]);
+            rejected.commit();
+        }).hasMessageContaining("Md5Mismatch");
+        rejected.abort();
+        assertThat(server.blobs).doesNotContainKey("rejected.sql");
+    }
+
+    private AzureBlockSink sink(String name) {
+        BlockBlobClient client = new BlobServiceClientBuilder()
+                .connectionString(server.connectionString())
+                // Retries cover a pooled connection the local server has already dropped;
+                // a rejected block is a 400 and is not retried
+                .retryOptions(new RequestRetryOptions(RetryPolicyType.FIXED, 3, (Integer) null, 10L, 10L, null))
+                .buildClient()
+                .getBlobContainerClient("backups")
+                .getBlobClient(name)
+                .getBlockBlobClient();
+        return new AzureBlockSink(client, "backups", name, BLOCK, 3, 1L << 30, executor);
+    }
+
+    /**
+     * Minimal in-process stand-in for the Blob service: staging blocks, committing a
+     * block list and single-request uploads, checking Content-MD5; no authentication
+     */
+    private static final class LocalBlobServer implements AutoCloseable {
+
+        private static final String ACCOUNT = "devstoreaccount1";
+        private static final Pattern LATEST = Pattern.compile("<Latest>([^<]+)</Latest>");
+
+        final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+        final Map<String, Map<String, byte[]>> staged = new ConcurrentHashMap<>();
+        /**
+         * Blobs whose blocks arrive with a wrong checksum, as if altered in transit
+         */
+        final Set<String> corruptBlocks = ConcurrentHashMap.newKeySet();
+
+        private final HttpServer server;
+
+        LocalBlobServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/", exchange -> {
+                try {
+                    handle(exchange);
+                } catch (Exception e) {
+                    respond(exchange, 500, "<Error><Code>InternalError</Code><Message>" + e + "</Message></Error>");
+                } finally {
+                    exchange.close();
+                }
+            });
+            server.start();
+        }
+
+        String connectionString() {
+            return "DefaultEndpointsProtocol=http;AccountName=" + ACCOUNT
+                    + ";AccountKey=" + Base64.getEncoder().encodeToString(new byte[64])
+                    + ";BlobEndpoint=http://127.0.0.1:" + server.getAddress().getPort() + "/" + ACCOUNT + ";";
+        }
+
+        private void handle(HttpExchange exchange) throws Exception {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+            // /account/container/name
+            String name = path.substring(path.indexOf('/', path.indexOf('/', 1) + 1) + 1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            byte[] body = exchange.getRequestBody().readAllBytes();
+
+            if (!"PUT".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "");
+            } else if ("block".equals(query.get("comp"))) {
+                String md5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+                if (corruptBlocks.contains(name) || md5 == null || !md5.equals(md5(body))) {
+                    respond(exchange, 400, "<Error><Code>Md5Mismatch</Code><Message>Md5Mismatch</Message></Error>");
+                    return;
+                }
+                staged.computeIfAbsent(name, key -> new ConcurrentHashMap<>()).put(query.get("blockid"), body);
+                respond(exchange, 201, "");
+            } else if ("blocklist".equals(query.get("comp"))) {
+                Map<String, byte[]> blocks = staged.getOrDefault(name, Map.of());
+                ByteArrayOutputStream blob = new ByteArrayOutputStream();
+                Matcher latest = LATEST.matcher(new String(body, StandardCharsets.UTF_8));
+                while (latest.find()) {
+                    byte[] block = blocks.get(latest.group(1));
+                    if (block == null) {
+                        respond(exchange, 400, "<Error><Code>InvalidBlockList</Code></Error>");
+                        return;
+                    }
+                    blob.write(block);
+                }
+                blobs.put(name, blob.toByteArray());
+                respond(exchange, 201, "");
+            } else {
+                String md5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+                if (md5 != null && !md5.equals(md5(body))) {
+                    respond(exchange, 400, "<Error><Code>Md5Mismatch</Code></Error>");
+                    return;
+                }
+                blobs.put(name, body);
+                respond(exchange, 201, "");
+            }
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String key = eq < 0 ? pair : pair.substring(0, eq);
+                    String value = eq < 0 ? "" : pair.substring(eq + 1);
+                    query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+            return query;
+        }
+
+        private static String md5(byte[] data) throws Exception {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(data));
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", "\"0x1\"");
+            exchange.getResponseHeaders().add("Last-Modified",
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            exchange.getResponseHeaders().add("x-ms-request-id", "local");
+            exchange.getResponseHeaders().add("x-ms-version", "2021-12-02");
+            if (status >= 400) {
+                exchange.getResponseHeaders().add("x-ms-error-code", body.replaceAll(".*<Code>([^<]+)</Code>.*", "$1"));
+                exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            }
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.databasebackuputility.core.storage;
+
+import com.databasebackuputility.model.StorageTargetResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FanOutSinkTests {
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void everyTargetGetsTheStreamAndASlowOneIsReportedAsBlocking() throws Exception {
+        byte[] data = new byte[64 * 1024 * 20];
+        new Random(5).nextBytes(data);
+        Path target = dir.resolve("mysql_shop_20240101_020000.sql.zst");
+        MemorySink slow = new MemorySink(5, null);
+
+        FanOutSink sink = new FanOutSink(List.of(
+                new FanOutSink.Target("LOCAL", new LocalFileSink(target, 8192)),
+                new FanOutSink.Target("S3", slow)), 2, true, executor, FanOutSinkTests::deleteFile);
+        for (int off = 0; off < data.length; off += 64 * 1024) {
+            sink.write(data, off, 64 * 1024);
+        }
+
+        assertThat(sink.commit()).isEqualTo(target.toAbsolutePath().toString());
+        assertThat(target).hasBinaryContent(data);
+        assertThat(slow.data.toByteArray()).isEqualTo(data);
+
+        List<StorageTargetResult> results = sink.getResults();
+        assertThat(results).extracting(StorageTargetResult::getProvider).containsExactly("LOCAL", "S3");
+        assertThat(results).allMatch(StorageTargetResult::isSuccess).allMatch(result -> result.getBytes() == data.length);
+        assertThat(results.get(1).getLocation()).isEqualTo("memory://S3");
+        assertThat(results.get(1).getBlockedMs()).isGreaterThan(0);
+    }
+
+    @Test
+    void failedTargetIsDroppedOrFailsTheBackupAsConfigured() throws Exception {
+        Path kept = dir.resolve("kept.sql");
+        FanOutSink tolerant = new FanOutSink(List.of(
+                new FanOutSink.Target("LOCAL", new LocalFileSink(kept, 8192)),
+                new FanOutSink.Target("S3", new MemorySink(0, "connection reset"))), 2, false, executor, FanOutSinkTests::deleteFile);
+        tolerant.write(new byte[1000]);
+
+        assertThat(tolerant.commit()).isEqualTo(kept.toAbsolutePath().toString());
+        assertThat(tolerant.getResults().get(1).isSuccess()).isFalse();
+        assertThat(tolerant.getResults().get(1).getErrorMessage()).isEqualTo("connection reset");
+
+        Path dropped = dir.resolve("dropped.sql");
+        FanOutSink strict = new FanOutSink(List.of(
+                new FanOutSink.Target("LOCAL", new LocalFileSink(dropped, 8192)),
+                new FanOutSink.Target("S3", new MemorySink(0, "connection reset"))), 2, true, executor, FanOutSinkTests::deleteFile);
+        assertThatThrownBy(() -> {
+            strict.write(new byte[1000]);
+            strict.commit();
+        }).hasMessageContaining("connection reset");
+        strict.abort();
+
+        assertThat(dropped).doesNotExist();
+        assertThat(LocalFiles.partialPath(dropped)).doesNotExist();
+    }
+
+    @Test
+    void committedCopiesAreDeletedWhenAnotherTargetFailsToCommit() throws Exception {
+        Path local = dir.resolve("rolled-back.sql");
+        MemorySink failing = new MemorySink(0, null) {
+            @Override
+            public String commit() throws IOException {
+                throw new IOException("complete failed");
+            }
+        };
+        FanOutSink sink = new FanOutSink(List.of(
+                new FanOutSink.Target("LOCAL", new LocalFileSink(local, 8192)),
+                new FanOutSink.Target("S3", failing)), 2, true, executor, FanOutSinkTests::deleteFile);
+        sink.write(new byte[1000]);
+
+        assertThatThrownBy(sink::commit).hasMessageContaining("complete failed");
+        assertThat(local).doesNotExist();
+        assertThat(sink.getResults()).noneMatch(StorageTargetResult::isSuccess);
+        assertThat(sink.getResults().get(0).getErrorMessage()).contains("Deleted");
+    }
+
+    @Test
+    void abortWaitsForTheWriterAndReachesEverySink() throws Exception {
+        MemorySink throwing = new MemorySink(0, null) {
+            @Override
+            public void abort() {
+                throw new IllegalStateException("abort failed");
+            }
+        };
+        BusySink busy = new BusySink(300);
+        FanOutSink sink = new FanOutSink(List.of(
+                new FanOutSink.Target("GCS", throwing),
+                new FanOutSink.Target("S3", busy)), 2, true, executor, FanOutSinkTests::deleteFile);
+        sink.write(new byte[1000]);
+        while (!busy.writing) {
+            Thread.onSpinWait();
+        }
+
+        sink.abort();
+
+        assertThat(busy.aborted).isTrue();
+        assertThat(busy.abortedWhileWriting).isFalse();
+        assertThat(sink.getResults()).noneMatch(StorageTargetResult::isSuccess);
+    }
+
+    private static boolean deleteFile(String location) {
+        return new File(location).delete();
+    }
+
+    /**
+     * Sink whose writes take a while and do not stop when interrupted, recording whether
+     * it was aborted in the middle of one
+     */
+    private static class BusySink extends MemorySink {
+
+        volatile boolean writing;
+        volatile boolean aborted;
+        volatile boolean abortedWhileWriting;
+        private final long writeMillis;
+
+        BusySink(long writeMillis) {
+            super(0, null);
+            this.writeMillis = writeMillis;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writing = true;
+            long deadline = System.nanoTime() + writeMillis * 1_000_000;
+            boolean interrupted = false;
+            while (System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            writing = false;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void abort() {
+            abortedWhileWriting = writing;
+            aborted = true;
+        }
+    }
+
+    /**
+     * Sink that keeps the backup in memory, optionally slowly or failing every write
+     */
+    private static class MemorySink extends StorageSink {
+
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final long delayMillis;
+        private final String failure;
+
+        MemorySink(long delayMillis, String failure) {
+            this.delayMillis = delayMillis;
+            this.failure = failure;
+        }
+
+        @Override
+        public void write(int b) {
+            data.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+            data.write(b, off, len);
+        }
+
+        @Override
+        public String commit() throws IOException {
+            return "memory://S3";
+        }
+
+        @Override
+        public void abort() {
+            data.reset();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.databasebackuputility.core.storage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcsCompositeSinkTests {
+
+    private static final int PART = 256 * 1024;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final List<Integer> composeSizes = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void componentsAreComposedInLevelsAndRemoved() throws Exception {
+        byte[] data = new byte[PART * 40 + 77];
+        new Random(3).nextBytes(data);
+
+        GcsCompositeSink sink = new GcsCompositeSink(storage(), "backups", "db/full.sql.zst", PART, PART, 4, 1L << 30, executor);
+        for (int off = 0; off < data.length; off += 5000) {
+            sink.write(data, off, Math.min(5000, data.length - off));
+        }
+        assertThat(sink.commit()).isEqualTo("gs://backups/db/full.sql.zst");
+
+        assertThat(objects).containsOnlyKeys("db/full.sql.zst");
+        assertThat(objects.get("db/full.sql.zst")).isEqualTo(data);
+        // 41 components: two intermediate objects, then the backup from those two
+        assertThat(composeSizes).containsExactly(32, 9, 2);
+    }
+
+    /**
+     * Storage that keeps objects in memory; only writer, compose and delete are used
+     */
+    private Storage storage() {
+        return (Storage) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Storage.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "writer" -> writer(((BlobInfo) args[0]).getName());
+                    case "compose" -> {
+                        Storage.ComposeRequest request = (Storage.ComposeRequest) args[0];
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        for (Storage.ComposeRequest.SourceBlob source : request.getSourceBlobs()) {
+                            out.write(objects.get(source.getName()));
+                        }
+                        synchronized (composeSizes) {
+                            composeSizes.add(request.getSourceBlobs().size());
+                        }
+                        objects.put(request.getTarget().getName(), out.toByteArray());
+                        yield null;
+                    }
+                    case "delete" -> {
+                        List<Boolean> deleted = new ArrayList<>();
+                        for (Object id : (Iterable<?>) args[0]) {
+                            deleted.add(objects.remove(((BlobId) id).getName()) != null);
+                        }
+                        yield deleted;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private WriteChannel writer(String name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return (WriteChannel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{WriteChannel.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "write" -> {
+                        ByteBuffer buffer = (ByteBuffer) args[0];
+                        int n = buffer.remaining();
+                        byte[] bytes = new byte[n];
+                        buffer.get(bytes);
+                        out.write(bytes);
+                        yield n;
+                    }
+                    case "close" -> {
+                        objects.put(name, out.toByteArray());
+                        yield null;
+                    }
+                    case "isOpen" -> true;
+                    default -> null;
+                });
+    }
+}
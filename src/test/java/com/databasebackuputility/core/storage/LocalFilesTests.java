@@ -0,0 +1,58 @@
+package com.databasebackuputility.core.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LocalFilesTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameFilesystemMoveIsARename() throws Exception {
+        Path source = dir.resolve("tmp/mysql_shop_20240101_020000.sql.zst");
+        Files.createDirectories(source.getParent());
+        byte[] data = randomBytes(100_000);
+        Files.write(source, data);
+        Path target = dir.resolve("backups").resolve(source.getFileName());
+        Files.write(Files.createDirectories(target.getParent()).resolve(target.getFileName()), new byte[]{1});
+
+        assertThat(LocalFiles.moveInto(source, target)).isEqualTo("rename");
+
+        assertThat(target).hasBinaryContent(data);
+        assertThat(source).doesNotExist();
+        assertThat(LocalFiles.partialPath(target)).doesNotExist();
+    }
+
+    @Test
+    void otherFilesystemIsCopiedThroughAPartialFile() throws Exception {
+        Path shm = Paths.get("/dev/shm");
+        assumeTrue(Files.isDirectory(shm) && Files.isWritable(shm)
+                && !Files.getFileStore(shm).equals(Files.getFileStore(dir)), "needs a second filesystem");
+
+        Path source = Files.createTempFile(shm, "backup", ".sql");
+        byte[] data = randomBytes(3_000_000);
+        Files.write(source, data);
+        Path target = dir.resolve("backups/postgresql_shop_20240101_020000.sql");
+
+        assertThat(LocalFiles.moveInto(source, target)).isEqualTo("copy");
+
+        assertThat(target).hasBinaryContent(data);
+        assertThat(source).doesNotExist();
+        assertThat(LocalFiles.partialPath(target)).doesNotExist();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
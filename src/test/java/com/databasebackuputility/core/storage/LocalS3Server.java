@@ -0,0 +1,250 @@
+package com.databasebackuputility.core.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process stand-in for the S3 object API, enough for multipart uploads,
+ * single PUTs, ranged GETs, HEAD and DELETE; path-style addressing, no authentication
+ */
+class LocalS3Server implements AutoCloseable {
+
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    final AtomicInteger aborted = new AtomicInteger();
+    final AtomicInteger maxConcurrentParts = new AtomicInteger();
+    /**
+     * Part number whose ETag is reported wrong, as if the data was altered in transit
+     */
+    volatile int corruptPart;
+    /**
+     * The first GET of the range starting at this offset answers after {@link #slowMillis}
+     */
+    volatile long slowRangeStart = -1;
+    volatile long slowMillis;
+    /**
+     * Every ranged GET answers after this long
+     */
+    volatile long rangeMillis;
+    final AtomicInteger rangeRequests = new AtomicInteger();
+
+    private final AtomicInteger concurrentParts = new AtomicInteger();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private final HttpServer server;
+
+    LocalS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } catch (Exception e) {
+                respond(exchange, 500, "<Error><Code>InternalError</Code><Message>" + e + "</Message></Error>");
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    S3Client client() {
+        return S3Client.builder()
+                .endpointOverride(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .forcePathStyle(true)
+                .build();
+    }
+
+    private void handle(HttpExchange exchange) throws Exception {
+        String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+        String key = path.substring(path.indexOf('/', 1) + 1);
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String method = exchange.getRequestMethod();
+
+        if ("POST".equals(method) && query.containsKey("uploads")) {
+            String uploadId = "upload-" + uploadIds.incrementAndGet();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            respond(exchange, 200, "<InitiateMultipartUploadResult><Bucket>b</Bucket><Key>" + key
+                    + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+        } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+            int active = concurrentParts.incrementAndGet();
+            maxConcurrentParts.accumulateAndGet(active, Math::max);
+            try {
+                byte[] body = body(exchange);
+                // Let concurrent parts overlap
+                Thread.sleep(20);
+                int partNumber = Integer.parseInt(query.get("partNumber"));
+                if (!digestMatches(exchange, body)) {
+                    respond(exchange, 400, "<Error><Code>BadDigest</Code></Error>");
+                    return;
+                }
+                uploads.get(query.get("uploadId")).put(partNumber, body);
+                exchange.getResponseHeaders().add("ETag", "\"" + (partNumber == corruptPart ? "0".repeat(32) : md5(body)) + "\"");
+                respond(exchange, 200, "");
+            } finally {
+                concurrentParts.decrementAndGet();
+            }
+        } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+            body(exchange);
+            Map<Integer, byte[]> parts = new TreeMap<>(uploads.remove(query.get("uploadId")));
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (byte[] part : parts.values()) {
+                object.write(part);
+            }
+            objects.put(key, object.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult><Bucket>b</Bucket><Key>" + key
+                    + "</Key><ETag>\"x-" + parts.size() + "\"</ETag></CompleteMultipartUploadResult>");
+        } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+            uploads.remove(query.get("uploadId"));
+            aborted.incrementAndGet();
+            respond(exchange, 204, "");
+        } else if ("GET".equals(method) || "HEAD".equals(method)) {
+            byte[] object = objects.get(key);
+            if (object == null) {
+                respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                return;
+            }
+            String eTag = "\"" + md5(object) + "\"";
+            String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+            if (ifMatch != null && !ifMatch.equals(eTag)) {
+                respond(exchange, 412, "<Error><Code>PreconditionFailed</Code></Error>");
+                return;
+            }
+            exchange.getResponseHeaders().add("ETag", eTag);
+            if ("HEAD".equals(method)) {
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                respond(exchange, 200, object);
+                return;
+            }
+            rangeRequests.incrementAndGet();
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+            if (start == slowRangeStart) {
+                slowRangeStart = -1;
+                Thread.sleep(slowMillis);
+            }
+            Thread.sleep(rangeMillis);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + object.length);
+            byte[] part = Arrays.copyOfRange(object, start, end + 1);
+            exchange.sendResponseHeaders(206, part.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(part);
+            }
+        } else if ("DELETE".equals(method)) {
+            objects.remove(key);
+            respond(exchange, 204, "");
+        } else if ("PUT".equals(method)) {
+            byte[] body = body(exchange);
+            if (!digestMatches(exchange, body)) {
+                respond(exchange, 400, "<Error><Code>BadDigest</Code></Error>");
+                return;
+            }
+            objects.put(key, body);
+            exchange.getResponseHeaders().add("ETag", "\"" + md5(body) + "\"");
+            respond(exchange, 200, "");
+        } else {
+            respond(exchange, 405, "<Error><Code>MethodNotAllowed</Code></Error>");
+        }
+    }
+
+    private static boolean digestMatches(HttpExchange exchange, byte[] body) throws Exception {
+        String contentMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        return contentMd5 == null || contentMd5.equals(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(md5(body))));
+    }
+
+    /**
+     * Request body, with aws-chunked framing removed; the SDK signs payloads chunk by
+     * chunk on plain http endpoints
+     */
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) {
+            return raw;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(raw.length);
+        int pos = 0;
+        while (pos < raw.length) {
+            int lineEnd = indexOf(raw, pos);
+            String header = new String(raw, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            body.write(raw, lineEnd + 2, size);
+            pos = lineEnd + 2 + size + 2;
+        }
+        return body.toByteArray();
+    }
+
+    private static int indexOf(byte[] data, int from) {
+        for (int i = from; i < data.length - 1; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return data.length;
+    }
+
+    private static String md5(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                query.put(eq < 0 ? pair : pair.substring(0, eq), eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.databasebackuputility.core.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelPartSinkTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void partSizeGrowsOnlyAsFarAsTheMemoryLimitAllows() throws Exception {
+        // Three in flight plus the one filling: 64 bytes leave 16 per part
+        RecordingSink sink = new RecordingSink(16, 3, 1 << 20, 64, 0);
+        sink.write(new byte[16 * 10]);
+        sink.commit();
+
+        assertThat(sink.partLengths).hasSize(10).containsOnly(16);
+    }
+
+    @Test
+    void partSizeDoublesUpToTheMaximum() throws Exception {
+        RecordingSink sink = new RecordingSink(16, 3, 64, 1 << 20, 0);
+        sink.write(new byte[16 + 32 + 64 + 64]);
+        sink.commit();
+
+        assertThat(sink.partLengths).containsExactlyInAnyOrder(16, 32, 64, 64);
+    }
+
+    @Test
+    void abortWaitsForRunningPartsBeforeDiscardingTheUpload() throws Exception {
+        RecordingSink sink = new RecordingSink(16, 3, 16, 1 << 20, 300);
+        sink.write(new byte[16 * 3]);
+        assertThat(sink.uploadsStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        sink.abort();
+
+        assertThat(sink.finishedWhenAborted.get()).isEqualTo(3);
+    }
+
+    /**
+     * Sink whose parts take a while to upload and ignore interruption, like a request
+     * already on the wire
+     */
+    private final class RecordingSink extends ParallelPartSink<Integer> {
+
+        final List<Integer> partLengths = new CopyOnWriteArrayList<>();
+        final CountDownLatch uploadsStarted = new CountDownLatch(3);
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger finishedWhenAborted = new AtomicInteger(-1);
+        private final long uploadMillis;
+
+        RecordingSink(int partSize, int maxInFlight, int maxPartSize, long memoryLimit, long uploadMillis) {
+            super(partSize, maxInFlight, 1, maxPartSize, memoryLimit, executor);
+            this.uploadMillis = uploadMillis;
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected Integer uploadPart(int partNumber, byte[] data, int length) {
+            uploadsStarted.countDown();
+            long end = System.currentTimeMillis() + uploadMillis;
+            boolean interrupted = false;
+            while (System.currentTimeMillis() < end) {
+                try {
+                    Thread.sleep(Math.max(1, end - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            partLengths.add(length);
+            finished.incrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return partNumber;
+        }
+
+        @Override
+        protected void complete(List<Integer> parts) {
+        }
+
+        @Override
+        protected void putSingle(byte[] data, int length) {
+            partLengths.add(length);
+        }
+
+        @Override
+        protected void abortUpload() {
+            finishedWhenAborted.set(finished.get());
+        }
+
+        @Override
+        protected String location() {
+            return "memory://parts";
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.databasebackuputility.core.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3MultipartSinkTests {
+
+    private LocalS3Server server;
+    private S3Client client;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalS3Server();
+        client = server.client();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void streamUploadsPartsConcurrentlyAndSmallBackupsInOnePut() throws Exception {
+        byte[] data = new byte[(64 << 10) * 10 + 123];
+        new Random(7).nextBytes(data);
+
+        S3MultipartSink sink = new S3MultipartSink(client, "backups", "db/full.sql.zst", 64 << 10, 3, 1L << 30, executor);
+        for (int off = 0; off < data.length; off += 1000) {
+            sink.write(data, off, Math.min(1000, data.length - off));
+        }
+        assertThat(sink.commit()).isEqualTo("s3://backups/db/full.sql.zst");
+
+        assertThat(server.objects.get("db/full.sql.zst")).isEqualTo(data);
+        assertThat(server.maxConcurrentParts.get()).isBetween(2, 3);
+
+        S3MultipartSink small = new S3MultipartSink(client, "backups", "small.sql", 64 << 10, 3, 1L << 30, executor);
+        small.write(data, 0, 500);
+        small.commit();
+        assertThat(server.objects.get("small.sql")).hasSize(500);
+        assertThat(server.uploads).isEmpty();
+    }
+
+    @Test
+    void partWithWrongETagFailsAndAbortsTheUpload() throws Exception {
+        server.corruptPart = 2;
+        S3MultipartSink sink = new S3MultipartSink(client, "backups", "bad.sql", 64 << 10, 2, 1L << 30, executor);
+
+        // The failure surfaces in whichever call first sees the finished part; the pipeline then aborts
+        assertThatThrownBy(() -> {
+            sink.write(new byte[(64 << 10) * 4]);
+            sink.commit();
+        }).hasMessageContaining("part 2").hasMessageContaining("expected MD5");
+        sink.abort();
+        assertThat(server.objects).doesNotContainKey("bad.sql");
+        assertThat(server.aborted.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.databasebackuputility.core.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3RangeInputStreamTests {
+
+    private static final int RANGE = 10_000;
+
+    private LocalS3Server server;
+    private S3Client client;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalS3Server();
+        client = server.client();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void rangesArriveInOrderAndSlowRangeIsHedged() throws Exception {
+        byte[] data = new byte[RANGE * 12 + 345];
+        new Random(11).nextBytes(data);
+        server.objects.put("db/full.sql.zst", data);
+        server.slowRangeStart = RANGE * 5L;
+        server.slowMillis = 10_000;
+
+        long start = System.currentTimeMillis();
+        try (S3RangeInputStream in = open("db/full.sql.zst", 4, 1_000, executor)) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+            assertThat(in.getHedgeCount()).isEqualTo(1);
+        }
+        assertThat(System.currentTimeMillis() - start).isLessThan(8_000);
+        // 13 ranges and one second request for the slow one
+        assertThat(server.rangeRequests.get()).isEqualTo(14);
+    }
+
+    @Test
+    void rangesWaitingForAThreadAreNotHedged() throws Exception {
+        byte[] data = new byte[RANGE * 10];
+        server.objects.put("db/full.sql", data);
+        server.rangeMillis = 100;
+
+        // One thread for eight ranges: the last ones queue for longer than the hedge delay
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try (S3RangeInputStream in = open("db/full.sql", 8, 500, single)) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+            assertThat(in.getHedgeCount()).isZero();
+        } finally {
+            single.shutdownNow();
+        }
+        assertThat(server.rangeRequests.get()).isEqualTo(10);
+    }
+
+    @Test
+    void objectReplacedDuringReadFails() throws Exception {
+        byte[] data = new byte[RANGE * 6];
+        server.objects.put("db/full.sql", data);
+        try (InputStream in = open("db/full.sql", 1, 10_000, executor)) {
+            in.readNBytes(RANGE);
+            server.objects.put("db/full.sql", new byte[RANGE * 6 + 1]);
+            assertThatThrownBy(in::readAllBytes).hasMessageContaining("412");
+        }
+    }
+
+    private S3RangeInputStream open(String key, int parallelism, long hedgeAfterMillis, ExecutorService executor) {
+        HeadObjectResponse head = client.headObject(HeadObjectRequest.builder().bucket("backups").key(key).build());
+        return new S3RangeInputStream(client, "backups", key, head.contentLength(), head.eTag(),
+                RANGE, parallelism, hedgeAfterMillis, executor);
+    }
+}
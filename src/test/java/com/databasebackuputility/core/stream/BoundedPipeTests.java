@@ -0,0 +1,102 @@
+package com.databasebackuputility.core.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPipeTests {
+
+    private static final int CHUNK = 4;
+
+    @Test
+    void writerBlocksOnceTheQueueIsFull() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(CHUNK, 2);
+        AtomicInteger written = new AtomicInteger();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try (OutputStream out = pipe.getOutputStream()) {
+                for (int i = 0; i < 10; i++) {
+                    out.write(new byte[]{(byte) i, (byte) i, (byte) i, (byte) i});
+                    written.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // Two chunks of capacity plus the one slot for end of stream
+        Thread.sleep(200);
+        assertThat(written.get()).isEqualTo(3);
+        assertThat(writer).isNotDone();
+
+        byte[] read = pipe.getInputStream().readAllBytes();
+        writer.get(5, TimeUnit.SECONDS);
+        assertThat(read).hasSize(10 * CHUNK);
+        assertThat(pipe.getBytesTransferred()).isEqualTo(10 * CHUNK);
+        assertThat(pipe.getWriterBlockedNanos()).isPositive();
+    }
+
+    @Test
+    void upstreamFailureReachesTheReader() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(CHUNK, 4);
+        pipe.getOutputStream().write(new byte[CHUNK * 2]);
+        pipe.fail(new IllegalStateException("dump process died"));
+
+        assertThatThrownBy(() -> pipe.getInputStream().readAllBytes())
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("dump process died");
+    }
+
+    @Test
+    void closingTheReaderReleasesABlockedWriter() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(CHUNK, 1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                OutputStream out = pipe.getOutputStream();
+                while (true) {
+                    out.write(new byte[CHUNK]);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(writer).isNotDone();
+
+        pipe.getInputStream().close();
+
+        assertThatThrownBy(() -> writer.get(5, TimeUnit.SECONDS))
+                .hasRootCauseInstanceOf(IOException.class)
+                .hasRootCauseMessage("Pipe closed by downstream stage");
+    }
+
+    @Test
+    void recycledChunksKeepTheirData() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(CHUNK, 1);
+        OutputStream out = pipe.getOutputStream();
+        InputStream in = pipe.getInputStream();
+        byte[] data = new byte[CHUNK * 50];
+        new Random(3).nextBytes(data);
+
+        // One chunk in, one chunk out: from the third chunk on, every buffer is a reused one
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        for (int off = 0; off < data.length; off += CHUNK) {
+            out.write(data, off, CHUNK);
+            read.write(in.readNBytes(CHUNK));
+            assertThat(read.toByteArray()).isEqualTo(Arrays.copyOf(data, off + CHUNK));
+        }
+        out.close();
+        assertThat(in.read()).isEqualTo(-1);
+        assertThat(pipe.getBytesTransferred()).isEqualTo(data.length);
+    }
+}
@@ -0,0 +1,81 @@
+package com.databasebackuputility.core.stream;
+
+import com.databasebackuputility.model.StageMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamPipelineTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void dataPassesThroughEveryStage() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(7).nextBytes(data);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        StreamPipeline pipeline = new StreamPipeline(executor, 1024, 2)
+                .source("dump", out -> out.write(data))
+                .transform("copy", (in, out) -> in.transferTo(out))
+                .sink("store", in -> in.transferTo(result));
+        pipeline.run();
+
+        assertThat(result.toByteArray()).isEqualTo(data);
+        assertThat(pipeline.getStageMetrics()).extracting(StageMetrics::getStage)
+                .containsExactly("dump", "copy", "store");
+        assertThat(pipeline.getStageMetrics()).extracting(StageMetrics::getBytesOut)
+                .containsExactly((long) data.length, (long) data.length, (long) data.length);
+    }
+
+    @Test
+    void sourceFailureReachesTheSinkAndRun() {
+        AtomicReference<Exception> seenBySink = new AtomicReference<>();
+        StreamPipeline pipeline = new StreamPipeline(executor, 1024, 2)
+                .source("dump", out -> {
+                    out.write(new byte[5000]);
+                    throw new IllegalStateException("mysqldump exited with 2");
+                })
+                .transform("copy", (in, out) -> in.transferTo(out))
+                .sink("store", in -> {
+                    try {
+                        in.readAllBytes();
+                    } catch (IOException e) {
+                        seenBySink.set(e);
+                        throw e;
+                    }
+                });
+
+        assertThatThrownBy(pipeline::run).isInstanceOf(IllegalStateException.class)
+                .hasMessage("mysqldump exited with 2");
+        assertThat(seenBySink.get()).hasMessageContaining("mysqldump exited with 2");
+    }
+
+    @Test
+    void sinkStoppingEarlyStopsTheSource() {
+        StreamPipeline pipeline = new StreamPipeline(executor, 1024, 2)
+                .source("dump", out -> {
+                    while (true) {
+                        out.write(new byte[1024]);
+                    }
+                })
+                .sink("store", in -> in.readNBytes(10_000));
+
+        assertThatThrownBy(pipeline::run).isInstanceOf(IOException.class)
+                .hasMessage("Pipe closed by downstream stage");
+    }
+}
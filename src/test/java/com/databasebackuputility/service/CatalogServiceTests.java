@@ -0,0 +1,150 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.core.delta.BlockSignature;
+import com.databasebackuputility.core.delta.DeltaEncoder;
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.CatalogEntry;
+import com.databasebackuputility.model.CatalogQuery;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    private Path catalogFile;
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        StorageService storageService = new StorageService();
+        ReflectionTestUtils.setField(storageService, "localBasePath", tempDir.toString());
+        ReflectionTestUtils.setField(storageService, "dedupPath", tempDir.resolve("repository").toString());
+
+        CompressionService compressionService = new CompressionService();
+        ReflectionTestUtils.setField(compressionService, "compressionBlockSize", 64 * 1024);
+
+        catalogFile = tempDir.resolve("catalog.db");
+        catalogService = new CatalogService(storageService, compressionService);
+        ReflectionTestUtils.setField(catalogService, "catalogPath", catalogFile.toString());
+    }
+
+    @Test
+    void findFiltersAndPagesNewestFirst() throws Exception {
+        LocalDateTime day = LocalDateTime.of(2026, 3, 1, 2, 0);
+        for (int i = 0; i < 5; i++) {
+            record("shop", BackupType.FULL, day.plusDays(i), "/backups/shop_" + i + ".sql.gz");
+        }
+        record("crm", BackupType.INCREMENTAL, day.plusDays(2), "/backups/crm_2.delta.zst");
+
+        CatalogQuery page2 = CatalogQuery.builder().databaseName("shop").limit(2).offset(2).build();
+        List<CatalogEntry> entries = catalogService.find(page2);
+
+        assertThat(catalogService.count(page2)).isEqualTo(5);
+        assertThat(entries).extracting(CatalogEntry::getLocation)
+                .containsExactly("/backups/shop_2.sql.gz", "/backups/shop_1.sql.gz");
+        assertThat(catalogService.find(CatalogQuery.builder()
+                .backupType(BackupType.INCREMENTAL)
+                .from(day.plusDays(2))
+                .to(day.plusDays(3))
+                .build()))
+                .extracting(CatalogEntry::getDatabaseName)
+                .containsExactly("crm");
+    }
+
+    @Test
+    void everyStoredCopyOfABackupIsListed() throws Exception {
+        BackupResult result = BackupResult.builder()
+                .backupId(UUID.randomUUID().toString())
+                .success(true)
+                .filePath("/backups/shop.sql.gz")
+                .fileSize(100)
+                .startTime(LocalDateTime.of(2026, 3, 1, 2, 0))
+                .backupType(BackupType.FULL)
+                .databaseType(DatabaseType.MYSQL)
+                .databaseName("shop")
+                .compressionType("GZIP")
+                .build();
+        DatabaseConfig config = DatabaseConfig.builder()
+                .type(DatabaseType.MYSQL)
+                .host("db1")
+                .databaseName("shop")
+                .build();
+
+        catalogService.record(result, config, StorageService.StorageProvider.LOCAL, "/backups/shop.sql.gz");
+        catalogService.record(result, config, StorageService.StorageProvider.S3, "s3://bucket/shop.sql.gz");
+
+        List<CatalogEntry> entries = catalogService.find(CatalogQuery.builder().databaseName("shop").build());
+
+        assertThat(entries).extracting(CatalogEntry::getBackupId).containsOnly(result.getBackupId());
+        assertThat(entries).extracting(CatalogEntry::getLocation)
+                .containsExactly("/backups/shop.sql.gz", "s3://bucket/shop.sql.gz");
+        assertThat(catalogService.find(CatalogQuery.builder().storageProvider("S3").build()))
+                .extracting(CatalogEntry::getLocation)
+                .containsExactly("s3://bucket/shop.sql.gz");
+    }
+
+    @Test
+    void lostCatalogIsRebuiltFromStorage() throws Exception {
+        Path full = tempDir.resolve("mysql_shop_20260301_020000.sql.gz");
+        Files.write(full, new byte[1234]);
+
+        BlockSignature.Builder signature = new BlockSignature.Builder(1024);
+        signature.update(new byte[4096], 0, 4096);
+        BlockSignature base = signature.build();
+        base.setBackupPath(full.toAbsolutePath().toString());
+        Path delta = tempDir.resolve("mysql_shop_20260302_020000_incremental.delta");
+        try (OutputStream out = Files.newOutputStream(delta)) {
+            new DeltaEncoder(base).encode(new ByteArrayInputStream(new byte[5000]), out);
+        }
+
+        record("shop", BackupType.FULL, LocalDateTime.of(2026, 3, 1, 2, 0), full.toAbsolutePath().toString());
+        Files.delete(catalogFile);
+
+        List<CatalogEntry> entries = catalogService.find(CatalogQuery.builder().databaseName("shop").build());
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getBackupType()).isEqualTo(BackupType.INCREMENTAL);
+        assertThat(entries.get(0).getBaseLocation()).isEqualTo(full.toAbsolutePath().toString());
+        assertThat(entries.get(0).getStartTime()).isEqualTo(LocalDateTime.of(2026, 3, 2, 2, 0));
+        assertThat(entries.get(1).getCompression()).isEqualTo("GZIP");
+        assertThat(entries.get(1).getSizeBytes()).isEqualTo(1234);
+    }
+
+    private void record(String database, BackupType backupType, LocalDateTime start, String location)
+            throws Exception {
+        BackupResult result = BackupResult.builder()
+                .backupId(UUID.randomUUID().toString())
+                .success(true)
+                .filePath(location)
+                .fileSize(100)
+                .startTime(start)
+                .backupType(backupType)
+                .databaseType(DatabaseType.MYSQL)
+                .databaseName(database)
+                .compressionType("GZIP")
+                .build();
+        DatabaseConfig config = DatabaseConfig.builder()
+                .type(DatabaseType.MYSQL)
+                .host("db1")
+                .databaseName(database)
+                .build();
+        catalogService.record(result, config, StorageService.StorageProvider.LOCAL);
+    }
+}
@@ -0,0 +1,299 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.core.compression.ParallelGzipInputStream;
+import com.databasebackuputility.model.CompressionDecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressionServiceTests {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private CompressionService compressionService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        compressionService = new CompressionService();
+        ReflectionTestUtils.setField(compressionService, "compressionLevel", 6);
+        ReflectionTestUtils.setField(compressionService, "compressionThreads", 4);
+        ReflectionTestUtils.setField(compressionService, "compressionBlockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(compressionService, "zstdLevel", 3);
+        ReflectionTestUtils.setField(compressionService, "zstdWindowLog", 27);
+        ReflectionTestUtils.setField(compressionService, "xzPreset", 1);
+        ReflectionTestUtils.setField(compressionService, "xzBlockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(compressionService, "autoSampleSize", 4 * BLOCK_SIZE);
+        ReflectionTestUtils.setField(compressionService, "autoCandidates", new String[]{"zstd:6", "zstd:1", "lz4:0"});
+        ReflectionTestUtils.setField(compressionService, "autoIncompressibleEntropy", 7.5);
+        ReflectionTestUtils.setField(compressionService, "autoMinSavings", 0.1);
+        compressionService.startWorkers();
+    }
+
+    @AfterEach
+    void tearDown() {
+        compressionService.stopWorkers();
+    }
+
+    @Test
+    void parallelGzipIsReadableAsStandardMultiMemberGzip() throws Exception {
+        byte[] data = sampleDump(10 * BLOCK_SIZE + 123);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compressionService.compressingStream(
+                compressed, CompressionService.CompressionType.GZIP, "dump.sql")) {
+            out.write(data);
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void emptyInputProducesValidGzip() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressionService.compressingStream(compressed, CompressionService.CompressionType.GZIP, "dump.sql")
+                .close();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertThat(in.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void fileRoundTripRestoresOriginalBytes() throws Exception {
+        byte[] data = sampleDump(3 * BLOCK_SIZE + 7);
+        File source = tempDir.resolve("mysql_app_20240101_000000.sql").toFile();
+        Files.write(source.toPath(), data);
+
+        File compressed = compressionService.compress(source, CompressionService.CompressionType.GZIP);
+        Files.delete(source.toPath());
+        File restored = compressionService.decompress(compressed);
+
+        assertThat(restored.getName()).isEqualTo(source.getName());
+        assertThat(Files.readAllBytes(restored.toPath())).isEqualTo(data);
+    }
+
+    @Test
+    void indexedGzipIsInflatedInParallelInOrder() throws Exception {
+        byte[] data = sampleDump(20 * BLOCK_SIZE + 5);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compressionService.compressingStream(
+                compressed, CompressionService.CompressionType.GZIP, "dump.sql")) {
+            out.write(data);
+        }
+
+        try (InputStream in = compressionService.decompressingStream(
+                new ByteArrayInputStream(compressed.toByteArray()), CompressionService.CompressionType.GZIP)) {
+            assertThat(((ParallelGzipInputStream) in).isSerialFallback()).isFalse();
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void corruptGzipIndexIsRejectedBeforeAllocating() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compressionService.compressingStream(
+                compressed, CompressionService.CompressionType.GZIP, "dump.sql")) {
+            out.write(sampleDump(BLOCK_SIZE));
+        }
+        // Member size of the first index entry, after the fixed header, XLEN and subfield header
+        byte[] corrupt = compressed.toByteArray();
+        Arrays.fill(corrupt, 16, 20, (byte) 0xFF);
+
+        try (InputStream in = compressionService.decompressingStream(
+                new ByteArrayInputStream(corrupt), CompressionService.CompressionType.GZIP)) {
+            assertThatThrownBy(in::readAllBytes).isInstanceOf(IOException.class)
+                    .hasMessageContaining("Corrupt GZIP index");
+        }
+    }
+
+    @Test
+    void plainGzipFallsBackToSerialDecoding() throws Exception {
+        byte[] data = sampleDump(5 * BLOCK_SIZE);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data, 0, 2 * BLOCK_SIZE);
+        }
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data, 2 * BLOCK_SIZE, 3 * BLOCK_SIZE);
+        }
+
+        try (InputStream in = compressionService.decompressingStream(
+                new ByteArrayInputStream(compressed.toByteArray()), CompressionService.CompressionType.GZIP)) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+            assertThat(((ParallelGzipInputStream) in).isSerialFallback()).isTrue();
+        }
+    }
+
+    @Test
+    void parallelXzWritesOneIndexedBlockPerInputBlock() throws Exception {
+        byte[] data = sampleDump(6 * BLOCK_SIZE + 17);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compressionService.compressingStream(
+                compressed, CompressionService.CompressionType.XZ, "dump.sql")) {
+            out.write(data);
+        }
+
+        try (SeekableXZInputStream in = new SeekableXZInputStream(
+                new SeekableByteArrayInput(compressed.toByteArray()))) {
+            assertThat(in.getBlockCount()).isEqualTo(7);
+            assertThat(in.length()).isEqualTo(data.length);
+
+            in.seekToBlock(3);
+            byte[] block = new byte[BLOCK_SIZE];
+            assertThat(in.readNBytes(block, 0, BLOCK_SIZE)).isEqualTo(BLOCK_SIZE);
+            assertThat(block).isEqualTo(Arrays.copyOfRange(data, 3 * BLOCK_SIZE, 4 * BLOCK_SIZE));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionService.CompressionType.class, names = "AUTO",
+            mode = EnumSource.Mode.EXCLUDE)
+    void everyCodecRoundTripsAndIsDetectedByMagicBytes(CompressionService.CompressionType type) throws Exception {
+        byte[] data = sampleDump(4 * BLOCK_SIZE + 99);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = compressionService.compressingStream(compressed, type, "dump.sql")) {
+            out.write(data);
+        }
+
+        try (InputStream in = compressionService.decompressingStream(
+                new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+        if (type != CompressionService.CompressionType.NONE) {
+            assertThat(compressed.size()).isLessThan(data.length);
+        }
+    }
+
+    @Test
+    void autoStoresAlreadyCompressedDataUncompressed() throws Exception {
+        byte[] blobs = new byte[8 * BLOCK_SIZE];
+        new Random(7).nextBytes(blobs);
+
+        CompressionDecision decision = compressionService.chooseCompression(
+                compressionService.readSample(new ByteArrayInputStream(blobs)), 50 * 1024 * 1024);
+
+        assertThat(decision.getCodec()).isEqualTo("NONE");
+        assertThat(decision.getEntropyBitsPerByte()).isGreaterThan(7.5);
+        assertThat(decision.isAutomatic()).isTrue();
+    }
+
+    @Test
+    void autoPicksSmallestCodecThatKeepsUpWithTheDump() throws Exception {
+        byte[] sample = compressionService.readSample(new ByteArrayInputStream(sampleDump(8 * BLOCK_SIZE)));
+
+        CompressionDecision unconstrained = compressionService.chooseCompression(sample, 1);
+        assertThat(unconstrained.getCodec()).isEqualTo("ZSTD");
+        assertThat(unconstrained.getLevel()).isEqualTo(6);
+        assertThat(unconstrained.getSampleRatio()).isLessThan(0.9);
+
+        CompressionDecision unreachable = compressionService.chooseCompression(sample, 1e15);
+        assertThat(unreachable.getReason()).startsWith("no candidate keeps up");
+    }
+
+    @Test
+    void renamedBackupIsDecompressedByContent() throws Exception {
+        byte[] data = sampleDump(2 * BLOCK_SIZE);
+        File source = tempDir.resolve("postgresql_app_20240101_000000.sql").toFile();
+        Files.write(source.toPath(), data);
+
+        File compressed = compressionService.compress(source, CompressionService.CompressionType.ZSTD);
+        File renamed = tempDir.resolve("backup.bin").toFile();
+        Files.move(compressed.toPath(), renamed.toPath());
+
+        File restored = compressionService.decompress(renamed);
+        assertThat(restored).isNotEqualTo(renamed);
+        assertThat(Files.readAllBytes(restored.toPath())).isEqualTo(data);
+    }
+
+    private static class SeekableByteArrayInput extends SeekableInputStream {
+
+        private final byte[] data;
+        private int position;
+
+        SeekableByteArrayInput(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int n = Math.min(len, data.length - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void seek(long pos) {
+            position = (int) pos;
+        }
+    }
+
+    /**
+     * Mix of repetitive SQL text and random bytes, like a dump with BLOB columns
+     */
+    static byte[] sampleDump(int size) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        while (out.size() < size) {
+            if (random.nextInt(4) == 0) {
+                byte[] blob = new byte[random.nextInt(512)];
+                random.nextBytes(blob);
+                out.writeBytes(blob);
+            } else {
+                out.writeBytes(("INSERT INTO orders VALUES (" + random.nextInt(100000)
+                        + ",'customer-" + random.nextInt(500) + "','2024-01-01');\n").getBytes());
+            }
+        }
+        byte[] data = out.toByteArray();
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,148 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.BackupType;
+import com.databasebackuputility.model.DatabaseConfig;
+import com.databasebackuputility.model.DatabaseType;
+import com.databasebackuputility.model.FleetBackupReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetBackupServiceTests {
+
+    private final CountingBackupService backupService = new CountingBackupService();
+
+    @AfterEach
+    void tearDown() {
+        backupService.shutdown();
+    }
+
+    @Test
+    void runsAtMostTheGlobalCapAtOnce() throws Exception {
+        List<DatabaseConfig> configs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            configs.add(config("db" + i, "host" + i));
+        }
+
+        FleetBackupReport report = fleet(3, 3, false).backupAll(configs, BackupType.FULL,
+                CompressionService.CompressionType.NONE, List.of(StorageService.StorageProvider.LOCAL));
+
+        assertThat(report.getResults()).hasSize(8).allMatch(BackupResult::isSuccess);
+        assertThat(backupService.maxRunning.get()).isEqualTo(3);
+    }
+
+    @Test
+    void backupsAndSizeQueriesHonorThePerHostCap() throws Exception {
+        List<DatabaseConfig> configs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            configs.add(config("a" + i, "DB1"));
+            configs.add(config("b" + i, "db2"));
+        }
+
+        fleet(4, 1, true).backupAll(configs, BackupType.FULL,
+                CompressionService.CompressionType.NONE, List.of(StorageService.StorageProvider.LOCAL));
+
+        assertThat(backupService.maxPerHost).containsOnlyKeys("db1", "db2").allSatisfy((host, max) ->
+                assertThat(max.get()).isEqualTo(1));
+        assertThat(backupService.maxSizeQueriesPerHost).containsOnlyKeys("db1", "db2").allSatisfy((host, max) ->
+                assertThat(max.get()).isEqualTo(1));
+    }
+
+    @Test
+    void sameDatabaseNameNeverRunsTwiceAtOnce() throws Exception {
+        List<DatabaseConfig> configs = List.of(config("shop", "host1"), config("shop", "host2"),
+                config("shop", "host3"));
+
+        fleet(3, 1, false).backupAll(configs, BackupType.FULL,
+                CompressionService.CompressionType.NONE, List.of(StorageService.StorageProvider.LOCAL));
+
+        assertThat(backupService.maxRunning.get()).isEqualTo(1);
+    }
+
+    @Test
+    void configWithoutHostIsStillScheduled() throws Exception {
+        FleetBackupReport report = fleet(2, 1, true).backupAll(
+                List.of(config("shop", null), config("crm", "host1")), BackupType.FULL,
+                CompressionService.CompressionType.NONE, List.of(StorageService.StorageProvider.LOCAL));
+
+        assertThat(report.getResults()).hasSize(2);
+    }
+
+    private FleetBackupService fleet(int parallel, int perHost, boolean largestFirst) {
+        FleetBackupService fleet = new FleetBackupService(backupService);
+        ReflectionTestUtils.setField(fleet, "maxParallelBackups", parallel);
+        ReflectionTestUtils.setField(fleet, "maxParallelPerHost", perHost);
+        ReflectionTestUtils.setField(fleet, "largestFirst", largestFirst);
+        return fleet;
+    }
+
+    private static DatabaseConfig config(String database, String host) {
+        return DatabaseConfig.builder()
+                .type(DatabaseType.POSTGRESQL)
+                .host(host)
+                .port(5432)
+                .databaseName(database)
+                .build();
+    }
+
+    /**
+     * Backup service whose backups and size queries only take time and record how many ran at once
+     */
+    private static final class CountingBackupService extends BackupService {
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Map<String, AtomicInteger> runningPerHost = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maxPerHost = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> sizeQueriesPerHost = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maxSizeQueriesPerHost = new ConcurrentHashMap<>();
+
+        CountingBackupService() {
+            super(null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public BackupResult backup(DatabaseConfig config, BackupType backupType,
+                                   CompressionService.CompressionType compressionType,
+                                   List<StorageService.StorageProvider> storageProviders) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            track(config, runningPerHost, maxPerHost, 1);
+            sleep();
+            track(config, runningPerHost, maxPerHost, -1);
+            running.decrementAndGet();
+            return BackupResult.builder().success(true).databaseName(config.getDatabaseName()).build();
+        }
+
+        @Override
+        public long getDatabaseSize(DatabaseConfig config) {
+            track(config, sizeQueriesPerHost, maxSizeQueriesPerHost, 1);
+            sleep();
+            track(config, sizeQueriesPerHost, maxSizeQueriesPerHost, -1);
+            return config.getDatabaseName().hashCode();
+        }
+
+        private static void track(DatabaseConfig config, Map<String, AtomicInteger> current,
+                                  Map<String, AtomicInteger> max, int delta) {
+            String host = String.valueOf(config.getHost()).toLowerCase();
+            int now = current.computeIfAbsent(host, key -> new AtomicInteger()).addAndGet(delta);
+            max.computeIfAbsent(host, key -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+        }
+
+        private static void sleep() {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.databasebackuputility.service;
+
+import com.databasebackuputility.core.stream.StreamPipeline;
+import com.databasebackuputility.model.BackupResult;
+import com.databasebackuputility.model.DatabaseType;
+import com.databasebackuputility.model.StageMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void slowSinkShowsAsBusyAndBlocksTheStagesBeforeIt() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        StreamPipeline pipeline = new StreamPipeline(executor, 64 * 1024, 2)
+                .source("dump", out -> out.write(new byte[4 << 20]))
+                .sink("store", in -> {
+                    byte[] buffer = new byte[64 * 1024];
+                    while (in.read(buffer) != -1) {
+                        Thread.sleep(5);
+                    }
+                });
+        try {
+            pipeline.run();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<StageMetrics> stages = pipeline.getStageMetrics();
+        assertThat(stages).extracting(StageMetrics::getStage).containsExactly("dump", "store");
+        assertThat(stages.get(0).getBytesOut()).isEqualTo(4 << 20);
+        assertThat(stages.get(1).getBytesIn()).isEqualTo(4 << 20);
+        assertThat(stages.get(0).getBlockedMs()).isGreaterThan(stages.get(0).getBusyMs());
+        assertThat(stages.get(1).getBusyMs()).isGreaterThan(stages.get(1).getWaitingMs());
+
+        MetricsService metricsService = new MetricsService();
+        ReflectionTestUtils.setField(metricsService, "textfileDir", tempDir.toString());
+        metricsService.recordBackup(BackupResult.builder()
+                .success(true)
+                .databaseType(DatabaseType.POSTGRESQL)
+                .databaseName("shop")
+                .endTime(LocalDateTime.now())
+                .durationMs(1500)
+                .fileSize(1234)
+                .stageMetrics(stages)
+                .build());
+
+        String metrics = Files.readString(tempDir.resolve("dbbackup_POSTGRESQL_shop.prom"));
+        assertThat(metrics)
+                .contains("dbbackup_last_success{database=\"shop\",type=\"POSTGRESQL\"} 1\n")
+                .contains("dbbackup_last_duration_seconds{database=\"shop\",type=\"POSTGRESQL\"} 1.500\n")
+                .contains("dbbackup_stage_bytes_in{database=\"shop\",type=\"POSTGRESQL\",stage=\"store\"} 4194304\n")
+                .contains("# TYPE dbbackup_stage_blocked_seconds gauge\n");
+    }
+}